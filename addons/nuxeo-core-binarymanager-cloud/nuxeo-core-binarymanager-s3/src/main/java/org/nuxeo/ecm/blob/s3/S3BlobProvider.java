@@ -39,6 +39,7 @@ import org.nuxeo.ecm.core.blob.BlobStoreBlobProvider;
 import org.nuxeo.ecm.core.blob.CachingBlobStore;
 import org.nuxeo.ecm.core.blob.KeyStrategy;
 import org.nuxeo.ecm.core.blob.ManagedBlob;
+import org.nuxeo.ecm.core.blob.TieredCachingBlobStore;
 import org.nuxeo.ecm.core.blob.TransactionalBlobStore;
 import org.nuxeo.ecm.core.io.download.DownloadHelper;
 
@@ -70,7 +71,12 @@ public class S3BlobProvider extends BlobStoreBlobProvider {
         BlobStore store = new S3BlobStore("S3", config, keyStrategy);
         boolean caching = !config.getBooleanProperty("test-nocaching"); // for tests
         if (caching) {
-            store = new CachingBlobStore("Cache", store, config.cachingConfiguration);
+            if (config.cachingConfiguration.isTiered()) {
+                store = new TieredCachingBlobStore("Cache_" + blobProviderId, store,
+                        config.cachingConfiguration);
+            } else {
+                store = new CachingBlobStore("Cache", store, config.cachingConfiguration);
+            }
         }
 
         // maybe wrap into a transactional store
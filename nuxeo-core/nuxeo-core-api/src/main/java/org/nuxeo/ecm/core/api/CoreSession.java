@@ -253,6 +253,20 @@ public interface CoreSession {
      */
     DocumentModelList getDocuments(DocumentRef[] docRefs) throws DocumentNotFoundException;
 
+    /**
+     * Gets a list of documents given their references, fetching them from the storage in as few round trips as
+     * possible.
+     * <p>
+     * Documents that don't exist or are not accessible are skipped, the other ones are returned in the order of the
+     * given references.
+     *
+     * @param docRefs the document references
+     * @param schemas the schemas to prefetch, or none to use the default prefetch configuration
+     * @return the documents
+     * @since 11.1
+     */
+    DocumentModelList getDocuments(Collection<DocumentRef> docRefs, String... schemas);
+
     /**
      * Gets a child document given its name and the parent reference.
      * <p>
@@ -147,17 +147,10 @@ public class CachingBlobStore extends AbstractBlobStore {
         if (cachedFile == null) {
             logTrace("<--", "missing");
             logTrace("hnote right: " + key);
-            // fetch file from storage into the cache
-            // go through a tmp file for atomicity
-            String tmpKey = randomString();
-            boolean found = tmpStore.copyBlob(tmpKey, store, key, false);
-            if (!found) {
+            cachedFile = fetchFile(key);
+            if (cachedFile == null) {
                 return OptionalOrUnknown.missing();
             }
-            File tmp = tmpPathStrategy.getPathForKey(tmpKey).toFile();
-            logTrace("->", "write " + tmp.length() + " bytes");
-            logTrace("hnote right: " + key);
-            cachedFile = fileCache.putFile(key, tmp);
         } else {
             logTrace("<-", "read " + cachedFile.length() + " bytes");
             logTrace("hnote right: " + key);
@@ -165,6 +158,31 @@ public class CachingBlobStore extends AbstractBlobStore {
         return OptionalOrUnknown.of(new FileInputStream(cachedFile));
     }
 
+    /**
+     * Fetches the blob from storage into the cache.
+     *
+     * @return the cached file, or {@code null} if the blob is missing from storage
+     */
+    protected File fetchFile(String key) throws IOException {
+        // go through a tmp file for atomicity
+        String tmpKey = randomString();
+        boolean found = tmpStore.copyBlob(tmpKey, store, key, false);
+        if (!found) {
+            return null;
+        }
+        File tmp = tmpPathStrategy.getPathForKey(tmpKey).toFile();
+        logTrace("->", "write " + tmp.length() + " bytes");
+        logTrace("hnote right: " + key);
+        return fileCache.putFile(key, tmp);
+    }
+
+    /**
+     * Clears the cached blobs.
+     */
+    protected void clearCache() {
+        fileCache.clear();
+    }
+
     @Override
     public boolean readBlob(String key, Path dest) throws IOException {
         OptionalOrUnknown<InputStream> streamOpt = getStream(key);
@@ -224,7 +242,7 @@ public class CachingBlobStore extends AbstractBlobStore {
             delegate.stop(delete);
             if (delete) {
                 logTrace("->", "clear");
-                fileCache.clear();
+                clearCache();
             }
         }
 
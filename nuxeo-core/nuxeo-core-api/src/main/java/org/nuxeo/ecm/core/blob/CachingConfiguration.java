@@ -38,12 +38,30 @@ public class CachingConfiguration extends PropertyBasedConfiguration {
 
     public static final String CACHE_MIN_AGE_PROPERTY = "cacheminage";
 
+    /** @since 11.1 */
+    public static final String CACHE_MEMORY_SIZE_PROPERTY = "cachememorysize";
+
+    /** @since 11.1 */
+    public static final String CACHE_MEMORY_MAX_BLOB_SIZE_PROPERTY = "cachememorymaxblobsize";
+
+    /** @since 11.1 */
+    public static final String CACHE_MAPPED_MAX_BLOB_SIZE_PROPERTY = "cachemappedmaxblobsize";
+
     public static final String DEFAULT_CACHE_SIZE = "100 mb";
 
     public static final String DEFAULT_CACHE_COUNT = "10000";
 
     public static final String DEFAULT_CACHE_MIN_AGE = "3600"; // 1h
 
+    /** @since 11.1 */
+    public static final String DEFAULT_CACHE_MEMORY_SIZE = "0"; // no memory tier
+
+    /** @since 11.1 */
+    public static final String DEFAULT_CACHE_MEMORY_MAX_BLOB_SIZE = "64 kb";
+
+    /** @since 11.1 */
+    public static final String DEFAULT_CACHE_MAPPED_MAX_BLOB_SIZE = "16 mb";
+
     public final Path dir;
 
     public final long maxSize;
@@ -52,6 +70,27 @@ public class CachingConfiguration extends PropertyBasedConfiguration {
 
     public final long minAge;
 
+    /**
+     * The maximum size of the in-memory tier, {@code 0} to disable it.
+     *
+     * @since 11.1
+     */
+    public final long memoryMaxSize;
+
+    /**
+     * The maximum size of a blob kept in the in-memory tier.
+     *
+     * @since 11.1
+     */
+    public final long memoryMaxBlobSize;
+
+    /**
+     * The maximum size of a cached file read through a memory mapping.
+     *
+     * @since 11.1
+     */
+    public final long mappedMaxBlobSize;
+
     public CachingConfiguration(String systemPropertyPrefix, Map<String, String> properties) throws IOException {
         super(systemPropertyPrefix, properties);
         dir = Framework.createTempDirectory("nxbincache.");
@@ -61,14 +100,39 @@ public class CachingConfiguration extends PropertyBasedConfiguration {
         maxSize = SizeUtils.parseSizeInBytes(maxSizeProp);
         maxCount = Long.parseLong(maxCountProp);
         minAge = Long.parseLong(minAgeProp);
+        memoryMaxSize = SizeUtils.parseSizeInBytes(getProperty(CACHE_MEMORY_SIZE_PROPERTY, DEFAULT_CACHE_MEMORY_SIZE));
+        memoryMaxBlobSize = SizeUtils.parseSizeInBytes(
+                getProperty(CACHE_MEMORY_MAX_BLOB_SIZE_PROPERTY, DEFAULT_CACHE_MEMORY_MAX_BLOB_SIZE));
+        mappedMaxBlobSize = SizeUtils.parseSizeInBytes(
+                getProperty(CACHE_MAPPED_MAX_BLOB_SIZE_PROPERTY, DEFAULT_CACHE_MAPPED_MAX_BLOB_SIZE));
     }
 
     public CachingConfiguration(Path dir, long maxSize, long maxCount, long minAge) {
+        this(dir, maxSize, maxCount, minAge, 0, 0, 0);
+    }
+
+    /**
+     * @since 11.1
+     */
+    public CachingConfiguration(Path dir, long maxSize, long maxCount, long minAge, long memoryMaxSize,
+            long memoryMaxBlobSize, long mappedMaxBlobSize) {
         super(null, null);
         this.dir = dir;
         this.maxSize = maxSize;
         this.maxCount = maxCount;
         this.minAge = minAge;
+        this.memoryMaxSize = memoryMaxSize;
+        this.memoryMaxBlobSize = memoryMaxBlobSize;
+        this.mappedMaxBlobSize = mappedMaxBlobSize;
+    }
+
+    /**
+     * Whether an in-memory tier is configured in front of the local disk cache.
+     *
+     * @since 11.1
+     */
+    public boolean isTiered() {
+        return memoryMaxSize > 0;
     }
 
 }
@@ -42,7 +42,11 @@ public class InMemoryBlobProvider extends BlobStoreBlobProvider {
         }
         if (config.getBooleanProperty("test-caching")) { // for tests
             CachingConfiguration cachingConfiguration = new CachingConfiguration(null, properties);
-            store = new CachingBlobStore("Cache", store, cachingConfiguration);
+            if (cachingConfiguration.isTiered()) {
+                store = new TieredCachingBlobStore("Cache_" + blobProviderId, store, cachingConfiguration);
+            } else {
+                store = new CachingBlobStore("Cache", store, cachingConfiguration);
+            }
         }
         return store;
     }
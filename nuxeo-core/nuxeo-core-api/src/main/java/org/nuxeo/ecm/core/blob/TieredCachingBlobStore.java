@@ -0,0 +1,263 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.blob;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caching blob store with an in-memory tier in front of the local disk cache of {@link CachingBlobStore}.
+ * <ul>
+ * <li>small blobs are kept in a memory cache bounded in bytes,</li>
+ * <li>mid-size cached files are read through a memory mapping,</li>
+ * <li>concurrent reads of the same missing blob trigger a single fetch from the underlying store.</li>
+ * </ul>
+ * Hits, misses and bytes read are counted for each tier in the metrics registry under
+ * {@code nuxeo.blobstore.cache.<name>}.
+ *
+ * @since 11.1
+ */
+public class TieredCachingBlobStore extends CachingBlobStore {
+
+    public static final String METRICS_PREFIX = "nuxeo.blobstore.cache";
+
+    protected final long memoryMaxBlobSize;
+
+    protected final long mappedMaxBlobSize;
+
+    // public for tests
+    public final Cache<String, byte[]> memoryCache;
+
+    /** Fetches in progress from the underlying store, to coalesce concurrent reads of the same key. */
+    protected final ConcurrentMap<String, CompletableFuture<File>> fetches = new ConcurrentHashMap<>();
+
+    protected final Counter memoryHits;
+
+    protected final Counter memoryMisses;
+
+    protected final Counter memoryBytes;
+
+    protected final Counter diskHits;
+
+    protected final Counter diskMisses;
+
+    protected final Counter diskBytes;
+
+    protected final Counter fetchCount;
+
+    protected final Counter fetchCoalesced;
+
+    public TieredCachingBlobStore(String name, BlobStore store, CachingConfiguration config) {
+        super(name, store, config);
+        memoryMaxBlobSize = config.memoryMaxBlobSize;
+        mappedMaxBlobSize = config.mappedMaxBlobSize;
+        memoryCache = CacheBuilder.newBuilder()
+                                  .maximumWeight(config.memoryMaxSize)
+                                  .weigher((String key, byte[] bytes) -> bytes.length)
+                                  .build();
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        memoryHits = registry.counter(MetricRegistry.name(METRICS_PREFIX, name, "memory", "hits"));
+        memoryMisses = registry.counter(MetricRegistry.name(METRICS_PREFIX, name, "memory", "misses"));
+        memoryBytes = registry.counter(MetricRegistry.name(METRICS_PREFIX, name, "memory", "bytes"));
+        diskHits = registry.counter(MetricRegistry.name(METRICS_PREFIX, name, "disk", "hits"));
+        diskMisses = registry.counter(MetricRegistry.name(METRICS_PREFIX, name, "disk", "misses"));
+        diskBytes = registry.counter(MetricRegistry.name(METRICS_PREFIX, name, "disk", "bytes"));
+        fetchCount = registry.counter(MetricRegistry.name(METRICS_PREFIX, name, "fetch", "count"));
+        fetchCoalesced = registry.counter(MetricRegistry.name(METRICS_PREFIX, name, "fetch", "coalesced"));
+    }
+
+    @Override
+    public String writeBlob(BlobWriteContext blobWriteContext) throws IOException {
+        String key = super.writeBlob(blobWriteContext);
+        // the key may be reused (record mode)
+        memoryCache.invalidate(key);
+        return key;
+    }
+
+    @Override
+    public boolean copyBlob(String key, BlobStore sourceStore, String sourceKey, boolean atomicMove)
+            throws IOException {
+        memoryCache.invalidate(key);
+        if (atomicMove && sourceStore instanceof TieredCachingBlobStore) {
+            ((TieredCachingBlobStore) sourceStore).memoryCache.invalidate(sourceKey);
+        }
+        return super.copyBlob(key, sourceStore, sourceKey, atomicMove);
+    }
+
+    @Override
+    public void deleteBlob(String key) {
+        memoryCache.invalidate(key);
+        super.deleteBlob(key);
+    }
+
+    @Override
+    protected void clearCache() {
+        memoryCache.invalidateAll();
+        super.clearCache();
+    }
+
+    @Override
+    public OptionalOrUnknown<InputStream> getStream(String key) throws IOException {
+        byte[] bytes = memoryCache.getIfPresent(key);
+        if (bytes != null) {
+            logTrace("<-", "read " + bytes.length + " bytes from memory");
+            logTrace("hnote right: " + key);
+            memoryHits.inc();
+            memoryBytes.inc(bytes.length);
+            return OptionalOrUnknown.of(new ByteArrayInputStream(bytes));
+        }
+        memoryMisses.inc();
+        File cachedFile = fileCache.getFile(key);
+        if (cachedFile == null) {
+            logTrace("<--", "missing");
+            logTrace("hnote right: " + key);
+            diskMisses.inc();
+            cachedFile = fetchFileCoalesced(key);
+            if (cachedFile == null) {
+                return OptionalOrUnknown.missing();
+            }
+        } else {
+            logTrace("<-", "read " + cachedFile.length() + " bytes");
+            logTrace("hnote right: " + key);
+            diskHits.inc();
+        }
+        long length = cachedFile.length();
+        diskBytes.inc(length);
+        if (length <= memoryMaxBlobSize) {
+            bytes = Files.readAllBytes(cachedFile.toPath());
+            memoryCache.put(key, bytes);
+            return OptionalOrUnknown.of(new ByteArrayInputStream(bytes));
+        } else if (length <= mappedMaxBlobSize) {
+            try (FileChannel channel = FileChannel.open(cachedFile.toPath(), StandardOpenOption.READ)) {
+                // the mapping stays valid after the channel is closed
+                ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+                return OptionalOrUnknown.of(new ByteBufferInputStream(buffer));
+            }
+        } else {
+            return OptionalOrUnknown.of(new FileInputStream(cachedFile));
+        }
+    }
+
+    /**
+     * Fetches the blob into the cache, the first caller does the actual fetch and concurrent callers for the same key
+     * wait for its result.
+     */
+    protected File fetchFileCoalesced(String key) throws IOException {
+        CompletableFuture<File> future = new CompletableFuture<>();
+        CompletableFuture<File> previous = fetches.putIfAbsent(key, future);
+        if (previous != null) {
+            fetchCoalesced.inc();
+            return waitForFetch(previous);
+        }
+        try {
+            // a fetch may have completed between the cache lookup and the registration
+            File file = fileCache.getFile(key);
+            if (file == null) {
+                fetchCount.inc();
+                file = fetchFile(key);
+            }
+            future.complete(file);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            fetches.remove(key, future);
+        }
+    }
+
+    protected File waitForFetch(CompletableFuture<File> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException(cause.getMessage(), cause);
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Input stream reading a byte buffer, used for memory mapped files.
+     */
+    protected static class ByteBufferInputStream extends InputStream {
+
+        protected final ByteBuffer buffer;
+
+        public ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+}
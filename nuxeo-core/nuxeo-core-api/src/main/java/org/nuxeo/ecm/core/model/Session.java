@@ -20,6 +20,7 @@
 package org.nuxeo.ecm.core.model;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -134,6 +135,28 @@ public interface Session<T extends QueryFilter> {
      */
     Document getDocumentByUUID(String uuid) throws DocumentNotFoundException;
 
+    /**
+     * Gets several documents given their IDs, fetching them from the storage in as few round trips as possible.
+     * <p>
+     * Documents that don't exist are skipped, the other ones are returned in the order of the given ids.
+     *
+     * @param uuids the document ids
+     * @return the documents
+     * @since 11.1
+     */
+    default List<Document> getDocumentsByUUID(List<String> uuids) {
+        List<Document> docs = new ArrayList<>(uuids.size());
+        for (String uuid : uuids) {
+            try {
+                docs.add(getDocumentByUUID(uuid));
+            } catch (DocumentNotFoundException e) {
+                // skip missing document
+                continue;
+            }
+        }
+        return docs;
+    }
+
     /**
      * Gets the root document in this repository.
      *
@@ -111,6 +111,9 @@ public abstract class TestAbstractBlobStore {
 
     protected void clearBlobStore(CachingBlobStore blobStore) throws IOException {
         clearBlobStore(blobStore.store);
+        if (blobStore instanceof TieredCachingBlobStore) {
+            ((TieredCachingBlobStore) blobStore).memoryCache.invalidateAll();
+        }
         Path dir = blobStore.cacheDir;
         FileUtils.cleanDirectory(dir.toFile());
     }
@@ -0,0 +1,138 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.blob;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.nuxeo.runtime.test.runner.Deploy;
+
+@Deploy("org.nuxeo.ecm.core.api.tests:OSGI-INF/test-blob-provider-inmemory-tiered-caching.xml")
+public class TestTieredCachingBlobStore extends TestAbstractBlobStore {
+
+    protected TieredCachingBlobStore getTieredStore() {
+        return getTieredStore(bs);
+    }
+
+    protected TieredCachingBlobStore getTieredStore(BlobStore store) {
+        if (store instanceof TransactionalBlobStore) {
+            store = ((TransactionalBlobStore) store).store;
+        }
+        return (TieredCachingBlobStore) store;
+    }
+
+    @Test
+    public void testTiers() throws IOException {
+        TieredCachingBlobStore store = getTieredStore();
+        String fooKey = bs.writeBlob(blobContext(ID1, FOO));
+        String longKey = bs.writeBlob(blobContext(ID2, "foobarbaz"));
+
+        // small blob goes to the memory tier once read
+        assertNull(store.memoryCache.getIfPresent(fooKey));
+        long memoryHits = store.memoryHits.getCount();
+        assertBlob(fooKey, FOO);
+        assertNotNull(store.memoryCache.getIfPresent(fooKey));
+        assertBlob(fooKey, FOO);
+        assertTrue(store.memoryHits.getCount() > memoryHits);
+
+        // bigger blob is read from disk through a mapping, not kept in memory
+        assertBlob(longKey, "foobarbaz");
+        assertNull(store.memoryCache.getIfPresent(longKey));
+
+        // replacing the blob invalidates the memory tier
+        if (!useDeDuplication()) {
+            String key = bs.writeBlob(blobContext(ID1, BAR));
+            assertKey(ID1, key);
+            assertBlob(key, BAR);
+        }
+    }
+
+    @Test
+    public void testMetricsPerBlobProvider() throws IOException {
+        TieredCachingBlobStore store = getTieredStore();
+        BlobStore otherBlobStore = ((BlobStoreBlobProvider) blobManager.getBlobProvider("other")).store;
+        TieredCachingBlobStore otherStore = getTieredStore(otherBlobStore);
+        assertNotSame(store.memoryHits, otherStore.memoryHits);
+        assertNotSame(store.fetchCount, otherStore.fetchCount);
+
+        String fooKey = bs.writeBlob(blobContext(ID1, FOO));
+        assertBlob(fooKey, FOO);
+        long otherMemoryHits = otherStore.memoryHits.getCount();
+        long memoryHits = store.memoryHits.getCount();
+        assertBlob(fooKey, FOO);
+        assertTrue(store.memoryHits.getCount() > memoryHits);
+        assertEquals(otherMemoryHits, otherStore.memoryHits.getCount());
+    }
+
+    @Test
+    public void testConcurrentFetchesAreCoalesced() throws Exception {
+        TieredCachingBlobStore store = getTieredStore();
+        String key = bs.writeBlob(blobContext(ID1, FOO));
+        // evict from all tiers
+        store.clearCache();
+
+        int nbThreads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Callable<Void>> readers = new ArrayList<>();
+        for (int i = 0; i < nbThreads; i++) {
+            readers.add(() -> {
+                ready.await();
+                try (InputStream stream = bs.getStream(key).get()) {
+                    assertEquals(FOO, IOUtils.toString(stream, UTF_8));
+                }
+                return null;
+            });
+        }
+        long fetchCount = store.fetchCount.getCount();
+        long coalesced = store.fetchCoalesced.getCount();
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Callable<Void> reader : readers) {
+            futures.add(executor.submit(reader));
+        }
+        ready.countDown();
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        // the fetches that didn't hit the cache were either done or coalesced
+        long fetches = store.fetchCount.getCount() - fetchCount;
+        assertEquals(1, fetches);
+        assertTrue(store.fetchCoalesced.getCount() - coalesced < nbThreads);
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.util.List;
+
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.InitializationError;
+import org.nuxeo.ecm.core.api.CloseableCoreSession;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.ecm.core.test.StorageConfiguration;
+import org.nuxeo.ecm.core.test.annotations.Granularity;
+import org.nuxeo.ecm.core.test.annotations.RepositoryConfig;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * Boots a Nuxeo runtime with the {@link CoreFeature} outside of JUnit, so that JMH benchmarks can work against a real
+ * repository.
+ * <p>
+ * The storage is selected the same way as for the unit tests, through the {@value StorageConfiguration#CORE_PROPERTY}
+ * system property ({@code mem} for the in-memory DBS repository, {@code vcs} for the H2-backed VCS repository). As the
+ * Nuxeo runtime is a singleton, only one instance can be started per JVM, JMH forks take care of the isolation.
+ *
+ * @since 11.1
+ */
+public class CoreBenchmarkRuntime extends FeaturesRunner {
+
+    /**
+     * The configuration holder whose annotations are read by the features.
+     */
+    @Features(CoreFeature.class)
+    @RepositoryConfig(cleanup = Granularity.CLASS)
+    public static class Configuration {
+    }
+
+    public CoreBenchmarkRuntime() throws InitializationError {
+        super(Configuration.class);
+    }
+
+    /**
+     * Starts the runtime and the repository for the given storage type.
+     */
+    public static CoreBenchmarkRuntime start(String core) {
+        System.setProperty(StorageConfiguration.CORE_PROPERTY, core);
+        CoreBenchmarkRuntime runtime;
+        try {
+            runtime = new CoreBenchmarkRuntime();
+        } catch (InitializationError e) {
+            throw new NuxeoException(e.getCauses().get(0));
+        }
+        runtime.startRuntime();
+        return runtime;
+    }
+
+    protected void startRuntime() {
+        injector = onInjector(new RunNotifier());
+        try {
+            initialize();
+        } catch (Exception e) {
+            throw new NuxeoException(e);
+        }
+        start();
+        beforeRun();
+    }
+
+    public void stopRuntime() {
+        try {
+            afterRun();
+        } finally {
+            stop();
+        }
+    }
+
+    public CoreFeature getCoreFeature() {
+        return getFeature(CoreFeature.class);
+    }
+
+    /**
+     * Opens a new session for the Administrator, to be closed by the caller.
+     */
+    public CloseableCoreSession openCoreSession() {
+        return getCoreFeature().openCoreSession();
+    }
+
+    @Override
+    protected void collectInitializationErrors(List<Throwable> errors) {
+        // the configuration holder is not a test class, don't validate it
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.api.CloseableCoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the {@link org.nuxeo.ecm.core.api.CoreSession} document hot paths.
+ * <p>
+ * A folder of {@link #children} documents is created once per trial. Read benchmarks run inside a transaction spanning
+ * the whole iteration, so they measure the session and storage layers, not the transaction management. Write
+ * benchmarks commit after each operation, as a request would do.
+ *
+ * @since 11.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g" })
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class DocumentBenchmark {
+
+    @Param({ "mem", "vcs" })
+    public String core;
+
+    @Param({ "1000" })
+    public int children;
+
+    protected CoreBenchmarkRuntime runtime;
+
+    protected CloseableCoreSession session;
+
+    protected DocumentModel folder;
+
+    protected DocumentModel doc;
+
+    protected DocumentRef[] childRefs;
+
+    protected String childrenQuery;
+
+    protected long counter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        runtime = CoreBenchmarkRuntime.start(core);
+        session = runtime.openCoreSession();
+        TransactionHelper.runInTransaction(() -> {
+            folder = session.createDocumentModel("/", "folder", "Folder");
+            folder = session.createDocument(folder);
+            List<DocumentRef> refs = new ArrayList<>(children);
+            for (int i = 0; i < children; i++) {
+                DocumentModel child = session.createDocumentModel(folder.getPathAsString(), "doc" + i, "File");
+                child.setPropertyValue("dc:title", "Document " + i);
+                refs.add(session.createDocument(child).getRef());
+                if (i % 100 == 0) {
+                    session.save();
+                }
+            }
+            session.save();
+            childRefs = refs.toArray(new DocumentRef[0]);
+            doc = session.getDocument(childRefs[0]);
+        });
+        childrenQuery = String.format("SELECT * FROM Document WHERE ecm:parentId = '%s' AND dc:title LIKE 'Document 1%%'",
+                folder.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            if (session != null) {
+                session.close();
+            }
+        } finally {
+            runtime.stopRuntime();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startTransaction() {
+        TransactionHelper.startTransaction();
+    }
+
+    @TearDown(Level.Iteration)
+    public void commitTransaction() {
+        TransactionHelper.commitOrRollbackTransaction();
+    }
+
+    @Benchmark
+    public DocumentModel getDocument() {
+        return session.getDocument(childRefs[ThreadLocalRandom.current().nextInt(childRefs.length)]);
+    }
+
+    @Benchmark
+    public DocumentModelList getChildren() {
+        return session.getChildren(folder.getRef());
+    }
+
+    @Benchmark
+    public DocumentModelList query() {
+        return session.query(childrenQuery);
+    }
+
+    @Benchmark
+    public DocumentModel createDocument() {
+        DocumentModel model = session.createDocumentModel(folder.getPathAsString(), "new" + counter++, "File");
+        model.setPropertyValue("dc:title", "New document");
+        DocumentModel created = session.createDocument(model);
+        session.save();
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        return created;
+    }
+
+    @Benchmark
+    public DocumentModel saveDocument() {
+        doc.setPropertyValue("dc:description", "Description " + counter++);
+        doc = session.saveDocument(doc);
+        session.save();
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        return doc;
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.api.CloseableCoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.api.PathRef;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the lookups of the in-memory DBS repository that are served by its indexes, on a large tree.
+ * <p>
+ * The tree has {@link #folders} folders of {@link #children} documents each. The test Mem repository indexes
+ * {@code dc:title} but not {@code dc:description}, so {@link #queryIndexed} and {@link #queryNotIndexed} compare a query
+ * restricted by an index with a scan of all the documents.
+ *
+ * @since 11.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class MemIndexBenchmark {
+
+    @Param({ "100" })
+    public int folders;
+
+    @Param({ "1000" })
+    public int children;
+
+    protected CoreBenchmarkRuntime runtime;
+
+    protected CloseableCoreSession session;
+
+    protected DocumentModel[] folderDocs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        runtime = CoreBenchmarkRuntime.start("mem");
+        session = runtime.openCoreSession();
+        folderDocs = new DocumentModel[folders];
+        TransactionHelper.runInTransaction(() -> {
+            for (int i = 0; i < folders; i++) {
+                DocumentModel folder = session.createDocumentModel("/", "folder" + i, "Folder");
+                folderDocs[i] = session.createDocument(folder);
+                for (int j = 0; j < children; j++) {
+                    DocumentModel child = session.createDocumentModel(folderDocs[i].getPathAsString(), "doc" + j,
+                            "File");
+                    child.setPropertyValue("dc:title", "Document " + i + "-" + j);
+                    child.setPropertyValue("dc:description", "Document " + i + "-" + j);
+                    session.createDocument(child);
+                }
+                session.save();
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            if (session != null) {
+                session.close();
+            }
+        } finally {
+            runtime.stopRuntime();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startTransaction() {
+        TransactionHelper.startTransaction();
+    }
+
+    @TearDown(Level.Iteration)
+    public void commitTransaction() {
+        TransactionHelper.commitOrRollbackTransaction();
+    }
+
+    protected int randomFolder() {
+        return ThreadLocalRandom.current().nextInt(folders);
+    }
+
+    @Benchmark
+    public DocumentModel getChild() {
+        int i = randomFolder();
+        return session.getChild(folderDocs[i].getRef(), "doc" + ThreadLocalRandom.current().nextInt(children));
+    }
+
+    @Benchmark
+    public DocumentModel getDocumentByPath() {
+        return session.getDocument(new PathRef("/folder" + randomFolder() + "/doc0"));
+    }
+
+    @Benchmark
+    public DocumentModelList queryChildren() {
+        return session.query("SELECT * FROM Document WHERE ecm:parentId = '" + folderDocs[randomFolder()].getId()
+                + "' AND ecm:name = 'doc0'");
+    }
+
+    @Benchmark
+    public DocumentModelList queryIndexed() {
+        return session.query("SELECT * FROM Document WHERE dc:title = 'Document " + randomFolder() + "-0'");
+    }
+
+    @Benchmark
+    public DocumentModelList queryNotIndexed() {
+        return session.query("SELECT * FROM Document WHERE dc:description = 'Document " + randomFolder() + "-0'");
+    }
+
+}
@@ -49,11 +49,17 @@ public class BulkAdminServiceImpl implements BulkAdminService {
 
     public static final String BULK_SCROLL_PRODUCE_IMMEDIATE_PROPERTY = "nuxeo.core.bulk.scroller.produceImmediate";
 
+    /** @since 11.1 */
+    public static final String BULK_SCROLL_PARTITIONS_PROPERTY = "nuxeo.core.bulk.scroller.scroll.partitions";
+
 
     public static final int DEFAULT_SCROLL_SIZE = 100;
 
     public static final int DEFAULT_SCROLL_KEEP_ALIVE = 60;
 
+    /** @since 11.1 */
+    public static final int DEFAULT_SCROLL_PARTITIONS = 1;
+
     public static final Duration STOP_DURATION = Duration.ofSeconds(1);
 
     protected final Map<String, BulkActionDescriptor> descriptors;
@@ -83,6 +83,8 @@ public class BulkScrollerComputation extends AbstractComputation {
 
     protected final boolean produceImmediate;
 
+    protected final int scrollPartitions;
+
     protected int scrollSize;
 
     protected int bucketSize;
@@ -96,10 +98,25 @@ public class BulkScrollerComputation extends AbstractComputation {
      */
     public BulkScrollerComputation(String name, int nbOutputStreams, int scrollBatchSize, int scrollKeepAliveSeconds,
             boolean produceImmediate) {
+        this(name, nbOutputStreams, scrollBatchSize, scrollKeepAliveSeconds, produceImmediate, 1);
+    }
+
+    /**
+     * @param name the computation name
+     * @param nbOutputStreams the number of registered bulk action streams
+     * @param scrollBatchSize the batch size to scroll
+     * @param scrollKeepAliveSeconds the scroll lifetime
+     * @param produceImmediate whether or not the record should be produced immedialitely while scrolling
+     * @param scrollPartitions the number of partitions scrolled in parallel by the default repository scroller
+     * @since 11.1
+     */
+    public BulkScrollerComputation(String name, int nbOutputStreams, int scrollBatchSize, int scrollKeepAliveSeconds,
+            boolean produceImmediate, int scrollPartitions) {
         super(name, 1, nbOutputStreams);
         this.scrollBatchSize = scrollBatchSize;
         this.scrollKeepAliveSeconds = scrollKeepAliveSeconds;
         this.produceImmediate = produceImmediate;
+        this.scrollPartitions = Math.max(1, scrollPartitions);
         documentIds = new ArrayList<>(scrollBatchSize);
     }
 
@@ -155,12 +172,15 @@ public class BulkScrollerComputation extends AbstractComputation {
     }
 
     protected Scroll buildScroll(BulkCommand command) {
+        // only the default repository scroller is partitioned, other scrollers may not support id range restrictions
+        int partitions = command.getScroller() == null ? scrollPartitions : 1;
         ScrollRequest request = DocumentScrollRequest.builder(command.getQuery())
                                                      .username(command.getUsername())
                                                      .repository(command.getRepository())
                                                      .size(scrollSize)
                                                      .timeout(Duration.ofSeconds(scrollKeepAliveSeconds))
                                                      .name(command.getScroller())
+                                                     .partitions(partitions)
                                                      .build();
         ScrollService service = Framework.getService(ScrollService.class);
         return service.scroll(request);
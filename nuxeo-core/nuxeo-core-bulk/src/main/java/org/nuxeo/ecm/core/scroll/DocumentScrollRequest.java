@@ -48,6 +48,7 @@ public class DocumentScrollRequest implements ScrollRequest {
 
     protected final String username;
 
+    protected final int partitions;
 
     protected DocumentScrollRequest(Builder builder) {
         this.name = builder.getName();
@@ -56,6 +57,7 @@ public class DocumentScrollRequest implements ScrollRequest {
         this.size = builder.getSize();
         this.username = builder.getUsername();
         this.repository = builder.getRepository();
+        this.partitions = builder.getPartitions();
     }
 
     @Override
@@ -89,11 +91,20 @@ public class DocumentScrollRequest implements ScrollRequest {
         return repository;
     }
 
+    /**
+     * Returns the number of partitions scrolled in parallel.
+     *
+     * @since 11.1
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+
     @Override
     public String toString() {
         return "DocumentScrollRequest{" + "name='" + name + '\'' + ", query='" + query + '\'' + ", repository='"
                 + repository + '\'' + ", timeout=" + timeout + ", size=" + size + ", username='" + username + '\''
-                + '}';
+                + ", partitions=" + partitions + '}';
     }
 
     /**
@@ -117,12 +128,16 @@ public class DocumentScrollRequest implements ScrollRequest {
 
         protected int size;
 
+        protected int partitions;
+
         public static final String UNKNOWN = "unknown";
 
         public static final int DEFAULT_SCROLL_SIZE = 50;
 
         public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(120);
 
+        public static final int DEFAULT_PARTITIONS = 1;
+
         protected Builder(String nxqlQuery) {
             this.query = Objects.requireNonNull(nxqlQuery, "NXQL query cannot be null");
         }
@@ -170,6 +185,22 @@ public class DocumentScrollRequest implements ScrollRequest {
             return this;
         }
 
+        /**
+         * Splits the scroll into partitions of the document id space that are scrolled in parallel, the results of
+         * all partitions are merged into a single scroll. The order of the results is then not preserved.
+         * <p>
+         * Partitioning relies on the document id being a UUID, it should not be used with sequence ids.
+         *
+         * @since 11.1
+         */
+        public Builder partitions(int partitions) {
+            if (partitions <= 0) {
+                throw new IllegalArgumentException("partitions must be > 0");
+            }
+            this.partitions = partitions;
+            return this;
+        }
+
         public String getName() {
             return name;
         }
@@ -201,6 +232,10 @@ public class DocumentScrollRequest implements ScrollRequest {
             return repository;
         }
 
+        public int getPartitions() {
+            return partitions == 0 ? DEFAULT_PARTITIONS : partitions;
+        }
+
         public DocumentScrollRequest build() {
             return new DocumentScrollRequest(this);
         }
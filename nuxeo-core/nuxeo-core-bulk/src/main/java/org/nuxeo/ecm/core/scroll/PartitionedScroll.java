@@ -0,0 +1,356 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.scroll;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.scroll.Scroll;
+import org.nuxeo.ecm.core.api.scroll.ScrollRequest;
+import org.nuxeo.ecm.core.api.scroll.ScrollService;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Scrolls document identifiers by splitting the request into partitions of the document id space, each partition is
+ * scrolled concurrently by its own thread and the results are merged into this scroll.
+ * <p>
+ * Each partition restricts the original NXQL query to a range of {@code ecm:uuid}, this requires UUID document ids.
+ * The order of the results is not preserved.
+ *
+ * @since 11.1
+ */
+public class PartitionedScroll implements Scroll {
+
+    private static final Logger log = LogManager.getLogger(PartitionedScroll.class);
+
+    protected static final String THREAD_NAME_PREFIX = "Nuxeo-PartitionedScroll-";
+
+    protected static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /** Marker pushed by a partition once completed. */
+    protected static final List<String> END_OF_PARTITION = new ArrayList<>(0);
+
+    protected static final long PUT_TIMEOUT_MS = 500;
+
+    protected final ScrollService service;
+
+    protected final AtomicReference<RuntimeException> error = new AtomicReference<>();
+
+    protected DocumentScrollRequest request;
+
+    protected ExecutorService executor;
+
+    protected BlockingQueue<List<String>> queue;
+
+    protected List<Partition> partitionStates;
+
+    protected int runningPartitions;
+
+    protected List<String> nextResult;
+
+    protected volatile boolean closed;
+
+    public PartitionedScroll(ScrollService service) {
+        this.service = service;
+    }
+
+    @Override
+    public void init(ScrollRequest request, Map<String, String> options) {
+        if (!(request instanceof DocumentScrollRequest)) {
+            throw new IllegalArgumentException("Requires a DocumentScrollRequest");
+        }
+        this.request = (DocumentScrollRequest) request;
+        int partitions = this.request.getPartitions();
+        queue = new ArrayBlockingQueue<>(2 * partitions);
+        executor = Executors.newFixedThreadPool(partitions, runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        runningPartitions = partitions;
+        partitionStates = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            Partition partition = new Partition(getPartitionRequest(i, partitions));
+            partitionStates.add(partition);
+            executor.execute(() -> scrollPartition(partition));
+        }
+        executor.shutdown();
+    }
+
+    protected DocumentScrollRequest getPartitionRequest(int partition, int partitions) {
+        String query = getPartitionQuery(request.getQuery(), partition, partitions);
+        return DocumentScrollRequest.builder(query)
+                                    .name(request.getName())
+                                    .repository(request.getRepository())
+                                    .username(request.getUsername())
+                                    .size(request.getSize())
+                                    .timeout(request.getTimeout())
+                                    .build();
+    }
+
+    protected void scrollPartition(Partition partition) {
+        partition.fetching = true;
+        try {
+            TransactionHelper.runInTransaction(() -> {
+                try (Scroll scroll = service.scroll(partition.request)) {
+                    while (!closed && scroll.hasNext()) {
+                        List<String> ids = scroll.next();
+                        partition.fetching = false;
+                        partition.lastProgress = System.currentTimeMillis();
+                        if (!put(ids)) {
+                            return;
+                        }
+                        partition.fetching = true;
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            log.debug("Partition scroll failed: {}", partition.request, e);
+            error.compareAndSet(null, e);
+        } finally {
+            put(END_OF_PARTITION);
+            partition.done = true;
+        }
+    }
+
+    /**
+     * Pushes the results of a partition, waiting for the consumer, returns {@code false} if the scroll is closed.
+     */
+    protected boolean put(List<String> ids) {
+        try {
+            while (!closed) {
+                if (queue.offer(ids, PUT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextResult != null) {
+            return true;
+        }
+        while (runningPartitions > 0) {
+            List<String> ids = take();
+            if (ids == END_OF_PARTITION) {
+                runningPartitions--;
+                checkError();
+            } else if (!ids.isEmpty()) {
+                nextResult = ids;
+                return true;
+            }
+        }
+        checkError();
+        return false;
+    }
+
+    /**
+     * Waits for the next results of any partition. A partition whose page is slower than the scroll timeout does not
+     * fail the scroll as long as its producer is still fetching, the scroll fails only when no producer is left
+     * alive and making progress.
+     */
+    protected List<String> take() {
+        long timeout = request.getTimeout().toMillis();
+        try {
+            for (;;) {
+                List<String> ids = queue.poll(timeout, TimeUnit.MILLISECONDS);
+                if (ids != null) {
+                    return ids;
+                }
+                if (!isAnyPartitionActive(timeout)) {
+                    throw new NuxeoException("Timeout waiting for partitions of scroll: " + request);
+                }
+                log.debug("Waiting for slow partitions of scroll: {}", request);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException("Interrupted while waiting for partitions of scroll: " + request, e);
+        }
+    }
+
+    protected boolean isAnyPartitionActive(long timeout) {
+        long now = System.currentTimeMillis();
+        return partitionStates.stream().anyMatch(partition -> partition.isActive(now, timeout));
+    }
+
+    protected void checkError() {
+        RuntimeException e = error.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    @Override
+    public List<String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> ret = nextResult;
+        nextResult = null;
+        return ret;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        nextResult = null;
+    }
+
+    /**
+     * Restricts the NXQL query to the partition of the document id space. The id space is split on the first 32 bits
+     * of the UUID, the first partition has no lower bound and the last one has no upper bound so that no document is
+     * missed.
+     */
+    protected static String getPartitionQuery(String query, int partition, int partitions) {
+        if (partitions == 1) {
+            return query;
+        }
+        StringBuilder clause = new StringBuilder();
+        if (partition > 0) {
+            clause.append("ecm:uuid >= '").append(getPartitionBound(partition, partitions)).append('\'');
+        }
+        if (partition < partitions - 1) {
+            if (clause.length() > 0) {
+                clause.append(" AND ");
+            }
+            clause.append("ecm:uuid < '").append(getPartitionBound(partition + 1, partitions)).append('\'');
+        }
+        int where = indexOfKeyword(query, "WHERE");
+        int orderBy = indexOfKeyword(query, "ORDER BY");
+        int end = orderBy < 0 ? query.length() : orderBy;
+        StringBuilder sb = new StringBuilder();
+        if (where < 0) {
+            sb.append(query, 0, end).append(" WHERE ").append(clause);
+        } else {
+            String predicate = query.substring(where + "WHERE".length(), end).trim();
+            sb.append(query, 0, where).append("WHERE (").append(predicate).append(") AND ").append(clause);
+        }
+        if (orderBy >= 0) {
+            sb.append(' ').append(query.substring(orderBy));
+        }
+        return sb.toString();
+    }
+
+    protected static String getPartitionBound(int partition, int partitions) {
+        long prefix = (partition * (1L << 32)) / partitions;
+        return String.format("%08x-0000-0000-0000-000000000000", prefix);
+    }
+
+    /**
+     * Finds a top level keyword in the query, ignoring string literals and sub expressions, returns -1 if not found.
+     */
+    protected static int indexOfKeyword(String query, String keyword) {
+        String[] words = keyword.split(" ");
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && isWordStart(query, i) && matchesWords(query, i, words)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    protected static boolean isWordStart(String query, int i) {
+        return i == 0 || Character.isWhitespace(query.charAt(i - 1)) || query.charAt(i - 1) == ')';
+    }
+
+    protected static boolean matchesWords(String query, int start, String[] words) {
+        int i = start;
+        for (int w = 0; w < words.length; w++) {
+            if (w > 0) {
+                int ws = i;
+                while (i < query.length() && Character.isWhitespace(query.charAt(i))) {
+                    i++;
+                }
+                if (i == ws) {
+                    return false;
+                }
+            }
+            String word = words[w];
+            if (!query.regionMatches(true, i, word, 0, word.length())) {
+                return false;
+            }
+            i += word.length();
+        }
+        return i == query.length() || Character.isWhitespace(query.charAt(i)) || query.charAt(i) == '(';
+    }
+
+    /**
+     * Progress of a partition producer, shared with the consumer to tell a slow partition from a stalled one.
+     */
+    protected static class Partition {
+
+        protected final DocumentScrollRequest request;
+
+        /** Whether the producer is waiting for the repository to return a page. */
+        protected volatile boolean fetching;
+
+        protected volatile boolean done;
+
+        protected volatile long lastProgress = System.currentTimeMillis();
+
+        protected Partition(DocumentScrollRequest request) {
+            this.request = request;
+        }
+
+        protected boolean isActive(long now, long timeout) {
+            return !done && (fetching || now - lastProgress < timeout);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionedScroll{" + "request=" + request + '}';
+    }
+
+}
@@ -71,11 +71,15 @@ public class ScrollServiceImpl implements ScrollService {
             throw new IllegalArgumentException(
                     "Unknown Scroll " + getKey(request) + " implementation for request: " + request);
         }
-        Scroll scroll = descriptor.newScrollInstance();
+        Scroll scroll = isPartitioned(request) ? new PartitionedScroll(this) : descriptor.newScrollInstance();
         scroll.init(request, descriptor.getOptions());
         return scroll;
     }
 
+    protected boolean isPartitioned(ScrollRequest request) {
+        return request instanceof DocumentScrollRequest && ((DocumentScrollRequest) request).getPartitions() > 1;
+    }
+
     @Override
     public boolean exists(ScrollRequest request) {
         if (request == null) {
@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core.cache;
 
 import java.io.Serializable;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * The nuxeo cache interface that define generic methods to use cache technologies
@@ -90,4 +91,28 @@ public interface Cache {
         return get(key) != null;
     }
 
+    /**
+     * Get method to retrieve a value from the cache, computing and storing it using the given loader if absent.
+     * <p>
+     * Implementations may guarantee that the loader is called only once for concurrent calls on the same key.
+     *
+     * @param key the string key
+     * @param loader the function computing the value of a missing key, may return null
+     * @return the {@link Serializable} value, return null if the key is null or if the loader returned null
+     * @since 11.1
+     */
+    default Serializable get(String key, Function<String, ? extends Serializable> loader) {
+        if (key == null) {
+            return null;
+        }
+        Serializable value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
 }
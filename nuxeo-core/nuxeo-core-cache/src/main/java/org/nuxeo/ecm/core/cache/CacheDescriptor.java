@@ -55,6 +55,28 @@ public class CacheDescriptor implements Descriptor {
     /** @since 9.3 */
     public static final String OPTION_CONCURRENCY_LEVEL = "concurrencyLevel";
 
+    /**
+     * Maximum estimated size in bytes of the entries, for instance {@code 64MB}. Cannot be combined with
+     * {@link #OPTION_MAX_SIZE}.
+     *
+     * @since 11.1
+     */
+    public static final String OPTION_MAX_WEIGHT = "maxWeight";
+
+    /**
+     * Class name of the loader used to compute missing entries.
+     *
+     * @since 11.1
+     */
+    public static final String OPTION_LOADER = "loader";
+
+    /**
+     * Number of minutes after which an entry is reloaded on access.
+     *
+     * @since 11.1
+     */
+    public static final String OPTION_REFRESH_AFTER_WRITE = "refreshAfterWrite";
+
     @XNode("@name")
     public String name;
 
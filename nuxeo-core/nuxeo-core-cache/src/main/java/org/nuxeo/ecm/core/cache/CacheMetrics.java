@@ -17,6 +17,7 @@
 package org.nuxeo.ecm.core.cache;
 
 import java.io.Serializable;
+import java.util.function.Function;
 
 import org.nuxeo.runtime.metrics.MetricsService;
 
@@ -58,6 +59,21 @@ public class CacheMetrics extends CacheWrapper {
 
     protected final String SIZE_NAME = nameOf("size");
 
+    /** @since 11.1 */
+    protected final String EVICTION_NAME = nameOf("eviction-counter");
+
+    /** @since 11.1 */
+    protected final String EVICTION_WEIGHT_NAME = nameOf("eviction-weight");
+
+    /** @since 11.1 */
+    protected final String LOAD_SUCCESS_NAME = nameOf("load-success-counter");
+
+    /** @since 11.1 */
+    protected final String LOAD_FAILURE_NAME = nameOf("load-failure-counter");
+
+    /** @since 11.1 */
+    protected final String LOAD_PENALTY_NAME = nameOf("load-average-penalty");
+
     protected String nameOf(String name) {
         return MetricRegistry.name("nuxeo", "cache", getName(), name);
     }
@@ -89,6 +105,29 @@ public class CacheMetrics extends CacheWrapper {
                 return Long.valueOf(getSize());
             }
         });
+        CacheManagement impl = unwrap();
+        if (impl instanceof CaffeineCacheImpl) {
+            // expose the statistics recorded by the implementation
+            CaffeineCacheImpl caffeine = (CaffeineCacheImpl) impl;
+            registry.register(EVICTION_NAME, (Gauge<Long>) () -> caffeine.stats().evictionCount());
+            registry.register(EVICTION_WEIGHT_NAME, (Gauge<Long>) () -> caffeine.stats().evictionWeight());
+            registry.register(LOAD_SUCCESS_NAME, (Gauge<Long>) () -> caffeine.stats().loadSuccessCount());
+            registry.register(LOAD_FAILURE_NAME, (Gauge<Long>) () -> caffeine.stats().loadFailureCount());
+            registry.register(LOAD_PENALTY_NAME, (Gauge<Double>) () -> caffeine.stats().averageLoadPenalty());
+        }
+    }
+
+    /**
+     * Returns the actual cache implementation.
+     *
+     * @since 11.1
+     */
+    protected CacheManagement unwrap() {
+        CacheManagement impl = cache;
+        while (impl instanceof CacheWrapper) {
+            impl = ((CacheWrapper) impl).cache;
+        }
+        return impl;
     }
 
     @Override
@@ -100,6 +139,11 @@ public class CacheMetrics extends CacheWrapper {
         registry.remove(WRITE_NAME);
         registry.remove(INVALIDATE_ALL_NAME);
         registry.remove(SIZE_NAME);
+        registry.remove(EVICTION_NAME);
+        registry.remove(EVICTION_WEIGHT_NAME);
+        registry.remove(LOAD_SUCCESS_NAME);
+        registry.remove(LOAD_FAILURE_NAME);
+        registry.remove(LOAD_PENALTY_NAME);
     }
 
     @Override
@@ -114,6 +158,22 @@ public class CacheMetrics extends CacheWrapper {
         return value;
     }
 
+    @Override
+    public Serializable get(String key, Function<String, ? extends Serializable> loader) {
+        boolean[] loaded = new boolean[1];
+        Serializable value = super.get(key, k -> {
+            loaded[0] = true;
+            return loader.apply(k);
+        });
+        read.inc();
+        if (loaded[0]) {
+            read_miss.inc();
+        } else {
+            read_hit.inc();
+        }
+        return value;
+    }
+
     @Override
     public void put(String key, Serializable value) {
         try {
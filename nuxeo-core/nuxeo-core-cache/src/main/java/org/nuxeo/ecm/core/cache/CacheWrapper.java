@@ -18,6 +18,7 @@ package org.nuxeo.ecm.core.cache;
 
 import java.io.Serializable;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * @since 9.1
@@ -40,6 +41,11 @@ public class CacheWrapper implements CacheManagement {
         return cache.get(key);
     }
 
+    @Override
+    public Serializable get(String key, Function<String, ? extends Serializable> loader) {
+        return cache.get(key, loader);
+    }
+
     @Override
     public Set<String> keySet() {
         return cache.keySet();
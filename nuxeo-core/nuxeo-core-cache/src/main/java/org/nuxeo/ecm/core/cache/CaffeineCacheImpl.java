@@ -0,0 +1,280 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.cache;
+
+import static org.nuxeo.ecm.core.cache.CacheDescriptor.OPTION_LOADER;
+import static org.nuxeo.ecm.core.cache.CacheDescriptor.OPTION_MAX_SIZE;
+import static org.nuxeo.ecm.core.cache.CacheDescriptor.OPTION_MAX_WEIGHT;
+import static org.nuxeo.ecm.core.cache.CacheDescriptor.OPTION_REFRESH_AFTER_WRITE;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.utils.SizeUtils;
+import org.nuxeo.ecm.core.api.NuxeoException;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * In memory cache implementation based on Caffeine.
+ * <p>
+ * Compared to {@link InMemoryCacheImpl}, the eviction policy (W-TinyLFU) takes the access frequency into account so
+ * that hot entries are not flushed by scans of one-off keys. The following options are available in addition to the
+ * TTL:
+ * <ul>
+ * <li>{@value CacheDescriptor#OPTION_MAX_SIZE}: the maximum number of entries,</li>
+ * <li>{@value CacheDescriptor#OPTION_MAX_WEIGHT}: the maximum estimated size of the entries, for instance
+ * {@code 64MB}, cannot be combined with the maximum number of entries,</li>
+ * <li>{@value CacheDescriptor#OPTION_LOADER}: a {@link CacheLoader} class loading missing entries on {@link #get},</li>
+ * <li>{@value CacheDescriptor#OPTION_REFRESH_AFTER_WRITE}: the number of minutes after which an entry is reloaded
+ * asynchronously on access, requires a loader.</li>
+ * </ul>
+ *
+ * @since 11.1
+ */
+public class CaffeineCacheImpl extends AbstractCache {
+
+    private static final Logger log = LogManager.getLogger(CaffeineCacheImpl.class);
+
+    protected final AsyncCache<String, Serializable> asyncCache;
+
+    protected final Cache<String, Serializable> cache;
+
+    protected final CacheLoader<String, Serializable> loader;
+
+    /** Serialized size of the values of each class, measured once as serializing each value is too costly. */
+    protected final Map<Class<?>, Long> classSizes = new ConcurrentHashMap<>();
+
+    public CaffeineCacheImpl(CacheDescriptor desc) {
+        super(desc);
+        Map<String, String> options = desc.options;
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                                                   .expireAfterWrite(desc.getTTL(), TimeUnit.MINUTES)
+                                                   .recordStats();
+        if (options.containsKey(OPTION_MAX_WEIGHT)) {
+            if (options.containsKey(OPTION_MAX_SIZE)) {
+                log.warn("Options {} and {} cannot be combined, ignoring {} for cache: {}", OPTION_MAX_WEIGHT,
+                        OPTION_MAX_SIZE, OPTION_MAX_SIZE, name);
+            }
+            builder.maximumWeight(SizeUtils.parseSizeInBytes(options.get(OPTION_MAX_WEIGHT)))
+                   .weigher((String key, Serializable value) -> weigh(key, value));
+        } else if (options.containsKey(OPTION_MAX_SIZE)) {
+            builder.maximumSize(Long.parseLong(options.get(OPTION_MAX_SIZE)));
+        }
+        loader = newLoader(options.get(OPTION_LOADER));
+        if (options.containsKey(OPTION_REFRESH_AFTER_WRITE)) {
+            if (loader == null) {
+                throw new NuxeoException("Option " + OPTION_REFRESH_AFTER_WRITE + " requires a " + OPTION_LOADER
+                        + " for cache: " + name);
+            }
+            builder.refreshAfterWrite(Long.parseLong(options.get(OPTION_REFRESH_AFTER_WRITE)), TimeUnit.MINUTES);
+        }
+        asyncCache = loader == null ? builder.buildAsync() : builder.buildAsync(loader);
+        cache = asyncCache.synchronous();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected CacheLoader<String, Serializable> newLoader(String className) {
+        if (className == null) {
+            return null;
+        }
+        try {
+            Class<?> klass = Thread.currentThread().getContextClassLoader().loadClass(className);
+            return (CacheLoader<String, Serializable>) klass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new NuxeoException("Failed to instantiate loader: " + className + " for cache: " + name, e);
+        }
+    }
+
+    /**
+     * Estimates the memory size of an entry, used when the cache is bounded by weight.
+     */
+    protected int weigh(String key, Serializable value) {
+        long size = 2L * key.length() + estimateSize(value);
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    protected long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return 40 + 2L * ((String) value).length();
+        } else if (value instanceof byte[]) {
+            return 16 + ((byte[]) value).length;
+        } else if (value instanceof Number || value instanceof Boolean) {
+            return 16;
+        } else if (value instanceof Object[]) {
+            long size = 16;
+            for (Object v : (Object[]) value) {
+                size += 8 + estimateSize(v);
+            }
+            return size;
+        } else if (value instanceof Collection) {
+            long size = 32;
+            for (Object v : (Collection<?>) value) {
+                size += 16 + estimateSize(v);
+            }
+            return size;
+        } else if (value instanceof Map) {
+            long size = 48;
+            for (Map.Entry<?, ?> es : ((Map<?, ?>) value).entrySet()) {
+                size += 32 + estimateSize(es.getKey()) + estimateSize(es.getValue());
+            }
+            return size;
+        }
+        // other objects are assumed to have the size of the first value of their class
+        return classSizes.computeIfAbsent(value.getClass(), k -> serializedSize(value));
+    }
+
+    protected long serializedSize(Object value) {
+        CountingOutputStream out = new CountingOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(value);
+        } catch (IOException e) {
+            log.debug("Cannot estimate size of value in cache: {}", name, e);
+        }
+        return out.count;
+    }
+
+    @Override
+    public Serializable get(String key) {
+        if (key == null) {
+            return null;
+        }
+        if (cache instanceof LoadingCache) {
+            return ((LoadingCache<String, Serializable>) cache).get(key);
+        }
+        return cache.getIfPresent(key);
+    }
+
+    @Override
+    public Serializable get(String key, Function<String, ? extends Serializable> loader) {
+        if (key == null) {
+            return null;
+        }
+        return cache.get(key, loader);
+    }
+
+    /**
+     * Gets the value for the key, the loader being called asynchronously on the Caffeine executor if the key is
+     * missing. Concurrent calls for the same key share the same load.
+     */
+    public CompletableFuture<Serializable> getAsync(String key, Function<String, ? extends Serializable> loader) {
+        return asyncCache.get(key, loader);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return cache.asMap().keySet();
+    }
+
+    @Override
+    public void invalidate(String key) {
+        invalidateLocal(key);
+    }
+
+    @Override
+    public void invalidateLocal(String key) {
+        if (key != null) {
+            cache.invalidate(key);
+        } else {
+            log.warn("Can't invalidate a null key for the cache '{}'!", name);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        invalidateLocalAll();
+    }
+
+    @Override
+    public void invalidateLocalAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void put(String key, Serializable value) {
+        putLocal(key, value);
+    }
+
+    @Override
+    public void putLocal(String key, Serializable value) {
+        if (key != null && value != null) {
+            cache.put(key, value);
+        } else {
+            log.warn("Can't put a null key nor a null value in the cache '{}'!", name);
+        }
+    }
+
+    @Override
+    public boolean hasEntry(String key) {
+        return cache.asMap().containsKey(key);
+    }
+
+    @Override
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Returns the statistics recorded by the cache.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Performs the pending maintenance operations, for tests.
+     */
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    protected static class CountingOutputStream extends OutputStream {
+
+        protected long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+}
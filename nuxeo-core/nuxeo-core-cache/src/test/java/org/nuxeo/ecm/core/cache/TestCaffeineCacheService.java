@@ -0,0 +1,157 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+import com.codahale.metrics.SharedMetricRegistries;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+
+/**
+ * @since 11.1
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ CacheFeature.class, CaffeineCacheFeature.class })
+public class TestCaffeineCacheService {
+
+    /** Loader used by the {@value CaffeineCacheFeature#LOADER_TEST_CACHE_NAME} cache. */
+    public static class UpperCaseLoader implements CacheLoader<String, Serializable> {
+
+        @Override
+        public Serializable load(String key) {
+            return key.toUpperCase();
+        }
+    }
+
+    @Inject
+    @Named(CacheFeature.DEFAULT_TEST_CACHE_NAME)
+    Cache defaultCache;
+
+    @Inject
+    @Named(CaffeineCacheFeature.MAXWEIGHT_TEST_CACHE_NAME)
+    Cache maxWeightCache;
+
+    @Inject
+    @Named(CaffeineCacheFeature.LOADER_TEST_CACHE_NAME)
+    Cache loaderCache;
+
+    @Test
+    public void getCaffeineCache() {
+        CaffeineCacheImpl caffeineCache = CacheFeature.unwrapImpl(CaffeineCacheImpl.class, defaultCache);
+        assertNotNull(caffeineCache);
+    }
+
+    @Test
+    public void maxSizeExceeded() {
+        CaffeineCacheImpl caffeineCache = CacheFeature.unwrapImpl(CaffeineCacheImpl.class, defaultCache);
+        // default test config sets the maxSize to 3
+        for (int i = 0; i < 10; i++) {
+            defaultCache.put("key" + i, "val" + i);
+        }
+        caffeineCache.cleanUp();
+        assertTrue(String.valueOf(caffeineCache.getSize()), caffeineCache.getSize() <= 3);
+        assertTrue(caffeineCache.stats().evictionCount() > 0);
+    }
+
+    @Test
+    public void maxWeightExceeded() {
+        CaffeineCacheImpl caffeineCache = CacheFeature.unwrapImpl(CaffeineCacheImpl.class, maxWeightCache);
+        // each entry weighs more than 200 bytes, the max weight is 1KB
+        String value = StringUtils.repeat('x', 100);
+        for (int i = 0; i < 10; i++) {
+            maxWeightCache.put("key" + i, value);
+        }
+        caffeineCache.cleanUp();
+        assertTrue(String.valueOf(caffeineCache.getSize()), caffeineCache.getSize() < 5);
+        assertTrue(caffeineCache.stats().evictionWeight() > 0);
+    }
+
+    @Test
+    public void estimateSize() {
+        CaffeineCacheImpl caffeineCache = CacheFeature.unwrapImpl(CaffeineCacheImpl.class, maxWeightCache);
+        long size = caffeineCache.estimateSize("abc");
+        assertEquals(46, size);
+        assertTrue(caffeineCache.estimateSize((Serializable) Arrays.asList("abc", "abc")) > 2 * size);
+        // other values are serialized once per class
+        long dateSize = caffeineCache.estimateSize(new Date(0));
+        assertTrue(dateSize > 0);
+        assertTrue(caffeineCache.classSizes.containsKey(Date.class));
+        assertEquals(dateSize, caffeineCache.estimateSize(new Date()));
+    }
+
+    @Test
+    public void getWithLoader() {
+        AtomicInteger loads = new AtomicInteger();
+        assertNull(defaultCache.get("key-loaded"));
+        assertEquals("val-loaded", defaultCache.get("key-loaded", key -> {
+            loads.incrementAndGet();
+            return "val-loaded";
+        }));
+        assertEquals("val-loaded", defaultCache.get("key-loaded", key -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        assertEquals(1, loads.get());
+        assertEquals("val-loaded", defaultCache.get("key-loaded"));
+        // a null result is not cached
+        assertNull(defaultCache.get("key-null", key -> null));
+        assertNull(defaultCache.get("key-null"));
+    }
+
+    @Test
+    public void getAsync() throws Exception {
+        CaffeineCacheImpl caffeineCache = CacheFeature.unwrapImpl(CaffeineCacheImpl.class, defaultCache);
+        assertEquals("val-async", caffeineCache.getAsync("key-async", key -> "val-async").get());
+        assertEquals("val-async", defaultCache.get("key-async"));
+    }
+
+    @Test
+    public void loaderOption() {
+        assertEquals("FOO", loaderCache.get("foo"));
+        assertTrue(loaderCache.hasEntry("foo"));
+        CaffeineCacheImpl caffeineCache = CacheFeature.unwrapImpl(CaffeineCacheImpl.class, loaderCache);
+        assertEquals(1, caffeineCache.stats().loadSuccessCount());
+    }
+
+    @Test
+    public void hasCaffeineMetrics() {
+        assertTrue(SharedMetricRegistries.getOrCreate(MetricsService.class.getName())
+                                         .getGauges()
+                                         .containsKey("nuxeo.cache.default-test-cache.eviction-counter"));
+    }
+
+}
@@ -34,6 +34,7 @@ import java.util.Random;
 
 import javax.security.auth.login.LoginException;
 
+import org.apache.avro.reflect.Nullable;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.common.logging.SequenceTracer;
@@ -102,11 +103,14 @@ public abstract class AbstractWork implements Work {
     /** Suspend acknowledged by the work instance. */
     protected transient volatile boolean suspended;
 
+    @Nullable
     protected State state;
 
+    @Nullable
     protected Progress progress;
 
     /** Repository name for the Work instance, if relevant. */
+    @Nullable
     protected String repositoryName;
 
     /**
@@ -115,6 +119,7 @@ public abstract class AbstractWork implements Work {
      * <p>
      * Either docId or docIds is set. Not both.
      */
+    @Nullable
     protected String docId;
 
     /**
@@ -123,6 +128,7 @@ public abstract class AbstractWork implements Work {
      * <p>
      * Either docId or docIds is set. Not both.
      */
+    @Nullable
     protected List<String> docIds;
 
     /**
@@ -135,8 +141,10 @@ public abstract class AbstractWork implements Work {
      *
      * @since 8.1
      */
+    @Nullable
     protected String originatingUsername;
 
+    @Nullable
     protected String status;
 
     protected long schedulingTime;
@@ -149,8 +157,10 @@ public abstract class AbstractWork implements Work {
 
     protected transient NuxeoLoginContext loginContext;
 
+    @Nullable
     protected WorkSchedulePath schedulePath;
 
+    @Nullable
     protected String callerThread;
 
     // @since 11.1
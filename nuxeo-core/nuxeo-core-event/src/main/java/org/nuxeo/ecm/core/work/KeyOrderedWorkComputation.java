@@ -0,0 +1,174 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.lib.stream.computation.BatchComputation;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.RecordBatch;
+
+/**
+ * A Stream computation that runs the works read from a partition concurrently, preserving the order of the works that
+ * share a partition key.
+ * <p>
+ * The records of a batch are grouped by key, each group is run sequentially in the order of the log by a thread of the
+ * computation pool while the groups run in parallel. The next batch is read once all the works of the batch are done
+ * and the batch is checkpointed only if none of its works has to be run again, so the ordering by key holds across
+ * batches and a work is never checkpointed before the works that precede it in the partition.
+ *
+ * @since 11.1
+ */
+public class KeyOrderedWorkComputation extends WorkComputation implements BatchComputation {
+
+    private static final Logger log = LogManager.getLogger(KeyOrderedWorkComputation.class);
+
+    protected static final long STOP_TIMEOUT_SECONDS = 10;
+
+    protected final int threads;
+
+    protected final Set<Work> runningWorks = ConcurrentHashMap.newKeySet();
+
+    protected ExecutorService executor;
+
+    /**
+     * @param threads the number of threads running the works read by this computation
+     */
+    public KeyOrderedWorkComputation(String name, int threads) {
+        super(name);
+        this.threads = threads;
+    }
+
+    @Override
+    public void init(ComputationContext context) {
+        super.init(context);
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads,
+                    new WorkManagerImpl.NamedThreadFactory(WorkManagerImpl.THREAD_PREFIX + metadata.name() + "-"));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    log.warn("{}: works still running after shutdown", metadata.name());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        super.destroy();
+    }
+
+    @Override
+    public void signalStop() {
+        runningWorks.forEach(Work::setWorkInstanceSuspending);
+    }
+
+    @Override
+    public void processBatch(ComputationContext context, RecordBatch batch) {
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (List<Integer> group : groupByKey(batch).values()) {
+            futures.add(executor.submit(() -> runGroup(batch, group)));
+        }
+        boolean checkpoint = true;
+        try {
+            for (Future<Boolean> future : futures) {
+                checkpoint &= future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            log.warn("{}: interrupted, batch will be processed again: {}", metadata.name(), batch);
+            return;
+        } catch (ExecutionException e) {
+            // runWork reports the failures of the works, this is a deserialization or an unexpected error
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Failure while running a batch of works: " + batch, e.getCause());
+        }
+        if (checkpoint) {
+            context.askForCheckpoint();
+        } else {
+            // a work has been interrupted or suspended, stop the computation thread like a sequential computation
+            // does so that the batch is not skipped by the checkpoint of the next one
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the index of the records of the batch grouped by key, in the order of the batch.
+     */
+    protected Map<String, List<Integer>> groupByKey(RecordBatch batch) {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            String key = batch.getRecord(i).getKey();
+            if (key == null) {
+                // no ordering constraint
+                key = "\0" + i;
+            }
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+        return groups;
+    }
+
+    /**
+     * Runs sequentially the works of a group, stops at the first work that must be run again.
+     */
+    protected boolean runGroup(RecordBatch batch, List<Integer> group) {
+        for (int index : group) {
+            Record record = batch.getRecord(index);
+            Work work;
+            try {
+                work = deserialize(record.getData());
+            } catch (RuntimeException e) {
+                // the queue policy continues on failure, skip the record without failing the whole batch
+                log.error("Skip invalid work record: {} at offset: {}", record, batch.getOffset(index), e);
+                continue;
+            }
+            runningWorks.add(work);
+            try {
+                if (!runWork(work, record, batch.getOffset(index)) || Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+            } finally {
+                runningWorks.remove(work);
+            }
+        }
+        return true;
+    }
+
+}
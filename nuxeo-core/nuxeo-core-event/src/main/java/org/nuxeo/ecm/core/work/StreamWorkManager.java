@@ -139,6 +139,13 @@ public class StreamWorkManager extends WorkManagerImpl {
      */
     public static final String COMPUTATION_FILTER_PREFIX_KEY = "nuxeo.stream.work.computation.filter.storeKeyPrefix";
 
+    /**
+     * Number of records read per thread by a queue running works concurrently by key.
+     *
+     * @since 11.1
+     */
+    protected static final int KEY_ORDERED_BATCH_FACTOR = 4;
+
     protected Topology topology;
 
     protected Topology topologyDisabled;
@@ -354,7 +361,7 @@ public class StreamWorkManager extends WorkManagerImpl {
         // create the single topology with one root per work pool
         Topology.Builder builder = Topology.builder();
         descriptors.stream().filter(WorkQueueDescriptor::isProcessingEnabled).forEach(d -> builder.addComputation(
-                () -> new WorkComputation(d.getId()), Collections.singletonList("i1:" + d.getId())));
+                () -> createComputation(d), Collections.singletonList("i1:" + d.getId())));
         topology = builder.build();
         // create a topology for the disabled work pools in order to init their input streams
         Topology.Builder builderDisabled = Topology.builder();
@@ -369,6 +376,31 @@ public class StreamWorkManager extends WorkManagerImpl {
         settings = new Settings(DEFAULT_CONCURRENCY, getPartitions(DEFAULT_CONCURRENCY), getCodec(), policy, filter);
         descriptors.forEach(item -> settings.setConcurrency(item.getId(), item.getMaxThreads()));
         descriptors.forEach(item -> settings.setPartitions(item.getId(), getPartitions(item.getMaxThreads())));
+        descriptors.stream()
+                   .filter(d -> d.getKeyOrderedThreads() > 1)
+                   .forEach(d -> settings.setPolicy(d.getId(), getKeyOrderedPolicy(d.getKeyOrderedThreads())));
+    }
+
+    /**
+     * @since 11.1
+     */
+    protected WorkComputation createComputation(WorkQueueDescriptor descriptor) {
+        if (descriptor.getKeyOrderedThreads() > 1) {
+            return new KeyOrderedWorkComputation(descriptor.getId(), descriptor.getKeyOrderedThreads());
+        }
+        return new WorkComputation(descriptor.getId());
+    }
+
+    /**
+     * Returns the policy of a queue that runs works concurrently by key, the batch must be large enough to keep all the
+     * threads busy when some keys are repeated.
+     *
+     * @since 11.1
+     */
+    protected ComputationPolicy getKeyOrderedPolicy(int threads) {
+        return new ComputationPolicyBuilder().continueOnFailure(true)
+                                             .batchPolicy(threads * KEY_ORDERED_BATCH_FACTOR, Duration.ofSeconds(1))
+                                             .build();
     }
 
     protected int getPartitions(int maxThreads) {
@@ -498,11 +530,20 @@ public class StreamWorkManager extends WorkManagerImpl {
         if (lag.lag() > 0) {
             // we don't have the exact running metric
             // give an approximation that can be higher that actual one because of the over provisioning
-            running = min(lag.lag(), settings.getPartitions(queueId));
+            running = min(lag.lag(), getMaxRunning(queueId));
         }
         return new WorkQueueMetrics(queueId, lag.lag(), running, lag.lower(), 0);
     }
 
+    protected long getMaxRunning(String queueId) {
+        long partitions = settings.getPartitions(queueId);
+        WorkQueueDescriptor descriptor = getWorkQueueDescriptor(queueId);
+        if (descriptor != null && descriptor.getKeyOrderedThreads() > 1) {
+            return partitions * descriptor.getKeyOrderedThreads();
+        }
+        return partitions;
+    }
+
     @Override
     public boolean awaitCompletion(String queueId, long duration, TimeUnit unit) throws InterruptedException {
         if (queueId != null) {
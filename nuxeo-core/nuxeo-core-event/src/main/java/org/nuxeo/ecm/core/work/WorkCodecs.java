@@ -0,0 +1,153 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.WorkCodecDescriptor;
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.codec.CodecService;
+
+/**
+ * Helper class to encode works with the codec registered for their class, see {@link WorkCodecDescriptor}.
+ * <p>
+ * An encoded work starts with a marker byte followed by the codec name and the work class name, which can't be
+ * confused with a Java serialization stream, so that both formats can be read from the same stream.
+ *
+ * @since 11.1
+ */
+public class WorkCodecs {
+
+    private static final Logger log = LogManager.getLogger(WorkCodecs.class);
+
+    public static final String DEFAULT_CODEC = "avro";
+
+    /** First byte of an encoded work, Java serialization streams start with 0xAC. */
+    protected static final byte MARKER = 0x4E;
+
+    // codec name + class name -> codec
+    protected static final Map<String, Codec<Work>> CODECS = new ConcurrentHashMap<>();
+
+    // classes that failed to be encoded, using Java serialization instead
+    protected static final Set<String> FAILED_CLASSES = ConcurrentHashMap.newKeySet();
+
+    private WorkCodecs() {
+        // utility class
+    }
+
+    /**
+     * Checks if the data is a work encoded by a codec.
+     */
+    public static boolean isEncoded(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MARKER;
+    }
+
+    /**
+     * Encodes the work with the codec registered for its class.
+     *
+     * @return the encoded work, or {@code null} if no codec is registered for its class or if it cannot be encoded
+     */
+    public static byte[] encode(Work work) {
+        String className = work.getClass().getName();
+        String codecName = getCodecName(work);
+        if (codecName == null || FAILED_CLASSES.contains(className)) {
+            return null;
+        }
+        try {
+            byte[] payload = getCodec(codecName, className).encode(work);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(payload.length + 64);
+            DataOutputStream out = new DataOutputStream(bos);
+            out.writeByte(MARKER);
+            out.writeUTF(codecName);
+            out.writeUTF(className);
+            out.write(payload);
+            out.flush();
+            return bos.toByteArray();
+        } catch (IOException | RuntimeException e) {
+            // unsupported field types, null values in non nullable fields...
+            log.warn("Cannot encode work: {} with codec: {}, using Java serialization", className, codecName, e);
+            FAILED_CLASSES.add(className);
+            return null;
+        }
+    }
+
+    /**
+     * Decodes a work encoded by {@link #encode}.
+     */
+    public static Work decode(byte[] data) {
+        ByteArrayInputStream bis = new ByteArrayInputStream(data);
+        DataInputStream in = new DataInputStream(bis);
+        String className = null;
+        try {
+            if (in.readByte() != MARKER) {
+                throw new NuxeoException("Not an encoded work");
+            }
+            String codecName = in.readUTF();
+            className = in.readUTF();
+            byte[] payload = Arrays.copyOfRange(data, data.length - bis.available(), data.length);
+            return getCodec(codecName, className).decode(payload);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new NuxeoException("Cannot decode work: " + className, e);
+        }
+    }
+
+    /**
+     * Clears the codecs and the failed classes, done when the work manager starts.
+     */
+    protected static void clear() {
+        CODECS.clear();
+        FAILED_CLASSES.clear();
+    }
+
+    protected static String getCodecName(Work work) {
+        WorkManager workManager = Framework.getService(WorkManager.class);
+        if (workManager instanceof WorkManagerImpl) {
+            return ((WorkManagerImpl) workManager).getCodecName(work.getClass());
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static Codec<Work> getCodec(String codecName, String className) {
+        return CODECS.computeIfAbsent(codecName + ':' + className, k -> {
+            Class<Work> klass;
+            try {
+                klass = (Class<Work>) Thread.currentThread().getContextClassLoader().loadClass(className);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException("Unknown work class: " + className, e);
+            }
+            return Framework.getService(CodecService.class).getCodec(codecName, klass);
+        });
+    }
+
+}
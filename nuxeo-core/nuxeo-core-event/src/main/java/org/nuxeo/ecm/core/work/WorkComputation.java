@@ -39,6 +39,7 @@ import org.nuxeo.ecm.core.work.api.Work;
 import org.nuxeo.lib.stream.computation.AbstractComputation;
 import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.log.LogOffset;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.services.config.ConfigurationService;
@@ -83,17 +84,33 @@ public class WorkComputation extends AbstractComputation {
     public void processRecord(ComputationContext context, String inputStreamName, Record record) {
         work = deserialize(record.getData());
         try {
-            if (work.isCoalescing() && WorkStateHelper.getLastOffset(work.getId()) > context.getLastOffset().offset()) {
+            if (runWork(work, record, context.getLastOffset())) {
+                context.askForCheckpoint();
+            }
+        } finally {
+            work = null;
+        }
+    }
+
+    /**
+     * Runs the work of a record.
+     *
+     * @param offset the offset of the record
+     * @return {@code true} if the record can be checkpointed, {@code false} if the work must be run again
+     * @since 11.1
+     */
+    protected boolean runWork(Work work, Record record, LogOffset offset) {
+        try {
+            if (work.isCoalescing() && WorkStateHelper.getLastOffset(work.getId()) > offset.offset()) {
                 log.debug("Skipping duplicate of coalescing work id: " + work.getId() + " " + work);
-            } else if (work.isIdempotent() && workIds.contains(work.getId())) {
+            } else if (work.isIdempotent() && containsWorkId(work.getId())) {
                 log.debug("Skipping duplicate of idempotent work id: " + work.getId());
             } else {
                 boolean storeState = Framework.getService(ConfigurationService.class).isBooleanTrue(STORESTATE_KEY);
                 if (storeState) {
                     if (WorkStateHelper.getState(work.getId()) != Work.State.SCHEDULED) {
                         log.warn("work has been canceled, saving and returning");
-                        context.askForCheckpoint();
-                        return;
+                        return true;
                     }
                     WorkStateHelper.setState(work.getId(), Work.State.RUNNING, stateTTL);
                 }
@@ -104,13 +121,12 @@ public class WorkComputation extends AbstractComputation {
                 if (storeState && WorkStateHelper.getState(work.getId()) == Work.State.RUNNING) {
                     WorkStateHelper.setState(work.getId(), null, stateTTL);
                 }
-                workIds.add(work.getId());
+                addWorkId(work.getId());
             }
             work.cleanUp(true, null);
-            if (!work.isWorkInstanceSuspended()) {
-                context.askForCheckpoint();
-            }
+            return !work.isWorkInstanceSuspended();
         } catch (Exception e) {
+            boolean checkpoint;
             if (ExceptionUtils.hasInterruptedCause(e)) {
                 Thread.currentThread().interrupt();
                 // propagate the interruption to stop the computation thread
@@ -118,20 +134,33 @@ public class WorkComputation extends AbstractComputation {
                 log.warn(
                         String.format("Work id: %s title: %s, has been interrupted, it will be rescheduled, record: %s",
                                 work.getId(), work.getTitle(), record));
+                checkpoint = false;
             } else {
                 // Report an error on the work and continue
                 log.error(String.format(
                         "Skip Work in failure: id: %s, title: %s, offset: %s, record: %s, thread: %s", work.getId(),
-                        work.getTitle(), context.getLastOffset(), record, Thread.currentThread().getName()));
-                context.askForCheckpoint();
+                        work.getTitle(), offset, record, Thread.currentThread().getName()));
+                checkpoint = true;
             }
             // Cleanup should take care of logging error except if exception comes from the cleanup
             log.debug("Exception during work " + work.getId(), e);
             // Try to cleanup after an exception, if exception comes from the previous cleanup it is a duplicate cleanup
             cleanupWorkInFailure(work, e);
+            return checkpoint;
         } finally {
             workTimer.update(work.getCompletionTime() - work.getStartTime(), TimeUnit.MILLISECONDS);
-            work = null;
+        }
+    }
+
+    protected boolean containsWorkId(String workId) {
+        synchronized (workIds) {
+            return workIds.contains(workId);
+        }
+    }
+
+    protected void addWorkId(String workId) {
+        synchronized (workIds) {
+            workIds.add(workId);
         }
     }
 
@@ -143,8 +172,16 @@ public class WorkComputation extends AbstractComputation {
         }
     }
 
+    /**
+     * Deserializes a work, encoded by the codec registered for its class or using Java serialization.
+     *
+     * @see WorkCodecs
+     */
     @SuppressWarnings("squid:S2093")
     public static Work deserialize(byte[] data) {
+        if (WorkCodecs.isEncoded(data)) {
+            return WorkCodecs.decode(data);
+        }
         // TODO: switch to commons-lang3 SerializationUtils
         ByteArrayInputStream bis = new ByteArrayInputStream(data);
         ObjectInput in = null;
@@ -164,8 +201,17 @@ public class WorkComputation extends AbstractComputation {
         }
     }
 
+    /**
+     * Serializes a work using the codec registered for its class, falling back to Java serialization.
+     *
+     * @see WorkCodecs
+     */
     @SuppressWarnings("squid:S2093")
     public static byte[] serialize(Work work) {
+        byte[] data = WorkCodecs.encode(work);
+        if (data != null) {
+            return data;
+        }
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         ObjectOutput out;
         try {
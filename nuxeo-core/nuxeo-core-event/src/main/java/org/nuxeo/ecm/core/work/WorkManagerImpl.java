@@ -56,6 +56,7 @@ import org.nuxeo.ecm.core.event.EventServiceComponent;
 import org.nuxeo.ecm.core.work.WorkQueuing.Listener;
 import org.nuxeo.ecm.core.work.api.Work;
 import org.nuxeo.ecm.core.work.api.Work.State;
+import org.nuxeo.ecm.core.work.api.WorkCodecDescriptor;
 import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
 import org.nuxeo.ecm.core.work.api.WorkQueueMetrics;
@@ -97,6 +98,9 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     protected static final String IMPL_EP = "implementation";
 
+    /** @since 11.1 */
+    protected static final String CODECS_EP = "codecs";
+
     public static final String DEFAULT_QUEUE_ID = "default";
 
     public static final String DEFAULT_CATEGORY = "default";
@@ -138,6 +142,9 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     protected final Map<String, String> categoryToQueueId = new HashMap<>();
 
+    // work class name -> codec name
+    protected Map<String, String> workCodecs = Collections.emptyMap();
+
     protected WorkQueuing queuing;
 
     protected boolean active = true;
@@ -359,10 +366,27 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
     @Override
     public void start(ComponentContext context) {
         super.start(context);
+        initWorkCodecs();
         initDeadLetterQueueStream();
         init();
     }
 
+    protected void initWorkCodecs() {
+        WorkCodecs.clear();
+        List<WorkCodecDescriptor> descriptors = getDescriptors(CODECS_EP);
+        workCodecs = descriptors.stream().collect(Collectors.toMap(WorkCodecDescriptor::getId, d -> d.name));
+    }
+
+    /**
+     * Gets the name of the codec used to serialize works of the given class in a stream.
+     *
+     * @return the codec name, or {@code null} if works of this class use Java serialization
+     * @since 11.1
+     */
+    public String getCodecName(Class<? extends Work> klass) {
+        return workCodecs.get(klass.getName());
+    }
+
     protected void initDeadLetterQueueStream() {
         StreamService service = Framework.getService(StreamService.class);
         if (service == null) {
@@ -568,7 +592,7 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
     /**
      * Creates non-daemon threads at normal priority.
      */
-    private static class NamedThreadFactory implements ThreadFactory {
+    static class NamedThreadFactory implements ThreadFactory {
 
         private final AtomicInteger threadNumber = new AtomicInteger();
 
@@ -110,6 +110,11 @@ public interface Work extends Serializable {
 
         protected final long total;
 
+        // for Avro
+        private Progress() {
+            this(PERCENT_INDETERMINATE);
+        }
+
         /**
          * Constructs a {@link Progress} as a percentage.
          *
@@ -0,0 +1,52 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work.api;
+
+import org.nuxeo.common.xmap.annotation.XNode;
+import org.nuxeo.common.xmap.annotation.XObject;
+import org.nuxeo.ecm.core.work.WorkCodecs;
+import org.nuxeo.runtime.model.Descriptor;
+
+/**
+ * Descriptor registering the codec used to serialize a {@link Work} class in a stream, instead of Java serialization.
+ *
+ * @since 11.1
+ */
+@XObject("codec")
+public class WorkCodecDescriptor implements Descriptor {
+
+    @XNode("@class")
+    public Class<? extends Work> klass;
+
+    @XNode("@name")
+    public String name = WorkCodecs.DEFAULT_CODEC;
+
+    @XNode("@remove")
+    public boolean remove;
+
+    @Override
+    public String getId() {
+        return klass.getName();
+    }
+
+    @Override
+    public boolean doesRemove() {
+        return remove;
+    }
+}
@@ -81,6 +81,22 @@ public class WorkQueueDescriptor implements Descriptor {
         return maxThreads == null ? DEFAULT_MAX_THREADS : maxThreads.intValue();
     }
 
+    /**
+     * When greater than one, each thread consuming the queue runs the works it reads with this number of threads,
+     * works with the same partition key are still run sequentially. Only supported by the {@code StreamWorkManager}.
+     *
+     * @since 11.1
+     */
+    @XNode("keyOrderedThreads")
+    public Integer keyOrderedThreads;
+
+    /**
+     * @since 11.1
+     */
+    public int getKeyOrderedThreads() {
+        return keyOrderedThreads == null ? 0 : keyOrderedThreads.intValue();
+    }
+
     @XNodeList(value = "category", type = HashSet.class, componentType = String.class)
     public Set<String> categories = Collections.emptySet();
 
@@ -107,6 +123,7 @@ public class WorkQueueDescriptor implements Descriptor {
         merged.capacity = other.capacity != null ? other.capacity : capacity;
         merged.processing = other.processing != null ? other.processing : processing;
         merged.maxThreads = other.maxThreads != null ? other.maxThreads : maxThreads;
+        merged.keyOrderedThreads = other.keyOrderedThreads != null ? other.keyOrderedThreads : keyOrderedThreads;
         merged.categories = new HashSet<>(categories);
         merged.categories.addAll(other.categories);
         return merged;
@@ -125,6 +142,10 @@ public class WorkQueueDescriptor implements Descriptor {
         sb.append(isProcessingEnabled());
         sb.append(" maxThreads=");
         sb.append(getMaxThreads());
+        if (getKeyOrderedThreads() > 1) {
+            sb.append(" keyOrderedThreads=");
+            sb.append(getKeyOrderedThreads());
+        }
         sb.append(" capacity=");
         sb.append(getCapacity());
         sb.append(")");
@@ -0,0 +1,53 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+/**
+ * A work serialized with the Avro codec in streams.
+ *
+ * @since 11.1
+ */
+public class CodecWork extends AbstractWork {
+
+    private static final long serialVersionUID = 1L;
+
+    protected String value;
+
+    protected long count;
+
+    // for Avro
+    protected CodecWork() {
+    }
+
+    public CodecWork(String id, String value, long count) {
+        super(id);
+        this.value = value;
+        this.count = count;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Codec work " + value;
+    }
+
+    @Override
+    public void work() {
+        // nothing
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+/**
+ * Tests a queue of the stream WorkManager running the works of a single partition concurrently by key.
+ *
+ * @since 11.1
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+@Deploy("org.nuxeo.runtime.kv")
+@Deploy("org.nuxeo.runtime.stream")
+@Deploy("org.nuxeo.ecm.core.event")
+@Deploy("org.nuxeo.ecm.core.event.test:OSGI-INF/test-default-workmanager-config.xml")
+@Deploy("org.nuxeo.ecm.core.event:test-stream-workmanager-service.xml")
+@Deploy("org.nuxeo.ecm.core.event.test:test-workmanager-key-ordered-config.xml")
+public class TestKeyOrderedStreamWorkManager {
+
+    protected static final String QUEUE = "KeyOrderedSleepWork";
+
+    protected static final List<String> COMPLETED = new CopyOnWriteArrayList<>();
+
+    protected static class KeySleepWork extends SleepWork {
+        private static final long serialVersionUID = 1L;
+
+        protected final String key;
+
+        public KeySleepWork(long durationMillis, String key, String id) {
+            super(durationMillis, QUEUE, id);
+            this.key = key;
+        }
+
+        @Override
+        public String getPartitionKey() {
+            return key;
+        }
+
+        @Override
+        public void work() {
+            super.work();
+            COMPLETED.add(getId());
+        }
+    }
+
+    @Inject
+    public WorkManager service;
+
+    @Before
+    public void before() {
+        COMPLETED.clear();
+    }
+
+    @Test
+    public void testKeyOrderedComputation() {
+        assertTrue(service instanceof StreamWorkManager);
+        assertEquals(4, service.getWorkQueueDescriptor(QUEUE).getKeyOrderedThreads());
+        assertTrue(((StreamWorkManager) service).createComputation(
+                service.getWorkQueueDescriptor(QUEUE)) instanceof KeyOrderedWorkComputation);
+    }
+
+    @Test
+    public void testDistinctKeysRunConcurrently() throws InterruptedException {
+        final int NB_WORKS = 4;
+        final long duration = 1000;
+        for (int i = 0; i < NB_WORKS; i++) {
+            service.schedule(new KeySleepWork(duration, "key" + i, "work" + i));
+        }
+        // run sequentially it would take 4s
+        assertTrue(service.awaitCompletion(QUEUE, duration * NB_WORKS - 500, TimeUnit.MILLISECONDS));
+        assertEquals(NB_WORKS, COMPLETED.size());
+    }
+
+    @Test
+    public void testSameKeyIsOrdered() throws InterruptedException {
+        service.schedule(new KeySleepWork(500, "doc1", "slow"));
+        service.schedule(new KeySleepWork(10, "doc1", "fast"));
+        service.schedule(new KeySleepWork(10, "doc2", "other"));
+        assertTrue(service.awaitCompletion(QUEUE, 5, TimeUnit.SECONDS));
+        assertEquals(3, COMPLETED.size());
+        // the work of another key is not blocked by the slow one
+        assertTrue(COMPLETED.indexOf("other") < COMPLETED.indexOf("slow"));
+        // works with the same key run in the order of scheduling
+        assertTrue(COMPLETED.indexOf("slow") < COMPLETED.indexOf("fast"));
+    }
+
+}
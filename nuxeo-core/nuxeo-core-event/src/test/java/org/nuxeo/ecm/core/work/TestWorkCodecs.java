@@ -0,0 +1,90 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+@RunWith(FeaturesRunner.class)
+@Features(WorkManagerFeature.class)
+@Deploy("org.nuxeo.ecm.core.event:test-work-codecs.xml")
+public class TestWorkCodecs {
+
+    @Before
+    public void before() {
+        WorkCodecs.clear();
+    }
+
+    @Test
+    public void testRegisteredWorkIsEncoded() {
+        CodecWork work = new CodecWork("codec-work-id", "foo", 123);
+        work.setDocuments("test", Arrays.asList("id1", "id2"));
+        work.setProgress(new Work.Progress(5, 10));
+
+        byte[] data = WorkComputation.serialize(work);
+        assertTrue(WorkCodecs.isEncoded(data));
+        // a fraction of the Java serialization
+        assertTrue(data.length < SerializationUtils.serialize(work).length / 2);
+
+        CodecWork decoded = (CodecWork) WorkComputation.deserialize(data);
+        assertEquals("codec-work-id", decoded.getId());
+        assertEquals("foo", decoded.value);
+        assertEquals(123, decoded.count);
+        assertEquals("test", decoded.repositoryName);
+        assertEquals(Arrays.asList("id1", "id2"), decoded.docIds);
+        assertNull(decoded.docId);
+        assertEquals(5, decoded.getProgress().getCurrent());
+        assertEquals(10, decoded.getProgress().getTotal());
+    }
+
+    @Test
+    public void testUnregisteredWorkUsesJavaSerialization() {
+        SleepWork work = new SleepWork(1, "sleep-work-id");
+        byte[] data = WorkComputation.serialize(work);
+        assertFalse(WorkCodecs.isEncoded(data));
+        assertEquals("sleep-work-id", WorkComputation.deserialize(data).getId());
+    }
+
+    @Test
+    public void testFallbackToJavaSerialization() {
+        // a null value in a non nullable field cannot be encoded
+        CodecWork work = new CodecWork("codec-work-id", null, 1);
+        byte[] data = WorkComputation.serialize(work);
+        assertFalse(WorkCodecs.isEncoded(data));
+        assertEquals("codec-work-id", WorkComputation.deserialize(data).getId());
+
+        // the class now always uses Java serialization
+        data = WorkComputation.serialize(new CodecWork("codec-work-id", "foo", 1));
+        assertFalse(WorkCodecs.isEncoded(data));
+    }
+
+}
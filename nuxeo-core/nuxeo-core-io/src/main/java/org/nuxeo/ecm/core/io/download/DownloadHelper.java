@@ -19,6 +19,9 @@
 package org.nuxeo.ecm.core.io.download;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -46,6 +49,15 @@ public class DownloadHelper {
     // jetty (with CamelCase "Eof")
     private static final String EOF_EXCEPTION = "EofException";
 
+    private static final String BYTES_UNIT = "bytes=";
+
+    /**
+     * Maximum number of ranges accepted in a request, more are ignored and the full content is sent.
+     *
+     * @since 11.1
+     */
+    public static final int MAX_RANGES = 64;
+
     // utility class
     private DownloadHelper() {
     }
@@ -58,17 +70,70 @@ public class DownloadHelper {
      * @return the byte range, or {@code null} if it couldn't be parsed.
      */
     public static ByteRange parseRange(String range, long length) {
-        try {
-            // TODO does no support multiple ranges
-            if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+        // multiple ranges are parsed by parseRanges
+        if (!range.startsWith(BYTES_UNIT) || range.indexOf(',') >= 0) {
+            return null;
+        }
+        return parseRangeSpec(range.substring(BYTES_UNIT.length()), length);
+    }
+
+    /**
+     * Parses a byte range header which may contain several ranges.
+     * <p>
+     * The ranges are sorted and the overlapping or adjacent ones are coalesced, as allowed by RFC7233 4.1.
+     *
+     * @param range the byte ranges as a string
+     * @param length the file length
+     * @return the byte ranges, or {@code null} if they couldn't be parsed or are too many
+     * @since 11.1
+     */
+    public static List<ByteRange> parseRanges(String range, long length) {
+        if (!range.startsWith(BYTES_UNIT)) {
+            return null;
+        }
+        String[] specs = range.substring(BYTES_UNIT.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<ByteRange> byteRanges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            ByteRange byteRange = parseRangeSpec(spec, length);
+            if (byteRange == null) {
                 return null;
             }
-            int i = range.indexOf('-', 6);
+            if (byteRange.getEnd() >= length) {
+                byteRange = new ByteRange(byteRange.getStart(), length - 1);
+            }
+            if (byteRange.getStart() < length) {
+                byteRanges.add(byteRange);
+            }
+        }
+        if (byteRanges.isEmpty()) {
+            return null;
+        }
+        byteRanges.sort(Comparator.comparingLong(ByteRange::getStart));
+        List<ByteRange> coalesced = new ArrayList<>(byteRanges.size());
+        ByteRange previous = null;
+        for (ByteRange byteRange : byteRanges) {
+            if (previous != null && byteRange.getStart() <= previous.getEnd() + 1) {
+                previous = new ByteRange(previous.getStart(), Math.max(previous.getEnd(), byteRange.getEnd()));
+                coalesced.set(coalesced.size() - 1, previous);
+            } else {
+                previous = byteRange;
+                coalesced.add(byteRange);
+            }
+        }
+        return coalesced;
+    }
+
+    protected static ByteRange parseRangeSpec(String spec, long length) {
+        try {
+            int i = spec.indexOf('-');
             if (i < 0) {
                 return null;
             }
-            String start = range.substring(6, i).trim();
-            String end = range.substring(i + 1).trim();
+            String start = spec.substring(0, i).trim();
+            String end = spec.substring(i + 1).trim();
             long rangeStart = 0;
             long rangeEnd = length - 1;
             if (start.isEmpty()) {
@@ -19,6 +19,9 @@
  */
 package org.nuxeo.ecm.core.io.download;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -28,6 +31,11 @@ import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -46,6 +54,9 @@ import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -58,6 +69,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.utils.SizeUtils;
 import org.nuxeo.common.utils.URIUtils;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.CloseableCoreSession;
@@ -78,6 +90,7 @@ import org.nuxeo.ecm.core.blob.BlobManager;
 import org.nuxeo.ecm.core.blob.BlobManager.UsageHint;
 import org.nuxeo.ecm.core.blob.BlobProvider;
 import org.nuxeo.ecm.core.blob.LocalBlobProvider;
+import org.nuxeo.ecm.core.blob.ManagedBlob;
 import org.nuxeo.ecm.core.blob.binary.DefaultBinaryManager;
 import org.nuxeo.ecm.core.event.Event;
 import org.nuxeo.ecm.core.event.EventContext;
@@ -121,6 +134,35 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
 
     private static final String MD5 = "MD5";
 
+    /**
+     * Whether Tomcat's sendfile is used for blobs stored in local files when the connector supports it.
+     *
+     * @since 11.1
+     */
+    public static final String SENDFILE_ENABLED_PROPERTY = "org.nuxeo.download.sendfile.enabled";
+
+    /**
+     * Minimum size of a blob stored in a local file to send it using async servlet I/O, when the request supports it,
+     * so that slow clients don't hold a request thread. A negative value disables async downloads.
+     *
+     * @since 11.1
+     */
+    public static final String ASYNC_MIN_SIZE_PROPERTY = "org.nuxeo.download.async.minSize";
+
+    protected static final String DEFAULT_ASYNC_MIN_SIZE = "1MB";
+
+    protected static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+
+    protected static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+
+    protected static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+
+    protected static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    protected static final String MULTIPART_BOUNDARY_PREFIX = "multipart/byteranges; boundary=";
+
+    protected static final String CRLF = "\r\n";
+
     protected enum Action {
         DOWNLOAD, DOWNLOAD_FROM_DOC, INFO, BLOBSTATUS
     }
@@ -544,10 +586,6 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         }
         Boolean inline = context.getInline();
         Consumer<ByteRange> blobTransferer = context.getBlobTransferer();
-        if (blobTransferer == null) {
-            Blob fblob = blob;
-            blobTransferer = byteRange -> transferBlobWithByteRange(fblob, byteRange, response);
-        }
         Calendar lastModified = context.getLastModified();
         if (lastModified == null && doc != null) {
             try {
@@ -582,7 +620,9 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
             boolean empty = contentType != null && contentType.contains("empty=true");
 
             long length = blob.getLength();
-            ByteRange byteRange = getByteRange(request, length);
+            List<ByteRange> byteRanges = getByteRanges(request, length);
+            ByteRange byteRange = byteRanges == null ? null : byteRanges.get(0);
+            boolean multipleRanges = byteRanges != null && byteRanges.size() > 1;
 
             String digest = blob.getDigest();
             String digestAlgorithm = blob.getDigestAlgorithm();
@@ -666,22 +706,34 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
             }
             String contentDisposition = DownloadHelper.getRFC2231ContentDisposition(request, filename, inline);
             response.setHeader("Content-Disposition", contentDisposition);
-            response.setContentType(contentType);
-            if (StringUtils.isNotBlank(blob.getEncoding())) {
-                try {
-                    response.setCharacterEncoding(blob.getEncoding());
-                } catch (IllegalArgumentException e) {
-                    // ignore invalid encoding
+            String boundary = null;
+            if (multipleRanges) {
+                boundary = UUID.randomUUID().toString();
+                response.setContentType(MULTIPART_BOUNDARY_PREFIX + boundary);
+            } else {
+                response.setContentType(contentType);
+                if (StringUtils.isNotBlank(blob.getEncoding())) {
+                    try {
+                        response.setCharacterEncoding(blob.getEncoding());
+                    } catch (IllegalArgumentException e) {
+                        // ignore invalid encoding
+                    }
                 }
             }
 
             response.setHeader("Accept-Ranges", "bytes");
-            if (byteRange != null) {
+            long contentLength;
+            if (multipleRanges) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                contentLength = getMultipleRangesLength(byteRanges, contentType, length, boundary);
+            } else if (byteRange != null) {
                 response.setHeader("Content-Range",
                         "bytes " + byteRange.getStart() + "-" + byteRange.getEnd() + "/" + length);
                 response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                contentLength = byteRange.getLength();
+            } else {
+                contentLength = length;
             }
-            long contentLength = byteRange == null ? length : byteRange.getLength();
             response.setContentLengthLong(contentLength);
 
             // log the download but not if it's a random byte range
@@ -718,7 +770,17 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
 
             if (!isHead(request)) {
                 // execute the final download
-                blobTransferer.accept(byteRange);
+                if (multipleRanges) {
+                    if (blobTransferer == null) {
+                        Blob fblob = blob;
+                        blobTransferer = range -> transferBlob(request, response, fblob, range, false);
+                    }
+                    transferMultipleRanges(response, blobTransferer, byteRanges, contentType, length, boundary);
+                } else if (blobTransferer == null) {
+                    transferBlob(request, response, blob, byteRange, true);
+                } else {
+                    blobTransferer.accept(byteRange);
+                }
             }
         } catch (UncheckedIOException e) {
             DownloadHelper.handleClientDisconnect(e.getCause());
@@ -727,6 +789,10 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         }
     }
 
+    /**
+     * @deprecated since 11.1, use {@link #getByteRanges} instead
+     */
+    @Deprecated
     protected ByteRange getByteRange(HttpServletRequest request, long length) {
         String range = request.getHeader("Range");
         if (StringUtils.isBlank(range)) {
@@ -739,6 +805,266 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         return byteRange;
     }
 
+    /**
+     * Gets the sorted and coalesced byte ranges requested, or {@code null} for the whole content.
+     *
+     * @since 11.1
+     */
+    protected List<ByteRange> getByteRanges(HttpServletRequest request, long length) {
+        String range = request.getHeader("Range");
+        if (StringUtils.isBlank(range)) {
+            return null;
+        }
+        List<ByteRange> byteRanges = DownloadHelper.parseRanges(range, length);
+        if (byteRanges == null) {
+            log.debug("Invalid byte range received: {}", range);
+        }
+        return byteRanges;
+    }
+
+    /**
+     * Computes the length of a {@code multipart/byteranges} response, see RFC7233 4.1.
+     *
+     * @since 11.1
+     */
+    protected long getMultipleRangesLength(List<ByteRange> byteRanges, String contentType, long length,
+            String boundary) {
+        long contentLength = 0;
+        for (ByteRange byteRange : byteRanges) {
+            contentLength += getPartHeader(byteRange, contentType, length, boundary).length();
+            contentLength += byteRange.getLength() + CRLF.length();
+        }
+        return contentLength + getClosingBoundary(boundary).length();
+    }
+
+    protected String getPartHeader(ByteRange byteRange, String contentType, long length, String boundary) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("--").append(boundary).append(CRLF);
+        if (StringUtils.isNotBlank(contentType)) {
+            sb.append("Content-Type: ").append(contentType).append(CRLF);
+        }
+        sb.append("Content-Range: bytes ")
+          .append(byteRange.getStart())
+          .append('-')
+          .append(byteRange.getEnd())
+          .append('/')
+          .append(length)
+          .append(CRLF);
+        sb.append(CRLF);
+        return sb.toString();
+    }
+
+    protected String getClosingBoundary(String boundary) {
+        return "--" + boundary + "--" + CRLF;
+    }
+
+    /**
+     * Sends a {@code multipart/byteranges} response, the content of each range being written by the transferer.
+     *
+     * @since 11.1
+     */
+    protected void transferMultipleRanges(HttpServletResponse response, Consumer<ByteRange> blobTransferer,
+            List<ByteRange> byteRanges, String contentType, long length, String boundary) throws IOException {
+        OutputStream out = response.getOutputStream();
+        BufferingServletOutputStream.stopBuffering(out);
+        for (ByteRange byteRange : byteRanges) {
+            out.write(getPartHeader(byteRange, contentType, length, boundary).getBytes(US_ASCII));
+            blobTransferer.accept(byteRange);
+            out.write(CRLF.getBytes(US_ASCII));
+        }
+        out.write(getClosingBoundary(boundary).getBytes(US_ASCII));
+        response.flushBuffer();
+    }
+
+    /**
+     * Transfers a blob (or a range of it) to the response.
+     * <p>
+     * Blobs stored in a local file of their blob store are sent using Tomcat's sendfile if available, or else using
+     * async servlet I/O if the request supports it and the blob is large enough, or else by copying the file channel to
+     * the response. Other blobs are copied from their stream.
+     *
+     * @param single {@code true} if the blob is the whole response, allowing sendfile or async I/O
+     * @since 11.1
+     */
+    protected void transferBlob(HttpServletRequest request, HttpServletResponse response, Blob blob,
+            ByteRange byteRange, boolean single) {
+        File file = getLocalFile(blob);
+        if (file == null) {
+            transferBlobWithByteRange(blob, byteRange, response);
+            return;
+        }
+        long start = byteRange == null ? 0 : byteRange.getStart();
+        long count = byteRange == null ? file.length() : byteRange.getLength();
+        try {
+            if (single && sendFile(request, file, start, count)) {
+                return;
+            }
+            ServletOutputStream out = response.getOutputStream();
+            BufferingServletOutputStream.stopBuffering(out);
+            if (single && transferFileAsync(request, out, file, start, count)) {
+                return;
+            }
+            transferFile(file, start, count, out);
+            if (single) {
+                response.flushBuffer();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the local file of the blob store holding the exact content of the blob, if any.
+     * <p>
+     * The file of a non-managed blob may be a temporary file deleted at the end of the request, before the container
+     * or an async write completes, so such blobs are never sent from their file.
+     *
+     * @since 11.1
+     */
+    protected File getLocalFile(Blob blob) {
+        if (!(blob instanceof ManagedBlob)) {
+            return null;
+        }
+        File file = Framework.getService(BlobManager.class).getFile(blob);
+        // a file with a different length (encryption, compression) can't be sent as is
+        return file != null && file.length() == blob.getLength() ? file : null;
+    }
+
+    /**
+     * Delegates the transfer of the file to Tomcat's sendfile, which uses zero-copy and doesn't need a request thread.
+     */
+    protected boolean sendFile(HttpServletRequest request, File file, long start, long count) {
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))
+                || Framework.isBooleanPropertyFalse(SENDFILE_ENABLED_PROPERTY)) {
+            return false;
+        }
+        request.setAttribute(SENDFILE_FILENAME_ATTR, file.getAbsolutePath());
+        request.setAttribute(SENDFILE_START_ATTR, Long.valueOf(start));
+        request.setAttribute(SENDFILE_END_ATTR, Long.valueOf(start + count)); // exclusive
+        return true;
+    }
+
+    /**
+     * Sends the file using async servlet I/O, the request thread being released while the client reads.
+     */
+    protected boolean transferFileAsync(HttpServletRequest request, ServletOutputStream out, File file, long start,
+            long count) throws IOException {
+        if (!request.isAsyncSupported() || out instanceof BufferingServletOutputStream) {
+            // the buffering stream doesn't support write listeners
+            return false;
+        }
+        long minSize = getAsyncMinSize();
+        if (minSize < 0 || count < minSize) {
+            return false;
+        }
+        AsyncContext asyncContext = request.isAsyncStarted() ? request.getAsyncContext() : request.startAsync();
+        // large downloads to slow clients take time, the connector write timeout still applies
+        asyncContext.setTimeout(0);
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        out.setWriteListener(new FileChannelWriteListener(asyncContext, out, channel, start, count));
+        return true;
+    }
+
+    protected long getAsyncMinSize() {
+        String minSize = Framework.getProperty(ASYNC_MIN_SIZE_PROPERTY, DEFAULT_ASYNC_MIN_SIZE);
+        return minSize.trim().startsWith("-") ? -1 : SizeUtils.parseSizeInBytes(minSize);
+    }
+
+    /**
+     * Copies a range of the file to the output stream, using {@link FileChannel#transferTo} to avoid intermediate
+     * buffers.
+     */
+    protected void transferFile(File file, long start, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            @SuppressWarnings("resource")
+            WritableByteChannel target = Channels.newChannel(out); // not ours to close
+            long position = start;
+            long end = start + count;
+            while (position < end) {
+                long n = channel.transferTo(position, end - position, target);
+                if (n <= 0) {
+                    throw new EOFException("Unexpected end of file: " + file + " at: " + position);
+                }
+                position += n;
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes a range of a file channel to an async output stream whenever it is ready.
+     *
+     * @since 11.1
+     */
+    protected static class FileChannelWriteListener implements WriteListener {
+
+        protected final AsyncContext asyncContext;
+
+        protected final ServletOutputStream out;
+
+        protected final FileChannel channel;
+
+        protected final ByteBuffer buffer = ByteBuffer.allocate(DOWNLOAD_BUFFER_SIZE);
+
+        protected long position;
+
+        protected long remaining;
+
+        protected boolean closed;
+
+        protected FileChannelWriteListener(AsyncContext asyncContext, ServletOutputStream out, FileChannel channel,
+                long start, long count) {
+            this.asyncContext = asyncContext;
+            this.out = out;
+            this.channel = channel;
+            position = start;
+            remaining = count;
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+            while (out.isReady()) {
+                if (remaining <= 0) {
+                    close();
+                    return;
+                }
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), remaining));
+                int n = channel.read(buffer, position);
+                if (n < 0) {
+                    // the container calls onError, which closes
+                    throw new EOFException("Unexpected end of file at: " + position);
+                }
+                position += n;
+                remaining -= n;
+                out.write(buffer.array(), 0, n);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (DownloadHelper.isClientAbortError(t)) {
+                DownloadHelper.logClientAbort(t);
+            } else {
+                log.error("Error during async download", t);
+            }
+            close();
+        }
+
+        protected void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Cannot close channel", e);
+            }
+            asyncContext.complete();
+        }
+    }
+
     protected Set<String> getWantDigests(HttpServletRequest request) {
         Enumeration<String> values = request.getHeaders("Want-Digest");
         if (values == null) {
@@ -131,7 +131,7 @@ public class NuxeoArchiveWriter extends AbstractDocumentWriter {
         ZipEntry entry = new ZipEntry(path + ExportConstants.DOCUMENT_FILE);
         out.putNextEntry(entry);
         try {
-            writeXML(doc.getDocument(), out);
+            writeDocumentXML(doc.getDocument());
         } finally {
             out.closeEntry();
             // System.out.println(">> add entry: "+entry.getName());
@@ -143,7 +143,7 @@ public class NuxeoArchiveWriter extends AbstractDocumentWriter {
             entry = new ZipEntry(path + fileName);
             out.putNextEntry(entry);
             try {
-                writeXML(ext.getValue(), out);
+                writeDocumentXML(ext.getValue());
             } finally {
                 out.closeEntry();
             }
@@ -155,14 +155,32 @@ public class NuxeoArchiveWriter extends AbstractDocumentWriter {
             String fileName = blobEntry.getKey();
             entry = new ZipEntry(path + fileName);
             out.putNextEntry(entry);
-            try (InputStream in = blobEntry.getValue().getStream()) {
-                IOUtils.copy(in, out);
-            }
+            writeBlob(blobEntry.getValue());
             // DO NOT CALL out.close(), we want to keep writing to it
             out.closeEntry();
         }
     }
 
+    /**
+     * Writes the XML document into the current zip entry.
+     *
+     * @since 11.1
+     */
+    protected void writeDocumentXML(Document doc) throws IOException {
+        writeXML(doc, out);
+    }
+
+    /**
+     * Writes the blob content into the current zip entry.
+     *
+     * @since 11.1
+     */
+    protected void writeBlob(Blob blob) throws IOException {
+        try (InputStream in = blob.getStream()) {
+            IOUtils.copy(in, out);
+        }
+    }
+
     protected static void writeXML(Document doc, OutputStream out) throws IOException {
         OutputFormat format = AbstractDocumentWriter.createPrettyPrint();
         XMLWriter writer = new XMLWriter(out, format);
@@ -0,0 +1,161 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.io.impl.plugins;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.io.ExportedDocument;
+import org.nuxeo.ecm.core.io.impl.ExportedDocumentImpl;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+
+/**
+ * Reads a document tree depth first like {@link DocumentTreeReader}, but fetches the children of each folder by pages
+ * instead of loading them all at once.
+ * <p>
+ * Children are paged on their id (keyset pagination), so the reader only keeps one page of children per tree level in
+ * memory and doesn't rely on a cursor, which allows the pipe to commit the transaction between pages (see
+ * {@link org.nuxeo.ecm.core.io.impl.TransactionBatchingDocumentPipeImpl}).
+ *
+ * @since 11.1
+ */
+public class PagedDocumentTreeReader extends DocumentModelReader {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    protected final int pageSize;
+
+    protected final int pathSegmentsToRemove;
+
+    protected final Deque<ChildrenPage> folders = new ArrayDeque<>();
+
+    protected DocumentModel root;
+
+    public PagedDocumentTreeReader(CoreSession session, DocumentRef root) {
+        this(session, session.getDocument(root), false, DEFAULT_PAGE_SIZE);
+    }
+
+    public PagedDocumentTreeReader(CoreSession session, DocumentModel root, boolean excludeRoot, int pageSize) {
+        super(session);
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be > 0");
+        }
+        this.pageSize = pageSize;
+        pathSegmentsToRemove = root.getPath().segmentCount() - (excludeRoot ? 0 : 1);
+        if (excludeRoot) {
+            folders.push(new ChildrenPage(root.getId()));
+        } else {
+            this.root = root;
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        folders.clear();
+        root = null;
+    }
+
+    @Override
+    public ExportedDocument read() throws IOException {
+        DocumentModel doc = next();
+        if (doc == null) {
+            return null;
+        }
+        if (pathSegmentsToRemove > 0) {
+            // remove unwanted leading segments
+            return new ExportedDocumentImpl(doc, doc.getPath().removeFirstSegments(pathSegmentsToRemove), inlineBlobs);
+        }
+        return new ExportedDocumentImpl(doc, inlineBlobs);
+    }
+
+    protected DocumentModel next() {
+        if (root != null) {
+            DocumentModel doc = root;
+            root = null;
+            visit(doc);
+            return doc;
+        }
+        while (!folders.isEmpty()) {
+            ChildrenPage page = folders.peek();
+            if (!page.children.hasNext() && !page.fetchNext()) {
+                folders.pop();
+                continue;
+            }
+            DocumentModel doc = page.children.next();
+            page.lastId = doc.getId();
+            visit(doc);
+            return doc;
+        }
+        return null;
+    }
+
+    protected void visit(DocumentModel doc) {
+        if (doc.isFolder()) {
+            folders.push(new ChildrenPage(doc.getId()));
+        }
+    }
+
+    protected String getChildrenQuery(String parentId, String lastId) {
+        StringBuilder sb = new StringBuilder("SELECT * FROM Document WHERE ecm:parentId = ");
+        sb.append(NXQL.escapeString(parentId));
+        sb.append(" AND ecm:isVersion = 0");
+        if (lastId != null) {
+            sb.append(" AND ecm:uuid > ").append(NXQL.escapeString(lastId));
+        }
+        sb.append(" ORDER BY ecm:uuid");
+        return sb.toString();
+    }
+
+    /**
+     * The current page of children of a folder.
+     */
+    protected class ChildrenPage {
+
+        protected final String parentId;
+
+        protected String lastId;
+
+        protected Iterator<DocumentModel> children = Collections.emptyIterator();
+
+        protected boolean complete;
+
+        protected ChildrenPage(String parentId) {
+            this.parentId = parentId;
+        }
+
+        protected boolean fetchNext() {
+            if (complete) {
+                return false;
+            }
+            DocumentModelList docs = session.query(getChildrenQuery(parentId, lastId), null, pageSize, 0, false);
+            complete = docs.size() < pageSize;
+            children = docs.iterator();
+            return children.hasNext();
+        }
+    }
+
+}
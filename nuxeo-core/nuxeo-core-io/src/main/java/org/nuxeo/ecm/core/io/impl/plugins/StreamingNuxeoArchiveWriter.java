@@ -0,0 +1,276 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.io.impl.plugins;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.io.FileUtils;
+import org.dom4j.Attribute;
+import org.dom4j.Document;
+import org.dom4j.Element;
+import org.dom4j.Namespace;
+import org.dom4j.Node;
+import org.dom4j.ProcessingInstruction;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.impl.blob.FileBlob;
+import org.nuxeo.ecm.core.io.DocumentTranslationMap;
+import org.nuxeo.ecm.core.io.ExportedDocument;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * A {@link NuxeoArchiveWriter} for large exports.
+ * <p>
+ * XML documents are serialized with StAX directly into the zip output stream, without the intermediate formatting of
+ * the dom4j writer. When documents are written by pages (see {@link org.nuxeo.ecm.core.io.impl.DocumentPipeImpl}),
+ * the blobs of the page are fetched concurrently by a bounded pool of threads and spooled to temporary files while the
+ * documents are written in order, so that memory usage doesn't depend on the blob sizes and slow blob stores don't
+ * serialize the export.
+ *
+ * @since 11.1
+ */
+public class StreamingNuxeoArchiveWriter extends NuxeoArchiveWriter {
+
+    public static final int DEFAULT_BLOB_FETCH_THREADS = 4;
+
+    protected static final String THREAD_NAME_PREFIX = "Nuxeo-ArchiveBlobFetcher-";
+
+    protected static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    protected static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    static {
+        OUTPUT_FACTORY.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+    }
+
+    protected final ExecutorService blobFetcher;
+
+    /** Blobs of the current page being fetched, the future returns {@code null} when the blob is already local. */
+    protected final Map<Blob, Future<File>> fetchedBlobs = new IdentityHashMap<>();
+
+    public StreamingNuxeoArchiveWriter(File destination) throws IOException {
+        this(new BufferedOutputStream(new FileOutputStream(destination)), Deflater.DEFAULT_COMPRESSION,
+                DEFAULT_BLOB_FETCH_THREADS);
+    }
+
+    public StreamingNuxeoArchiveWriter(OutputStream out) throws IOException {
+        this(out, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOB_FETCH_THREADS);
+    }
+
+    public StreamingNuxeoArchiveWriter(OutputStream out, int compressionLevel, int blobFetchThreads)
+            throws IOException {
+        super(new ZipOutputStream(out), compressionLevel);
+        if (blobFetchThreads <= 0) {
+            throw new IllegalArgumentException("blobFetchThreads must be > 0");
+        }
+        blobFetcher = Executors.newFixedThreadPool(blobFetchThreads, runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public DocumentTranslationMap write(ExportedDocument[] docs) throws IOException {
+        if (docs == null) {
+            return null;
+        }
+        return write(Arrays.asList(docs));
+    }
+
+    @Override
+    public DocumentTranslationMap write(Collection<ExportedDocument> docs) throws IOException {
+        if (docs == null || docs.isEmpty()) {
+            return null;
+        }
+        fetchBlobs(docs);
+        try {
+            return super.write(docs);
+        } finally {
+            releaseBlobs();
+        }
+    }
+
+    protected void fetchBlobs(Collection<ExportedDocument> docs) {
+        for (ExportedDocument doc : docs) {
+            for (Blob blob : doc.getBlobs().values()) {
+                if (!(blob instanceof FileBlob)) {
+                    fetchedBlobs.put(blob, blobFetcher.submit(() -> fetchBlob(blob)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes the blob content local, returns the spooled file or {@code null} if the blob provider already has a local
+     * file for it.
+     */
+    protected File fetchBlob(Blob blob) throws IOException {
+        if (blob.getFile() != null) {
+            return null;
+        }
+        File file = Framework.createTempFile("nxexport-", ".blob");
+        try (InputStream in = blob.getStream()) {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            FileUtils.deleteQuietly(file);
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * Waits for the pending fetches of the page and deletes their spooled files, a running fetch cannot be
+     * interrupted without leaking its file.
+     */
+    protected void releaseBlobs() {
+        for (Future<File> future : fetchedBlobs.values()) {
+            try {
+                FileUtils.deleteQuietly(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // already reported when writing the blob
+            }
+        }
+        fetchedBlobs.clear();
+    }
+
+    @Override
+    protected void writeBlob(Blob blob) throws IOException {
+        Future<File> future = fetchedBlobs.get(blob);
+        File file = future == null ? null : getFetchedBlob(future);
+        if (file == null) {
+            super.writeBlob(blob);
+            return;
+        }
+        try {
+            Files.copy(file.toPath(), out);
+        } finally {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    protected File getFetchedBlob(Future<File> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new NuxeoException(cause);
+        }
+    }
+
+    @Override
+    protected void writeDocumentXML(Document doc) throws IOException {
+        try {
+            XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            writeElement(writer, doc.getRootElement());
+            writer.writeEndDocument();
+            // doesn't close the underlying zip stream
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    protected void writeElement(XMLStreamWriter writer, Element element) throws XMLStreamException {
+        Namespace ns = element.getNamespace();
+        writer.writeStartElement(ns.getPrefix(), element.getName(), ns.getURI());
+        for (Namespace declared : element.declaredNamespaces()) {
+            if (!declared.equals(ns)) {
+                writer.writeNamespace(declared.getPrefix(), declared.getURI());
+            }
+        }
+        for (Attribute attribute : element.attributes()) {
+            Namespace attributeNs = attribute.getNamespace();
+            if (attributeNs.getURI().isEmpty()) {
+                writer.writeAttribute(attribute.getName(), attribute.getValue());
+            } else {
+                writer.writeAttribute(attributeNs.getPrefix(), attributeNs.getURI(), attribute.getName(),
+                        attribute.getValue());
+            }
+        }
+        for (Node node : element.content()) {
+            switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                writeElement(writer, (Element) node);
+                break;
+            case Node.TEXT_NODE:
+            case Node.ENTITY_REFERENCE_NODE:
+                writer.writeCharacters(node.getText());
+                break;
+            case Node.CDATA_SECTION_NODE:
+                if (node.getText().contains("]]>")) {
+                    writer.writeCharacters(node.getText());
+                } else {
+                    writer.writeCData(node.getText());
+                }
+                break;
+            case Node.COMMENT_NODE:
+                writer.writeComment(node.getText());
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                ProcessingInstruction pi = (ProcessingInstruction) node;
+                writer.writeProcessingInstruction(pi.getTarget(), pi.getText());
+                break;
+            default:
+                // namespace declarations are handled above
+                break;
+            }
+        }
+        writer.writeEndElement();
+    }
+
+    @Override
+    public void close() {
+        releaseBlobs();
+        blobFetcher.shutdownNow();
+        super.close();
+    }
+
+}
@@ -40,6 +40,7 @@ import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
 import org.nuxeo.ecm.core.io.registry.reflect.Supports;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 
 /**
  * Base class for Json {@link Writer}.
@@ -50,13 +51,27 @@ import com.fasterxml.jackson.core.JsonGenerator;
  * <p>
  * The use of this class optimize the JsonFactory usage especially when aggregating marshallers.
  * </p>
+ * <p>
+ * Json writers also produce Smile, the binary Json format, when {@value #APPLICATION_SMILE} is requested: the
+ * generator is chosen once for the whole entity, and aggregated marshallers write in the same generator.
+ * </p>
  *
  * @param <EntityType> The Java type to marshall as Json.
  * @since 7.2
  */
-@Supports(APPLICATION_JSON)
+@Supports({ APPLICATION_JSON, AbstractJsonWriter.APPLICATION_SMILE })
 public abstract class AbstractJsonWriter<EntityType> implements Writer<EntityType> {
 
+    /**
+     * @since 11.1
+     */
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+
+    /**
+     * @since 11.1
+     */
+    public static final MediaType APPLICATION_SMILE_TYPE = new MediaType("application", "x-jackson-smile");
+
     /**
      * The current {@link RenderingContext}.
      */
@@ -77,7 +92,7 @@ public abstract class AbstractJsonWriter<EntityType> implements Writer<EntityTyp
     @Override
     public void write(EntityType entity, Class<?> clazz, Type genericType, MediaType mediatype, OutputStream out)
             throws IOException {
-        JsonGenerator jg = getGenerator(out, true);
+        JsonGenerator jg = getGenerator(out, mediatype, true);
         write(entity, jg);
         jg.flush();
     }
@@ -153,11 +168,44 @@ public abstract class AbstractJsonWriter<EntityType> implements Writer<EntityTyp
      * @since 7.2
      */
     protected JsonGenerator getGenerator(OutputStream out, boolean getCurrentIfAvailable) throws IOException {
+        return getGenerator(out, APPLICATION_JSON_TYPE, getCurrentIfAvailable);
+    }
+
+    /**
+     * Get the current Json generator or create it for the given media type if none was found.
+     *
+     * @param out The {@link OutputStream} on which the generator will generate Json.
+     * @param mediatype The requested media type, a Smile generator is created for {@value #APPLICATION_SMILE}.
+     * @param getCurrentIfAvailable If true, try to get the current generator in the context.
+     * @return The created generator.
+     * @since 11.1
+     */
+    protected JsonGenerator getGenerator(OutputStream out, MediaType mediatype, boolean getCurrentIfAvailable)
+            throws IOException {
         if (getCurrentIfAvailable && out instanceof OutputStreamWithJsonWriter) {
             OutputStreamWithJsonWriter casted = (OutputStreamWithJsonWriter) out;
             return casted.getJsonGenerator();
         }
-        return JsonFactoryProvider.get().createGenerator(out);
+        return JsonFactoryProvider.get(mediatype).createGenerator(out);
+    }
+
+    /**
+     * Writes an already serialized Json value. As binary formats such as Smile cannot embed raw Json, the value is
+     * parsed and copied in that case.
+     *
+     * @param json The serialized Json value.
+     * @param jg The {@link JsonGenerator} used to write the given value.
+     * @since 11.1
+     */
+    protected void writeRawJsonValue(String json, JsonGenerator jg) throws IOException {
+        if (!jg.canWriteBinaryNatively()) {
+            jg.writeRawValue(json);
+            return;
+        }
+        try (JsonParser parser = JsonFactoryProvider.get().createParser(json)) {
+            parser.nextToken();
+            jg.copyCurrentStructure(parser);
+        }
     }
 
     /**
@@ -19,8 +19,11 @@
 
 package org.nuxeo.ecm.core.io.marshallers.json;
 
+import javax.ws.rs.core.MediaType;
+
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 /**
  * Provides a {@link JsonFactory} with {@link ObjectMapper}.
@@ -37,6 +40,11 @@ public final class JsonFactoryProvider {
      */
     private static JsonFactory jsonFactory = null;
 
+    /**
+     * A factory producing Smile, the binary Json format, with simple {@link ObjectMapper} integrated.
+     */
+    private static final SmileFactory smileFactory = new SmileFactory(new ObjectMapper());
+
     /**
      * @return A {@link JsonFactory} with a simple {@link ObjectMapper}.
      * @since 7.2
@@ -48,4 +56,32 @@ public final class JsonFactoryProvider {
         return jsonFactory;
     }
 
+    /**
+     * @return A {@link JsonFactory} producing Smile with a simple {@link ObjectMapper}.
+     * @since 11.1
+     */
+    public static JsonFactory getSmile() {
+        return smileFactory;
+    }
+
+    /**
+     * @return The {@link JsonFactory} for the given media type: the Smile one for
+     *         {@value AbstractJsonWriter#APPLICATION_SMILE}, the Json one otherwise.
+     * @since 11.1
+     */
+    public static JsonFactory get(MediaType mediaType) {
+        if (isSmile(mediaType)) {
+            return getSmile();
+        }
+        return get();
+    }
+
+    /**
+     * @since 11.1
+     */
+    public static boolean isSmile(MediaType mediaType) {
+        return mediaType != null && AbstractJsonWriter.APPLICATION_SMILE_TYPE.getType().equals(mediaType.getType())
+                && AbstractJsonWriter.APPLICATION_SMILE_TYPE.getSubtype().equals(mediaType.getSubtype());
+    }
+
 }
@@ -172,7 +172,7 @@ public class DocumentPropertyJsonWriter extends AbstractJsonWriter<Property> {
                     try {
                         ByteArrayOutputStream baos = new ByteArrayOutputStream();
                         writeEntity(object, baos);
-                        jg.writeRawValue(baos.toString());
+                        writeRawJsonValue(baos.toString(), jg);
                         fetched = true;
                     } catch (MarshallingException e) {
                         log.error("Unable to marshall as json the entity referenced by the property " + path, e);
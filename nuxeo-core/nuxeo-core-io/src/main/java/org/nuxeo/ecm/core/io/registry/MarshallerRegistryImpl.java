@@ -20,9 +20,12 @@
 package org.nuxeo.ecm.core.io.registry;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
@@ -44,6 +47,10 @@ import org.nuxeo.runtime.model.Descriptor;
  * This implementation is based on {@link MarshallerInspector} class which is able to create marshaller instance and
  * inject properties. This class also manage marshaller's priorities.
  * </p>
+ * <p>
+ * The marshallers compatible with a marshalled class and generic type are cached, as resolving them is done for each
+ * written entity and each enricher. This cache is cleared each time a marshaller is registered or deregistered.
+ * </p>
  *
  * @since 7.2
  */
@@ -81,6 +88,13 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
      */
     private static final Map<Class<?>, MarshallerInspector> marshallersByType = new ConcurrentHashMap<>();
 
+    /**
+     * {@link MarshallerInspector} compatible with a marshalled class and generic type, ordered by their priority.
+     *
+     * @since 11.1
+     */
+    private static final Map<CandidatesKey, List<MarshallerInspector>> compatibles = new ConcurrentHashMap<>();
+
     @Override
     public void deactivate(ComponentContext context) {
         clear();
@@ -155,6 +169,7 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
                 inspectors.add(inspector);
             }
         }
+        compatibles.clear();
     }
 
     @Override
@@ -188,6 +203,7 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
                 }
             }
         }
+        compatibles.clear();
     }
 
     @Override
@@ -275,23 +291,16 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
     @SuppressWarnings("unchecked")
     private <T> Marshaller<T> searchCandidate(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype, Set<MarshallerInspector> candidates, boolean forceInstantiation) {
-        for (MarshallerInspector inspector : candidates) {
-            // checks the managed class is compatible
-            if (inspector.getMarshalledType().isAssignableFrom(marshalledClazz)) {
-                // checks the generic type is compatible
-                if (genericType == null || marshalledClazz.equals(inspector.getGenericType())
-                        || TypeUtils.isAssignable(genericType, inspector.getGenericType())) {
-                    Marshaller<T> marshaller = null;
-                    if (forceInstantiation) {
-                        marshaller = (Marshaller<T>) inspector.getNewInstance(ctx, false);
-                    } else {
-                        marshaller = inspector.getInstance(ctx);
-                    }
-                    // checks the marshaller accepts the request
-                    if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
-                        return marshaller;
-                    }
-                }
+        for (MarshallerInspector inspector : getCompatibles(marshalledClazz, genericType, candidates)) {
+            Marshaller<T> marshaller = null;
+            if (forceInstantiation) {
+                marshaller = (Marshaller<T>) inspector.getNewInstance(ctx, false);
+            } else {
+                marshaller = inspector.getInstance(ctx);
+            }
+            // checks the marshaller accepts the request
+            if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
+                return marshaller;
             }
         }
         return null;
@@ -300,23 +309,40 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
     private <T> Map<MarshallerInspector, Marshaller<T>> searchAllCandidates(RenderingContext ctx,
             Class<T> marshalledClazz, Type genericType, MediaType mediatype, Set<MarshallerInspector> candidates) {
         Map<MarshallerInspector, Marshaller<T>> result = new HashMap<>();
-        for (MarshallerInspector inspector : candidates) {
-            // checks the managed class is compatible
-            if (inspector.getMarshalledType().isAssignableFrom(marshalledClazz)) {
-                // checks the generic type is compatible
-                if (genericType == null || marshalledClazz.equals(inspector.getGenericType())
-                        || TypeUtils.isAssignable(genericType, inspector.getGenericType())) {
-                    // checks the marshaller accepts the request
-                    Marshaller<T> marshaller = inspector.getInstance(ctx);
-                    if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
-                        result.put(inspector, marshaller);
-                    }
-                }
+        for (MarshallerInspector inspector : getCompatibles(marshalledClazz, genericType, candidates)) {
+            // checks the marshaller accepts the request
+            Marshaller<T> marshaller = inspector.getInstance(ctx);
+            if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
+                result.put(inspector, marshaller);
             }
         }
         return result;
     }
 
+    /**
+     * Gets the candidates whose managed class and generic type are compatible with the given ones, in the candidates
+     * order.
+     *
+     * @since 11.1
+     */
+    protected List<MarshallerInspector> getCompatibles(Class<?> marshalledClazz, Type genericType,
+            Set<MarshallerInspector> candidates) {
+        return compatibles.computeIfAbsent(new CandidatesKey(candidates, marshalledClazz, genericType), key -> {
+            List<MarshallerInspector> result = new ArrayList<>();
+            for (MarshallerInspector inspector : candidates) {
+                // checks the managed class is compatible
+                if (inspector.getMarshalledType().isAssignableFrom(marshalledClazz)) {
+                    // checks the generic type is compatible
+                    if (genericType == null || marshalledClazz.equals(inspector.getGenericType())
+                            || TypeUtils.isAssignable(genericType, inspector.getGenericType())) {
+                        result.add(inspector);
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
     @Override
     public <T> T getInstance(RenderingContext ctx, Class<T> marshallerClass) {
         MarshallerInspector inspector = marshallersByType.get(marshallerClass);
@@ -344,6 +370,46 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
         readersByMediaType.clear();
         writers.clear();
         readers.clear();
+        compatibles.clear();
+    }
+
+    /**
+     * Key of the compatible candidates cache. The candidates set is compared by identity, as it's one of the
+     * registry's sets.
+     *
+     * @since 11.1
+     */
+    private static final class CandidatesKey {
+
+        private final Set<MarshallerInspector> candidates;
+
+        private final Class<?> marshalledClazz;
+
+        private final Type genericType;
+
+        private CandidatesKey(Set<MarshallerInspector> candidates, Class<?> marshalledClazz, Type genericType) {
+            this.candidates = candidates;
+            this.marshalledClazz = marshalledClazz;
+            this.genericType = genericType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(candidates), marshalledClazz, genericType);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CandidatesKey)) {
+                return false;
+            }
+            CandidatesKey other = (CandidatesKey) obj;
+            return candidates == other.candidates && marshalledClazz.equals(other.marshalledClazz)
+                    && Objects.equals(genericType, other.genericType);
+        }
     }
 
 }
@@ -20,24 +20,80 @@ package org.nuxeo.ecm.core.query.sql;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
 
 import org.nuxeo.common.utils.ExceptionUtils;
 import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.model.DateLiteral;
+import org.nuxeo.ecm.core.query.sql.model.DoubleLiteral;
+import org.nuxeo.ecm.core.query.sql.model.IdentityQueryTransformer;
+import org.nuxeo.ecm.core.query.sql.model.IntegerLiteral;
+import org.nuxeo.ecm.core.query.sql.model.Literal;
 import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
 import org.nuxeo.ecm.core.query.sql.parser.Scanner;
 import org.nuxeo.ecm.core.query.sql.parser.parser;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
+ * Parser for NXQL queries.
+ * <p>
+ * Queries parsed from a string are kept in a bounded cache keyed by the query text, the size of which is configured
+ * by the {@value #CACHE_SIZE_PROPERTY} property (0 disables the cache). As the AST is mutable, each call returns a
+ * copy of the cached AST.
+ * <p>
+ * Queries can use {@code ?} placeholders for their literals, see {@link #parse(String, Object...)}, so that queries
+ * differing only by their literals share the same cache entry.
+ *
  * @author <a href="mailto:bs@nuxeo.com">Bogdan Stefanescu</a>
  */
 public final class SQLQueryParser {
 
+    /** @since 11.1 */
+    public static final String CACHE_SIZE_PROPERTY = "org.nuxeo.core.query.parser.cache.size";
+
+    /** @since 11.1 */
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
+    /** String literal used in place of the query parameters for the parsing. */
+    protected static final String PARAMETER_MARKER = "\u0000param:";
+
+    protected static final char PARAMETER = '?';
+
+    private static volatile Cache<String, SQLQuery> cache;
+
+    private static volatile boolean cacheInitialized;
+
+    private static final MetricRegistry registry = SharedMetricRegistries.getOrCreate(
+            MetricsService.class.getName());
+
+    private static final Timer parseTimer = registry.timer(MetricRegistry.name("nuxeo", "nxql", "parser", "parse"));
+
+    private static final Counter cacheHits = registry.counter(
+            MetricRegistry.name("nuxeo", "nxql", "parser", "cache-hit-counter"));
+
+    private static final Counter cacheMisses = registry.counter(
+            MetricRegistry.name("nuxeo", "nxql", "parser", "cache-miss-counter"));
+
     // Utility class
     private SQLQueryParser() {
     }
 
     public static SQLQuery parse(Reader reader) throws QueryParseException {
-        try {
+        try (Timer.Context ignored = parseTimer.time()) {
             Scanner scanner = new Scanner(reader);
             parser parser = new parser(scanner);
             return (SQLQuery) parser.parse().value;
@@ -49,9 +105,150 @@ public final class SQLQueryParser {
     }
 
     public static SQLQuery parse(String string) throws QueryParseException {
-        SQLQuery query = parse(new StringReader(string));
+        SQLQuery query = new IdentityQueryTransformer().transform(getParsed(string));
         query.setQueryString(string);
         return query;
     }
 
+    /**
+     * Parses a query where literals are replaced by {@code ?} placeholders, bound in order to the given parameters.
+     * <p>
+     * Parameters can be strings, numbers, booleans (bound as 0 or 1), {@link Calendar}s, {@link Date}s or
+     * {@link ZonedDateTime}s.
+     *
+     * @param query the query with {@code ?} placeholders
+     * @param params the parameters
+     * @since 11.1
+     */
+    public static SQLQuery parse(String query, Object... params) throws QueryParseException {
+        StringBuilder sb = new StringBuilder(query.length() + 16);
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (quote != 0) {
+                // inside a string literal
+                if (c == '\\' && i + 1 < query.length()) {
+                    sb.append(c);
+                    c = query.charAt(++i);
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == PARAMETER) {
+                sb.append('\'').append(PARAMETER_MARKER).append(count++).append('\'');
+                continue;
+            }
+            sb.append(c);
+        }
+        if (count != params.length) {
+            throw new QueryParseException(
+                    "Query has " + count + " parameters but " + params.length + " were given: " + query);
+        }
+        return new ParameterBinder(params).transform(getParsed(sb.toString()));
+    }
+
+    /**
+     * Gets the cached AST for the query, which must not be modified.
+     */
+    protected static SQLQuery getParsed(String string) {
+        Cache<String, SQLQuery> queries = getCache();
+        if (queries == null) {
+            return parse(new StringReader(string));
+        }
+        SQLQuery query = queries.getIfPresent(string);
+        if (query != null) {
+            cacheHits.inc();
+            return query;
+        }
+        cacheMisses.inc();
+        try {
+            return queries.get(string, () -> parse(new StringReader(string)));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof QueryParseException) {
+                throw (QueryParseException) cause;
+            }
+            throw new QueryParseException(cause);
+        }
+    }
+
+    /**
+     * Gets the cache of parsed queries, or {@code null} if it's disabled.
+     */
+    protected static Cache<String, SQLQuery> getCache() {
+        if (!cacheInitialized) {
+            synchronized (SQLQueryParser.class) {
+                if (!cacheInitialized) {
+                    long size = getCacheSize();
+                    cache = size <= 0 ? null : CacheBuilder.newBuilder().maximumSize(size).build();
+                    cacheInitialized = true;
+                }
+            }
+        }
+        return cache;
+    }
+
+    protected static long getCacheSize() {
+        String size = Framework.getRuntime() == null ? System.getProperty(CACHE_SIZE_PROPERTY)
+                : Framework.getProperty(CACHE_SIZE_PROPERTY);
+        return size == null ? DEFAULT_CACHE_SIZE : Long.parseLong(size);
+    }
+
+    /**
+     * Clears the cache of parsed queries, its size will be read again from the configuration.
+     *
+     * @since 11.1
+     */
+    public static void clearCache() {
+        synchronized (SQLQueryParser.class) {
+            cache = null;
+            cacheInitialized = false;
+        }
+    }
+
+    /**
+     * Copies a query, replacing the parameter markers by the literals for the parameters.
+     */
+    protected static class ParameterBinder extends IdentityQueryTransformer {
+
+        protected final Object[] params;
+
+        protected ParameterBinder(Object[] params) {
+            this.params = params;
+        }
+
+        @Override
+        public Literal transform(StringLiteral node) {
+            if (!node.value.startsWith(PARAMETER_MARKER)) {
+                return node;
+            }
+            int index = Integer.parseInt(node.value.substring(PARAMETER_MARKER.length()));
+            return toLiteral(params[index]);
+        }
+
+        protected Literal toLiteral(Object param) {
+            if (param instanceof String) {
+                return new StringLiteral((String) param);
+            } else if (param instanceof Double || param instanceof Float) {
+                return new DoubleLiteral(((Number) param).doubleValue());
+            } else if (param instanceof Number) {
+                return new IntegerLiteral(((Number) param).longValue());
+            } else if (param instanceof Boolean) {
+                return new IntegerLiteral(((Boolean) param).booleanValue() ? 1 : 0);
+            } else if (param instanceof Calendar) {
+                Calendar calendar = (Calendar) param;
+                return new DateLiteral(
+                        ZonedDateTime.ofInstant(calendar.toInstant(), calendar.getTimeZone().toZoneId()));
+            } else if (param instanceof Date) {
+                return new DateLiteral(ZonedDateTime.ofInstant(((Date) param).toInstant(), ZoneOffset.UTC));
+            } else if (param instanceof ZonedDateTime) {
+                return new DateLiteral((ZonedDateTime) param);
+            } else {
+                throw new QueryParseException("Unsupported query parameter: " + param);
+            }
+        }
+    }
+
 }
@@ -63,7 +63,7 @@ public class IdentityQueryTransformer implements QueryTransformer {
 
     @Override
     public FromClause transform(FromClause node) {
-        return new FromClause(transform(node.elements));
+        return new FromClause(node.type, transform(node.elements));
     }
 
     @Override
@@ -75,6 +75,12 @@ public class IdentityQueryTransformer implements QueryTransformer {
 
     @Override
     public WhereClause transform(WhereClause node) {
+        if (node == null) {
+            return null;
+        }
+        if (node.predicate == null) {
+            return new WhereClause();
+        }
         return new WhereClause(transform(node.predicate));
     }
 
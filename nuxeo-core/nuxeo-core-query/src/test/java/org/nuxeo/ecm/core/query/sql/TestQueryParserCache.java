@@ -0,0 +1,138 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+
+import java.time.ZonedDateTime;
+
+import org.junit.After;
+import org.junit.Test;
+import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.model.DateLiteral;
+import org.nuxeo.ecm.core.query.sql.model.FromClause;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.query.sql.model.SelectClause;
+
+public class TestQueryParserCache {
+
+    @After
+    public void tearDown() {
+        System.clearProperty(SQLQueryParser.CACHE_SIZE_PROPERTY);
+        SQLQueryParser.clearCache();
+    }
+
+    @Test
+    public void testCachedQueriesAreCopies() {
+        String nxql = "SELECT * FROM Document WHERE dc:title = 'foo' ORDER BY dc:created";
+        SQLQuery q1 = SQLQueryParser.parse(nxql);
+        SQLQuery q2 = SQLQueryParser.parse(nxql);
+        assertEquals(q1, q2);
+        assertNotSame(q1, q2);
+        assertNotSame(q1.where, q2.where);
+        assertEquals(nxql, q2.getQueryString());
+
+        // callers may modify the returned query
+        q1.select = new SelectClause();
+        q1.select.add(new Reference("ecm:uuid"));
+        SQLQuery q3 = SQLQueryParser.parse(nxql);
+        assertEquals(q2, q3);
+    }
+
+    @Test
+    public void testCachedQueryWithoutWhere() {
+        for (String nxql : new String[] { "SELECT * FROM Document", "SELECT * FROM Document ORDER BY dc:title" }) {
+            SQLQuery q1 = SQLQueryParser.parse(nxql);
+            SQLQuery q2 = SQLQueryParser.parse(nxql);
+            assertEquals(q1, q2);
+            assertNotSame(q1, q2);
+            assertEquals(nxql, q2.getQueryString());
+        }
+        SQLQuery query = SQLQueryParser.parse("SELECT * FROM Document ORDER BY dc:title");
+        assertEquals(1, query.orderBy.elements.size());
+    }
+
+    @Test
+    public void testCachedFromLocation() {
+        SQLQuery query = SQLQueryParser.parse("SELECT * FROM LOCATION foo");
+        assertEquals(FromClause.LOCATION, query.from.type);
+        query = SQLQueryParser.parse("SELECT * FROM LOCATION foo");
+        assertEquals(FromClause.LOCATION, query.from.type);
+    }
+
+    @Test
+    public void testCacheDisabled() {
+        System.setProperty(SQLQueryParser.CACHE_SIZE_PROPERTY, "0");
+        SQLQueryParser.clearCache();
+        String nxql = "SELECT * FROM Document WHERE dc:title = 'foo'";
+        assertEquals(SQLQueryParser.parse(nxql), SQLQueryParser.parse(nxql));
+    }
+
+    @Test
+    public void testParseErrorsAreNotCached() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                SQLQueryParser.parse("SELECT * FROM Document WHERE");
+                fail();
+            } catch (QueryParseException e) {
+                // ok
+            }
+        }
+    }
+
+    @Test
+    public void testParameters() {
+        ZonedDateTime date = new DateLiteral("2020-01-30T10:00:00Z", false).value;
+        SQLQuery query = SQLQueryParser.parse(
+                "SELECT * FROM Document WHERE dc:title = ? AND my:long = ? AND my:double > ? AND my:bool = ?"
+                        + " AND dc:created < ? AND dc:description <> 'what?'",
+                "it's", 12L, 1.5, true, date);
+        SQLQuery expected = SQLQueryParser.parse(
+                "SELECT * FROM Document WHERE dc:title = 'it\\'s' AND my:long = 12 AND my:double > 1.5"
+                        + " AND my:bool = 1 AND dc:created < TIMESTAMP '2020-01-30T10:00:00Z'"
+                        + " AND dc:description <> 'what?'");
+        assertEquals(expected, query);
+
+        // same template with other parameters
+        query = SQLQueryParser.parse("SELECT * FROM Document WHERE dc:title = ? AND ecm:uuid IN (?, ?)", "bar", "id1",
+                "id2");
+        expected = SQLQueryParser.parse("SELECT * FROM Document WHERE dc:title = 'bar' AND ecm:uuid IN ('id1', 'id2')");
+        assertEquals(expected, query);
+    }
+
+    @Test
+    public void testParametersMismatch() {
+        try {
+            SQLQueryParser.parse("SELECT * FROM Document WHERE dc:title = ? AND ecm:uuid = ?", "foo");
+            fail();
+        } catch (QueryParseException e) {
+            // ok
+        }
+        try {
+            SQLQueryParser.parse("SELECT * FROM Document WHERE dc:title = ?", new Object());
+            fail();
+        } catch (QueryParseException e) {
+            // ok
+        }
+    }
+
+}
@@ -47,10 +47,12 @@ import org.nuxeo.ecm.core.query.sql.model.OrderByClause;
 import org.nuxeo.ecm.core.storage.State;
 import org.nuxeo.ecm.core.storage.State.StateDiff;
 import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.StateUpdate;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.cluster.ClusterService;
 import org.nuxeo.runtime.metrics.MetricsService;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
 import com.google.common.cache.Cache;
@@ -82,18 +84,36 @@ public class DBSCachingRepository implements DBSRepository {
     public DBSCachingRepository(DBSRepository repository, DBSRepositoryDescriptor descriptor) {
         this.repository = repository;
         // Init caches
-        cache = newCache(descriptor);
+        cache = newStateCache(descriptor);
         registry.registerAll(GuavaCacheMetric.of(cache, "nuxeo", "repositories", repository.getName(), "cache"));
+        if (cache instanceof OffHeapStateCache) {
+            registry.register(MetricRegistry.name("nuxeo", "repositories", repository.getName(), "cache", "offheap"),
+                    (Gauge<Long>) ((OffHeapStateCache) cache)::getAllocatedBytes);
+        }
         childCache = newCache(descriptor);
         registry.registerAll(
                 GuavaCacheMetric.of(childCache, "nuxeo", "repositories", repository.getName(), "childCache"));
         if (log.isInfoEnabled()) {
-            log.info(String.format("DBS cache activated on '%s' repository", repository.getName()));
+            log.info(String.format("DBS %s cache activated on '%s' repository",
+                    descriptor.isCacheOffHeap() ? "off-heap" : "heap", repository.getName()));
         }
         invalidations = new DBSInvalidations();
         initClusterInvalidator(descriptor);
     }
 
+    /**
+     * Creates the cache for the document states, stored off-heap if configured.
+     *
+     * @since 11.1
+     */
+    protected Cache<String, State> newStateCache(DBSRepositoryDescriptor descriptor) {
+        if (descriptor.isCacheOffHeap()) {
+            return new OffHeapStateCache(descriptor.getCacheMaxMemory(), descriptor.cacheTTL.longValue(),
+                    TimeUnit.MINUTES);
+        }
+        return newCache(descriptor);
+    }
+
     protected <T> Cache<String, T> newCache(DBSRepositoryDescriptor descriptor) {
         CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
         builder = builder.expireAfterWrite(descriptor.cacheTTL.longValue(), TimeUnit.MINUTES).recordStats();
@@ -218,6 +238,15 @@ public class DBSCachingRepository implements DBSRepository {
         invalidate(id);
     }
 
+    @Override
+    public void updateStates(List<StateUpdate> updates) {
+        try {
+            repository.updateStates(updates);
+        } finally {
+            updates.forEach(update -> invalidate(update.getId()));
+        }
+    }
+
     @Override
     public void deleteStates(Set<String> ids) {
         repository.deleteStates(ids);
@@ -263,6 +292,20 @@ public class DBSCachingRepository implements DBSRepository {
         return parentId + '_' + name;
     }
 
+    /**
+     * Invalidates the cached descendants of a document. As the descendants are not known without a query, and a
+     * scan of the cache would deserialize all its states, the whole cache is invalidated, on this node and on the
+     * other nodes.
+     */
+    private void invalidateDescendants() {
+        cache.invalidateAll();
+        if (clusterInvalidator != null) {
+            synchronized (invalidations) {
+                invalidations.setAll();
+            }
+        }
+    }
+
     private void invalidate(String id) {
         invalidateAll(Collections.singleton(id));
     }
@@ -359,6 +402,29 @@ public class DBSCachingRepository implements DBSRepository {
         return repository.getDescendants(id, keys, limit);
     }
 
+    @Override
+    public Stream<State> getDescendantsHavingKey(String id, String key, Set<String> keys) {
+        return repository.getDescendantsHavingKey(id, key, keys);
+    }
+
+    @Override
+    public long updateDescendantsAncestors(String id, Object[] oldAncestorIds, Object[] newAncestorIds) {
+        try {
+            return repository.updateDescendantsAncestors(id, oldAncestorIds, newAncestorIds);
+        } finally {
+            invalidateDescendants();
+        }
+    }
+
+    @Override
+    public long setDescendantsValue(String id, String key, Serializable value, Set<String> excludedIds) {
+        try {
+            return repository.setDescendantsValue(id, key, value, excludedIds);
+        } finally {
+            invalidateDescendants();
+        }
+    }
+
     @Override
     public boolean queryKeyValuePresence(String key, String value, Set<String> ignored) {
         return repository.queryKeyValuePresence(key, value, ignored);
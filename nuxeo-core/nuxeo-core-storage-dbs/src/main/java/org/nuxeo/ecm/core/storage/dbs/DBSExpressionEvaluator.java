@@ -102,6 +102,12 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
 
     protected boolean parsing;
 
+    /** @since 11.1 */
+    protected final boolean compiled;
+
+    /** The compiled expression, if {@link #compiled}. */
+    protected CompiledOperand compiledExpression;
+
     /** Info about a value and how to compute it from the toplevel state or an iterator's state. */
     protected static final class ValueInfo {
 
@@ -284,10 +290,23 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
 
     public DBSExpressionEvaluator(DBSSession session, SQLQuery query, String[] principals,
             boolean fulltextSearchDisabled) {
+        this(session, query, principals, fulltextSearchDisabled, false);
+    }
+
+    /**
+     * Constructs an evaluator.
+     *
+     * @param compiled if {@code true}, the expression is compiled once by {@link #parse} instead of being walked for
+     *            each state
+     * @since 11.1
+     */
+    public DBSExpressionEvaluator(DBSSession session, SQLQuery query, String[] principals,
+            boolean fulltextSearchDisabled, boolean compiled) {
         super(new DBSPathResolver(session), principals, fulltextSearchDisabled);
         this.selectClause = query.select;
         this.expression = query.where.predicate;
         this.orderByClause = query.orderBy;
+        this.compiled = compiled;
     }
 
     public SelectClause getSelectClause() {
@@ -341,7 +360,14 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
         // we do parsing using the ExpressionEvaluator to be sure that references
         // are visited in the same order as when we'll do actual expression evaluation
         parsing = true;
-        walkAll();
+        if (compiled) {
+            // references of the projection are still visited in walk order, see walkAll
+            refCount = 0;
+            walkSelectClauseAndOrderBy(selectClause, orderByClause);
+            compiledExpression = compileExpression(expression);
+        } else {
+            walkAll();
+        }
         parsing = false;
 
         // we use all iterators in reversed ordered to increment them lexicographically from the end
@@ -401,7 +427,7 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
     protected Map<String, Serializable> walkAll() {
         refCount = 0;
         Map<String, Serializable> projection = walkSelectClauseAndOrderBy(selectClause, orderByClause);
-        Object res = walkExpression(expression);
+        Object res = compiledExpression == null ? walkExpression(expression) : compiledExpression.evaluate();
         if (TRUE.equals(res)) {
             // returns one match
             return projection;
@@ -477,6 +503,17 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
         return walkReferenceGetValueInfo(ref).getValueForEvaluation();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The reference is bound to its value info, which is updated for each state and iteration.
+     */
+    @Override
+    public CompiledOperand compileReference(Reference ref) {
+        ValueInfo valueInfo = walkReferenceGetValueInfo(ref);
+        return valueInfo::getValueForEvaluation;
+    }
+
     protected ValueInfo walkReferenceGetValueInfo(Reference ref) {
         if (parsing) {
             ValueInfo valueInfo = parseReference(ref);
@@ -831,9 +868,25 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
         if (parsing) {
             return null;
         }
-        /*
-         * Primary types that match.
-         */
+        return matchMixinTypes(getMatchPrimaryTypes(mixins, include), getMatchMixinTypes(mixins), include);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The matching primary types and instance mixins are computed once.
+     */
+    @Override
+    public CompiledOperand compileMixinTypes(List<String> mixins, boolean include) {
+        Set<String> matchPrimaryTypes = getMatchPrimaryTypes(mixins, include);
+        Set<String> matchMixinTypes = getMatchMixinTypes(mixins);
+        return () -> matchMixinTypes(matchPrimaryTypes, matchMixinTypes, include);
+    }
+
+    /**
+     * Primary types that match.
+     */
+    protected Set<String> getMatchPrimaryTypes(List<String> mixins, boolean include) {
         Set<String> matchPrimaryTypes;
         if (include) {
             matchPrimaryTypes = new HashSet<>();
@@ -846,38 +899,45 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
                 matchPrimaryTypes.removeAll(getMixinDocumentTypes(mixin));
             }
         }
-        /*
-         * Instance mixins that match.
-         */
+        return matchPrimaryTypes;
+    }
+
+    /**
+     * Instance mixins that match.
+     */
+    protected Set<String> getMatchMixinTypes(List<String> mixins) {
         Set<String> matchMixinTypes = new HashSet<>();
         for (String mixin : mixins) {
             if (!isNeverPerInstanceMixin(mixin)) {
                 matchMixinTypes.add(mixin);
             }
         }
-        /*
-         * Evaluation.
-         */
+        return matchMixinTypes;
+    }
+
+    /**
+     * Evaluation of the mixin types match for the current state.
+     */
+    protected Boolean matchMixinTypes(Set<String> matchPrimaryTypes, Set<String> matchMixinTypes, boolean include) {
         String primaryType = (String) state.get(KEY_PRIMARY_TYPE);
-        Object[] mixinTypesArray = (Object[]) state.get(KEY_MIXIN_TYPES);
-        List<Object> mixinTypes = mixinTypesArray == null ? Collections.emptyList() : Arrays.asList(mixinTypesArray);
-        if (include) {
-            // primary types
-            if (matchPrimaryTypes.contains(primaryType)) {
-                return TRUE;
-            }
-            // mixin types
-            matchMixinTypes.retainAll(mixinTypes); // intersection
-            return Boolean.valueOf(!matchMixinTypes.isEmpty());
-        } else {
-            // primary types
-            if (!matchPrimaryTypes.contains(primaryType)) {
-                return FALSE;
+        // primary types
+        if (include && matchPrimaryTypes.contains(primaryType)) {
+            return TRUE;
+        } else if (!include && !matchPrimaryTypes.contains(primaryType)) {
+            return FALSE;
+        }
+        // mixin types intersection
+        boolean intersects = false;
+        Object[] mixinTypes = (Object[]) state.get(KEY_MIXIN_TYPES);
+        if (mixinTypes != null) {
+            for (Object mixinType : mixinTypes) {
+                if (matchMixinTypes.contains(mixinType)) {
+                    intersects = true;
+                    break;
+                }
             }
-            // mixin types
-            matchMixinTypes.retainAll(mixinTypes); // intersection
-            return Boolean.valueOf(matchMixinTypes.isEmpty());
         }
+        return Boolean.valueOf(intersects == include);
     }
 
     @Override
@@ -18,8 +18,15 @@
  */
 package org.nuxeo.ecm.core.storage.dbs;
 
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,7 +40,9 @@ import org.nuxeo.ecm.core.model.Repository;
 import org.nuxeo.ecm.core.query.sql.model.OrderByClause;
 import org.nuxeo.ecm.core.storage.State;
 import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.StateHelper;
 import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.StateUpdate;
 
 /**
  * Interface for a {@link Repository} for Document-Based Storage.
@@ -42,6 +51,13 @@ import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
  */
 public interface DBSRepository extends Repository, LockManager {
 
+    /**
+     * Number of documents updated at once by the default implementations of the descendants updates.
+     *
+     * @since 11.1
+     */
+    int UPDATE_BATCH_SIZE = 1000;
+
     /**
      * Gets the blob manager.
      *
@@ -144,6 +160,20 @@ public interface DBSRepository extends Repository, LockManager {
      */
     void updateState(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater);
 
+    /**
+     * Updates several documents.
+     * <p>
+     * Implementations should send the updates to the storage in as few round trips as possible. The change token
+     * conditions of each update are checked as for {@link #updateState}. The updates may be applied in any order, so
+     * there must be at most one update per document.
+     *
+     * @param updates the updates to apply
+     * @since 11.1
+     */
+    default void updateStates(List<StateUpdate> updates) {
+        updates.forEach(update -> updateState(update.getId(), update.getDiff(), update.getChangeTokenUpdater()));
+    }
+
     /**
      * Deletes a set of document.
      *
@@ -238,6 +268,92 @@ public interface DBSRepository extends Repository, LockManager {
         return getDescendants(id, keys);
     }
 
+    /**
+     * Returns a stream of the descendants from a given root document having a non-null value for a key, in no
+     * particular order. This does not include information about the root document itself.
+     * <p>
+     * THE STREAM MUST BE CLOSED WHEN DONE to release resources.
+     *
+     * @param id the root document id
+     * @param key the key that must have a value
+     * @param keys what to collect about the descendants in addition to their ids
+     * @return a stream of {@link State}s; THE STREAM MUST BE CLOSED WHEN DONE
+     * @since 11.1
+     */
+    default Stream<State> getDescendantsHavingKey(String id, String key, Set<String> keys) {
+        // override for a more efficient implementation, filtering in the repository
+        Set<String> allKeys = new HashSet<>(keys);
+        allKeys.add(key);
+        return getDescendants(id, allKeys).filter(state -> state.get(key) != null);
+    }
+
+    /**
+     * Replaces the first ancestors of all the descendants of a document, after a move.
+     * <p>
+     * Only the descendants whose ancestors start with {@code oldAncestorIds} followed by the root document are
+     * updated. The root document itself is not updated.
+     *
+     * @param id the root document id
+     * @param oldAncestorIds the ancestors of the root document before the move
+     * @param newAncestorIds the ancestors of the root document after the move
+     * @return the number of updated documents
+     * @since 11.1
+     */
+    default long updateDescendantsAncestors(String id, Object[] oldAncestorIds, Object[] newAncestorIds) {
+        // override for a more efficient implementation, updating the documents in the repository
+        List<StateUpdate> updates = new ArrayList<>();
+        try (Stream<State> states = getDescendants(id, Collections.singleton(KEY_ANCESTOR_IDS))) {
+            states.forEach(state -> {
+                Object[] ancestors = (Object[]) state.get(KEY_ANCESTOR_IDS);
+                Object[] newAncestors = DBSTransactionState.replaceAncestors(ancestors, id, oldAncestorIds,
+                        newAncestorIds);
+                if (newAncestors != null) {
+                    StateDiff diff = new StateDiff();
+                    diff.put(KEY_ANCESTOR_IDS, newAncestors);
+                    updates.add(new StateUpdate((String) state.get(KEY_ID), diff, null));
+                }
+            });
+        }
+        // updates are collected first to avoid reentrancy to the repository
+        for (int i = 0; i < updates.size(); i += UPDATE_BATCH_SIZE) {
+            updateStates(updates.subList(i, Math.min(i + UPDATE_BATCH_SIZE, updates.size())));
+        }
+        return updates.size();
+    }
+
+    /**
+     * Sets the value of a key on all the descendants of a document.
+     *
+     * @param id the root document id
+     * @param key the key
+     * @param value the value
+     * @param excludedIds the descendants that must not be updated, together with their own descendants
+     * @return the number of updated documents
+     * @since 11.1
+     */
+    default long setDescendantsValue(String id, String key, Serializable value, Set<String> excludedIds) {
+        // override for a more efficient implementation, updating the documents in the repository
+        List<StateUpdate> updates = new ArrayList<>();
+        try (Stream<State> states = getDescendants(id, new HashSet<>(Arrays.asList(KEY_ANCESTOR_IDS, key)))) {
+            states.forEach(state -> {
+                String docId = (String) state.get(KEY_ID);
+                Object[] ancestors = (Object[]) state.get(KEY_ANCESTOR_IDS);
+                if (excludedIds.contains(docId) || Arrays.stream(ancestors).anyMatch(excludedIds::contains)
+                        || StateHelper.equalsStrict(state.get(key), value)) {
+                    return;
+                }
+                StateDiff diff = new StateDiff();
+                diff.put(key, value);
+                updates.add(new StateUpdate(docId, diff, null));
+            });
+        }
+        // updates are collected first to avoid reentrancy to the repository
+        for (int i = 0; i < updates.size(); i += UPDATE_BATCH_SIZE) {
+            updateStates(updates.subList(i, Math.min(i + UPDATE_BATCH_SIZE, updates.size())));
+        }
+        return updates.size();
+    }
+
     /**
      * Queries the repository to check if there are documents having key = value.
      *
@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.nuxeo.common.utils.SizeUtils;
 import org.nuxeo.common.xmap.annotation.XNode;
 import org.nuxeo.common.xmap.annotation.XNodeList;
 import org.nuxeo.ecm.core.storage.FulltextDescriptor;
@@ -116,6 +117,36 @@ public class DBSRepositoryDescriptor implements Cloneable {
     @XNode("cache@concurrencyLevel")
     public Integer cacheConcurrencyLevel;
 
+    /**
+     * Whether the document states are cached off-heap, in which case the cache is bounded by {@link #cacheMaxMemory}
+     * instead of {@link #cacheMaxSize}.
+     *
+     * @since 11.1
+     */
+    @XNode("cache@offHeap")
+    protected Boolean cacheOffHeap;
+
+    /** @since 11.1 */
+    public boolean isCacheOffHeap() {
+        return defaultFalse(cacheOffHeap);
+    }
+
+    /**
+     * The maximum off-heap memory used by the cache, with an optional KB, MB, GB or TB unit.
+     *
+     * @since 11.1
+     */
+    @XNode("cache@maxMemory")
+    public String cacheMaxMemory;
+
+    /** @since 11.1 */
+    public static final String DEFAULT_CACHE_MAX_MEMORY = "256MB";
+
+    /** @since 11.1 */
+    public long getCacheMaxMemory() {
+        return SizeUtils.parseSizeInBytes(cacheMaxMemory == null ? DEFAULT_CACHE_MAX_MEMORY : cacheMaxMemory);
+    }
+
     /** @since 8.10 */
     @XNode("clustering/invalidatorClass")
     public Class<? extends DBSClusterInvalidator> clusterInvalidatorClass;
@@ -171,6 +202,12 @@ public class DBSRepositoryDescriptor implements Cloneable {
         if (other.cacheConcurrencyLevel != null) {
             cacheConcurrencyLevel = other.cacheConcurrencyLevel;
         }
+        if (other.cacheOffHeap != null) {
+            cacheOffHeap = other.cacheOffHeap;
+        }
+        if (other.cacheMaxMemory != null) {
+            cacheMaxMemory = other.cacheMaxMemory;
+        }
         if (other.clusterInvalidatorClass != null) {
             clusterInvalidatorClass = other.clusterInvalidatorClass;
         }
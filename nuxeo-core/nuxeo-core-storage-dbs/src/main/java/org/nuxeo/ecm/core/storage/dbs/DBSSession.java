@@ -190,6 +190,15 @@ public class DBSSession implements Session<QueryFilter> {
 
     protected boolean isLatestVersionDisabled = false;
 
+    /**
+     * Property to disable the compilation of the queries evaluated in memory by {@link DBSExpressionEvaluator}.
+     *
+     * @since 11.1
+     */
+    public static final String EVALUATOR_COMPILED_PROPERTY = "org.nuxeo.dbs.query.evaluator.compiled";
+
+    protected boolean evaluatorCompiled;
+
     public DBSSession(DBSRepository repository) {
         this.repository = repository;
         transaction = new DBSTransactionState(repository, this);
@@ -201,6 +210,7 @@ public class DBSSession implements Session<QueryFilter> {
         queryTimer = registry.timer(MetricRegistry.name("nuxeo", "repositories", repository.getName(), "queries"));
         LOG_MIN_DURATION_NS = Long.parseLong(Framework.getProperty(LOG_MIN_DURATION_KEY, "-1")) * 1000000;
         isLatestVersionDisabled = Framework.isBooleanPropertyTrue(DISABLED_ISLATESTVERSION_PROPERTY);
+        evaluatorCompiled = !Framework.isBooleanPropertyFalse(EVALUATOR_COMPILED_PROPERTY);
     }
 
     @Override
@@ -416,6 +426,11 @@ public class DBSSession implements Session<QueryFilter> {
         throw new DocumentNotFoundException(id);
     }
 
+    @Override
+    public List<Document> getDocumentsByUUID(List<String> ids) {
+        return getDocuments(ids);
+    }
+
     @Override
     public Document getRootDocument() {
         return getDocument(getRootId());
@@ -1675,7 +1690,7 @@ public class DBSSession implements Session<QueryFilter> {
         QueryOptimizer optimizer = new DBSQueryOptimizer().withFacetFilter(queryFilter.getFacetFilter());
         sqlQuery = optimizer.optimize(sqlQuery);
         DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(this, sqlQuery, queryFilter.getPrincipals(),
-                fulltextSearchDisabled);
+                fulltextSearchDisabled, evaluatorCompiled);
 
         int limit = (int) queryFilter.getLimit();
         int offset = (int) queryFilter.getOffset();
@@ -1877,7 +1892,8 @@ public class DBSSession implements Session<QueryFilter> {
         SelectClause selectClause = sqlQuery.select;
         selectClause.add(new Reference(NXQL.ECM_UUID));
         sqlQuery = new DBSQueryOptimizer().optimize(sqlQuery);
-        DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(this, sqlQuery, null, fulltextSearchDisabled);
+        DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(this, sqlQuery, null, fulltextSearchDisabled,
+                evaluatorCompiled);
         return repository.scroll(evaluator, batchSize, keepAliveSeconds);
     }
 
@@ -1891,7 +1907,7 @@ public class DBSSession implements Session<QueryFilter> {
             sqlQuery = transformer.transform(queryFilter.getPrincipal(), sqlQuery);
         }
         DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(this, sqlQuery, queryFilter.getPrincipals(),
-                fulltextSearchDisabled);
+                fulltextSearchDisabled, evaluatorCompiled);
         return repository.scroll(evaluator, batchSize, keepAliveSeconds);
     }
 
@@ -61,6 +61,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.commons.logging.Log;
@@ -149,6 +150,14 @@ public class DBSTransactionState {
      */
     protected Map<String, State> undoLog;
 
+    /**
+     * Undo log of the updates of trees of documents done by the repository, applied in reverse order after the
+     * {@link #undoLog}.
+     *
+     * @since 11.1
+     */
+    protected final List<Runnable> treeUndoLog = new ArrayList<>();
+
     protected final Set<String> browsePermissions;
 
     public DBSTransactionState(DBSRepository repository, DBSSession session) {
@@ -452,32 +461,58 @@ public class DBSTransactionState {
      * <p>
      * Recursing from given doc, replace the first ndel ancestors with those passed.
      * <p>
-     * Doesn't check transient (assumes save is done). The modifications are automatically saved.
+     * The descendants are updated by the repository without going through the transient space. The modifications are
+     * automatically saved.
      */
     public void updateAncestors(String id, int ndel, Object[] ancestorIds) {
-        int nadd = ancestorIds.length;
-        Set<String> ids = new HashSet<>();
-        ids.add(id);
-        try (Stream<State> states = getDescendants(id, Collections.emptySet(), 0)) {
-            states.forEach(state -> ids.add((String) state.get(KEY_ID)));
-        }
-        // we collect all ids first to avoid reentrancy to the repository
-        for (String cid : ids) {
-            // XXX TODO oneShot update, don't pollute transient space
-            DBSDocumentState docState = getStateForUpdate(cid);
-            Object[] ancestors = (Object[]) docState.get(KEY_ANCESTOR_IDS);
-            Object[] newAncestors;
-            if (ancestors == null) {
-                newAncestors = ancestorIds.clone();
-            } else {
-                newAncestors = new Object[ancestors.length - ndel + nadd];
-                System.arraycopy(ancestorIds, 0, newAncestors, 0, nadd);
-                System.arraycopy(ancestors, ndel, newAncestors, nadd, ancestors.length - ndel);
+        DBSDocumentState docState = getStateForUpdate(id);
+        Object[] ancestors = (Object[]) docState.get(KEY_ANCESTOR_IDS);
+        Object[] oldAncestorIds = ancestors == null ? new Object[0] : Arrays.copyOf(ancestors, ndel);
+        docState.put(KEY_ANCESTOR_IDS, ancestorIds.clone());
+        save(); // flush everything to the database
+        long count = repository.updateDescendantsAncestors(id, oldAncestorIds, ancestorIds);
+        if (log.isDebugEnabled()) {
+            log.debug("Updated ancestors of " + count + " descendants of " + id);
+        }
+        if (undoLog != null) {
+            treeUndoLog.add(() -> repository.updateDescendantsAncestors(id, ancestorIds, oldAncestorIds));
+        }
+        // keep the descendants in the transient space consistent with the repository
+        for (DBSDocumentState descendant : transientStates.values()) {
+            Object[] newAncestors = replaceAncestors((Object[]) descendant.get(KEY_ANCESTOR_IDS), id, oldAncestorIds,
+                    ancestorIds);
+            if (newAncestors != null) {
+                descendant.put(KEY_ANCESTOR_IDS, newAncestors);
+                descendant.setNotDirty();
             }
-            docState.put(KEY_ANCESTOR_IDS, newAncestors);
         }
     }
 
+    /**
+     * Replaces the first ancestors of a descendant of a moved document.
+     *
+     * @param ancestors the ancestors of the descendant
+     * @param id the moved document
+     * @param oldAncestorIds the ancestors of the moved document before the move
+     * @param newAncestorIds the ancestors of the moved document after the move
+     * @return the new ancestors, or {@code null} if the ancestors don't start with the old ancestors of the moved
+     *         document followed by the moved document
+     * @since 11.1
+     */
+    public static Object[] replaceAncestors(Object[] ancestors, String id, Object[] oldAncestorIds,
+            Object[] newAncestorIds) {
+        int ndel = oldAncestorIds.length;
+        if (ancestors == null || ancestors.length <= ndel || !id.equals(ancestors[ndel])
+                || !Arrays.equals(oldAncestorIds, 0, ndel, ancestors, 0, ndel)) {
+            return null;
+        }
+        int nadd = newAncestorIds.length;
+        Object[] newAncestors = new Object[ancestors.length - ndel + nadd];
+        System.arraycopy(newAncestorIds, 0, newAncestors, 0, nadd);
+        System.arraycopy(ancestors, ndel, newAncestors, nadd, ancestors.length - ndel);
+        return newAncestors;
+    }
+
     protected int getReadAclsAsyncThreshold() {
         boolean enabled = Boolean.parseBoolean(
                 Framework.getProperty(READ_ACL_ASYNC_ENABLED_PROPERTY, READ_ACL_ASYNC_ENABLED_DEFAULT));
@@ -502,13 +537,33 @@ public class DBSTransactionState {
 
         // check if we have a small enough number of descendants that we can process them synchronously
         int limit = getReadAclsAsyncThreshold();
-        Set<String> ids = new HashSet<>();
-        try (Stream<State> states = getDescendants(id, Collections.emptySet(), limit)) {
-            states.forEach(state -> ids.add((String) state.get(KEY_ID)));
+        long count = 0;
+        if (limit != 0) {
+            try (Stream<State> states = getDescendants(id, Collections.emptySet(), limit)) {
+                count = states.count();
+            }
         }
-        if (limit == 0 || ids.size() < limit) {
+        if (limit == 0 || count < limit) {
             // update all descendants synchronously
-            ids.forEach(this::updateDocumentReadAcls);
+            // the Read ACL of a descendant without ACL of its own is the Read ACL of its closest ancestor having an
+            // ACL, so the descendants are updated by the repository, subtree by subtree of the descendants having an
+            // ACL
+            List<State> aclStates;
+            try (Stream<State> states = repository.getDescendantsHavingKey(id, KEY_ACP,
+                    Collections.singleton(KEY_ANCESTOR_IDS))) {
+                aclStates = states.collect(Collectors.toList());
+            }
+            aclStates.forEach(state -> updateDocumentReadAcls((String) state.get(KEY_ID)));
+            save();
+            Map<String, Object[]> aclAncestors = new HashMap<>();
+            aclStates.forEach(state -> aclAncestors.put((String) state.get(KEY_ID),
+                    (Object[]) state.get(KEY_ANCESTOR_IDS)));
+            updateDescendantsReadAcls(id, aclAncestors);
+            aclAncestors.keySet().forEach(aclId -> updateDescendantsReadAcls(aclId, aclAncestors));
+            if (undoLog != null) {
+                // the ACLs are restored by the undo log, then the Read ACLs can be recomputed
+                treeUndoLog.add(() -> updateTreeReadAcls(id));
+            }
         } else {
             // update the direct children synchronously, the rest asynchronously
 
@@ -530,6 +585,39 @@ public class DBSTransactionState {
         }
     }
 
+    /**
+     * Sets the Read ACL of a document on its descendants, except for the subtrees of the descendants having an ACL.
+     *
+     * @param id the document
+     * @param aclAncestors the ancestors of the descendants of the tree having an ACL
+     * @since 11.1
+     */
+    protected void updateDescendantsReadAcls(String id, Map<String, Object[]> aclAncestors) {
+        Serializable racl = getStateForRead(id).get(KEY_READ_ACL);
+        Set<String> excludedIds = new HashSet<>();
+        aclAncestors.forEach((aclId, ancestors) -> {
+            if (ancestors != null && Arrays.asList(ancestors).contains(id)) {
+                excludedIds.add(aclId);
+            }
+        });
+        long count = repository.setDescendantsValue(id, KEY_READ_ACL, racl, excludedIds);
+        if (log.isDebugEnabled()) {
+            log.debug("Updated Read ACLs of " + count + " descendants of " + id);
+        }
+        // keep the descendants in the transient space consistent with the repository
+        for (DBSDocumentState descendant : transientStates.values()) {
+            Object[] ancestors = (Object[]) descendant.get(KEY_ANCESTOR_IDS);
+            if (ancestors == null || excludedIds.contains(descendant.getId())) {
+                continue;
+            }
+            List<Object> ancestorList = Arrays.asList(ancestors);
+            if (ancestorList.contains(id) && excludedIds.stream().noneMatch(ancestorList::contains)) {
+                descendant.put(KEY_READ_ACL, racl);
+                descendant.setNotDirty();
+            }
+        }
+    }
+
     /**
      * Work to find the ids of documents for which Read ACLs must be recomputed, and launch the needed update works.
      *
@@ -787,6 +875,7 @@ public class DBSTransactionState {
         if (!statesToCreate.isEmpty()) {
             repository.createStates(statesToCreate);
         }
+        List<StateUpdate> statesToUpdate = new ArrayList<>();
         for (DBSDocumentState docState : transientStates.values()) {
             String id = docState.getId();
             if (transientCreated.contains(id)) {
@@ -816,12 +905,15 @@ public class DBSTransactionState {
                     } else {
                         changeTokenUpdater = null;
                     }
-                    repository.updateState(id, diff, changeTokenUpdater);
+                    statesToUpdate.add(new StateUpdate(id, diff, changeTokenUpdater));
                 } finally {
                     docState.setNotDirty();
                 }
             }
         }
+        if (!statesToUpdate.isEmpty()) {
+            repository.updateStates(statesToUpdate);
+        }
         transientCreated.clear();
         userChangeIds.clear();
         scheduleWork(works);
@@ -871,6 +963,43 @@ public class DBSTransactionState {
         }
     }
 
+    /**
+     * The update of a document, for batched updates.
+     *
+     * @since 11.1
+     */
+    public static class StateUpdate {
+
+        protected final String id;
+
+        protected final StateDiff diff;
+
+        protected final ChangeTokenUpdater changeTokenUpdater;
+
+        /**
+         * @param id the document id
+         * @param diff the diff to apply
+         * @param changeTokenUpdater how to get and update the change token (may be {@code null})
+         */
+        public StateUpdate(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater) {
+            this.id = id;
+            this.diff = diff;
+            this.changeTokenUpdater = changeTokenUpdater;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public StateDiff getDiff() {
+            return diff;
+        }
+
+        public ChangeTokenUpdater getChangeTokenUpdater() {
+            return changeTokenUpdater;
+        }
+    }
+
     protected void applyUndoLog() {
         Set<String> deletes = new HashSet<>();
         for (Entry<String, State> es : undoLog.entrySet()) {
@@ -899,6 +1028,13 @@ public class DBSTransactionState {
         if (!deletes.isEmpty()) {
             repository.deleteStates(deletes);
         }
+        // undo the updates of trees in reverse order, without recording them again
+        List<Runnable> treeUndos = new ArrayList<>(treeUndoLog);
+        undoLog = null;
+        treeUndoLog.clear();
+        Collections.reverse(treeUndos);
+        treeUndos.forEach(Runnable::run);
+        clearTransient();
     }
 
     /**
@@ -1005,6 +1141,7 @@ public class DBSTransactionState {
      */
     public void begin() {
         undoLog = new HashMap<>();
+        treeUndoLog.clear();
         repository.begin();
     }
 
@@ -1026,6 +1163,7 @@ public class DBSTransactionState {
         clearTransient();
         // the transaction ended, the proxied DBSSession will disappear and cannot be reused anyway
         undoLog = null;
+        treeUndoLog.clear();
     }
 
     /**
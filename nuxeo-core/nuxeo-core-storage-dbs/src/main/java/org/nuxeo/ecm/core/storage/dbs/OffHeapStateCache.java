@@ -0,0 +1,446 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.storage.State;
+
+import com.google.common.cache.AbstractCache;
+import com.google.common.cache.CacheStats;
+
+/**
+ * A {@link State} cache storing serialized states outside of the Java heap, bounded by a size in bytes.
+ * <p>
+ * The memory is allocated as a ring of direct buffers (segments). Serialized states are appended to the current
+ * segment, and when the ring is full the oldest segment is recycled, evicting all the states it contains. Invalidated
+ * or replaced states are only removed from the index, their bytes are reclaimed when their segment is recycled.
+ * <p>
+ * A new {@link State} instance is deserialized for each read, so callers never share a cached instance.
+ *
+ * @since 11.1
+ */
+public class OffHeapStateCache extends AbstractCache<String, State> {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024; // 4 MB
+
+    protected static final int MIN_SEGMENTS = 2;
+
+    protected static final byte TYPE_NULL = 0;
+
+    protected static final byte TYPE_STRING = 1;
+
+    protected static final byte TYPE_LONG = 2;
+
+    protected static final byte TYPE_DOUBLE = 3;
+
+    protected static final byte TYPE_BOOLEAN = 4;
+
+    protected static final byte TYPE_CALENDAR = 5;
+
+    protected static final byte TYPE_STATE = 6;
+
+    protected static final byte TYPE_LIST = 7;
+
+    protected static final byte TYPE_ARRAY = 8;
+
+    protected static final byte TYPE_SERIALIZABLE = 9;
+
+    protected static final Class<?>[] ARRAY_TYPES = { Object.class, Serializable.class, String.class, Long.class,
+            Double.class, Boolean.class, Calendar.class, State.class };
+
+    /** Location of a serialized state in the segments. */
+    protected static class Slot {
+
+        protected final int segment;
+
+        protected final int offset;
+
+        protected final int length;
+
+        protected final long writeTime;
+
+        protected Slot(int segment, int offset, int length, long writeTime) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.writeTime = writeTime;
+        }
+    }
+
+    protected final int segmentSize;
+
+    protected final ByteBuffer[] segments;
+
+    protected final List<String>[] segmentKeys;
+
+    protected final long ttlMillis;
+
+    protected final Map<String, Slot> index = new HashMap<>();
+
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    protected final StatsCounter statsCounter = new SimpleStatsCounter();
+
+    protected int currentSegment;
+
+    protected int position;
+
+    /**
+     * Constructs a cache for the given maximum memory and time to live.
+     *
+     * @param maxBytes the maximum off-heap memory allocated
+     * @param ttl the time to live after write, or {@code 0} for no expiration
+     * @param unit the time to live unit
+     */
+    public OffHeapStateCache(long maxBytes, long ttl, TimeUnit unit) {
+        this(maxBytes, DEFAULT_SEGMENT_SIZE, ttl, unit);
+    }
+
+    @SuppressWarnings("unchecked")
+    public OffHeapStateCache(long maxBytes, int segmentSize, long ttl, TimeUnit unit) {
+        this.segmentSize = segmentSize;
+        int count = (int) Math.max(MIN_SEGMENTS, (maxBytes + segmentSize - 1) / segmentSize);
+        segments = new ByteBuffer[count];
+        segmentKeys = new List[count];
+        for (int i = 0; i < count; i++) {
+            segmentKeys[i] = new ArrayList<>();
+        }
+        ttlMillis = unit.toMillis(ttl);
+    }
+
+    @Override
+    public State getIfPresent(Object key) {
+        byte[] bytes;
+        lock.readLock().lock();
+        try {
+            Slot slot = index.get(key);
+            if (slot == null || isExpired(slot)) {
+                statsCounter.recordMisses(1);
+                return null;
+            }
+            bytes = new byte[slot.length];
+            ByteBuffer buffer = segments[slot.segment].duplicate();
+            buffer.position(slot.offset);
+            buffer.get(bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+        statsCounter.recordHits(1);
+        return deserialize(bytes);
+    }
+
+    @Override
+    public void put(String key, State state) {
+        byte[] bytes = serialize(state);
+        lock.writeLock().lock();
+        try {
+            if (bytes.length > segmentSize) {
+                // too big to be cached, make sure we don't keep a previous version
+                index.remove(key);
+                return;
+            }
+            if (position + bytes.length > segmentSize) {
+                currentSegment = (currentSegment + 1) % segments.length;
+                position = 0;
+                evictSegment(currentSegment);
+            }
+            if (segments[currentSegment] == null) {
+                segments[currentSegment] = ByteBuffer.allocateDirect(segmentSize);
+            }
+            ByteBuffer buffer = segments[currentSegment].duplicate();
+            buffer.position(position);
+            buffer.put(bytes);
+            index.put(key, new Slot(currentSegment, position, bytes.length, System.currentTimeMillis()));
+            segmentKeys[currentSegment].add(key);
+            position += bytes.length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(Object key) {
+        lock.writeLock().lock();
+        try {
+            index.remove(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void invalidateAll(Iterable<?> keys) {
+        lock.writeLock().lock();
+        try {
+            keys.forEach(index::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            for (List<String> keys : segmentKeys) {
+                keys.clear();
+            }
+            currentSegment = 0;
+            position = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void cleanUp() {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            index.values().removeIf(this::isExpired);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /**
+     * Gets the off-heap memory currently allocated by this cache, in bytes.
+     */
+    public long getAllocatedBytes() {
+        lock.readLock().lock();
+        try {
+            long allocated = 0;
+            for (ByteBuffer segment : segments) {
+                if (segment != null) {
+                    allocated += segment.capacity();
+                }
+            }
+            return allocated;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected boolean isExpired(Slot slot) {
+        return ttlMillis > 0 && System.currentTimeMillis() - slot.writeTime > ttlMillis;
+    }
+
+    /**
+     * Removes from the index the states still stored in the given segment. Called under the write lock.
+     */
+    protected void evictSegment(int segment) {
+        List<String> keys = segmentKeys[segment];
+        for (String key : keys) {
+            Slot slot = index.get(key);
+            if (slot != null && slot.segment == segment) {
+                index.remove(key);
+                statsCounter.recordEviction();
+            }
+        }
+        keys.clear();
+    }
+
+    protected static byte[] serialize(State state) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            writeValue(out, state);
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    protected static State deserialize(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return (State) readValue(in);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
+    protected static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(((Long) value).longValue());
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(((Double) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean(((Boolean) value).booleanValue());
+        } else if (value.getClass() == GregorianCalendar.class) {
+            Calendar calendar = (Calendar) value;
+            out.writeByte(TYPE_CALENDAR);
+            out.writeLong(calendar.getTimeInMillis());
+            writeString(out, calendar.getTimeZone().getID());
+        } else if (value.getClass() == State.class) {
+            State state = (State) value;
+            out.writeByte(TYPE_STATE);
+            out.writeInt(state.size());
+            for (Entry<String, Serializable> en : state.entrySet()) {
+                writeString(out, en.getKey());
+                writeValue(out, en.getValue());
+            }
+        } else if (value.getClass() == ArrayList.class) {
+            List<?> list = (List<?>) value;
+            out.writeByte(TYPE_LIST);
+            out.writeInt(list.size());
+            for (Object v : list) {
+                writeValue(out, v);
+            }
+        } else if (value instanceof Object[] && arrayType(value.getClass().getComponentType()) >= 0) {
+            Object[] array = (Object[]) value;
+            out.writeByte(TYPE_ARRAY);
+            out.writeByte(arrayType(value.getClass().getComponentType()));
+            out.writeInt(array.length);
+            for (Object v : array) {
+                writeValue(out, v);
+            }
+        } else {
+            // fall back to Java serialization for unusual values
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+                oos.writeObject(value);
+            }
+            out.writeByte(TYPE_SERIALIZABLE);
+            out.writeInt(baos.size());
+            baos.writeTo(out);
+        }
+    }
+
+    protected static Serializable readValue(DataInputStream in) throws IOException, ClassNotFoundException {
+        byte type = in.readByte();
+        switch (type) {
+        case TYPE_NULL:
+            return null;
+        case TYPE_STRING:
+            return readString(in);
+        case TYPE_LONG:
+            return Long.valueOf(in.readLong());
+        case TYPE_DOUBLE:
+            return Double.valueOf(in.readDouble());
+        case TYPE_BOOLEAN:
+            return Boolean.valueOf(in.readBoolean());
+        case TYPE_CALENDAR:
+            long millis = in.readLong();
+            Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone(readString(in)));
+            calendar.setTimeInMillis(millis);
+            return calendar;
+        case TYPE_STATE:
+            int size = in.readInt();
+            State state = new State(size);
+            for (int i = 0; i < size; i++) {
+                String key = readString(in);
+                state.put(key, readValue(in));
+            }
+            return state;
+        case TYPE_LIST:
+            int listSize = in.readInt();
+            ArrayList<Serializable> list = new ArrayList<>(listSize);
+            for (int i = 0; i < listSize; i++) {
+                list.add(readValue(in));
+            }
+            return list;
+        case TYPE_ARRAY:
+            Class<?> componentType = ARRAY_TYPES[in.readByte()];
+            int length = in.readInt();
+            Object[] array = (Object[]) Array.newInstance(componentType, length);
+            for (int i = 0; i < length; i++) {
+                array[i] = readValue(in);
+            }
+            return array;
+        case TYPE_SERIALIZABLE:
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return (Serializable) ois.readObject();
+            }
+        default:
+            throw new IOException("Unknown value type: " + type);
+        }
+    }
+
+    protected static int arrayType(Class<?> componentType) {
+        for (int i = 0; i < ARRAY_TYPES.length; i++) {
+            if (ARRAY_TYPES[i] == componentType) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    protected static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    protected static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -42,6 +42,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.storage.State;
 import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.StateUpdate;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
@@ -138,6 +139,32 @@ public class TestDBSCachingRepository {
         verify(subRepository, times(2)).readState(eq(id));
     }
 
+    @Test
+    public void testUpdateStates() {
+        String id1 = "ID1";
+        String id2 = "ID2";
+
+        // First add states in cache
+        repository.readState(id1);
+        repository.readState(id2);
+        repository.readState(id1);
+        repository.readState(id2);
+        verify(subRepository, times(1)).readState(eq(id1));
+        verify(subRepository, times(1)).readState(eq(id2));
+
+        // Second update these states in a single call
+        List<StateUpdate> updates = Arrays.asList(new StateUpdate(id1, mock(StateDiff.class), null),
+                new StateUpdate(id2, mock(StateDiff.class), null));
+        repository.updateStates(updates);
+        verify(subRepository, times(1)).updateStates(eq(updates));
+
+        // Check states are no longer in cache
+        repository.readState(id1);
+        repository.readState(id2);
+        verify(subRepository, times(2)).readState(eq(id1));
+        verify(subRepository, times(2)).readState(eq(id2));
+    }
+
     @Test
     public void testDeleteStates() {
         String id = "ID";
@@ -177,6 +204,61 @@ public class TestDBSCachingRepository {
         assertEquals(dbState, cachedState);
     }
 
+    @Test
+    public void testUpdateDescendantsAncestors() {
+        checkUpdateDescendantsAncestors(repository);
+    }
+
+    @Test
+    public void testUpdateDescendantsAncestorsOffHeap() {
+        DBSRepositoryDescriptor descriptor = newDBSRepositoryDescriptor();
+        descriptor.cacheOffHeap = Boolean.TRUE;
+        descriptor.cacheMaxMemory = "1MB";
+        repository.shutdown();
+        repository = new DBSCachingRepository(subRepository, descriptor);
+        checkUpdateDescendantsAncestors(repository);
+    }
+
+    protected void checkUpdateDescendantsAncestors(DBSCachingRepository repository) {
+        String folderId = "FOLDER-ID";
+        String id = "ID";
+
+        // First add a descendant of the moved folder in cache
+        repository.readState(id);
+        repository.readState(id);
+        verify(subRepository, times(1)).readState(eq(id));
+
+        // Second move the folder
+        Object[] oldAncestorIds = new Object[] { "OLD-PARENT-ID" };
+        Object[] newAncestorIds = new Object[] { "NEW-PARENT-ID" };
+        repository.updateDescendantsAncestors(folderId, oldAncestorIds, newAncestorIds);
+        verify(subRepository, times(1)).updateDescendantsAncestors(eq(folderId), eq(oldAncestorIds),
+                eq(newAncestorIds));
+
+        // Check the descendant is no longer in cache
+        repository.readState(id);
+        verify(subRepository, times(2)).readState(eq(id));
+    }
+
+    @Test
+    public void testSetDescendantsValue() {
+        String folderId = "FOLDER-ID";
+        String id = "ID";
+
+        // First add a descendant in cache
+        repository.readState(id);
+        repository.readState(id);
+        verify(subRepository, times(1)).readState(eq(id));
+
+        // Second set a value on the descendants
+        repository.setDescendantsValue(folderId, "ecm:racl", new String[] { "bob" }, Collections.emptySet());
+        verify(subRepository, times(1)).setDescendantsValue(eq(folderId), eq("ecm:racl"), any(), any());
+
+        // Check the descendant is no longer in cache
+        repository.readState(id);
+        verify(subRepository, times(2)).readState(eq(id));
+    }
+
     private State newState(String id) {
         State state = new State();
         state.setSingle(KEY_ID, id);
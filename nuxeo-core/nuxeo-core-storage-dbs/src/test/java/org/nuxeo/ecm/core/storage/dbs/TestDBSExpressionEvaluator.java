@@ -139,4 +139,51 @@ public class TestDBSExpressionEvaluator {
                 projections);
     }
 
+    @Test
+    public void testCompiledMatchesLikeInterpreted() throws Exception {
+        List<State> states = Arrays.asList( //
+                state("ecm:id", "id1", "ecm:name", "foo", "ecm:ancestorIds", new Object[] { "root", "a" }, //
+                        "cmp:addresses", list( //
+                                state("city", "Paris", "street", "Champs Elysees", "number", 1L), //
+                                state("city", "London", "street", "Abbey Road", "number", 3L))), //
+                state("ecm:id", "id2", "ecm:name", "Bar", "ecm:ancestorIds", new Object[] { "root", "b" }, //
+                        "cmp:addresses", list( //
+                                state("city", "Paris", "street", "Boulevard Peripherique", "number", 2L))), //
+                state("ecm:id", "id3", "ecm:name", "baz"));
+        List<String> clauses = Arrays.asList( //
+                "ecm:name = 'foo'", //
+                "ecm:name <> 'foo'", //
+                "ecm:name LIKE 'b%'", //
+                "ecm:name ILIKE 'b%'", //
+                "ecm:name NOT LIKE '_oo'", //
+                "ecm:name NOT ILIKE 'BA_'", //
+                "ecm:name IN ('foo', 'baz')", //
+                "ecm:name NOT IN ('foo', 'baz')", //
+                "ecm:name IS NULL OR ecm:uuid = 'id3'", //
+                "ecm:ancestorId = 'a'", //
+                "ecm:ancestorId <> 'a'", //
+                "ecm:name STARTSWITH 'foo'", //
+                "cmp:addresses/*1/city = 'Paris'", //
+                "cmp:addresses/*/city = 'London' AND cmp:addresses/*/number > 2", //
+                "cmp:addresses/*1/city = 'Paris' AND cmp:addresses/*1/number >= 2", //
+                "cmp:addresses/*1/number BETWEEN 2 AND 3", //
+                "cmp:addresses/*1/number NOT BETWEEN 2 AND 3", //
+                "cmp:addresses/*1/number < 2 OR ecm:name = 'baz'", //
+                "NOT (ecm:name = 'foo' OR cmp:addresses/*1/number <= 1)", //
+                "cmp:addresses/0/street IS NOT NULL AND cmp:addresses/1/street IS NULL");
+        for (String clause : clauses) {
+            String nxql = "SELECT ecm:uuid, cmp:addresses/*1/street FROM D WHERE " + clause;
+            DBSExpressionEvaluator interpreted = new DBSExpressionEvaluator(null, SQLQueryParser.parse(nxql), null,
+                    false, false);
+            DBSExpressionEvaluator compiled = new DBSExpressionEvaluator(null, SQLQueryParser.parse(nxql), null,
+                    false, true);
+            interpreted.parse();
+            compiled.parse();
+            for (State state : states) {
+                assertEquals(clause + " on " + state.get("ecm:id"), interpreted.matches(state),
+                        compiled.matches(state));
+            }
+        }
+    }
+
 }
@@ -0,0 +1,144 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.State;
+
+public class TestOffHeapStateCache {
+
+    protected static State newState(String id) {
+        State state = new State();
+        state.put(KEY_ID, id);
+        state.put(KEY_NAME, "doc-" + id);
+        return state;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        OffHeapStateCache cache = new OffHeapStateCache(1024 * 1024, 0, TimeUnit.MINUTES);
+        State state = newState("id1");
+        state.put(KEY_ANCESTOR_IDS, new Object[] { "root", "folder" });
+        state.put("dc:subjects", new String[] { "foo", "bar" });
+        state.put("my:long", Long.valueOf(123));
+        state.put("my:double", Double.valueOf(1.5));
+        state.put("my:boolean", Boolean.TRUE);
+        Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("Europe/Paris"));
+        calendar.setTimeInMillis(1234567890L);
+        state.put("dc:created", calendar);
+        State complex = new State();
+        complex.put("name", "complex");
+        state.put("my:complex", complex);
+        ArrayList<Serializable> list = new ArrayList<>(Arrays.asList(newState("a"), newState("b")));
+        state.put("my:list", list);
+        state.put("my:decimal", new BigDecimal("1.23"));
+        cache.put("id1", state);
+
+        State cached = cache.getIfPresent("id1");
+        assertNotNull(cached);
+        assertNotSame(state, cached);
+        assertEquals("id1", cached.get(KEY_ID));
+        assertArrayEquals(new Object[] { "root", "folder" }, (Object[]) cached.get(KEY_ANCESTOR_IDS));
+        assertEquals(Object[].class, cached.get(KEY_ANCESTOR_IDS).getClass());
+        assertArrayEquals(new String[] { "foo", "bar" }, (String[]) cached.get("dc:subjects"));
+        assertEquals(String[].class, cached.get("dc:subjects").getClass());
+        assertEquals(Long.valueOf(123), cached.get("my:long"));
+        assertEquals(Double.valueOf(1.5), cached.get("my:double"));
+        assertEquals(Boolean.TRUE, cached.get("my:boolean"));
+        assertEquals(calendar, cached.get("dc:created"));
+        assertEquals(complex, cached.get("my:complex"));
+        assertEquals(list, cached.get("my:list"));
+        assertEquals(new BigDecimal("1.23"), cached.get("my:decimal"));
+    }
+
+    @Test
+    public void testInvalidation() {
+        OffHeapStateCache cache = new OffHeapStateCache(1024 * 1024, 0, TimeUnit.MINUTES);
+        cache.put("id1", newState("id1"));
+        cache.put("id2", newState("id2"));
+        cache.put("id3", newState("id3"));
+        assertEquals(3, cache.size());
+
+        cache.invalidate("id1");
+        assertNull(cache.getIfPresent("id1"));
+        assertNotNull(cache.getIfPresent("id2"));
+
+        cache.invalidateAll(Arrays.asList("id2", "id3"));
+        assertEquals(0, cache.size());
+
+        cache.put("id1", newState("id1"));
+        cache.invalidateAll();
+        assertNull(cache.getIfPresent("id1"));
+        assertEquals(2, cache.stats().missCount());
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    public void testReplace() {
+        OffHeapStateCache cache = new OffHeapStateCache(1024 * 1024, 0, TimeUnit.MINUTES);
+        cache.put("id1", newState("id1"));
+        State state = newState("id1");
+        state.put(KEY_NAME, "renamed");
+        cache.put("id1", state);
+        assertEquals(1, cache.size());
+        assertEquals("renamed", cache.getIfPresent("id1").get(KEY_NAME));
+    }
+
+    @Test
+    public void testEvictionBySize() {
+        // 2 segments of 1 KB
+        OffHeapStateCache cache = new OffHeapStateCache(2048, 1024, 0, TimeUnit.MINUTES);
+        for (int i = 0; i < 100; i++) {
+            cache.put("id" + i, newState("id" + i));
+        }
+        // the oldest states have been evicted, the most recent ones are still there
+        assertNull(cache.getIfPresent("id0"));
+        assertNotNull(cache.getIfPresent("id99"));
+        assertEquals(2048, cache.getAllocatedBytes());
+        assertEquals(100 - cache.size(), cache.stats().evictionCount());
+    }
+
+    @Test
+    public void testTooBig() {
+        OffHeapStateCache cache = new OffHeapStateCache(2048, 1024, 0, TimeUnit.MINUTES);
+        State state = newState("id1");
+        state.put("my:text", new String(new char[2000]));
+        cache.put("id1", state);
+        assertNull(cache.getIfPresent("id1"));
+    }
+
+}
@@ -18,6 +18,10 @@
  */
 package org.nuxeo.ecm.core.storage.mem;
 
+import static org.nuxeo.ecm.core.query.sql.NXQL.ECM_ANCESTORID;
+import static org.nuxeo.ecm.core.query.sql.NXQL.ECM_NAME;
+import static org.nuxeo.ecm.core.query.sql.NXQL.ECM_PARENTID;
+import static org.nuxeo.ecm.core.query.sql.NXQL.ECM_PROXY_TARGETID;
 import static org.nuxeo.ecm.core.query.sql.NXQL.ECM_UUID;
 import static org.nuxeo.ecm.core.storage.State.NOP;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
@@ -27,6 +31,7 @@ import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_LOCK_CREATED;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_LOCK_OWNER;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PROXY_TARGET_ID;
 
 import java.io.Serializable;
 import java.lang.reflect.Array;
@@ -35,6 +40,9 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -61,7 +69,14 @@ import org.nuxeo.ecm.core.api.model.Delta;
 import org.nuxeo.ecm.core.blob.DocumentBlobManager;
 import org.nuxeo.ecm.core.model.LockManager;
 import org.nuxeo.ecm.core.model.Repository;
+import org.nuxeo.ecm.core.query.sql.model.Expression;
+import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
+import org.nuxeo.ecm.core.query.sql.model.Operand;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
 import org.nuxeo.ecm.core.query.sql.model.OrderByClause;
+import org.nuxeo.ecm.core.query.sql.model.Predicate;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
 import org.nuxeo.ecm.core.storage.State;
 import org.nuxeo.ecm.core.storage.State.ListDiff;
 import org.nuxeo.ecm.core.storage.State.StateDiff;
@@ -70,7 +85,9 @@ import org.nuxeo.ecm.core.storage.dbs.DBSDocument;
 import org.nuxeo.ecm.core.storage.dbs.DBSExpressionEvaluator;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryBase;
 import org.nuxeo.ecm.core.storage.dbs.DBSSession.OrderByComparator;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState;
 import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.StateUpdate;
 import org.nuxeo.runtime.api.Framework;
 
 /**
@@ -80,6 +97,9 @@ import org.nuxeo.runtime.api.Framework;
  * <p>
  * A document object is a JSON-like document stored as a Map recursively containing the data, see {@link DBSDocument}
  * for the description of the document.
+ * <p>
+ * Some top-level keys are indexed, see {@link MemIndex}, so that the lookups of children, descendants and proxies, as
+ * well as the queries having an equality condition on an indexed key, do not scan all the documents.
  *
  * @since 5.9.4
  */
@@ -97,8 +117,32 @@ public class MemRepository extends DBSRepositoryBase {
      */
     protected Map<String, State> states;
 
+    /**
+     * The keys always indexed.
+     *
+     * @since 11.1
+     */
+    protected static final List<String> DEFAULT_INDEXED_KEYS = Arrays.asList(KEY_PARENT_ID, KEY_NAME,
+            KEY_PROXY_TARGET_ID, KEY_ANCESTOR_IDS);
+
+    /**
+     * The indexes, a map of key -> index.
+     *
+     * @since 11.1
+     */
+    protected Map<String, MemIndex> indexes;
+
+    /** @since 11.1 */
+    protected final Set<String> indexedKeys;
+
+    /** @since 11.1 */
+    protected final MemRepositoryDescriptor descriptor;
+
     public MemRepository(ConnectionManager cm, MemRepositoryDescriptor descriptor) {
         super(cm, descriptor.name, descriptor);
+        this.descriptor = descriptor;
+        indexedKeys = new LinkedHashSet<>(DEFAULT_INDEXED_KEYS);
+        indexedKeys.addAll(descriptor.indexes);
         initRepository();
     }
 
@@ -111,13 +155,55 @@ public class MemRepository extends DBSRepositoryBase {
     public void shutdown() {
         super.shutdown();
         states = null;
+        indexes = null;
     }
 
     protected void initRepository() {
         states = new ConcurrentHashMap<>();
+        initIndexes();
         initRoot();
     }
 
+    /** @since 11.1 */
+    protected void initIndexes() {
+        indexes = new HashMap<>();
+        for (String key : indexedKeys) {
+            indexes.put(key, new MemIndex());
+        }
+    }
+
+    /**
+     * Adds a state to the repository and to the indexes.
+     *
+     * @since 11.1
+     */
+    protected void putState(String id, State state) {
+        states.put(id, state);
+        synchronized (state) {
+            for (Entry<String, MemIndex> en : indexes.entrySet()) {
+                en.getValue().add(id, state.get(en.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Called when a state has been created or updated, while holding the state lock.
+     *
+     * @since 11.1
+     */
+    protected void stateWritten(String id, State state) {
+        // nothing to do for a volatile repository
+    }
+
+    /**
+     * Called when a state has been deleted, while holding the state lock.
+     *
+     * @since 11.1
+     */
+    protected void stateDeleted(String id) {
+        // nothing to do for a volatile repository
+    }
+
     @Override
     public String generateNewId() {
         if (DEBUG_UUIDS) {
@@ -176,7 +262,10 @@ public class MemRepository extends DBSRepositoryBase {
         }
         state = StateHelper.deepCopy(state, true); // thread-safe
         StateHelper.resetDeltas(state);
-        states.put(id, state);
+        putState(id, state);
+        synchronized (state) {
+            stateWritten(id, state);
+        }
     }
 
     @Override
@@ -196,12 +285,41 @@ public class MemRepository extends DBSRepositoryBase {
                         throw new ConcurrentUpdateException((String) state.get(KEY_ID));
                     }
                 }
+            }
+            Map<String, Set<Object>> oldIndexedValues = getIndexedValues(state, diff.keySet());
+            if (changeTokenUpdater != null) {
+                oldIndexedValues.putAll(getIndexedValues(state, changeTokenUpdater.getUpdates().keySet()));
                 for (Entry<String, Serializable> en : changeTokenUpdater.getUpdates().entrySet()) {
                     applyDiff(state, en.getKey(), en.getValue());
                 }
             }
             applyDiff(state, diff);
+            updateIndexes(id, state, oldIndexedValues);
+            stateWritten(id, state);
+        }
+    }
+
+    @Override
+    public void updateStates(List<StateUpdate> updates) {
+        // check the change tokens first, so that a concurrent update is detected before any update is applied
+        for (StateUpdate update : updates) {
+            String id = update.getId();
+            State state = states.get(id);
+            if (state == null) {
+                throw new ConcurrentUpdateException("Missing: " + id);
+            }
+            ChangeTokenUpdater changeTokenUpdater = update.getChangeTokenUpdater();
+            if (changeTokenUpdater != null) {
+                synchronized (state) {
+                    for (Entry<String, Serializable> en : changeTokenUpdater.getConditions().entrySet()) {
+                        if (!Objects.equals(state.get(en.getKey()), en.getValue())) {
+                            throw new ConcurrentUpdateException(id);
+                        }
+                    }
+                }
+            }
         }
+        updates.forEach(update -> updateState(update.getId(), update.getDiff(), update.getChangeTokenUpdater()));
     }
 
     @Override
@@ -210,16 +328,96 @@ public class MemRepository extends DBSRepositoryBase {
             log.trace("Mem: REMOVE " + ids);
         }
         for (String id : ids) {
-            if (states.remove(id) == null) {
+            State state = states.remove(id);
+            if (state == null) {
                 log.debug("Missing on remove: " + id);
+                continue;
+            }
+            synchronized (state) {
+                for (Entry<String, MemIndex> en : indexes.entrySet()) {
+                    en.getValue().remove(id, state.get(en.getKey()));
+                }
+                stateDeleted(id);
+            }
+        }
+    }
+
+    /**
+     * Gets the values indexed for the given keys of a state, before it is updated.
+     *
+     * @return a map of key -> indexed values, for the keys that are indexed
+     * @since 11.1
+     */
+    protected Map<String, Set<Object>> getIndexedValues(State state, Collection<String> keys) {
+        Map<String, Set<Object>> values = new HashMap<>();
+        for (String key : keys) {
+            if (indexes.containsKey(key)) {
+                values.put(key, MemIndex.getValues(state.get(key)));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Updates the indexes of a state once it has been updated.
+     *
+     * @param oldIndexedValues the values indexed before the update, see {@link #getIndexedValues}
+     * @since 11.1
+     */
+    protected void updateIndexes(String id, State state, Map<String, Set<Object>> oldIndexedValues) {
+        for (Entry<String, Set<Object>> en : oldIndexedValues.entrySet()) {
+            String key = en.getKey();
+            indexes.get(key).update(id, en.getValue(), MemIndex.getValues(state.get(key)));
+        }
+    }
+
+    /**
+     * Sets a value in a state, updating the index of the key if needed. Must be called while holding the state lock.
+     *
+     * @since 11.1
+     */
+    protected void putIndexed(String id, State state, String key, Serializable value) {
+        MemIndex index = indexes.get(key);
+        if (index == null) {
+            state.put(key, value);
+        } else {
+            Set<Object> oldValues = MemIndex.getValues(state.get(key));
+            state.put(key, value);
+            index.update(id, oldValues, MemIndex.getValues(value));
+        }
+    }
+
+    /**
+     * Gets the states that may have the given value for a key, using the index of the key if there is one.
+     * <p>
+     * The states returned still have to be checked against the value.
+     *
+     * @since 11.1
+     */
+    protected Collection<State> getCandidateStates(String key, Object value) {
+        MemIndex index = indexes.get(key);
+        if (index == null) {
+            return states.values();
+        }
+        return getStates(index.get(value));
+    }
+
+    /** @since 11.1 */
+    protected List<State> getStates(Collection<String> ids) {
+        List<State> list = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            State state = states.get(id);
+            if (state != null) {
+                // may have been removed concurrently
+                list.add(state);
             }
         }
+        return list;
     }
 
     @Override
     public State readChildState(String parentId, String name, Set<String> ignored) {
-        // TODO optimize by maintaining a parent/child index
-        for (State state : states.values()) {
+        for (State state : getCandidateStates(KEY_PARENT_ID, parentId)) {
             if (ignored.contains(state.get(KEY_ID))) {
                 continue;
             }
@@ -245,7 +443,7 @@ public class MemRepository extends DBSRepositoryBase {
             log.trace("Mem: QUERY " + key + " = " + value);
         }
         List<State> list = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getCandidateStates(key, value)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -266,8 +464,10 @@ public class MemRepository extends DBSRepositoryBase {
         if (log.isTraceEnabled()) {
             log.trace("Mem: QUERY " + key1 + " = " + value1 + " AND " + key2 + " = " + value2);
         }
+        Collection<State> candidates = indexes.containsKey(key1) ? getCandidateStates(key1, value1)
+                : getCandidateStates(key2, value2);
         List<State> list = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : candidates) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -293,15 +493,61 @@ public class MemRepository extends DBSRepositoryBase {
         if (log.isTraceEnabled()) {
             log.trace("Mem: QUERY " + KEY_ANCESTOR_IDS + " = " + rootId);
         }
-        Stream<State> stream = states.values() //
-                                     .stream()
-                                     .filter(state -> hasAncestor(state, rootId));
+        Stream<State> stream = getCandidateStates(KEY_ANCESTOR_IDS, rootId) //
+                                                                          .stream()
+                                                                          .filter(state -> hasAncestor(state, rootId));
         if (limit != 0) {
             stream = stream.limit(limit);
         }
         return stream;
     }
 
+    @Override
+    public long updateDescendantsAncestors(String id, Object[] oldAncestorIds, Object[] newAncestorIds) {
+        if (log.isTraceEnabled()) {
+            log.trace("Mem: UPDATE " + KEY_ANCESTOR_IDS + " of descendants of " + id + ": "
+                    + Arrays.toString(oldAncestorIds) + " -> " + Arrays.toString(newAncestorIds));
+        }
+        long count = 0;
+        for (State state : getCandidateStates(KEY_ANCESTOR_IDS, id)) {
+            synchronized (state) {
+                Object[] newAncestors = DBSTransactionState.replaceAncestors((Object[]) state.get(KEY_ANCESTOR_IDS),
+                        id, oldAncestorIds, newAncestorIds);
+                if (newAncestors != null) {
+                    String docId = (String) state.get(KEY_ID);
+                    putIndexed(docId, state, KEY_ANCESTOR_IDS, newAncestors);
+                    stateWritten(docId, state);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long setDescendantsValue(String id, String key, Serializable value, Set<String> excludedIds) {
+        if (log.isTraceEnabled()) {
+            log.trace("Mem: UPDATE " + key + " of descendants of " + id + " excluding " + excludedIds + ": " + value);
+        }
+        long count = 0;
+        for (State state : getCandidateStates(KEY_ANCESTOR_IDS, id)) {
+            if (!hasAncestor(state, id) || excludedIds.contains(state.get(KEY_ID))
+                    || excludedIds.stream().anyMatch(excludedId -> hasAncestor(state, excludedId))) {
+                continue;
+            }
+            synchronized (state) {
+                if (!StateHelper.equalsStrict(state.get(key), value)) {
+                    // copy to not share mutable values between states
+                    String docId = (String) state.get(KEY_ID);
+                    putIndexed(docId, state, key, StateHelper.deepCopy(value, true));
+                    stateWritten(docId, state);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
     protected static boolean hasAncestor(State state, String id) {
         Object[] array = (Object[]) state.get(KEY_ANCESTOR_IDS);
         return array == null ? false : Arrays.asList(array).contains(id);
@@ -312,7 +558,7 @@ public class MemRepository extends DBSRepositoryBase {
         if (log.isTraceEnabled()) {
             log.trace("Mem: QUERY " + key + " = " + value);
         }
-        for (State state : states.values()) {
+        for (State state : getCandidateStates(key, value)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -338,7 +584,7 @@ public class MemRepository extends DBSRepositoryBase {
         }
         evaluator.parse();
         List<Map<String, Serializable>> projections = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getCandidateStates(evaluator.getExpression())) {
             List<Map<String, Serializable>> matches = evaluator.matches(state);
             if (!matches.isEmpty()) {
                 if (distinctDocuments) {
@@ -389,7 +635,7 @@ public class MemRepository extends DBSRepositoryBase {
         }
         evaluator.parse();
         List<String> ids = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getCandidateStates(evaluator.getExpression())) {
             List<Map<String, Serializable>> matches = evaluator.matches(state);
             if (!matches.isEmpty()) {
                 String id = matches.get(0).get(ECM_UUID).toString();
@@ -399,6 +645,101 @@ public class MemRepository extends DBSRepositoryBase {
         return new ScrollResultImpl<>(NOSCROLL_ID, ids);
     }
 
+    /**
+     * Gets the states that may match a query expression, using the indexes for the equality conditions of its top-level
+     * AND on indexed keys.
+     * <p>
+     * The states returned still have to be matched against the expression.
+     *
+     * @since 11.1
+     */
+    protected Collection<State> getCandidateStates(Expression expression) {
+        Set<String> ids = getCandidateIds(expression);
+        if (ids == null) {
+            return states.values();
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Mem:    using indexes -> " + ids.size() + " candidates");
+        }
+        return getStates(ids);
+    }
+
+    /**
+     * Gets the ids of the documents that may match an expression, or {@code null} if the indexes cannot restrict them.
+     *
+     * @since 11.1
+     */
+    protected Set<String> getCandidateIds(Operand operand) {
+        if (!(operand instanceof Expression)) {
+            return null;
+        }
+        Expression expression = (Expression) operand;
+        if (expression instanceof MultiExpression) {
+            if (expression.operator != Operator.AND) {
+                return null;
+            }
+            Set<String> ids = null;
+            for (Predicate predicate : ((MultiExpression) expression).predicates) {
+                ids = intersect(ids, getCandidateIds(predicate));
+            }
+            return ids;
+        }
+        if (expression.operator == Operator.AND) {
+            return intersect(getCandidateIds(expression.lvalue), getCandidateIds(expression.rvalue));
+        }
+        if (expression.operator != Operator.EQ || !(expression.lvalue instanceof Reference)
+                || !(expression.rvalue instanceof StringLiteral)) {
+            return null;
+        }
+        Reference reference = (Reference) expression.lvalue;
+        if (reference.cast != null) {
+            return null;
+        }
+        String value = ((StringLiteral) expression.rvalue).value;
+        if (ECM_UUID.equals(reference.name)) {
+            return Collections.singleton(value);
+        }
+        MemIndex index = indexes.get(getIndexedKey(reference.name));
+        if (index == null || !index.onlyStrings) {
+            // the string literal would be looked up as is among values of other types, don't use the index
+            return null;
+        }
+        return new HashSet<>(index.get(value));
+    }
+
+    /**
+     * Gets the key of a state for a property of a query.
+     *
+     * @since 11.1
+     */
+    protected String getIndexedKey(String name) {
+        switch (name) {
+        case ECM_PARENTID:
+            return KEY_PARENT_ID;
+        case ECM_NAME:
+            return KEY_NAME;
+        case ECM_PROXY_TARGETID:
+            return KEY_PROXY_TARGET_ID;
+        case ECM_ANCESTORID:
+            return KEY_ANCESTOR_IDS;
+        default:
+            // configured indexes are on schema properties, whose key is the property name
+            return name.startsWith("ecm:") ? null : name;
+        }
+    }
+
+    protected static Set<String> intersect(Set<String> ids1, Set<String> ids2) {
+        if (ids1 == null) {
+            return ids2;
+        }
+        if (ids2 == null) {
+            return ids1;
+        }
+        Set<String> ids = new HashSet<>(ids1);
+        ids.retainAll(ids2);
+        return ids;
+    }
+
     @Override
     public ScrollResult<String> scroll(String scrollId) {
         if (NOSCROLL_ID.equals(scrollId)) {
@@ -539,8 +880,11 @@ public class MemRepository extends DBSRepositoryBase {
             Calendar created = (Calendar) state.get(KEY_LOCK_CREATED);
             return new Lock(owner, created);
         }
-        state.put(KEY_LOCK_OWNER, lock.getOwner());
-        state.put(KEY_LOCK_CREATED, lock.getCreated());
+        synchronized (state) {
+            putIndexed(id, state, KEY_LOCK_OWNER, lock.getOwner());
+            putIndexed(id, state, KEY_LOCK_CREATED, lock.getCreated());
+            stateWritten(id, state);
+        }
         return null;
     }
 
@@ -563,8 +907,11 @@ public class MemRepository extends DBSRepositoryBase {
             return new Lock(oldOwner, oldCreated, true);
         }
         // remove lock
-        state.put(KEY_LOCK_OWNER, null);
-        state.put(KEY_LOCK_CREATED, null);
+        synchronized (state) {
+            putIndexed(id, state, KEY_LOCK_OWNER, null);
+            putIndexed(id, state, KEY_LOCK_CREATED, null);
+            stateWritten(id, state);
+        }
         // return old lock
         return new Lock(oldOwner, oldCreated);
     }
@@ -577,6 +924,96 @@ public class MemRepository extends DBSRepositoryBase {
     public void clearLockManagerCaches() {
     }
 
+    /**
+     * A hash index of the values of a top-level key of the states.
+     * <p>
+     * The elements of an array or list value are indexed separately, {@code null} and complex values are not indexed.
+     *
+     * @since 11.1
+     */
+    protected static class MemIndex {
+
+        /** Map of value -> ids of the states having this value. */
+        protected final Map<Object, Set<String>> ids = new ConcurrentHashMap<>();
+
+        /** Whether all the values ever indexed are strings, so that a string literal can be looked up directly. */
+        protected volatile boolean onlyStrings = true;
+
+        /**
+         * Gets the indexed values of a state value.
+         */
+        protected static Set<Object> getValues(Serializable value) {
+            if (value == null || value instanceof State) {
+                return Collections.emptySet();
+            }
+            Collection<?> values;
+            if (value instanceof Object[]) {
+                values = Arrays.asList((Object[]) value);
+            } else if (value instanceof List) {
+                values = (List<?>) value;
+            } else {
+                return Collections.singleton(value);
+            }
+            Set<Object> set = new HashSet<>();
+            for (Object v : values) {
+                if (v != null && !(v instanceof State)) {
+                    set.add(v);
+                }
+            }
+            return set;
+        }
+
+        protected void add(String id, Serializable value) {
+            getValues(value).forEach(v -> addValue(id, v));
+        }
+
+        protected void remove(String id, Serializable value) {
+            getValues(value).forEach(v -> removeValue(id, v));
+        }
+
+        protected void update(String id, Set<Object> oldValues, Set<Object> newValues) {
+            // add first so that a concurrent lookup of an unchanged value never misses the state
+            for (Object value : newValues) {
+                if (!oldValues.contains(value)) {
+                    addValue(id, value);
+                }
+            }
+            for (Object value : oldValues) {
+                if (!newValues.contains(value)) {
+                    removeValue(id, value);
+                }
+            }
+        }
+
+        protected void addValue(String id, Object value) {
+            if (onlyStrings && !(value instanceof String)) {
+                onlyStrings = false;
+            }
+            ids.compute(value, (k, set) -> {
+                if (set == null) {
+                    set = ConcurrentHashMap.newKeySet();
+                }
+                set.add(id);
+                return set;
+            });
+        }
+
+        protected void removeValue(String id, Object value) {
+            ids.computeIfPresent(value, (k, set) -> {
+                set.remove(id);
+                return set.isEmpty() ? null : set;
+            });
+        }
+
+        /**
+         * Gets the ids of the states having the given value.
+         */
+        protected Set<String> get(Object value) {
+            Set<String> set = ids.get(value);
+            return set == null ? Collections.emptySet() : set;
+        }
+    }
+
     protected List<List<String>> binaryPaths;
 
     @Override
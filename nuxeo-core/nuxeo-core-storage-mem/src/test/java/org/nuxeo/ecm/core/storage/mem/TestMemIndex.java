@@ -0,0 +1,93 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.mem.MemRepository.MemIndex;
+
+public class TestMemIndex {
+
+    @Test
+    public void testScalar() {
+        MemIndex index = new MemIndex();
+        index.add("id1", "parent");
+        index.add("id2", "parent");
+        index.add("id3", null);
+        assertEquals(new HashSet<>(Arrays.asList("id1", "id2")), index.get("parent"));
+        assertTrue(index.get("other").isEmpty());
+
+        index.update("id1", MemIndex.getValues("parent"), MemIndex.getValues("other"));
+        assertEquals(Collections.singleton("id2"), index.get("parent"));
+        assertEquals(Collections.singleton("id1"), index.get("other"));
+
+        index.remove("id2", "parent");
+        assertTrue(index.get("parent").isEmpty());
+        // no empty entries are kept
+        assertEquals(Collections.singleton("other"), index.ids.keySet());
+    }
+
+    @Test
+    public void testArray() {
+        MemIndex index = new MemIndex();
+        index.add("id1", new Object[] { "root", "folder" });
+        index.add("id2", new Object[] { "root" });
+        assertEquals(new HashSet<>(Arrays.asList("id1", "id2")), index.get("root"));
+        assertEquals(Collections.singleton("id1"), index.get("folder"));
+
+        // move id1 elsewhere
+        index.update("id1", MemIndex.getValues(new Object[] { "root", "folder" }),
+                MemIndex.getValues(new Object[] { "root", "other" }));
+        assertEquals(new HashSet<>(Arrays.asList("id1", "id2")), index.get("root"));
+        assertTrue(index.get("folder").isEmpty());
+        assertEquals(Collections.singleton("id1"), index.get("other"));
+    }
+
+    @Test
+    public void testOnlyStrings() {
+        MemIndex index = new MemIndex();
+        index.add("id1", new Object[] { "a", "b" });
+        assertTrue(index.onlyStrings);
+        index.add("id2", 5L);
+        assertFalse(index.onlyStrings);
+        // still false once the value is removed
+        index.remove("id2", 5L);
+        assertFalse(index.onlyStrings);
+    }
+
+    @Test
+    public void testValues() {
+        assertTrue(MemIndex.getValues(null).isEmpty());
+        assertTrue(MemIndex.getValues(new State()).isEmpty());
+        assertEquals(Collections.singleton(1L), MemIndex.getValues(1L));
+        List<Object> list = Arrays.asList("a", null, new State(), "b", "a");
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), MemIndex.getValues((Serializable) list));
+    }
+
+}
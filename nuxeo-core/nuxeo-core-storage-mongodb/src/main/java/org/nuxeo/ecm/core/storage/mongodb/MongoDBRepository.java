@@ -48,12 +48,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Spliterators;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -84,6 +86,7 @@ import org.nuxeo.ecm.core.storage.dbs.DBSExpressionEvaluator;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryBase;
 import org.nuxeo.ecm.core.storage.dbs.DBSStateFlattener;
 import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.StateUpdate;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.mongodb.MongoDBConnectionService;
 
@@ -93,11 +96,13 @@ import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoWriteException;
 import com.mongodb.QueryOperators;
 import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.CountOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
@@ -105,7 +110,10 @@ import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 
@@ -155,6 +163,9 @@ public class MongoDBRepository extends DBSRepositoryBase {
 
     protected static final String COUNTER_FIELD = "seq";
 
+    /** Maximum number of descendants updated at once when their ancestors or Read ACLs change. */
+    protected static final int UPDATE_DESCENDANTS_BATCH_SIZE = 1000;
+
     protected final MongoCollection<Document> coll;
 
     protected final MongoCollection<Document> countersColl;
@@ -337,21 +348,29 @@ public class MongoDBRepository extends DBSRepositoryBase {
         try {
             coll.insertMany(docs);
         } catch (MongoBulkWriteException mbwe) {
-            List<String> duplicates = mbwe.getWriteErrors()
-                                          .stream()
-                                          .filter(wr -> DUPLICATE_KEY.equals(fromErrorCode(wr.getCode())))
-                                          .map(BulkWriteError::getMessage)
-                                          .collect(Collectors.toList());
-            // Avoid hiding any others bulk errors
-            if (duplicates.size() == mbwe.getWriteErrors().size()) {
-                log.trace("MongoDB:    -> DUPLICATE KEY: {}", duplicates);
-                ConcurrentUpdateException concurrentUpdateException = new ConcurrentUpdateException();
-                duplicates.forEach(concurrentUpdateException::addInfo);
-                throw concurrentUpdateException;
-            }
+            throw convertBulkWriteException(mbwe);
+        }
+    }
 
-            throw mbwe;
+    /**
+     * Converts the duplicate key errors of a bulk write into a {@link ConcurrentUpdateException}.
+     *
+     * @since 11.1
+     */
+    protected RuntimeException convertBulkWriteException(MongoBulkWriteException mbwe) {
+        List<String> duplicates = mbwe.getWriteErrors()
+                                      .stream()
+                                      .filter(wr -> DUPLICATE_KEY.equals(fromErrorCode(wr.getCode())))
+                                      .map(BulkWriteError::getMessage)
+                                      .collect(Collectors.toList());
+        // Avoid hiding any others bulk errors
+        if (duplicates.size() == mbwe.getWriteErrors().size()) {
+            log.trace("MongoDB:    -> DUPLICATE KEY: {}", duplicates);
+            ConcurrentUpdateException concurrentUpdateException = new ConcurrentUpdateException();
+            duplicates.forEach(concurrentUpdateException::addInfo);
+            return concurrentUpdateException;
         }
+        return mbwe;
     }
 
     @Override
@@ -375,24 +394,7 @@ public class MongoDBRepository extends DBSRepositoryBase {
     public void updateState(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater) {
         List<Document> updates = converter.diffToBson(diff);
         for (Document update : updates) {
-            Document filter = new Document(idKey, id);
-            if (changeTokenUpdater == null) {
-                log.trace("MongoDB: UPDATE {}: {}", id, update);
-            } else {
-                // assume bson is identical to dbs internals
-                // condition works even if value is null
-                Map<String, Serializable> conditions = changeTokenUpdater.getConditions();
-                Map<String, Serializable> tokenUpdates = changeTokenUpdater.getUpdates();
-                if (update.containsKey(MONGODB_SET)) {
-                    ((Document) update.get(MONGODB_SET)).putAll(tokenUpdates);
-                } else {
-                    Document set = new Document();
-                    set.putAll(tokenUpdates);
-                    update.put(MONGODB_SET, set);
-                }
-                log.trace("MongoDB: UPDATE {}: IF {} THEN {}", id, conditions, update);
-                filter.putAll(conditions);
-            }
+            Document filter = getUpdateFilter(id, update, changeTokenUpdater);
             try {
                 UpdateResult w = coll.updateMany(filter, update);
                 if (w.getModifiedCount() != 1) {
@@ -409,6 +411,71 @@ public class MongoDBRepository extends DBSRepositoryBase {
         }
     }
 
+    /**
+     * Gets the filter of an update, adding the change token update to it if needed.
+     *
+     * @since 11.1
+     */
+    protected Document getUpdateFilter(String id, Document update, ChangeTokenUpdater changeTokenUpdater) {
+        Document filter = new Document(idKey, id);
+        if (changeTokenUpdater == null) {
+            log.trace("MongoDB: UPDATE {}: {}", id, update);
+        } else {
+            // assume bson is identical to dbs internals
+            // condition works even if value is null
+            Map<String, Serializable> conditions = changeTokenUpdater.getConditions();
+            Map<String, Serializable> tokenUpdates = changeTokenUpdater.getUpdates();
+            if (update.containsKey(MONGODB_SET)) {
+                ((Document) update.get(MONGODB_SET)).putAll(tokenUpdates);
+            } else {
+                Document set = new Document();
+                set.putAll(tokenUpdates);
+                update.put(MONGODB_SET, set);
+            }
+            log.trace("MongoDB: UPDATE {}: IF {} THEN {}", id, conditions, update);
+            filter.putAll(conditions);
+        }
+        return filter;
+    }
+
+    @Override
+    public void updateStates(List<StateUpdate> updates) {
+        // a diff may need several MongoDB updates that must be applied in sequence: the n-th updates of all the
+        // documents are sent together in an unordered bulk write
+        List<List<Document>> bsonUpdates = new ArrayList<>(updates.size());
+        int rounds = 0;
+        for (StateUpdate update : updates) {
+            List<Document> bson = converter.diffToBson(update.getDiff());
+            bsonUpdates.add(bson);
+            rounds = Math.max(rounds, bson.size());
+        }
+        for (int round = 0; round < rounds; round++) {
+            List<WriteModel<Document>> models = new ArrayList<>();
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < updates.size(); i++) {
+                List<Document> bson = bsonUpdates.get(i);
+                if (round < bson.size()) {
+                    StateUpdate update = updates.get(i);
+                    Document filter = getUpdateFilter(update.getId(), bson.get(round),
+                            update.getChangeTokenUpdater());
+                    models.add(new UpdateOneModel<>(filter, bson.get(round)));
+                    ids.add(update.getId());
+                }
+            }
+            BulkWriteResult result;
+            try {
+                result = coll.bulkWrite(models, new BulkWriteOptions().ordered(false));
+            } catch (MongoBulkWriteException mbwe) {
+                throw convertBulkWriteException(mbwe);
+            }
+            if (result.getModifiedCount() != models.size()) {
+                log.trace("MongoDB:    -> CONCURRENT UPDATE: {}", ids);
+                throw new ConcurrentUpdateException(String.format("%d of %d documents not updated: %s",
+                        models.size() - result.getModifiedCount(), models.size(), ids));
+            }
+        }
+    }
+
     @Override
     public void deleteStates(Set<String> ids) {
         Bson filter = Filters.in(idKey, ids);
@@ -519,6 +586,99 @@ public class MongoDBRepository extends DBSRepositoryBase {
         return stream(filter, fields, limit);
     }
 
+    @Override
+    public Stream<State> getDescendantsHavingKey(String rootId, String key, Set<String> keys) {
+        Bson filter = Filters.and(Filters.eq(KEY_ANCESTOR_IDS, rootId), Filters.exists(converter.keyToBson(key)));
+        Document fields = new Document();
+        if (useCustomId) {
+            fields.put(MONGODB_ID, ZERO);
+        }
+        fields.put(idKey, ONE);
+        keys.forEach(k -> fields.put(converter.keyToBson(k), ONE));
+        return stream(filter, fields, 0);
+    }
+
+    @Override
+    public long updateDescendantsAncestors(String rootId, Object[] oldAncestorIds, Object[] newAncestorIds) {
+        // the descendants whose ancestors start with the old ancestors followed by the root
+        int ndel = oldAncestorIds.length;
+        List<Bson> filters = new ArrayList<>(ndel + 1);
+        for (int i = 0; i < ndel; i++) {
+            filters.add(Filters.eq(KEY_ANCESTOR_IDS + '.' + i, oldAncestorIds[i]));
+        }
+        filters.add(Filters.eq(KEY_ANCESTOR_IDS + '.' + ndel, rootId));
+        Bson filter = Filters.and(filters);
+        // replace the old ancestors by the new ones in a single pipeline update (MongoDB 4.2),
+        // so that each descendant is atomically updated
+        String ancestorIds = '$' + KEY_ANCESTOR_IDS;
+        Document slice = new Document("$slice",
+                Arrays.asList(ancestorIds, Integer.valueOf(ndel), new Document("$size", ancestorIds)));
+        Document concat = new Document("$concatArrays",
+                Arrays.asList(new Document("$literal", Arrays.asList(newAncestorIds)), slice));
+        List<Bson> update = Collections.singletonList(
+                new Document(MONGODB_SET, new Document(KEY_ANCESTOR_IDS, concat)));
+        return updateDescendants(rootId, KEY_ANCESTOR_IDS, filter, rangeFilter -> {
+            log.trace("MongoDB: UPDATE {}: {}", rangeFilter, update);
+            return coll.updateMany(rangeFilter, update);
+        });
+    }
+
+    @Override
+    public long setDescendantsValue(String rootId, String key, Serializable value, Set<String> excludedIds) {
+        String bsonKey = converter.keyToBson(key);
+        Object bsonValue = converter.valueToBson(value);
+        List<Bson> filters = new ArrayList<>(4);
+        filters.add(Filters.eq(KEY_ANCESTOR_IDS, rootId));
+        if (!excludedIds.isEmpty()) {
+            filters.add(Filters.nin(idKey, excludedIds));
+            filters.add(Filters.nin(KEY_ANCESTOR_IDS, excludedIds));
+        }
+        // don't rewrite the documents already up to date
+        filters.add(Filters.ne(bsonKey, bsonValue));
+        Bson filter = Filters.and(filters);
+        Bson update = Updates.set(bsonKey, bsonValue);
+        return updateDescendants(rootId, key, filter, rangeFilter -> {
+            log.trace("MongoDB: UPDATE {}: {}", rangeFilter, update);
+            return coll.updateMany(rangeFilter, update);
+        });
+    }
+
+    /**
+     * Updates the descendants of a document matching a filter by ranges of ids, to bound the size of each update.
+     *
+     * @param rootId the document whose descendants are updated, for logging
+     * @param key the updated key, for logging
+     * @param filter the filter of the descendants to update
+     * @param updater the update of the descendants matching a range filter
+     * @return the number of updated descendants
+     * @since 11.1
+     */
+    protected long updateDescendants(String rootId, String key, Bson filter, Function<Bson, UpdateResult> updater) {
+        long total = log.isDebugEnabled() ? coll.countDocuments(filter) : -1;
+        long modified = 0;
+        Object lastId = null;
+        for (;;) {
+            Bson rangeFilter = lastId == null ? filter : Filters.and(filter, Filters.gt(idKey, lastId));
+            // the last id of the next range, or null if the remaining descendants fit in one range
+            Document last = coll.find(rangeFilter)
+                                .projection(Projections.include(idKey))
+                                .sort(Sorts.ascending(idKey))
+                                .skip(UPDATE_DESCENDANTS_BATCH_SIZE - 1)
+                                .first();
+            Object nextId = last == null ? null : last.get(idKey);
+            if (nextId != null) {
+                rangeFilter = Filters.and(rangeFilter, Filters.lte(idKey, nextId));
+            }
+            modified += updater.apply(rangeFilter).getModifiedCount();
+            log.debug("MongoDB: updated {} of {}/{} descendants of {}", key, modified, total, rootId);
+            if (nextId == null) {
+                break;
+            }
+            lastId = nextId;
+        }
+        return modified;
+    }
+
     @Override
     public boolean queryKeyValuePresence(String key, String value, Set<String> ignored) {
         Document filter = new Document(converter.keyToBson(key), value);
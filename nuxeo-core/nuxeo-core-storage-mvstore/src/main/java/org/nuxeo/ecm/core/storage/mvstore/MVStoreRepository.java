@@ -0,0 +1,322 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mvstore;
+
+import static org.nuxeo.ecm.core.storage.mvstore.MVStoreStateSerializer.deserialize;
+import static org.nuxeo.ecm.core.storage.mvstore.MVStoreStateSerializer.serialize;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import javax.resource.spi.ConnectionManager;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.db.TransactionStore;
+import org.h2.mvstore.db.TransactionStore.Transaction;
+import org.h2.mvstore.db.TransactionStore.TransactionMap;
+import org.nuxeo.ecm.core.api.Lock;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.model.Repository;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.StateHelper;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.StateUpdate;
+import org.nuxeo.ecm.core.storage.mem.MemRepository;
+
+/**
+ * Embedded persistent implementation of a {@link Repository}, storing the documents in a local H2 MVStore file.
+ * <p>
+ * The documents are held and queried in memory with the indexes of the {@link MemRepository}, and the documents are
+ * loaded from the MVStore map {@value #STATES_MAP} of document id to serialized state (see
+ * {@link MVStoreStateSerializer}) when the repository starts.
+ * <p>
+ * The in-memory documents are the source of truth: they are written and their change tokens are checked under their
+ * lock exactly like for the {@link MemRepository}, and a write never fails because of the store. The ids written by a
+ * DBS transaction are recorded between {@link #begin} and {@link #commit}, and the current in-memory states of these
+ * documents are then written to the store in a single MVStore {@link TransactionStore} transaction, so that the store
+ * never contains half of a DBS transaction. On {@link #rollback}, the in-memory documents restored by the undo log of
+ * the DBS transaction are written in the same way, as a concurrent commit may have stored them. Writes done outside of
+ * a DBS transaction, by the lock manager for instance, are stored at once. The store transactions left open by a
+ * crash are rolled back when the store is opened.
+ *
+ * @since 11.1
+ */
+public class MVStoreRepository extends MemRepository {
+
+    private static final Log log = LogFactory.getLog(MVStoreRepository.class);
+
+    /** The map of document id to serialized state. */
+    public static final String STATES_MAP = "states";
+
+    /** The file name prefix to use a memory-mapped file store. */
+    protected static final String MEMORY_MAPPED_PREFIX = "nioMapped:";
+
+    // the fields below are initialized by initRepository, which is called by the parent constructor
+
+    protected MVStore store;
+
+    protected TransactionStore transactionStore;
+
+    protected boolean syncOnCommit;
+
+    /** Held while the documents of a transaction are stored, so that the stores are done one after the other. */
+    protected Object storeLock;
+
+    /**
+     * The ids written by the DBS transactions of each thread, the current one first. A thread may have several
+     * transactions when its DBS transaction is suspended for a new one.
+     */
+    protected ThreadLocal<Deque<Set<String>>> transactions;
+
+    public MVStoreRepository(ConnectionManager cm, MVStoreRepositoryDescriptor descriptor) {
+        super(cm, descriptor);
+    }
+
+    @Override
+    protected void initRepository() {
+        storeLock = new Object();
+        transactions = ThreadLocal.withInitial(ArrayDeque::new);
+        openStore((MVStoreRepositoryDescriptor) descriptor);
+        loadStates();
+        if (states.isEmpty()) {
+            initRoot();
+        }
+    }
+
+    protected void openStore(MVStoreRepositoryDescriptor descriptor) {
+        File file = descriptor.getFile();
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new NuxeoException("Cannot create directory: " + dir);
+        }
+        String fileName = file.getPath();
+        if (descriptor.isMemoryMapped()) {
+            fileName = MEMORY_MAPPED_PREFIX + fileName;
+        }
+        log.info("Repository " + repositoryName + " using MVStore: " + fileName);
+        store = new MVStore.Builder().fileName(fileName).autoCommitDisabled().open();
+        syncOnCommit = descriptor.isSyncOnCommit();
+        transactionStore = new TransactionStore(store);
+        transactionStore.init();
+        List<Transaction> openTransactions = transactionStore.getOpenTransactions();
+        if (!openTransactions.isEmpty()) {
+            log.warn("Repository " + repositoryName + " rolling back " + openTransactions.size()
+                    + " unfinished transactions");
+            openTransactions.forEach(Transaction::rollback);
+            commitStore();
+        }
+    }
+
+    /**
+     * Loads the committed documents from the store, replacing the in-memory ones.
+     */
+    protected void loadStates() {
+        long start = System.currentTimeMillis();
+        states = new ConcurrentHashMap<>();
+        initIndexes();
+        Transaction transaction = transactionStore.begin();
+        try {
+            TransactionMap<String, byte[]> statesMap = transaction.openMap(STATES_MAP);
+            Iterator<String> it = statesMap.keyIterator(null);
+            while (it.hasNext()) {
+                String id = it.next();
+                State state = deserialize(statesMap.get(id));
+                putState(id, StateHelper.deepCopy(state, true)); // thread-safe
+            }
+        } finally {
+            transaction.commit();
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Repository " + repositoryName + " loaded " + states.size() + " documents in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        if (store != null) {
+            store.close();
+            store = null;
+            transactionStore = null;
+        }
+    }
+
+    @Override
+    public void begin() {
+        transactions.get().push(new LinkedHashSet<>());
+    }
+
+    @Override
+    public void commit() {
+        Set<String> ids = transactions.get().poll();
+        if (ids == null) {
+            log.error("Repository " + repositoryName + ": no transaction to commit");
+            return;
+        }
+        storeStates(ids);
+    }
+
+    @Override
+    public void rollback() {
+        Set<String> ids = transactions.get().poll();
+        if (ids == null) {
+            log.error("Repository " + repositoryName + ": no transaction to roll back");
+            return;
+        }
+        // the in-memory documents have been restored by the undo log of the DBS transaction
+        storeStates(ids);
+    }
+
+    /**
+     * Gets the ids written by the DBS transaction of the current thread, or {@code null} if there is none.
+     */
+    protected Set<String> getTransactionIds() {
+        return transactions.get().peek();
+    }
+
+    /**
+     * Writes the current in-memory states of the given documents to the store, in a single store transaction.
+     */
+    protected void storeStates(Set<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        synchronized (storeLock) {
+            Transaction transaction = transactionStore.begin();
+            try {
+                TransactionMap<String, byte[]> statesMap = transaction.openMap(STATES_MAP);
+                for (String id : ids) {
+                    State state = states.get(id);
+                    if (state == null) {
+                        statesMap.remove(id);
+                    } else {
+                        byte[] bytes;
+                        synchronized (state) {
+                            bytes = serialize(state);
+                        }
+                        statesMap.put(id, bytes);
+                    }
+                }
+            } catch (RuntimeException e) {
+                transaction.rollback();
+                throw e;
+            }
+            transaction.commit();
+            commitStore();
+        }
+    }
+
+    protected void commitStore() {
+        store.commit();
+        if (syncOnCommit) {
+            store.sync();
+        }
+    }
+
+    @Override
+    protected void stateWritten(String id, State state) {
+        getTransactionIds().add(id);
+    }
+
+    @Override
+    protected void stateDeleted(String id) {
+        getTransactionIds().add(id);
+    }
+
+    /**
+     * Runs a repository write in the DBS transaction of the current thread, or stores it at once if there is none.
+     */
+    protected <T> T write(Supplier<T> writer) {
+        if (getTransactionIds() != null) {
+            return writer.get();
+        }
+        begin();
+        try {
+            return writer.get();
+        } finally {
+            // also after a failure, to keep the store consistent with the in-memory states
+            commit();
+        }
+    }
+
+    protected void write(Runnable writer) {
+        write(() -> {
+            writer.run();
+            return null;
+        });
+    }
+
+    @Override
+    public void createState(State state) {
+        write(() -> super.createState(state));
+    }
+
+    @Override
+    public void createStates(List<State> states) {
+        write(() -> super.createStates(states));
+    }
+
+    @Override
+    public void updateState(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater) {
+        write(() -> super.updateState(id, diff, changeTokenUpdater));
+    }
+
+    @Override
+    public void updateStates(List<StateUpdate> updates) {
+        write(() -> super.updateStates(updates));
+    }
+
+    @Override
+    public void deleteStates(Set<String> ids) {
+        write(() -> super.deleteStates(ids));
+    }
+
+    @Override
+    public long updateDescendantsAncestors(String id, Object[] oldAncestorIds, Object[] newAncestorIds) {
+        return write(() -> super.updateDescendantsAncestors(id, oldAncestorIds, newAncestorIds)).longValue();
+    }
+
+    @Override
+    public long setDescendantsValue(String id, String key, Serializable value, Set<String> excludedIds) {
+        return write(() -> super.setDescendantsValue(id, key, value, excludedIds)).longValue();
+    }
+
+    @Override
+    public Lock setLock(String id, Lock lock) {
+        return write(() -> super.setLock(id, lock));
+    }
+
+    @Override
+    public Lock removeLock(String id, String owner) {
+        return write(() -> super.removeLock(id, owner));
+    }
+
+}
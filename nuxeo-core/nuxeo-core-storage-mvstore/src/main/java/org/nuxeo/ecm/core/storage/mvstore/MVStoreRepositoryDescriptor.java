@@ -0,0 +1,86 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mvstore;
+
+import java.io.File;
+
+import org.nuxeo.common.Environment;
+import org.nuxeo.common.xmap.annotation.XNode;
+import org.nuxeo.common.xmap.annotation.XObject;
+import org.nuxeo.ecm.core.storage.mem.MemRepositoryDescriptor;
+
+/**
+ * MVStore Repository Descriptor.
+ *
+ * @since 11.1
+ */
+@XObject(value = "repository")
+public class MVStoreRepositoryDescriptor extends MemRepositoryDescriptor {
+
+    public static final String DEFAULT_DIRECTORY = "mvstore";
+
+    public static final String FILE_SUFFIX = ".mv.db";
+
+    public MVStoreRepositoryDescriptor() {
+    }
+
+    /** The path of the store file, defaults to a file in the {@value #DEFAULT_DIRECTORY} data directory. */
+    @XNode("path")
+    public String path;
+
+    @XNode("memoryMapped")
+    protected Boolean memoryMapped;
+
+    @XNode("syncOnCommit")
+    protected Boolean syncOnCommit;
+
+    public File getFile() {
+        if (path == null || path.trim().isEmpty()) {
+            return new File(new File(Environment.getDefault().getData(), DEFAULT_DIRECTORY), name + FILE_SUFFIX);
+        }
+        return new File(path.trim());
+    }
+
+    public boolean isMemoryMapped() {
+        return !Boolean.FALSE.equals(memoryMapped);
+    }
+
+    public boolean isSyncOnCommit() {
+        return !Boolean.FALSE.equals(syncOnCommit);
+    }
+
+    @Override
+    public MVStoreRepositoryDescriptor clone() {
+        return (MVStoreRepositoryDescriptor) super.clone();
+    }
+
+    public void merge(MVStoreRepositoryDescriptor other) {
+        super.merge(other);
+        if (other.path != null) {
+            path = other.path;
+        }
+        if (other.memoryMapped != null) {
+            memoryMapped = other.memoryMapped;
+        }
+        if (other.syncOnCommit != null) {
+            syncOnCommit = other.syncOnCommit;
+        }
+    }
+
+}
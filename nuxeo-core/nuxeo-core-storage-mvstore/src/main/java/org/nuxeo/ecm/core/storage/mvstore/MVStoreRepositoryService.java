@@ -0,0 +1,62 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mvstore;
+
+import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryService;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.model.ComponentInstance;
+import org.nuxeo.runtime.model.DefaultComponent;
+
+/**
+ * Service holding the configuration for MVStore repositories.
+ *
+ * @since 11.1
+ */
+public class MVStoreRepositoryService extends DefaultComponent {
+
+    private static final String XP_REPOSITORY = "repository";
+
+    @Override
+    public void registerContribution(Object contrib, String xpoint, ComponentInstance contributor) {
+        if (XP_REPOSITORY.equals(xpoint)) {
+            addContribution((MVStoreRepositoryDescriptor) contrib);
+        } else {
+            throw new RuntimeException("Unknown extension point: " + xpoint);
+        }
+    }
+
+    @Override
+    public void unregisterContribution(Object contrib, String xpoint, ComponentInstance contributor) {
+        if (XP_REPOSITORY.equals(xpoint)) {
+            removeContribution((MVStoreRepositoryDescriptor) contrib);
+        } else {
+            throw new RuntimeException("Unknown extension point: " + xpoint);
+        }
+    }
+
+    protected void addContribution(MVStoreRepositoryDescriptor descriptor) {
+        Framework.getService(DBSRepositoryService.class).addContribution(descriptor, MVStoreRepositoryFactory.class);
+    }
+
+    protected void removeContribution(MVStoreRepositoryDescriptor descriptor) {
+        Framework.getService(DBSRepositoryService.class).removeContribution(descriptor,
+                MVStoreRepositoryFactory.class);
+    }
+
+}
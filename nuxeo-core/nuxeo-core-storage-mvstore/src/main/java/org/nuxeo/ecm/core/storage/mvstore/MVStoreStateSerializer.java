@@ -0,0 +1,258 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mvstore;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.TimeZone;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.storage.State;
+
+/**
+ * Serializes the states stored in the MVStore.
+ * <p>
+ * The format is a tagged binary encoding of the JSON-like structure of the states (maps, lists, arrays and scalar
+ * values), independent of the Java classes holding them so that the stored documents survive changes to these classes.
+ * It starts with a version byte, then each value is written as a one-byte type tag followed by its content:
+ * <ul>
+ * <li>strings are written as their UTF-8 length and bytes,</li>
+ * <li>calendars are written as their time in milliseconds and their time zone id,</li>
+ * <li>arrays are written with the tag of their component type, their length and their tagged elements,</li>
+ * <li>lists and maps are written with their size and their tagged elements, or their keys and tagged values.</li>
+ * </ul>
+ *
+ * @since 11.1
+ */
+public class MVStoreStateSerializer {
+
+    protected static final byte VERSION = 1;
+
+    protected static final byte NULL = 0;
+
+    protected static final byte STRING = 1;
+
+    protected static final byte LONG = 2;
+
+    protected static final byte DOUBLE = 3;
+
+    protected static final byte BOOLEAN = 4;
+
+    protected static final byte CALENDAR = 5;
+
+    protected static final byte STATE = 6;
+
+    protected static final byte LIST = 7;
+
+    protected static final byte ARRAY = 8;
+
+    /** The component type of arrays of mixed or unknown types. */
+    protected static final byte OBJECT = 9;
+
+    private MVStoreStateSerializer() {
+        // utility class
+    }
+
+    public static byte[] serialize(State state) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            out.writeByte(VERSION);
+            writeState(out, state);
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+        return baos.toByteArray();
+    }
+
+    public static State deserialize(byte[] bytes) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new NuxeoException("Unknown state serialization version: " + version);
+            }
+            return readState(in);
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
+    protected static void writeState(DataOutputStream out, State state) throws IOException {
+        out.writeInt(state.size());
+        for (Entry<String, Serializable> en : state.entrySet()) {
+            writeString(out, en.getKey());
+            writeValue(out, en.getValue());
+        }
+    }
+
+    protected static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong(((Long) value).longValue());
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Double) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(((Boolean) value).booleanValue());
+        } else if (value instanceof Calendar) {
+            Calendar cal = (Calendar) value;
+            out.writeByte(CALENDAR);
+            out.writeLong(cal.getTimeInMillis());
+            writeString(out, cal.getTimeZone().getID());
+        } else if (value instanceof State) {
+            out.writeByte(STATE);
+            writeState(out, (State) value);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object v : list) {
+                writeValue(out, v);
+            }
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            out.writeByte(ARRAY);
+            out.writeByte(getTag(array.getClass().getComponentType()));
+            out.writeInt(array.length);
+            for (Object v : array) {
+                writeValue(out, v);
+            }
+        } else {
+            throw new NuxeoException("Unsupported value type: " + value.getClass().getName());
+        }
+    }
+
+    protected static void writeString(DataOutputStream out, String string) throws IOException {
+        // not writeUTF, which is limited to 64k bytes
+        byte[] bytes = string.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    protected static byte getTag(Class<?> klass) {
+        if (klass == String.class) {
+            return STRING;
+        } else if (klass == Long.class) {
+            return LONG;
+        } else if (klass == Double.class) {
+            return DOUBLE;
+        } else if (klass == Boolean.class) {
+            return BOOLEAN;
+        } else if (Calendar.class.isAssignableFrom(klass)) {
+            return CALENDAR;
+        } else {
+            return OBJECT;
+        }
+    }
+
+    protected static Class<?> getClass(byte tag) {
+        switch (tag) {
+        case STRING:
+            return String.class;
+        case LONG:
+            return Long.class;
+        case DOUBLE:
+            return Double.class;
+        case BOOLEAN:
+            return Boolean.class;
+        case CALENDAR:
+            return Calendar.class;
+        case OBJECT:
+            return Object.class;
+        default:
+            throw new NuxeoException("Unknown array component tag: " + tag);
+        }
+    }
+
+    protected static State readState(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        State state = new State(size);
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            state.put(key, readValue(in));
+        }
+        return state;
+    }
+
+    protected static Serializable readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+        case NULL:
+            return null;
+        case STRING:
+            return readString(in);
+        case LONG:
+            return Long.valueOf(in.readLong());
+        case DOUBLE:
+            return Double.valueOf(in.readDouble());
+        case BOOLEAN:
+            return Boolean.valueOf(in.readBoolean());
+        case CALENDAR:
+            long millis = in.readLong();
+            Calendar cal = new GregorianCalendar(TimeZone.getTimeZone(readString(in)));
+            cal.setTimeInMillis(millis);
+            return cal;
+        case STATE:
+            return readState(in);
+        case LIST: {
+            int size = in.readInt();
+            ArrayList<Serializable> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(readValue(in));
+            }
+            return list;
+        }
+        case ARRAY: {
+            Class<?> componentType = getClass(in.readByte());
+            int size = in.readInt();
+            Object[] array = (Object[]) Array.newInstance(componentType, size);
+            for (int i = 0; i < size; i++) {
+                array[i] = readValue(in);
+            }
+            return array;
+        }
+        default:
+            throw new NuxeoException("Unknown value tag: " + tag);
+        }
+    }
+
+    protected static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mvstore;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.storage.dbs.DBSHelper;
+
+/**
+ * Test helper for the MVStore repository, starts each test with an empty store.
+ *
+ * @since 11.1
+ */
+public class DBSHelperImpl implements DBSHelper {
+
+    public static final String MVSTORE_PATH_PROPERTY = "nuxeo.test.mvstore.path";
+
+    public static final String DEFAULT_MVSTORE_PATH = "target/mvstore/test" + MVStoreRepositoryDescriptor.FILE_SUFFIX;
+
+    @Override
+    public void init() {
+        File file = new File(defaultProperty(MVSTORE_PATH_PROPERTY, DEFAULT_MVSTORE_PATH));
+        try {
+            FileUtils.deleteDirectory(file.getAbsoluteFile().getParentFile());
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
+}
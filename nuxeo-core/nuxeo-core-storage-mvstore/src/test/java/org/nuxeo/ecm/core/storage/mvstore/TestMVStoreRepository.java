@@ -0,0 +1,314 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mvstore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_CHANGE_TOKEN;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_LOCK_OWNER;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+
+import org.h2.mvstore.db.TransactionStore.Transaction;
+import org.h2.mvstore.db.TransactionStore.TransactionMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CloseableCoreSession;
+import org.nuxeo.ecm.core.api.ConcurrentUpdateException;
+import org.nuxeo.ecm.core.api.CoreInstance;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.ecm.core.repository.RepositoryService;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.StateHelper;
+import org.nuxeo.ecm.core.storage.dbs.DBSDocumentState;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+@RunWith(FeaturesRunner.class)
+@Features(CoreFeature.class)
+public class TestMVStoreRepository {
+
+    @Inject
+    protected CoreFeature coreFeature;
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected RepositoryService repositoryService;
+
+    protected MVStoreRepository getRepository() {
+        return (MVStoreRepository) repositoryService.getRepository(session.getRepositoryName());
+    }
+
+    protected void nextTransaction() {
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+    }
+
+    /**
+     * Reads the committed state of a document from the store.
+     */
+    protected State getStoredState(String id) {
+        Transaction transaction = getRepository().transactionStore.begin();
+        try {
+            TransactionMap<String, byte[]> statesMap = transaction.openMap(MVStoreRepository.STATES_MAP);
+            byte[] bytes = statesMap.get(id);
+            return bytes == null ? null : MVStoreStateSerializer.deserialize(bytes);
+        } finally {
+            transaction.rollback();
+        }
+    }
+
+    @Test
+    public void testWritesAreCommittedWithTransaction() {
+        DocumentModel folder = session.createDocumentModel("/", "folder", "Folder");
+        folder = session.createDocument(folder);
+        DocumentModel doc = session.createDocumentModel("/folder", "doc", "File");
+        doc.setPropertyValue("dc:title", "foo");
+        doc = session.createDocument(doc);
+        session.save();
+        // not committed before the end of the transaction
+        assertNull(getStoredState(doc.getId()));
+        nextTransaction();
+        State state = getStoredState(doc.getId());
+        assertNotNull(state);
+        assertEquals("foo", state.get("dc:title"));
+
+        doc.setPropertyValue("dc:title", "bar");
+        session.saveDocument(doc);
+        session.save();
+        assertEquals("foo", getStoredState(doc.getId()).get("dc:title"));
+        nextTransaction();
+        assertEquals("bar", getStoredState(doc.getId()).get("dc:title"));
+
+        session.removeDocument(folder.getRef());
+        session.save();
+        assertNotNull(getStoredState(doc.getId()));
+        nextTransaction();
+        assertNull(getStoredState(doc.getId()));
+        assertNull(getStoredState(folder.getId()));
+    }
+
+    @Test
+    public void testRollback() {
+        DocumentModel doc = session.createDocumentModel("/", "doc", "File");
+        doc.setPropertyValue("dc:title", "foo");
+        doc = session.createDocument(doc);
+        session.save();
+        nextTransaction();
+
+        doc.setPropertyValue("dc:title", "bar");
+        session.saveDocument(doc);
+        DocumentModel other = session.createDocumentModel("/", "other", "File");
+        other = session.createDocument(other);
+        session.save();
+        TransactionHelper.setTransactionRollbackOnly();
+        nextTransaction();
+
+        assertEquals("foo", getStoredState(doc.getId()).get("dc:title"));
+        assertNull(getStoredState(other.getId()));
+        assertEquals("foo", session.getDocument(doc.getRef()).getPropertyValue("dc:title"));
+        assertFalse(session.exists(other.getRef()));
+    }
+
+    @Test
+    public void testConcurrentTransactions() throws InterruptedException {
+        DocumentModel doc = session.createDocumentModel("/", "doc", "File");
+        doc.setPropertyValue("dc:title", "foo");
+        doc = session.createDocument(doc);
+        session.save();
+        nextTransaction();
+
+        // a transaction writes the document without committing
+        doc.setPropertyValue("dc:title", "bar");
+        doc = session.saveDocument(doc);
+        session.save();
+
+        // another transaction writes the same document, and locks it, without failing
+        String id = doc.getId();
+        AtomicReference<RuntimeException> error = new AtomicReference<>();
+        Thread thread = new Thread(() -> TransactionHelper.runInTransaction(() -> {
+            try (CloseableCoreSession session2 = CoreInstance.openCoreSession(coreFeature.getRepositoryName())) {
+                DocumentModel doc2 = session2.getDocument(new IdRef(id));
+                doc2.setPropertyValue("dc:description", "baz");
+                session2.saveDocument(doc2);
+                session2.setLock(doc2.getRef());
+                session2.save();
+            } catch (RuntimeException e) {
+                error.set(e);
+            }
+        }));
+        thread.start();
+        thread.join();
+        if (error.get() != null) {
+            throw error.get();
+        }
+        nextTransaction();
+
+        // the store has the same documents as the memory
+        MVStoreRepository repository = getRepository();
+        State state = getStoredState(id);
+        State memState = repository.readState(id);
+        assertEquals("bar", state.get("dc:title"));
+        assertEquals("baz", state.get("dc:description"));
+        assertNotNull(state.get(KEY_LOCK_OWNER));
+        assertEquals(memState.get("dc:title"), state.get("dc:title"));
+        assertEquals(memState.get("dc:description"), state.get("dc:description"));
+        assertEquals(memState.get(KEY_LOCK_OWNER), state.get(KEY_LOCK_OWNER));
+    }
+
+    @Test
+    public void testConcurrentChangeToken() throws InterruptedException {
+        assumeTrue("test only makes sense for real change tokens",
+                coreFeature.getStorageConfiguration().isChangeTokenEnabled());
+        DocumentModel doc = session.createDocumentModel("/", "doc", "File");
+        doc.setPropertyValue("dc:title", "foo");
+        doc = session.createDocument(doc);
+        session.save();
+        nextTransaction();
+
+        MVStoreRepository repository = getRepository();
+        String id = doc.getId();
+        State read = repository.readState(id);
+        repository.begin();
+        try {
+            StateDiff diff = new StateDiff();
+            diff.put("dc:title", "bar");
+            repository.updateState(id, diff, new ChangeTokenUpdater(new DBSDocumentState(read)));
+
+            // another transaction updating the document with the change token it read before
+            AtomicReference<Exception> error = new AtomicReference<>();
+            Thread thread = new Thread(() -> {
+                repository.begin();
+                try {
+                    StateDiff otherDiff = new StateDiff();
+                    otherDiff.put("dc:title", "baz");
+                    repository.updateState(id, otherDiff, new ChangeTokenUpdater(new DBSDocumentState(read)));
+                } catch (ConcurrentUpdateException e) {
+                    error.set(e);
+                } finally {
+                    repository.rollback();
+                }
+            });
+            thread.start();
+            thread.join();
+            assertNotNull("should throw ConcurrentUpdateException", error.get());
+            assertTrue(error.get().getMessage(), error.get().getMessage().contains(id));
+            // nothing was stored by the failed transaction
+            assertEquals("foo", getStoredState(id).get("dc:title"));
+        } finally {
+            repository.commit();
+        }
+        State state = getStoredState(id);
+        assertEquals("bar", state.get("dc:title"));
+        assertEquals("bar", repository.readState(id).get("dc:title"));
+        assertEquals(repository.readState(id).get(KEY_CHANGE_TOKEN), state.get(KEY_CHANGE_TOKEN));
+    }
+
+    @Test
+    public void testSerializer() {
+        Calendar cal = new GregorianCalendar(TimeZone.getTimeZone("Europe/Paris"));
+        cal.setTimeInMillis(1234567890123L);
+        State sub = new State();
+        sub.put("name", "sub");
+        sub.put("nothing", null);
+        State state = new State();
+        state.put("string", "caf\u00e9");
+        state.put("long", Long.valueOf(123));
+        state.put("double", Double.valueOf(1.5));
+        state.put("boolean", Boolean.TRUE);
+        state.put("strings", new String[] { "a", null, "b" });
+        state.put("longs", new Long[] { Long.valueOf(1), Long.valueOf(2) });
+        state.put("objects", new Object[] { "a", Long.valueOf(1) });
+        state.put("complex", sub);
+        state.put("list", new ArrayList<>(Arrays.asList(sub, new State())));
+
+        State read = MVStoreStateSerializer.deserialize(MVStoreStateSerializer.serialize(state));
+        assertTrue(read.toString(), StateHelper.equalsStrict(state, read));
+        assertEquals(String[].class, read.get("strings").getClass());
+        assertEquals(Long[].class, read.get("longs").getClass());
+
+        state = new State();
+        state.put("date", cal);
+        read = MVStoreStateSerializer.deserialize(MVStoreStateSerializer.serialize(state));
+        Calendar readCal = (Calendar) read.get("date");
+        assertEquals(cal.getTimeInMillis(), readCal.getTimeInMillis());
+        assertEquals("Europe/Paris", readCal.getTimeZone().getID());
+    }
+
+    @Test
+    public void testReload() {
+        DocumentModel folder = session.createDocumentModel("/", "folder", "Folder");
+        folder = session.createDocument(folder);
+        DocumentModel doc = session.createDocumentModel("/folder", "doc", "File");
+        doc.setPropertyValue("dc:title", "foo");
+        doc = session.createDocument(doc);
+        session.save();
+        doc.setPropertyValue("dc:title", "bar");
+        session.saveDocument(doc);
+        session.save();
+        session.setLock(doc.getRef());
+        nextTransaction();
+
+        MVStoreRepository repository = getRepository();
+        String rootId = session.getRootDocument().getId();
+        long count = repository.getDescendants(rootId, null).count();
+        // like after a restart
+        repository.loadStates();
+        assertEquals(count, repository.getDescendants(rootId, null).count());
+
+        // the indexes are rebuilt
+        State state = repository.readChildState(folder.getId(), "doc", Collections.emptySet());
+        assertNotNull(state);
+        assertEquals(doc.getId(), state.get("ecm:id"));
+        assertEquals(1, repository.queryKeyValue(KEY_PARENT_ID, folder.getId(), Collections.emptySet()).size());
+        assertEquals(1, repository.queryKeyValue(KEY_NAME, "doc", Collections.emptySet()).size());
+        assertNotNull(repository.getLock(doc.getId()));
+
+        DocumentModel reloaded = session.getDocument(doc.getRef());
+        assertEquals("bar", reloaded.getPropertyValue("dc:title"));
+        DocumentModelList children = session.query(
+                "SELECT * FROM Document WHERE ecm:parentId = '" + folder.getId() + "' AND dc:title = 'bar'");
+        assertEquals(1, children.size());
+        assertTrue(session.getDocument(folder.getRef()).isFolder());
+    }
+
+}
@@ -86,6 +86,7 @@ import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
 import org.nuxeo.ecm.core.storage.sql.coremodel.SQLRepositoryService;
 import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCConnection;
 import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCMapperConnector;
+import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCRowMapper;
 import org.nuxeo.ecm.core.storage.sql.jdbc.dialect.Dialect;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.ConditionalIgnoreRule;
@@ -4061,6 +4062,46 @@ public class TestSQLBackend extends SQLBackendTestCase {
         assertEquals(0, jdbc.executeCount);
     }
 
+    @Test
+    public void testWriteStatementsReused() throws Exception {
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Node node = session.addChildNode(root, "doc" + i, null, "TestDoc", false);
+            // create the schema row, so that the writes below are updates
+            node.setSimpleProperty("tst:title", "init");
+            nodes.add(node);
+        }
+        session.save();
+
+        JDBCRowMapper jdbc = (JDBCRowMapper) JDBCMapperConnector.unwrap(
+                ((SoftRefCachingMapper) ((SessionImpl) session).getMapper()).mapper);
+        jdbc.countExecutes = true;
+        jdbc.writePrepareCount = 0;
+        // two kinds of updates, interleaved once sorted by id
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            node.setSimpleProperty("tst:title", "title" + i);
+            if (i % 2 == 0) {
+                node.setSimpleProperty("tst:count", Long.valueOf(i));
+            }
+        }
+        session.save();
+        // one statement per update shape, reused by all the rows having it
+        assertEquals(2, jdbc.writePrepareCount);
+        session.close();
+
+        session = repository.getConnection();
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = session.getNodeById(nodes.get(i).getId());
+            assertEquals("title" + i, node.getSimpleProperty("tst:title").getString());
+            Long expected = i % 2 == 0 ? Long.valueOf(i) : null;
+            assertEquals(expected, node.getSimpleProperty("tst:count").getValue());
+        }
+        session.close();
+    }
+
     @Test
     public void testPathDeep() throws Exception {
         Session session = repository.getConnection();
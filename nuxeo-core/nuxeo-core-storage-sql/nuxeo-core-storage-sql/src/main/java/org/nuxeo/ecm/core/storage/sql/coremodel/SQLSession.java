@@ -195,6 +195,15 @@ public class SQLSession implements Session<QueryFilter> {
         return doc;
     }
 
+    @Override
+    public List<Document> getDocumentsByUUID(List<String> uuids) {
+        List<Serializable> ids = new ArrayList<>(uuids.size());
+        for (String uuid : uuids) {
+            ids.add(idFromString(uuid));
+        }
+        return getDocumentsById(ids);
+    }
+
     @Override
     public Document resolvePath(String path) throws DocumentNotFoundException {
         if (path.endsWith("/") && path.length() > 1) {
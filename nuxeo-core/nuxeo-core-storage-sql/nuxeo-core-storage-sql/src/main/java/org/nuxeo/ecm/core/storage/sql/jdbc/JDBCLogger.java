@@ -88,6 +88,20 @@ public class JDBCLogger {
         }
     }
 
+    /**
+     * Logs the number of rows written and the write rate.
+     *
+     * @param elapsed the write duration in nanoseconds
+     * @since 11.1
+     */
+    public void logWriteRate(int count, long elapsed) {
+        if (count > 0 && isLogEnabled()) {
+            long rate = elapsed > 0 ? count * 1_000_000_000L / elapsed : 0;
+            log("  -> wrote " + count + " row" + (count > 1 ? "s" : "") + " in " + elapsed / 1_000_000 + "ms ("
+                    + rate + " rows/s)");
+        }
+    }
+
     public void logResultSet(ResultSet rs, List<Column> columns) throws SQLException {
         List<String> res = new LinkedList<>();
         int i = 0;
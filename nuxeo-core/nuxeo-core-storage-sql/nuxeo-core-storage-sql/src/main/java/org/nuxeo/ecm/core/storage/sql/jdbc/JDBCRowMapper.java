@@ -41,6 +41,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.transaction.xa.XAException;
@@ -67,8 +68,14 @@ import org.nuxeo.ecm.core.storage.sql.jdbc.db.Column;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Table;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Update;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.services.config.ConfigurationService;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+
 /**
  * A {@link JDBCRowMapper} maps {@link Row}s to and from a JDBC database.
  */
@@ -95,6 +102,29 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
 
     private final CollectionIO scalarCollectionIO;
 
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    /** @since 11.1 */
+    protected final Timer writeTimer;
+
+    /** @since 11.1 */
+    protected final Meter writeRowsMeter;
+
+    /**
+     * The prepared statements of the {@link #write} in progress by SQL, reused for all the rows having the same SQL,
+     * or {@code null} outside of a write.
+     * <p>
+     * They are not kept longer because the {@link JDBCMapperConnector} gets the connection from the pool and gives it
+     * back around each mapper call, so a {@link #write} is the whole lifetime of the connection. Reusing statements
+     * across writes is left to the statement cache of the pool or of the JDBC driver.
+     *
+     * @since 11.1
+     */
+    protected Map<String, PreparedStatement> writeStatements;
+
+    // for tests
+    public int writePrepareCount;
+
     public JDBCRowMapper(Model model, SQLInfo sqlInfo, ClusterInvalidator clusterInvalidator,
             InvalidationsPropagator invalidationsPropagator) {
         super(model, sqlInfo);
@@ -104,6 +134,10 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         collectionDeleteBeforeAppend = configurationService.isBooleanTrue(COLLECTION_DELETE_BEFORE_APPEND_PROP);
         aclCollectionIO = new ACLCollectionIO(collectionDeleteBeforeAppend);
         scalarCollectionIO = new ScalarCollectionIO(collectionDeleteBeforeAppend);
+        String repositoryName = getRepositoryName();
+        writeTimer = registry.timer(MetricRegistry.name("nuxeo", "repositories", repositoryName, "writes"));
+        writeRowsMeter = registry.meter(
+                MetricRegistry.name("nuxeo", "repositories", repositoryName, "writes", "rows"));
     }
 
     @Override
@@ -429,18 +463,89 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
 
     @Override
     public void write(RowBatch batch) {
-        // do deletes first to avoid violating constraint of unique child name in parent
-        // when replacing a complex list element
-        if (!batch.deletes.isEmpty()) {
-            writeDeletes(batch.deletes);
+        int count = batch.deletes.size() + batch.creates.size() + batch.updates.size();
+        long start = System.nanoTime();
+        // the statements are shared by all the rows of the batch
+        writeStatements = new HashMap<>();
+        try {
+            // do deletes first to avoid violating constraint of unique child name in parent
+            // when replacing a complex list element
+            if (!batch.deletes.isEmpty()) {
+                writeDeletes(batch.deletes);
+            }
+            // batch.deletesDependent not executed
+            if (!batch.creates.isEmpty()) {
+                writeCreates(batch.creates);
+            }
+            if (!batch.updates.isEmpty()) {
+                writeUpdates(batch.updates);
+            }
+        } finally {
+            closeWriteStatements();
+        }
+        long elapsed = System.nanoTime() - start;
+        writeTimer.update(elapsed, TimeUnit.NANOSECONDS);
+        writeRowsMeter.mark(count);
+        logger.logWriteRate(count, elapsed);
+    }
+
+    /**
+     * A prepared statement for a write, which is closed at the end of the {@link #write} if it is shared with the
+     * other rows of the write.
+     *
+     * @since 11.1
+     */
+    protected static class WriteStatement implements AutoCloseable {
+
+        protected final PreparedStatement ps;
+
+        protected final boolean shared;
+
+        protected WriteStatement(PreparedStatement ps, boolean shared) {
+            this.ps = ps;
+            this.shared = shared;
         }
-        // batch.deletesDependent not executed
-        if (!batch.creates.isEmpty()) {
-            writeCreates(batch.creates);
+
+        @Override
+        public void close() throws SQLException {
+            if (!shared) {
+                ps.close();
+            }
         }
-        if (!batch.updates.isEmpty()) {
-            writeUpdates(batch.updates);
+    }
+
+    /**
+     * Prepares a statement for a write, or reuses the one already prepared with the same SQL during the current
+     * {@link #write}.
+     *
+     * @since 11.1
+     */
+    protected WriteStatement prepareWriteStatement(String sql) throws SQLException {
+        if (writeStatements == null) {
+            // not within a write
+            return new WriteStatement(connection.prepareStatement(sql), false);
+        }
+        PreparedStatement ps = writeStatements.get(sql);
+        if (ps == null) {
+            ps = connection.prepareStatement(sql);
+            writeStatements.put(sql, ps);
+            if (countExecutes) {
+                writePrepareCount++;
+            }
         }
+        return new WriteStatement(ps, true);
+    }
+
+    /** @since 11.1 */
+    protected void closeWriteStatements() {
+        for (PreparedStatement ps : writeStatements.values()) {
+            try {
+                ps.close();
+            } catch (SQLException e) {
+                logger.error("Could not close statement: " + ps, e);
+            }
+        }
+        writeStatements = null;
     }
 
     protected void writeCreates(List<Row> creates) {
@@ -517,7 +622,8 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         boolean batched = supportsBatchUpdates && rows.size() > 1;
         String loggedSql = batched ? sql + " -- BATCHED" : sql;
         List<Column> columns = sqlInfo.getInsertColumns(tableName);
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+        try (WriteStatement ws = prepareWriteStatement(sql)) {
+            PreparedStatement ps = ws.ps;
             int batch = 0;
             for (Iterator<Row> rowIt = rows.iterator(); rowIt.hasNext();) {
                 Row row = rowIt.next();
@@ -563,8 +669,8 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         String sql = sqlInfo.getInsertSql(tableName);
         List<Column> columns = sqlInfo.getInsertColumns(tableName);
         CollectionIO io = getCollectionIO(tableName);
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            io.executeInserts(ps, rowus, columns, supportsBatchUpdates, sql, this);
+        try (WriteStatement ws = prepareWriteStatement(sql)) {
+            io.executeInserts(ws.ps, rowus, columns, supportsBatchUpdates, sql, this);
         } catch (SQLException e) {
             checkConcurrentUpdate(e);
             throw new NuxeoException("Could not insert: " + sql, e);
@@ -592,7 +698,8 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
             boolean batched = supportsBatchUpdates && rowUpdates.size() > 1
                     && (dialect.supportsBatchUpdateCount() || !changeTokenEnabled);
             String loggedSql = batched ? update.sql + " -- BATCHED" : update.sql;
-            try (PreparedStatement ps = connection.prepareStatement(update.sql)) {
+            try (WriteStatement ws = prepareWriteStatement(update.sql)) {
+                PreparedStatement ps = ws.ps;
                 int batch = 0;
                 for (Iterator<RowUpdate> rowIt = rowUpdates.iterator(); rowIt.hasNext();) {
                     RowUpdate rowu = rowIt.next();
@@ -627,10 +734,12 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
                             int[] counts = ps.executeBatch();
                             countExecute();
                             if (changeTokenEnabled && hasConditions) {
+                                // index of the first row of this batch
+                                int offset = batch - counts.length;
                                 for (int j = 0; j < counts.length; j++) {
                                     int count = counts[j];
                                     if (count != Statement.SUCCESS_NO_INFO && count != 1) {
-                                        Serializable id = rowUpdates.get(j).row.id;
+                                        Serializable id = rowUpdates.get(offset + j).row.id;
                                         logger.log("  -> CONCURRENT UPDATE: " + id);
                                         throw new ConcurrentUpdateException(id.toString());
                                     }
@@ -33,6 +33,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.IntPredicate;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.CharUtils;
@@ -779,6 +780,461 @@ public abstract class ExpressionEvaluator {
      */
     public abstract Boolean walkMixinTypes(List<String> mixins, boolean include);
 
+    /*
+     * ----- compilation -----
+     */
+
+    /**
+     * An operand compiled once by {@link #compileExpression}, and evaluated many times against the current context
+     * state.
+     *
+     * @since 11.1
+     */
+    @FunctionalInterface
+    public interface CompiledOperand {
+
+        Object evaluate();
+    }
+
+    /**
+     * Compiles an expression into a tree of {@link CompiledOperand}s.
+     * <p>
+     * The evaluation gives the same result as {@link #walkExpression}, but everything that doesn't depend on the
+     * context state (operator dispatch, literals, LIKE patterns, path resolution) is done once at compilation time.
+     * As references are resolved by {@link #compileReference} and not in walk order, boolean operators are
+     * short-circuited.
+     *
+     * @since 11.1
+     */
+    public CompiledOperand compileExpression(Expression expr) {
+        Operator op = expr.operator;
+        Operand lvalue = expr.lvalue;
+        Operand rvalue = expr.rvalue;
+        Reference ref = lvalue instanceof Reference ? (Reference) lvalue : null;
+        String name = ref != null ? ref.name : null;
+        String cast = ref != null ? ref.cast : null;
+        if (DATE_CAST.equals(cast)) {
+            checkDateLiteralForCast(rvalue, name);
+        }
+        if (op == Operator.STARTSWITH) {
+            return compileStartsWith(lvalue, rvalue);
+        } else if (NXQL.ECM_PATH.equals(name)) {
+            return compileEcmPath(op, rvalue);
+        } else if (NXQL.ECM_ANCESTORID.equals(name)) {
+            return compileAncestorId(op, rvalue);
+        } else if (NXQL.ECM_ISTRASHED.equals(name)) {
+            return compileIsTrashed(op, rvalue);
+        } else if (name != null && name.startsWith(NXQL.ECM_FULLTEXT) && !NXQL.ECM_FULLTEXT_JOBID.equals(name)) {
+            return compileEcmFulltext(name, op, rvalue);
+        } else if (op == Operator.SUM) {
+            throw new UnsupportedOperationException("SUM");
+        } else if (op == Operator.SUB) {
+            throw new UnsupportedOperationException("SUB");
+        } else if (op == Operator.MUL) {
+            throw new UnsupportedOperationException("MUL");
+        } else if (op == Operator.DIV) {
+            throw new UnsupportedOperationException("DIV");
+        } else if (op == Operator.LT) {
+            return compileCmp(lvalue, rvalue, cmp -> cmp < 0);
+        } else if (op == Operator.GT) {
+            return compileCmp(lvalue, rvalue, cmp -> cmp > 0);
+        } else if (op == Operator.EQ) {
+            return compileEq(lvalue, rvalue);
+        } else if (op == Operator.NOTEQ) {
+            return compileNotEq(lvalue, rvalue);
+        } else if (op == Operator.LTEQ) {
+            return compileCmp(lvalue, rvalue, cmp -> cmp <= 0);
+        } else if (op == Operator.GTEQ) {
+            return compileCmp(lvalue, rvalue, cmp -> cmp >= 0);
+        } else if (op == Operator.AND || op == Operator.OR) {
+            List<Operand> operands;
+            if (expr instanceof MultiExpression) {
+                operands = new ArrayList<>(((MultiExpression) expr).predicates);
+            } else {
+                operands = Arrays.asList(lvalue, rvalue);
+            }
+            return compileAndOr(operands, op == Operator.AND);
+        } else if (op == Operator.NOT) {
+            CompiledOperand value = compileOperand(lvalue);
+            return () -> not(bool(value.evaluate()));
+        } else if (op == Operator.LIKE) {
+            return compileLike(lvalue, rvalue, true, false);
+        } else if (op == Operator.ILIKE) {
+            return compileLike(lvalue, rvalue, true, true);
+        } else if (op == Operator.NOTLIKE) {
+            return compileLike(lvalue, rvalue, false, false);
+        } else if (op == Operator.NOTILIKE) {
+            return compileLike(lvalue, rvalue, false, true);
+        } else if (op == Operator.IN) {
+            return compileIn(lvalue, rvalue, true);
+        } else if (op == Operator.NOTIN) {
+            return compileIn(lvalue, rvalue, false);
+        } else if (op == Operator.ISNULL) {
+            CompiledOperand value = compileOperand(lvalue);
+            return () -> Boolean.valueOf(value.evaluate() == null);
+        } else if (op == Operator.ISNOTNULL) {
+            CompiledOperand value = compileOperand(lvalue);
+            return () -> Boolean.valueOf(value.evaluate() != null);
+        } else if (op == Operator.BETWEEN) {
+            return compileBetween(lvalue, rvalue, true);
+        } else if (op == Operator.NOTBETWEEN) {
+            return compileBetween(lvalue, rvalue, false);
+        } else {
+            throw new QueryParseException("Unknown operator: " + op);
+        }
+    }
+
+    protected CompiledOperand compileEcmPath(Operator op, Operand rvalue) {
+        if (op != Operator.EQ && op != Operator.NOTEQ) {
+            throw new QueryParseException(NXQL.ECM_PATH + " requires = or <> operator");
+        }
+        if (!(rvalue instanceof StringLiteral)) {
+            throw new QueryParseException(NXQL.ECM_PATH + " requires literal path as right argument");
+        }
+        String path = ((StringLiteral) rvalue).value;
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        String id = pathResolver.getIdForPath(path);
+        CompiledOperand right = compileReference(new Reference(NXQL.ECM_UUID));
+        if (id == null) {
+            return () -> FALSE;
+        }
+        boolean positive = op == Operator.EQ;
+        return () -> {
+            Boolean eq = eq(id, right.evaluate());
+            return positive ? eq : not(eq);
+        };
+    }
+
+    protected CompiledOperand compileAncestorId(Operator op, Operand rvalue) {
+        if (op != Operator.EQ && op != Operator.NOTEQ) {
+            throw new QueryParseException(NXQL.ECM_ANCESTORID + " requires = or <> operator");
+        }
+        if (!(rvalue instanceof StringLiteral)) {
+            throw new QueryParseException(NXQL.ECM_ANCESTORID + " requires literal id as right argument");
+        }
+        String ancestorId = ((StringLiteral) rvalue).value;
+        CompiledOperand ancestorIds = compileReference(new Reference(NXQL_ECM_ANCESTOR_IDS));
+        boolean eq = op == Operator.EQ;
+        return () -> Boolean.valueOf(hasAncestor((Object[]) ancestorIds.evaluate(), ancestorId) == eq);
+    }
+
+    protected boolean hasAncestor(Object[] ancestorIds, String ancestorId) {
+        if (ancestorIds == null || ancestorId == null) {
+            // placeless or no such ancestor
+            return false;
+        }
+        for (Object id : ancestorIds) {
+            if (ancestorId.equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected CompiledOperand compileEcmFulltext(String name, Operator op, Operand rvalue) {
+        if (op != Operator.EQ && op != Operator.LIKE) {
+            throw new QueryParseException(NXQL.ECM_FULLTEXT + " requires = or LIKE operator");
+        }
+        if (!(rvalue instanceof StringLiteral)) {
+            throw new QueryParseException(NXQL.ECM_FULLTEXT + " requires literal string as right argument");
+        }
+        if (fulltextSearchDisabled) {
+            throw new QueryParseException("Fulltext search disabled by configuration");
+        }
+        String query = ((StringLiteral) rvalue).value;
+        if (name.equals(NXQL.ECM_FULLTEXT)) {
+            // standard fulltext query
+            hasFulltext = true;
+            CompiledOperand simple = compileReference(new Reference(NXQL_ECM_FULLTEXT_SIMPLE));
+            CompiledOperand binary = compileReference(new Reference(NXQL_ECM_FULLTEXT_BINARY));
+            return () -> fulltext((String) simple.evaluate(), (String) binary.evaluate(), query);
+        } else {
+            // secondary index match with explicit field
+            // do a regexp on the field
+            if (name.charAt(NXQL.ECM_FULLTEXT.length()) != '.') {
+                throw new QueryParseException(name + " has incorrect syntax for a secondary fulltext index");
+            }
+            String prop = name.substring(NXQL.ECM_FULLTEXT.length() + 1);
+            String ft = query.replace(" ", "%");
+            return compileLike(new Reference(prop), new StringLiteral(ft), true, true);
+        }
+    }
+
+    protected CompiledOperand compileIsTrashed(Operator op, Operand rvalue) {
+        if (op != Operator.EQ && op != Operator.NOTEQ) {
+            throw new QueryParseException(NXQL.ECM_ISTRASHED + " requires = or <> operator");
+        }
+        TrashService trashService = Framework.getService(TrashService.class);
+        if (trashService.hasFeature(TRASHED_STATE_IS_DEDUCED_FROM_LIFECYCLE)) {
+            return compileIsTrashed(new Reference(NXQL.ECM_LIFECYCLESTATE), op, rvalue,
+                    new StringLiteral(LifeCycleConstants.DELETED_STATE));
+        } else if (trashService.hasFeature(TRASHED_STATE_IN_MIGRATION)) {
+            CompiledOperand lifeCycleTrashed = compileIsTrashed(new Reference(NXQL.ECM_LIFECYCLESTATE), op, rvalue,
+                    new StringLiteral(LifeCycleConstants.DELETED_STATE));
+            CompiledOperand propertyTrashed = compileIsTrashed(new Reference(NXQL.ECM_ISTRASHED), op, rvalue,
+                    new IntegerLiteral(1L));
+            return () -> or((Boolean) lifeCycleTrashed.evaluate(), (Boolean) propertyTrashed.evaluate());
+        } else if (trashService.hasFeature(TRASHED_STATE_IS_DEDICATED_PROPERTY)) {
+            return compileIsTrashed(new Reference(NXQL.ECM_ISTRASHED), op, rvalue, new IntegerLiteral(1L));
+        } else {
+            throw new UnsupportedOperationException("TrashService is in an unknown state");
+        }
+    }
+
+    protected CompiledOperand compileIsTrashed(Reference ref, Operator op, Operand initialRvalue,
+            Literal deletedRvalue) {
+        long v;
+        if (!(initialRvalue instanceof IntegerLiteral)
+                || ((v = ((IntegerLiteral) initialRvalue).value) != 0 && v != 1)) {
+            throw new QueryParseException(NXQL.ECM_ISTRASHED + " requires literal 0 or 1 as right argument");
+        }
+        boolean equalsDeleted = op == Operator.EQ ^ v == 0;
+        if (equalsDeleted) {
+            return compileEq(ref, deletedRvalue);
+        } else {
+            return compileNotEq(ref, deletedRvalue);
+        }
+    }
+
+    // ternary logic, see and() and or(): a non-TRUE value is final for AND, a TRUE value is final for OR
+    protected CompiledOperand compileAndOr(List<Operand> operands, boolean and) {
+        CompiledOperand[] compiled = new CompiledOperand[operands.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = compileOperand(operands.get(i));
+        }
+        if (and) {
+            return () -> {
+                Boolean res = TRUE;
+                for (CompiledOperand operand : compiled) {
+                    res = bool(operand.evaluate());
+                    if (!TRUE.equals(res)) {
+                        break;
+                    }
+                }
+                return res;
+            };
+        } else {
+            return () -> {
+                Boolean res = FALSE;
+                for (CompiledOperand operand : compiled) {
+                    res = bool(operand.evaluate());
+                    if (TRUE.equals(res)) {
+                        break;
+                    }
+                }
+                return res;
+            };
+        }
+    }
+
+    protected CompiledOperand compileEq(Operand lvalue, Operand rvalue) {
+        if (isMixinTypes(lvalue)) {
+            Object right = walkOperand(rvalue);
+            if (!(right instanceof String)) {
+                throw new QueryParseException("Invalid EQ rhs: " + rvalue);
+            }
+            return compileMixinTypes(Collections.singletonList((String) right), true);
+        }
+        CompiledOperand left = compileOperand(lvalue);
+        CompiledOperand right = compileOperand(rvalue);
+        return () -> eqMaybeList(left.evaluate(), right.evaluate());
+    }
+
+    protected CompiledOperand compileNotEq(Operand lvalue, Operand rvalue) {
+        if (isMixinTypes(lvalue)) {
+            Object right = walkOperand(rvalue);
+            if (!(right instanceof String)) {
+                throw new QueryParseException("Invalid NE rhs: " + rvalue);
+            }
+            return compileMixinTypes(Collections.singletonList((String) right), false);
+        }
+        CompiledOperand eq = compileEq(lvalue, rvalue);
+        return () -> not((Boolean) eq.evaluate());
+    }
+
+    protected CompiledOperand compileCmp(Operand lvalue, Operand rvalue, IntPredicate test) {
+        CompiledOperand left = compileOperand(lvalue);
+        CompiledOperand right = compileOperand(rvalue);
+        return () -> {
+            Integer cmp = cmp(left.evaluate(), right.evaluate());
+            return cmp == null ? null : Boolean.valueOf(test.test(cmp.intValue()));
+        };
+    }
+
+    protected CompiledOperand compileBetween(Operand lvalue, Operand rvalue, boolean positive) {
+        LiteralList l = (LiteralList) rvalue;
+        Predicate va = new Predicate(lvalue, Operator.GTEQ, l.get(0));
+        Predicate vb = new Predicate(lvalue, Operator.LTEQ, l.get(1));
+        Predicate pred = new Predicate(va, Operator.AND, vb);
+        if (!positive) {
+            pred = new Predicate(pred, Operator.NOT, null);
+        }
+        return compileExpression(pred);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected CompiledOperand compileIn(Operand lvalue, Operand rvalue, boolean positive) {
+        if (!(rvalue instanceof LiteralList)) {
+            throw new QueryParseException("Invalid IN rhs: " + rvalue);
+        }
+        List<Object> right = walkLiteralList((LiteralList) rvalue);
+        if (isMixinTypes(lvalue)) {
+            return compileMixinTypes((List<String>) (List<?>) right, positive);
+        }
+        CompiledOperand left = compileOperand(lvalue);
+        if (right.contains(null)) {
+            return () -> {
+                Boolean in = inMaybeList(left.evaluate(), right);
+                return positive ? in : not(in);
+            };
+        }
+        Set<Object> set = new HashSet<>(right);
+        return () -> {
+            Boolean in = inMaybeSet(left.evaluate(), set);
+            return positive ? in : not(in);
+        };
+    }
+
+    protected CompiledOperand compileLike(Operand lvalue, Operand rvalue, boolean positive,
+            boolean caseInsensitive) {
+        Object right = walkOperand(rvalue);
+        if (!(right instanceof String)) {
+            throw new QueryParseException("Invalid LIKE rhs: " + rvalue);
+        }
+        String like = (String) right;
+        if (caseInsensitive) {
+            like = like.toLowerCase();
+        }
+        Pattern pattern = Pattern.compile(likeToRegex(like));
+        CompiledOperand left = compileOperand(lvalue);
+        return () -> likeMaybeList(left.evaluate(), pattern, positive, caseInsensitive);
+    }
+
+    protected CompiledOperand compileStartsWith(Operand lvalue, Operand rvalue) {
+        if (!(lvalue instanceof Reference)) {
+            throw new QueryParseException("Invalid STARTSWITH query, left hand side must be a property: " + lvalue);
+        }
+        String name = ((Reference) lvalue).name;
+        if (!(rvalue instanceof StringLiteral)) {
+            throw new QueryParseException(
+                    "Invalid STARTSWITH query, right hand side must be a literal path: " + rvalue);
+        }
+        String path = ((StringLiteral) rvalue).value;
+        if (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        if (NXQL.ECM_PATH.equals(name)) {
+            String ancestorId = pathResolver.getIdForPath(path);
+            CompiledOperand ancestorIds = compileReference(new Reference(NXQL_ECM_ANCESTOR_IDS));
+            return () -> Boolean.valueOf(hasAncestor((Object[]) ancestorIds.evaluate(), ancestorId));
+        } else {
+            String exact = path;
+            // prefix match TODO escape % chars
+            Pattern pattern = Pattern.compile(likeToRegex(path + "/%"));
+            CompiledOperand left = compileReference((Reference) lvalue);
+            return () -> {
+                Object value = left.evaluate();
+                // exact match
+                if (TRUE.equals(eqMaybeList(value, exact))) {
+                    return TRUE;
+                }
+                return likeMaybeList(value, pattern, true, false);
+            };
+        }
+    }
+
+    /**
+     * Compiles an operand, literals are evaluated once.
+     *
+     * @since 11.1
+     */
+    public CompiledOperand compileOperand(Operand op) {
+        if (op instanceof Literal) {
+            Object value = walkLiteral((Literal) op);
+            return () -> value;
+        } else if (op instanceof LiteralList) {
+            List<Object> value = walkLiteralList((LiteralList) op);
+            return () -> value;
+        } else if (op instanceof Function) {
+            Function func = (Function) op;
+            return () -> walkFunction(func);
+        } else if (op instanceof Expression) {
+            return compileExpression((Expression) op);
+        } else if (op instanceof Reference) {
+            return compileReference((Reference) op);
+        } else {
+            throw new QueryParseException("Unknown operand: " + op);
+        }
+    }
+
+    /**
+     * Compiles a reference. The default implementation walks the reference at each evaluation, subclasses should
+     * resolve it once.
+     *
+     * @since 11.1
+     */
+    public CompiledOperand compileReference(Reference ref) {
+        return () -> walkReference(ref);
+    }
+
+    /**
+     * Compiles a match of the mixin types. The default implementation walks the mixin types at each evaluation.
+     *
+     * @see #walkMixinTypes
+     * @since 11.1
+     */
+    public CompiledOperand compileMixinTypes(List<String> mixins, boolean include) {
+        return () -> walkMixinTypes(mixins, include);
+    }
+
+    // ternary logic, with a precompiled pattern
+    protected Boolean like(Object left, Pattern pattern, boolean caseInsensitive) {
+        if (left == null) {
+            return null;
+        }
+        if (!(left instanceof String)) {
+            throw new QueryParseException("Invalid LIKE lhs: " + left);
+        }
+        String value = (String) left;
+        if (caseInsensitive) {
+            value = value.toLowerCase();
+        }
+        return Boolean.valueOf(pattern.matcher(value).matches());
+    }
+
+    protected Boolean likeMaybeList(Object left, Pattern pattern, boolean positive, boolean caseInsensitive) {
+        if (left instanceof Object[]) {
+            for (Object l : ((Object[]) left)) {
+                Boolean like = like(l, pattern, caseInsensitive);
+                if (TRUE.equals(like)) {
+                    return Boolean.valueOf(positive);
+                }
+            }
+            return Boolean.valueOf(!positive);
+        } else {
+            Boolean like = like(left, pattern, caseInsensitive);
+            return positive ? like : not(like);
+        }
+    }
+
+    // same as inMaybeList for a right list without null
+    protected Boolean inMaybeSet(Object left, Set<Object> right) {
+        if (left instanceof Object[]) {
+            for (Object l : ((Object[]) left)) {
+                if (l != null && right.contains(l)) {
+                    return TRUE;
+                }
+            }
+            return FALSE;
+        } else if (left == null) {
+            return null;
+        } else {
+            return Boolean.valueOf(right.contains(left));
+        }
+    }
+
     /*
      * ----- simple parsing, don't try to be exhaustive -----
      */
@@ -29,6 +29,7 @@ import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
 import static org.nuxeo.ecm.core.api.event.DocumentEventTypes.BEFORE_DOC_UPDATE;
 import static org.nuxeo.ecm.core.api.event.DocumentEventTypes.INCREMENT_BEFORE_UPDATE;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_CHANGE_TOKEN;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -123,10 +124,18 @@ import org.nuxeo.ecm.core.schema.SchemaManager;
 import org.nuxeo.ecm.core.schema.SchemaManagerImpl;
 import org.nuxeo.ecm.core.schema.types.Schema;
 import org.nuxeo.ecm.core.security.RetentionExpiredFinderListener;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.StateHelper;
+import org.nuxeo.ecm.core.storage.dbs.DBSDocumentState;
+import org.nuxeo.ecm.core.storage.dbs.DBSRepository;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.StateUpdate;
 import org.nuxeo.ecm.core.storage.sql.listeners.DummyBeforeModificationListener;
 import org.nuxeo.ecm.core.test.CoreFeature;
 import org.nuxeo.ecm.core.test.annotations.Granularity;
 import org.nuxeo.ecm.core.test.annotations.RepositoryConfig;
+import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.ConditionalIgnoreRule;
 import org.nuxeo.runtime.test.runner.ConditionalIgnoreRule.IgnoreWindows;
 import org.nuxeo.runtime.test.runner.Deploy;
@@ -1047,6 +1056,27 @@ public class TestSQLRepositoryAPI {
         assertEquals("Folder", doc.getType());
     }
 
+    @Test
+    public void testGetDocumentsCollection() {
+        DocumentModel doc1 = session.createDocument(session.createDocumentModel("/", "doc1", "File"));
+        DocumentModel doc2 = session.createDocument(session.createDocumentModel("/", "doc2", "File"));
+        DocumentModel doc3 = session.createDocument(session.createDocumentModel("/", "doc3", "Folder"));
+        session.save();
+
+        List<DocumentRef> refs = Arrays.asList(doc3.getRef(), new IdRef("nosuchid"), new PathRef("/doc1"),
+                new PathRef("/nosuchpath"), doc2.getRef());
+        DocumentModelList docs = session.getDocuments(refs);
+        assertEquals(3, docs.size());
+        assertEquals(doc3.getId(), docs.get(0).getId());
+        assertEquals(doc1.getId(), docs.get(1).getId());
+        assertEquals(doc2.getId(), docs.get(2).getId());
+
+        // with explicit prefetch
+        docs = session.getDocuments(Arrays.asList(doc1.getRef()), "dublincore");
+        assertEquals(1, docs.size());
+        assertEquals("doc1", docs.get(0).getName());
+    }
+
     // TODO NXP-2514: fix this test.
     @Test
     @Ignore
@@ -4247,6 +4277,37 @@ public class TestSQLRepositoryAPI {
         }
     }
 
+    @Test
+    public void testRollbackMove() {
+        DocumentModel folder1 = session.createDocumentModel("/", "folder1", "Folder");
+        folder1 = session.createDocument(folder1);
+        DocumentModel folder2 = session.createDocumentModel("/", "folder2", "Folder");
+        folder2 = session.createDocument(folder2);
+        DocumentModel sub = session.createDocumentModel("/folder1", "sub", "Folder");
+        sub = session.createDocument(sub);
+        DocumentModel file = session.createDocumentModel("/folder1/sub", "file", "File");
+        file = session.createDocument(file);
+        session.save();
+        nextTransaction();
+
+        // move the subtree
+        session.move(sub.getRef(), folder2.getRef(), null);
+        session.save();
+        assertEquals("/folder2/sub/file", session.getDocument(file.getRef()).getPathAsString());
+        String nxql = "SELECT * FROM Document WHERE ecm:ancestorId = '%s'";
+        assertEquals(2, session.query(String.format(nxql, folder2.getId())).size());
+        assertEquals(0, session.query(String.format(nxql, folder1.getId())).size());
+
+        // abort the transaction
+        TransactionHelper.setTransactionRollbackOnly();
+        nextTransaction();
+
+        // check that the ancestors of the subtree are restored
+        assertEquals("/folder1/sub/file", session.getDocument(file.getRef()).getPathAsString());
+        assertEquals(2, session.query(String.format(nxql, folder1.getId())).size());
+        assertEquals(0, session.query(String.format(nxql, folder2.getId())).size());
+    }
+
     @Test
     @ConditionalIgnoreRule.Ignore(condition = IgnoreWindows.class, cause = "Not enough time granularity")
     public void testBinaryGC() throws Exception {
@@ -4795,6 +4856,52 @@ public class TestSQLRepositoryAPI {
         assertNotEquals(token2, token2b);
     }
 
+    @Test
+    public void testChangeTokenBatchedConcurrentUpdate() {
+        assumeTrue("batched updates are only done by DBS", isDBS());
+        assumeTrue("test only makes sense for real change tokens", isChangeTokenEnabled());
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "doc" + i, "File");
+            doc.setPropertyValue("dc:title", "Doc " + i);
+            ids.add(session.createDocument(doc).getId());
+        }
+        session.save();
+        nextTransaction();
+
+        RepositoryService repositoryService = Framework.getService(RepositoryService.class);
+        DBSRepository repository = (DBSRepository) repositoryService.getRepository(session.getRepositoryName());
+        List<State> before = repository.readStates(ids);
+        List<StateUpdate> updates = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            State state = before.get(i);
+            if (i == 1) {
+                // this document has been changed since it was read
+                state = StateHelper.deepCopy(state);
+                state.put(KEY_CHANGE_TOKEN, Long.valueOf(((Long) state.get(KEY_CHANGE_TOKEN)).longValue() - 1));
+            }
+            StateDiff diff = new StateDiff();
+            diff.put("dc:title", "Doc " + i + " Changed");
+            updates.add(new StateUpdate(ids.get(i), diff, new ChangeTokenUpdater(new DBSDocumentState(state))));
+        }
+        try {
+            repository.updateStates(updates);
+            fail("should throw ConcurrentUpdateException");
+        } catch (ConcurrentUpdateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(ids.get(1)));
+        }
+
+        List<State> after = repository.readStates(ids);
+        assertEquals("Doc 1", after.get(1).get("dc:title"));
+        assertEquals(before.get(1).get(KEY_CHANGE_TOKEN), after.get(1).get(KEY_CHANGE_TOKEN));
+        if (coreFeature.getStorageConfiguration().isDBSMem()) {
+            // the change tokens are all checked before anything is written
+            for (int i = 0; i < ids.size(); i++) {
+                assertTrue(after.get(i).toString(), StateHelper.equalsStrict(before.get(i), after.get(i)));
+            }
+        }
+    }
+
     // query providers create "search" doc types to collect results
     @Test
     public void testChangeTokenOnFakeDocument() {
@@ -906,6 +906,46 @@ public class TestSQLRepositorySecurity {
         assertEquals(nbDocs, numberOfReadableDocuments(secondUser));
     }
 
+    @Test
+    public void testReadAclWithNestedAcl() {
+        DocumentModel rootFolder = session.createDocumentModel("/", "folder", "Folder");
+        rootFolder = session.createDocument(rootFolder);
+        DocumentModel sub = session.createDocumentModel("/folder", "sub", "Folder");
+        sub = session.createDocument(sub);
+        DocumentModel other = session.createDocumentModel("/folder", "other", "Folder");
+        other = session.createDocument(other);
+        for (int i = 0; i < 3; i++) {
+            session.createDocument(session.createDocumentModel("/folder/sub", "doc" + i, "File"));
+            session.createDocument(session.createDocumentModel("/folder/other", "doc" + i, "File"));
+        }
+        // sub blocks inheritance and only grants access to the second user
+        ACP subAcp = new ACPImpl();
+        subAcp.addACE(ACL.LOCAL_ACL, new ACE("minnie", READ, true));
+        subAcp.addACE(ACL.LOCAL_ACL, ACE.BLOCK);
+        sub.setACP(subAcp, true);
+        session.save();
+
+        // grant access to the first user on the root folder
+        ACP acp = new ACPImpl();
+        acp.addACE(ACL.LOCAL_ACL, new ACE("mickey", READ, true));
+        rootFolder.setACP(acp, true);
+        session.save();
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+
+        // the first user sees the root folder and the other subtree, the second user only the sub subtree
+        assertEquals(1 + 1 + 3, numberOfReadableDocuments("mickey"));
+        assertEquals(1 + 3, numberOfReadableDocuments("minnie"));
+
+        // moving a document from a subtree to the other updates its Read ACL
+        session.move(new PathRef("/folder/other/doc0"), sub.getRef(), "moved");
+        session.save();
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        assertEquals(1 + 1 + 2, numberOfReadableDocuments("mickey"));
+        assertEquals(1 + 4, numberOfReadableDocuments("minnie"));
+    }
+
     protected int numberOfReadableDocuments(String username) {
         try (CloseableCoreSession userSession = openSessionAs(username)) {
             String nxql = "SELECT ecm:uuid FROM Document";
@@ -26,6 +26,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
@@ -34,6 +35,7 @@ import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -43,9 +45,11 @@ import static org.nuxeo.ecm.core.io.download.DownloadService.REQUEST_ATTR_DOWNLO
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Serializable;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.ZonedDateTime;
@@ -59,6 +63,7 @@ import java.util.List;
 import java.util.Map;
 
 import javax.inject.Inject;
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
@@ -67,6 +72,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.CloseableCoreSession;
@@ -114,6 +120,35 @@ public class TestDownloadService {
     @Inject
     protected DownloadService downloadService;
 
+    @Test
+    public void testAsyncWriteListenerTruncatedFile() throws Exception {
+        Path file = Files.createTempFile("nxtest", ".tmp");
+        try {
+            Files.write(file, "hello".getBytes());
+            AsyncContext asyncContext = mock(AsyncContext.class);
+            ServletOutputStream sos = new DummyServletOutputStream() {
+                @Override
+                public void write(int b) {
+                }
+            };
+            try (FileChannel channel = FileChannel.open(file)) {
+                // the file is shorter than announced
+                WriteListener listener = new DownloadServiceImpl.FileChannelWriteListener(asyncContext, sos, channel,
+                        0, 11);
+                try {
+                    listener.onWritePossible();
+                    fail("should throw EOFException");
+                } catch (EOFException e) {
+                    // the container then notifies the listener
+                    listener.onError(e);
+                }
+            }
+            verify(asyncContext, times(1)).complete();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     @Test
     public void testBasicDownloadGet() throws Exception {
         doTestBasicDownload(false);
@@ -823,6 +858,135 @@ public class TestDownloadService {
         }
     }
 
+    @Test
+    public void testDownloadFileBlobByteRange() throws IOException {
+        Blob blob = new FileBlob(new ByteArrayInputStream("Hello World".getBytes("UTF-8")));
+        blob.setFilename("myFile.txt");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getMethod()).thenReturn("GET");
+        when(req.getHeader("Range")).thenReturn("bytes=6-");
+        HttpServletResponse resp = mock(HttpServletResponse.class);
+        ServletOutputStream sos = new DummyServletOutputStream() {
+            @Override
+            public void write(int b) {
+                out.write(b);
+            }
+        };
+        when(resp.getOutputStream()).thenReturn(sos);
+
+        DownloadContext context = DownloadContext.builder(req, resp).blob(blob).build();
+        downloadService.downloadBlob(context);
+
+        verify(resp).setHeader(eq("Content-Range"), eq("bytes 6-10/11"));
+        verify(resp).setStatus(eq(HttpServletResponse.SC_PARTIAL_CONTENT));
+        verify(resp).setContentLengthLong(eq(5L));
+        assertEquals("World", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testDownloadFileBlobWithoutSendfile() throws IOException {
+        // a non-managed blob may hold a temporary file, it is streamed and never handed to the container
+        Blob blob = new FileBlob(new ByteArrayInputStream("Hello World".getBytes("UTF-8")));
+        blob.setFilename("myFile.txt");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getMethod()).thenReturn("GET");
+        when(req.getHeader("Range")).thenReturn("bytes=0-4");
+        when(req.getAttribute(DownloadServiceImpl.SENDFILE_SUPPORT_ATTR)).thenReturn(TRUE);
+        HttpServletResponse resp = mock(HttpServletResponse.class);
+        ServletOutputStream sos = new DummyServletOutputStream() {
+            @Override
+            public void write(int b) {
+                out.write(b);
+            }
+        };
+        when(resp.getOutputStream()).thenReturn(sos);
+
+        DownloadContext context = DownloadContext.builder(req, resp).blob(blob).build();
+        downloadService.downloadBlob(context);
+
+        verify(req, never()).setAttribute(eq(DownloadServiceImpl.SENDFILE_FILENAME_ATTR), any());
+        assertEquals("Hello", out.toString("UTF-8"));
+    }
+
+    @Test
+    @Deploy("org.nuxeo.ecm.core.api.tests:OSGI-INF/test-default-blob-provider.xml")
+    public void testDownloadManagedBlobWithSendfile() throws IOException {
+        DefaultBinaryManager binaryManager = new DefaultBinaryManager();
+        binaryManager.initialize("repo", Collections.emptyMap());
+        Blob source = new FileBlob(new ByteArrayInputStream("Hello World".getBytes("UTF-8")));
+        Binary binary = binaryManager.getBinary(source);
+        String digest = binary.getDigest();
+        Blob blob = new BinaryBlob(binary, digest, "myFile.txt", "text/plain", "utf-8", digest,
+                binary.getFile().length());
+
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getMethod()).thenReturn("GET");
+        when(req.getHeader("Range")).thenReturn("bytes=0-4");
+        when(req.getAttribute(DownloadServiceImpl.SENDFILE_SUPPORT_ATTR)).thenReturn(TRUE);
+        HttpServletResponse resp = mock(HttpServletResponse.class);
+
+        DownloadContext context = DownloadContext.builder(req, resp).blob(blob).build();
+        downloadService.downloadBlob(context);
+
+        // the container sends the file owned by the blob store
+        verify(req).setAttribute(DownloadServiceImpl.SENDFILE_FILENAME_ATTR, binary.getFile().getAbsolutePath());
+        verify(req).setAttribute(DownloadServiceImpl.SENDFILE_START_ATTR, Long.valueOf(0));
+        verify(req).setAttribute(DownloadServiceImpl.SENDFILE_END_ATTR, Long.valueOf(5));
+        verify(resp, never()).getOutputStream();
+    }
+
+    @Test
+    public void testDownloadMultipleByteRanges() throws IOException {
+        doTestDownloadMultipleByteRanges(Blobs.createBlob("Hello World"));
+        doTestDownloadMultipleByteRanges(new FileBlob(new ByteArrayInputStream("Hello World".getBytes("UTF-8"))));
+    }
+
+    protected void doTestDownloadMultipleByteRanges(Blob blob) throws IOException {
+        blob.setFilename("myFile.txt");
+        blob.setMimeType("text/plain");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getMethod()).thenReturn("GET");
+        when(req.getHeader("Range")).thenReturn("bytes=6-,0-4");
+        HttpServletResponse resp = mock(HttpServletResponse.class);
+        ServletOutputStream sos = new DummyServletOutputStream() {
+            @Override
+            public void write(int b) {
+                out.write(b);
+            }
+        };
+        when(resp.getOutputStream()).thenReturn(sos);
+
+        DownloadContext context = DownloadContext.builder(req, resp).blob(blob).build();
+        downloadService.downloadBlob(context);
+
+        ArgumentCaptor<String> contentType = ArgumentCaptor.forClass(String.class);
+        verify(resp).setContentType(contentType.capture());
+        assertTrue(contentType.getValue(), contentType.getValue().startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.getValue().substring("multipart/byteranges; boundary=".length());
+        verify(resp).setStatus(eq(HttpServletResponse.SC_PARTIAL_CONTENT));
+        verify(resp, never()).setHeader(eq("Content-Range"), any());
+
+        String expected = "--" + boundary + "\r\n" //
+                + "Content-Type: text/plain\r\n" //
+                + "Content-Range: bytes 0-4/11\r\n" //
+                + "\r\n" //
+                + "Hello\r\n" //
+                + "--" + boundary + "\r\n" //
+                + "Content-Type: text/plain\r\n" //
+                + "Content-Range: bytes 6-10/11\r\n" //
+                + "\r\n" //
+                + "World\r\n" //
+                + "--" + boundary + "--\r\n";
+        assertEquals(expected, out.toString("UTF-8"));
+        verify(resp).setContentLengthLong(eq((long) expected.length()));
+    }
+
     @Test
     @Deploy("org.nuxeo.ecm.core.api.tests:OSGI-INF/test-default-blob-provider.xml")
     public void testDownloadWithNginxAccel() throws IOException {
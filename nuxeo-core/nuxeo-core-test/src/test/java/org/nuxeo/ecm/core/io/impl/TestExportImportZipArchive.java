@@ -26,6 +26,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.Serializable;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -38,6 +39,7 @@ import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.api.PathRef;
 import org.nuxeo.ecm.core.event.EventService;
 import org.nuxeo.ecm.core.io.DocumentPipe;
 import org.nuxeo.ecm.core.io.DocumentReader;
@@ -47,6 +49,8 @@ import org.nuxeo.ecm.core.io.impl.plugins.DocumentModelWriter;
 import org.nuxeo.ecm.core.io.impl.plugins.DocumentTreeReader;
 import org.nuxeo.ecm.core.io.impl.plugins.NuxeoArchiveReader;
 import org.nuxeo.ecm.core.io.impl.plugins.NuxeoArchiveWriter;
+import org.nuxeo.ecm.core.io.impl.plugins.PagedDocumentTreeReader;
+import org.nuxeo.ecm.core.io.impl.plugins.StreamingNuxeoArchiveWriter;
 import org.nuxeo.ecm.core.schema.FacetDescriptor;
 import org.nuxeo.ecm.core.schema.SchemaManager;
 import org.nuxeo.ecm.core.schema.SchemaManagerImpl;
@@ -179,4 +183,72 @@ public class TestExportImportZipArchive {
         assertFalse(importedDocument.hasFacet("Invoice"));
     }
 
+    @Test
+    public void testStreamingExportAsZipAndReimport() throws Exception {
+        createDocs();
+        for (int i = 0; i < 5; i++) {
+            DocumentModel doc = session.createDocumentModel(workspace.getPathAsString(), "file" + i, "File");
+            Blob blob = Blobs.createBlob("content" + i);
+            blob.setFilename("blob" + i + ".txt");
+            doc.setPropertyValue("file:content", (Serializable) blob);
+            session.createDocument(doc);
+        }
+        session.save();
+
+        File archive = Framework.createTempFile("core-io-archive", "zip");
+
+        // small pages to check the children pagination
+        DocumentReader reader = new PagedDocumentTreeReader(session, workspace, false, 2);
+        DocumentWriter writer = new StreamingNuxeoArchiveWriter(archive);
+
+        DocumentPipe pipe = new DocumentPipeImpl(3);
+        pipe.setReader(reader);
+        pipe.setWriter(writer);
+        pipe.run();
+        writer.close();
+        reader.close();
+
+        // check the zip contents
+        int nbDocs = 0;
+        int nbBlobs = 0;
+        try (ZipInputStream zin = new ZipInputStream(new FileInputStream(archive))) {
+            ZipEntry entry = zin.getNextEntry();
+            while (entry != null) {
+                if (entry.getName().endsWith(ExportConstants.DOCUMENT_FILE)) {
+                    nbDocs++;
+                } else if (entry.getName().endsWith(".blob")) {
+                    nbBlobs++;
+                }
+                entry = zin.getNextEntry();
+            }
+        }
+        assertEquals(7, nbDocs);
+        assertEquals(6, nbBlobs);
+
+        // now wipe DB
+        Framework.getService(EventService.class).waitForAsyncCompletion();
+        session.removeDocument(workspace.getRef());
+        session.save();
+
+        // reimport
+        reader = new NuxeoArchiveReader(archive);
+        writer = new DocumentModelWriter(session, "/");
+        pipe = new DocumentPipeImpl(10);
+        pipe.setReader(reader);
+        pipe.setWriter(writer);
+        pipe.run();
+        archive.delete();
+
+        DocumentModel importedWS = session.getDocument(new PathRef("/ws1"));
+        assertEquals(workspace.getTitle(), importedWS.getTitle());
+        assertEquals(6, session.getChildren(importedWS.getRef()).size());
+        DocumentModel importedDocument = session.getDocument(new PathRef("/ws1/file"));
+        assertEquals("MyDoc", importedDocument.getPropertyValue("dc:title"));
+        assertEquals(XML_DATA, importedDocument.getPropertyValue("dc:description"));
+        assertEquals("dummyBlob.txt", ((Blob) importedDocument.getPropertyValue("file:content")).getFilename());
+        Blob blob = (Blob) session.getDocument(new PathRef("/ws1/file3")).getPropertyValue("file:content");
+        assertEquals("blob3.txt", blob.getFilename());
+        assertEquals("content3", blob.getString());
+    }
+
 }
@@ -20,8 +20,11 @@
 package org.nuxeo.ecm.core.io.marshallers.json.document;
 
 
+import static org.junit.Assert.assertEquals;
+import static org.nuxeo.ecm.core.io.marshallers.json.AbstractJsonWriter.APPLICATION_SMILE_TYPE;
 import static org.nuxeo.ecm.core.io.marshallers.json.document.DocumentPropertyJsonWriter.OMIT_PHANTOM_SECURED_PROPERTY;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Calendar;
 import java.util.Date;
@@ -39,6 +42,8 @@ import org.nuxeo.ecm.core.api.model.DeltaLong;
 import org.nuxeo.ecm.core.api.model.Property;
 import org.nuxeo.ecm.core.io.marshallers.json.AbstractJsonWriterTest;
 import org.nuxeo.ecm.core.io.marshallers.json.JsonAssert;
+import org.nuxeo.ecm.core.io.marshallers.json.JsonFactoryProvider;
+import org.nuxeo.ecm.core.io.registry.Writer;
 import org.nuxeo.ecm.core.io.registry.context.DepthValues;
 import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
 import org.nuxeo.ecm.core.io.registry.context.RenderingContext.CtxBuilder;
@@ -50,6 +55,9 @@ import org.nuxeo.ecm.core.test.CoreFeature;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 @Features(CoreFeature.class)
 @Deploy("org.nuxeo.ecm.core.io:OSGI-INF/doc-type-contrib.xml")
 public class DocumentModelJsonWriterTest extends AbstractJsonWriterTest.Local<DocumentModelJsonWriter, DocumentModel> {
@@ -554,4 +562,16 @@ public class DocumentModelJsonWriterTest extends AbstractJsonWriterTest.Local<Do
         json.properties(nbProperties);
     }
 
+    @Test
+    public void testSmile() throws Exception {
+        RenderingContext ctx = CtxBuilder.properties("*").get();
+        Writer<DocumentModel> writer = registry.getWriter(ctx, DocumentModel.class, APPLICATION_SMILE_TYPE);
+        assertEquals(DocumentModelJsonWriter.class, writer.getClass());
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        writer.write(document, DocumentModel.class, DocumentModel.class, APPLICATION_SMILE_TYPE, baos);
+        JsonNode smile = new ObjectMapper(JsonFactoryProvider.getSmile()).readTree(baos.toByteArray());
+        JsonNode json = new ObjectMapper().readTree(asJson(document, CtxBuilder.properties("*").get()));
+        assertEquals(json, smile);
+    }
+
 }
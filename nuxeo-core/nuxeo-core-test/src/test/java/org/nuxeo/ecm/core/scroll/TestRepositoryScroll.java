@@ -24,8 +24,14 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import javax.inject.Inject;
 
@@ -33,6 +39,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.scroll.Scroll;
 import org.nuxeo.ecm.core.api.scroll.ScrollRequest;
 import org.nuxeo.ecm.core.api.scroll.ScrollService;
@@ -123,6 +130,134 @@ public class TestRepositoryScroll {
         }
     }
 
+    @Test
+    public void testPartitioned() throws Exception {
+        String folderId = createADocument();
+        Set<String> expected = new HashSet<>();
+        expected.add(folderId);
+        for (int i = 0; i < 50; i++) {
+            DocumentModel doc = session.createDocumentModel("/myFolder", "doc" + i, "File");
+            expected.add(session.createDocument(doc).getId());
+        }
+        session.save();
+        txFeature.nextTransaction();
+
+        String nxql = "SELECT * FROM Document WHERE ecm:isVersion = 0 ORDER BY dc:title";
+        ScrollRequest request = DocumentScrollRequest.builder(nxql)
+                                                     .name(getScrollName())
+                                                     .username(USERNAME)
+                                                     .size(7)
+                                                     .partitions(4)
+                                                     .build();
+        List<String> ids = new ArrayList<>();
+        try (Scroll scroll = service.scroll(request)) {
+            assertTrue(scroll.toString(), scroll instanceof PartitionedScroll);
+            while (scroll.hasNext()) {
+                List<String> batch = scroll.next();
+                assertTrue(batch.size() <= 7);
+                ids.addAll(batch);
+            }
+        }
+        assertEquals(expected.size(), ids.size());
+        assertEquals(expected, new HashSet<>(ids));
+    }
+
+    @Test
+    public void testPartitionedInvalidQuery() {
+        String nxql = "foo,bar";
+        ScrollRequest request = DocumentScrollRequest.builder(nxql)
+                                                     .name(getScrollName())
+                                                     .username(USERNAME)
+                                                     .partitions(2)
+                                                     .build();
+        try (Scroll scroll = service.scroll(request)) {
+            scroll.hasNext();
+            fail("Expecting an NXQL parse execption");
+        } catch (QueryParseException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPartitionedSlowPartition() {
+        // the first page of the first partition takes longer than the scroll timeout
+        ScrollService slowService = new ScrollService() {
+            @Override
+            public Scroll scroll(ScrollRequest request) {
+                boolean slow = ((DocumentScrollRequest) request).getQuery().contains("ecm:uuid <");
+                return new Scroll() {
+                    protected boolean hasNext = true;
+
+                    @Override
+                    public void init(ScrollRequest request, Map<String, String> options) {
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        if (slow && hasNext) {
+                            try {
+                                Thread.sleep(1500);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                throw new NuxeoException(e);
+                            }
+                        }
+                        return hasNext;
+                    }
+
+                    @Override
+                    public List<String> next() {
+                        hasNext = false;
+                        return Arrays.asList(slow ? "slow" : "fast");
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+
+            @Override
+            public boolean exists(ScrollRequest request) {
+                return true;
+            }
+        };
+        ScrollRequest request = DocumentScrollRequest.builder("SELECT * FROM Document")
+                                                     .name(getScrollName())
+                                                     .username(USERNAME)
+                                                     .timeout(Duration.ofMillis(500))
+                                                     .partitions(2)
+                                                     .build();
+        Set<String> ids = new HashSet<>();
+        try (Scroll scroll = new PartitionedScroll(slowService)) {
+            scroll.init(request, null);
+            while (scroll.hasNext()) {
+                ids.addAll(scroll.next());
+            }
+        } catch (NuxeoException e) {
+            fail("A slow partition must not fail the scroll: " + e);
+        }
+        assertEquals(new HashSet<>(Arrays.asList("slow", "fast")), ids);
+    }
+
+    @Test
+    public void testPartitionQuery() {
+        assertEquals("SELECT * FROM Document WHERE ecm:uuid < '80000000-0000-0000-0000-000000000000'",
+                PartitionedScroll.getPartitionQuery("SELECT * FROM Document", 0, 2));
+        assertEquals("SELECT * FROM Document WHERE ecm:uuid >= '80000000-0000-0000-0000-000000000000'",
+                PartitionedScroll.getPartitionQuery("SELECT * FROM Document", 1, 2));
+        assertEquals("SELECT * FROM Document WHERE (dc:title = 'a where b' OR ecm:isProxy = 1)"
+                + " AND ecm:uuid >= '55555555-0000-0000-0000-000000000000'"
+                + " AND ecm:uuid < 'aaaaaaaa-0000-0000-0000-000000000000' ORDER BY dc:title",
+                PartitionedScroll.getPartitionQuery(
+                        "SELECT * FROM Document WHERE dc:title = 'a where b' OR ecm:isProxy = 1 ORDER BY dc:title", 1,
+                        3));
+        assertEquals("select * from Document WHERE (ecm:uuid IN (SELECT 'x')) AND ecm:uuid < "
+                + "'40000000-0000-0000-0000-000000000000' order  by dc:title",
+                PartitionedScroll.getPartitionQuery("select * from Document where ecm:uuid IN (SELECT 'x') order  by dc:title",
+                        0, 4));
+    }
+
     protected String createADocument() throws Exception {
         DocumentModel doc = session.createDocumentModel("/", "myFolder", "Folder");
         doc = session.createDocument(doc);
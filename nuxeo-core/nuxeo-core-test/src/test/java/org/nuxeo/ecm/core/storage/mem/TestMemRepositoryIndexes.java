@@ -0,0 +1,230 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.nuxeo.ecm.core.query.sql.NXQL.ECM_UUID;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.model.DeltaLong;
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.ACL;
+import org.nuxeo.ecm.core.api.security.ACP;
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.ecm.core.query.sql.model.Expression;
+import org.nuxeo.ecm.core.repository.RepositoryService;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.dbs.DBSExpressionEvaluator;
+import org.nuxeo.ecm.core.storage.mem.MemRepository.MemIndex;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * Checks that the indexes of the {@link MemRepository} stay consistent with its states through all the write paths,
+ * and that the queries restricted by the indexes return the same results as a scan of all the states.
+ * <p>
+ * The configured indexes are those of the Mem test repository.
+ *
+ * @since 11.1
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreFeature.class)
+@Deploy("org.nuxeo.ecm.core.test.tests:OSGI-INF/test-repo-core-types-contrib.xml")
+public class TestMemRepositoryIndexes {
+
+    @Inject
+    protected CoreFeature coreFeature;
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected RepositoryService repositoryService;
+
+    protected MemRepository repository;
+
+    protected DocumentModel folder1;
+
+    protected DocumentModel folder2;
+
+    protected DocumentModel doc1;
+
+    protected DocumentModel doc2;
+
+    protected DocumentModel doc3;
+
+    @Before
+    public void setUp() {
+        assumeTrue("MemRepository only", coreFeature.getStorageConfiguration().isDBSMem());
+        repository = (MemRepository) repositoryService.getRepository(session.getRepositoryName());
+        folder1 = session.createDocument(session.createDocumentModel("/", "folder1", "Folder"));
+        folder2 = session.createDocument(session.createDocumentModel("/", "folder2", "Folder"));
+        doc1 = createDocument("/folder1", "doc1", "foo", 5L, "a", "b");
+        doc2 = createDocument("/folder1", "doc2", "bar", 6L, "b");
+        doc3 = createDocument("/folder2", "doc3", "foo", 7L);
+        session.save();
+    }
+
+    protected DocumentModel createDocument(String parentPath, String name, String title, long number,
+            String... subjects) {
+        DocumentModel doc = session.createDocumentModel(parentPath, name, "MyDocType");
+        doc.setPropertyValue("dc:title", title);
+        doc.setPropertyValue("my:long", Long.valueOf(number));
+        doc.setPropertyValue("dc:subjects", subjects);
+        return session.createDocument(doc);
+    }
+
+    protected void assertIndexes() {
+        assertFalse(repository.indexes.isEmpty());
+        for (Entry<String, MemIndex> en : repository.indexes.entrySet()) {
+            String key = en.getKey();
+            MemIndex expected = new MemIndex();
+            for (State state : repository.states.values()) {
+                expected.add((String) state.get("ecm:id"), state.get(key));
+            }
+            assertEquals(key, expected.ids, en.getValue().ids);
+        }
+        assertQueries();
+    }
+
+    protected void assertQueries() {
+        List<String> clauses = Arrays.asList( //
+                "ecm:uuid = '" + doc1.getId() + "'", //
+                "ecm:parentId = '" + folder1.getId() + "'", //
+                "ecm:parentId = '" + folder2.getId() + "'", //
+                "ecm:name = 'doc1'", //
+                "ecm:ancestorId = '" + folder1.getId() + "'", //
+                "ecm:ancestorId = '" + folder2.getId() + "'", //
+                "dc:title = 'foo'", //
+                "dc:title = 'foo' AND ecm:parentId = '" + folder1.getId() + "'", //
+                "dc:title = 'foo' OR ecm:name = 'doc2'", //
+                "dc:subjects = 'b'", //
+                "dc:subjects = 'c'", //
+                "my:long = 6", //
+                "my:long = '6'", //
+                "my:long = '7' AND dc:title = 'foo'", //
+                "ecm:lockOwner = 'Administrator'");
+        for (String clause : clauses) {
+            String nxql = "SELECT ecm:uuid FROM Document WHERE " + clause;
+            DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(null, SQLQueryParser.parse(nxql), null,
+                    false);
+            evaluator.parse();
+            // full scan
+            Set<Serializable> expected = new HashSet<>();
+            for (State state : repository.states.values()) {
+                List<Map<String, Serializable>> matches = evaluator.matches(state);
+                if (!matches.isEmpty()) {
+                    expected.add(matches.get(0).get(ECM_UUID));
+                }
+            }
+            Set<Serializable> ids = new HashSet<>();
+            for (Map<String, Serializable> map : repository.queryAndFetch(evaluator, null, true, 0, 0, -1)) {
+                ids.add(map.get(ECM_UUID));
+            }
+            assertEquals(clause, expected, ids);
+            ids = new HashSet<>(repository.scroll(evaluator, 100, 10).getResults());
+            assertEquals(clause, expected, ids);
+        }
+    }
+
+    protected Expression getExpression(String clause) {
+        return SQLQueryParser.parse("SELECT * FROM Document WHERE " + clause).where.predicate;
+    }
+
+    @Test
+    public void testCreate() {
+        assertIndexes();
+        // a string literal is not looked up among the Long values of the index
+        assertNull(repository.getCandidateIds(getExpression("my:long = '5'")));
+        assertNotNull(repository.getCandidateIds(getExpression("dc:title = 'foo'")));
+    }
+
+    @Test
+    public void testUpdate() {
+        // ListDiff rpush on the array
+        doc1.setPropertyValue("dc:subjects", new String[] { "a", "b", "c" });
+        // ListDiff on an element of the array
+        doc2.setPropertyValue("dc:subjects", new String[] { "c" });
+        // delta
+        doc3.setPropertyValue("my:long", DeltaLong.valueOf(Long.valueOf(7), 10));
+        doc3.setPropertyValue("dc:title", "baz");
+        session.saveDocuments(new DocumentModel[] { doc1, doc2, doc3 });
+        session.save();
+        assertEquals(Long.valueOf(17), session.getDocument(doc3.getRef()).getPropertyValue("my:long"));
+        assertIndexes();
+    }
+
+    @Test
+    public void testDelete() {
+        session.removeDocument(doc2.getRef());
+        session.removeDocument(folder2.getRef());
+        session.save();
+        assertIndexes();
+    }
+
+    @Test
+    public void testMove() {
+        // updateDescendantsAncestors
+        session.move(folder1.getRef(), folder2.getRef(), null);
+        session.save();
+        assertIndexes();
+    }
+
+    @Test
+    public void testReadAcl() {
+        // setDescendantsValue on the read ACLs
+        ACP acp = session.getACP(folder1.getRef());
+        ACL acl = acp.getOrCreateACL();
+        acl.add(new ACE("bob", "Read", true));
+        session.setACP(folder1.getRef(), acp, true);
+        session.save();
+        assertIndexes();
+        assertTrue(repository.indexes.get("ecm:racl").get("bob").contains(doc1.getId()));
+    }
+
+    @Test
+    public void testLock() {
+        session.setLock(doc1.getRef());
+        assertIndexes();
+        session.removeLock(doc1.getRef());
+        assertIndexes();
+    }
+
+}
@@ -960,6 +960,31 @@ public abstract class AbstractSession implements CoreSession, Serializable {
         return new DocumentModelListImpl(docs);
     }
 
+    @Override
+    public DocumentModelList getDocuments(Collection<DocumentRef> docRefs, String... schemas) {
+        List<String> ids = new ArrayList<>(docRefs.size());
+        for (DocumentRef docRef : docRefs) {
+            if (docRef.type() == DocumentRef.ID) {
+                ids.add((String) docRef.reference());
+            } else {
+                try {
+                    ids.add(resolveReference(docRef).getUUID());
+                } catch (DocumentNotFoundException e) {
+                    // skip missing document
+                    continue;
+                }
+            }
+        }
+        List<Document> docs = getSession().getDocumentsByUUID(ids);
+        docs = getSecurityService().filterPermitted(docs, getPrincipal(), READ);
+        String[] prefetchSchemas = schemas == null || schemas.length == 0 ? null : schemas;
+        DocumentModelList models = new DocumentModelListImpl(docs.size());
+        for (Document doc : docs) {
+            models.add(DocumentModelFactory.createDocumentModel(doc, getSessionId(), prefetchSchemas));
+        }
+        return models;
+    }
+
     @Override
     public DocumentModelList getFiles(DocumentRef parent) {
         Document doc = resolveReference(parent);
@@ -127,7 +127,33 @@ public class SecurityService extends DefaultComponent {
         // fully check each ACE in turn
         String[] resolvedPermissions = getPermissionsToCheck(permission);
         String[] additionalPrincipals = getPrincipalsToCheck(principal);
+        return checkPermission(doc, principal, permission, resolvedPermissions, additionalPrincipals);
+    }
+
+    /**
+     * Filters the documents on which a permission is granted to a given principal, keeping their order.
+     * <p>
+     * The permissions and principals to check are resolved once for all the documents.
+     *
+     * @since 11.1
+     */
+    public List<Document> filterPermitted(List<Document> docs, NuxeoPrincipal principal, String permission) {
+        if (principal.isAdministrator()) {
+            return docs;
+        }
+        String[] resolvedPermissions = getPermissionsToCheck(permission);
+        String[] additionalPrincipals = getPrincipalsToCheck(principal);
+        List<Document> permitted = new ArrayList<>(docs.size());
+        for (Document doc : docs) {
+            if (checkPermission(doc, principal, permission, resolvedPermissions, additionalPrincipals)) {
+                permitted.add(doc);
+            }
+        }
+        return permitted;
+    }
 
+    protected boolean checkPermission(Document doc, NuxeoPrincipal principal, String permission,
+            String[] resolvedPermissions, String[] additionalPrincipals) {
         // get the ordered list of ACE
         ACP acp = doc.getSession().getMergedACP(doc);
 
@@ -20,11 +20,9 @@
 package org.nuxeo.elasticsearch.audit;
 
 import static org.elasticsearch.common.xcontent.DeprecationHandler.THROW_UNSUPPORTED_OPERATION;
-import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
 import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_ID;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.Serializable;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
@@ -52,11 +50,9 @@ import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.common.ParsingException;
-import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
-import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
@@ -107,9 +103,8 @@ import org.nuxeo.elasticsearch.query.NxqlQueryConverter;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.model.DefaultComponent;
 
-import com.fasterxml.jackson.core.JsonFactory;
-import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 /**
  * Implementation of the {@link AuditBackend} interface using Elasticsearch persistence
@@ -145,6 +140,13 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
 
     protected static final Log log = LogFactory.getLog(ESAuditBackend.class);
 
+    /**
+     * Thread safe writer of the entries, shared to avoid building a serializer for each entry of a bulk.
+     *
+     * @since 11.1
+     */
+    protected static final ObjectWriter ENTRY_WRITER = new ObjectMapper().writer();
+
     protected BaseLogEntryProvider provider = new BaseLogEntryProvider() {
 
         @Override
@@ -475,7 +477,6 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         }
 
         BulkRequest bulkRequest = new BulkRequest();
-        JsonFactory factory = new JsonFactory();
 
         UIDGeneratorService uidGeneratorService = Framework.getService(UIDGeneratorService.class);
         UIDSequencer seq = uidGeneratorService.getSequencer();
@@ -489,14 +490,9 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
                     log.debug(String.format("Indexing log entry: %s", entry));
                 }
                 entry.setLogDate(new Date());
-                try (OutputStream out = new BytesStreamOutput(); //
-                        JsonGenerator jg = factory.createGenerator(out); //
-                        XContentBuilder builder = jsonBuilder(out)) {
-                    ObjectMapper mapper = new ObjectMapper();
-                    mapper.writeValue(jg, entry);
-                    bulkRequest.add(new IndexRequest(getESIndexName(), ElasticSearchConstants.ENTRY_TYPE,
-                            String.valueOf(entry.getId())).source(builder));
-                }
+                bulkRequest.add(new IndexRequest(getESIndexName(), ElasticSearchConstants.ENTRY_TYPE,
+                        String.valueOf(entry.getId())).source(ENTRY_WRITER.writeValueAsBytes(entry),
+                                XContentType.JSON));
             }
 
             BulkResponse bulkResponse = esClient.bulk(bulkRequest);
@@ -19,7 +19,9 @@
  */
 package org.nuxeo.elasticsearch;
 
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.DEFAULT_FETCH_POOL_SIZE;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.ES_ENABLED_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.FETCH_POOL_SIZE_PROPERTY;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEXING_QUEUE_ID;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_ON_STARTUP_PROPERTY;
 
@@ -32,8 +34,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -124,6 +129,9 @@ public class ElasticSearchComponent extends DefaultComponent
 
     protected ListeningExecutorService waiterExecutorService;
 
+    /** @since 11.1 */
+    protected ExecutorService fetcherExecutorService;
+
     // Nuxeo Component impl ======================================é=============
     @Override
     public void registerContribution(Object contribution, String extensionPoint, ComponentInstance contributor) {
@@ -182,6 +190,7 @@ public class ElasticSearchComponent extends DefaultComponent
         esi = new ElasticSearchIndexingImpl(esa, jsonESDocumentWriter);
         ess = new ElasticSearchServiceImpl(esa);
         initListenerThreadPool();
+        initFetcherThreadPool();
         processStackedCommands();
         reindexOnStartup();
     }
@@ -194,6 +203,7 @@ public class ElasticSearchComponent extends DefaultComponent
         }
         try {
             shutdownListenerThreadPool();
+            shutdownFetcherThreadPool();
         } finally {
             try {
                 esa.disconnect();
@@ -365,6 +375,35 @@ public class ElasticSearchComponent extends DefaultComponent
         }
     }
 
+    /** @since 11.1 */
+    protected void initFetcherThreadPool() {
+        int size = Integer.parseInt(
+                Framework.getProperty(FETCH_POOL_SIZE_PROPERTY, String.valueOf(DEFAULT_FETCH_POOL_SIZE)));
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new FetcherThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+        fetcherExecutorService = executor;
+    }
+
+    /** @since 11.1 */
+    protected void shutdownFetcherThreadPool() {
+        try {
+            fetcherExecutorService.shutdown();
+        } finally {
+            fetcherExecutorService = null;
+        }
+    }
+
+    /**
+     * Gets the executor used to fetch documents from several repositories in parallel, or {@code null} if the
+     * Elasticsearch service is not started.
+     *
+     * @since 11.1
+     */
+    public ExecutorService getFetcherExecutor() {
+        return fetcherExecutorService;
+    }
+
     @Override
     public void refresh() {
         esa.refresh();
@@ -570,6 +609,19 @@ public class ElasticSearchComponent extends DefaultComponent
         }
     }
 
+    /** @since 11.1 */
+    protected static class FetcherThreadFactory implements ThreadFactory {
+
+        protected final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Nuxeo-VcsFetcher-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
     @Override
     public Optional<ESHintQueryBuilder> getHintByOperator(String name) {
         return esa.getHintByOperator(name);
@@ -127,6 +127,16 @@ public final class ElasticSearchConstants {
 
     public static final String REINDEX_USING_CHILDREN_TRAVERSAL_PROPERTY = "elasticsearch.reindex.useChildrenTraversal";
 
+    /**
+     * Maximum number of threads fetching documents from other repositories than the one of the current session.
+     *
+     * @since 11.1
+     */
+    public static final String FETCH_POOL_SIZE_PROPERTY = "elasticsearch.fetch.poolSize";
+
+    /** @since 11.1 */
+    public static final int DEFAULT_FETCH_POOL_SIZE = 4;
+
     /** @since 7.4 */
     public static final String INDEXING_QUEUE_ID = "elasticSearchIndexing";
 
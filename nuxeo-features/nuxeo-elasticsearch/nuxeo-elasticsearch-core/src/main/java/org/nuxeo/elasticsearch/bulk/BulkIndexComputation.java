@@ -21,11 +21,19 @@ package org.nuxeo.elasticsearch.bulk;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.bulk.BackoffPolicy;
 import org.elasticsearch.action.bulk.BulkItemResponse;
@@ -50,11 +58,22 @@ import org.nuxeo.lib.stream.computation.AbstractComputation;
 import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
 
 /**
  * A computation that submits elasticsearch requests using the bulk API.
  * <p>
- * Note that the retry policy is handled by the elasticsearch bulk processor.
+ * Note that the retry policy is handled by the elasticsearch bulk processor, except for the requests rejected because
+ * the cluster is overloaded: they are reported to the {@link BulkIndexController} and added again to the bulk
+ * processor after the pause it requests, before the computation checkpoints. When the controller is adaptive the bulk
+ * processor does not retry at all, so that the controller sees the rejections as soon as they happen.
+ * <p>
+ * The number of actions per bulk request is driven by a {@link BulkIndexController} from the measured latencies and
+ * rejections, when the cluster pushes back the computation pauses so that its input stream stops being consumed. The
+ * number of indexed documents, the bulk latency and the rejections are reported per index.
  *
  * @since 10.3
  */
@@ -65,10 +84,19 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
 
     protected final int esBulkSize;
 
-    protected final int esBulkActions;
-
     protected final int flushIntervalMs;
 
+    protected final BulkIndexController controller;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected final Map<Long, Long> bulkStartTimes = new ConcurrentHashMap<>();
+
+    /** The requests rejected by the cluster, to be added again to the bulk processor. */
+    protected final Queue<DocWriteRequest<?>> rejectedRequests = new ConcurrentLinkedQueue<>();
+
+    protected int pendingActions;
+
     protected BulkProcessor bulkProcessor;
 
     protected Codec<DataBucket> codec;
@@ -80,26 +108,37 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
     protected volatile boolean abort;
 
     public BulkIndexComputation(int esBulkSize, int esBulkActions, int flushInterval) {
+        this(esBulkSize, flushInterval, new BulkIndexController(false, esBulkActions, esBulkActions, Long.MAX_VALUE,
+                IndexAction.ES_BULK_MAX_PAUSE_DEFAULT));
+    }
+
+    /**
+     * @since 11.1
+     */
+    public BulkIndexComputation(int esBulkSize, int flushInterval, BulkIndexController controller) {
         super(NAME, 1, 1);
         this.esBulkSize = esBulkSize;
-        this.esBulkActions = esBulkActions;
         this.flushIntervalMs = flushInterval * 1000;
+        this.controller = controller;
     }
 
     @Override
     public void init(ComputationContext context) {
         super.init(context);
         // note that we don't use setFlushInterval because this is done by our timer
+        // and the number of actions is checked against the controller on each record
         continueOnFailure = context.getPolicy().continueOnFailure();
         long backoffDelayMs = context.getPolicy().getRetryPolicy().getDelay().toMillis();
         int retries = context.getPolicy().getRetryPolicy().getMaxRetries();
+        // the adaptive controller handles the rejections itself
+        BackoffPolicy backoffPolicy = controller.isAdaptive() ? BackoffPolicy.noBackoff()
+                : BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(backoffDelayMs), retries);
 
         bulkProcessor = getESClient().bulkProcessorBuilder(this)
                                      .setConcurrentRequests(0)
                                      .setBulkSize(new ByteSizeValue(esBulkSize, ByteSizeUnit.BYTES))
-                                     .setBulkActions(esBulkActions)
-                                     .setBackoffPolicy(BackoffPolicy.exponentialBackoff(
-                                             TimeValue.timeValueMillis(backoffDelayMs), retries))
+                                     .setBulkActions(-1)
+                                     .setBackoffPolicy(backoffPolicy)
                                      .build();
         codec = BulkCodecs.getDataBucketCodec();
         context.setTimer("flush", System.currentTimeMillis() + flushIntervalMs);
@@ -111,10 +150,7 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
             throw new NuxeoException("Terminate computation due to previous error");
         }
         if (updates) {
-            // flush is sync because bulkProcessor is initialized with setConcurrentRequests(0)
-            bulkProcessor.flush();
-            context.askForCheckpoint();
-            updates = false;
+            flush(context);
         }
         context.setTimer("flush", System.currentTimeMillis() + flushIntervalMs);
     }
@@ -124,10 +160,14 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
         if (abort) {
             return;
         }
+        // stop consuming the input stream while the cluster is overloaded
+        controller.awaitPause();
         DataBucket in = codec.decode(record.getData());
         if (in.getCount() > 0) {
             BulkRequest bulkRequest = decodeRequest(in);
             for (DocWriteRequest<?> request : bulkRequest.requests()) {
+                // counted before the add, which may execute a bulk including this request
+                pendingActions++;
                 bulkProcessor.add(request);
             }
             BulkStatus delta = BulkStatus.deltaOf(in.getCommandId());
@@ -135,6 +175,29 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
             AbstractBulkComputation.updateStatus(context, delta);
         }
         updates = true;
+        if (controller.shouldFlush(pendingActions)) {
+            flush(context);
+        }
+    }
+
+    protected void flush(ComputationContext context) {
+        // flush is sync because bulkProcessor is initialized with setConcurrentRequests(0)
+        bulkProcessor.flush();
+        // don't checkpoint before the rejected requests are indexed
+        while (!rejectedRequests.isEmpty() && !abort) {
+            controller.awaitPause();
+            DocWriteRequest<?> request;
+            while ((request = rejectedRequests.poll()) != null) {
+                pendingActions++;
+                bulkProcessor.add(request);
+            }
+            bulkProcessor.flush();
+        }
+        if (abort) {
+            return;
+        }
+        context.askForCheckpoint();
+        updates = false;
     }
 
     @Override
@@ -166,6 +229,9 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
     // the following methods are called from a different thread than the computation
     @Override
     public void beforeBulk(long executionId, BulkRequest request) {
+        // bulk is executed synchronously, the actions of this request are no longer pending
+        pendingActions = Math.max(0, pendingActions - request.numberOfActions());
+        bulkStartTimes.put(executionId, System.nanoTime());
         if (log.isDebugEnabled()) {
             log.debug(String.format("Creating elasticsearch bulk %s with %d action", executionId,
                     request.numberOfActions()));
@@ -178,18 +244,28 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
             log.debug(String.format("After bulk: %s, actions: %d, status: %s", executionId, request.numberOfActions(),
                     response.status()));
         }
+        long latencyNs = getLatency(executionId);
+        updateMetrics(request, latencyNs);
         if (!response.hasFailures()) {
+            controller.onBulk(TimeUnit.NANOSECONDS.toMillis(latencyNs), false);
             return;
         }
         MutableBoolean inError = new MutableBoolean(false);
+        MutableBoolean rejected = new MutableBoolean(false);
         Arrays.stream(response.getItems()).filter(BulkItemResponse::isFailed).forEach(item -> {
-            if (item.getFailure().getStatus() != RestStatus.CONFLICT) {
+            if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                // not an error, the request is indexed again after a pause
+                rejected.setTrue();
+                rejectedRequests.add(getRequest(request, item));
+                registry.counter(getMetricName(item.getIndex(), "rejected")).inc();
+            } else if (item.getFailure().getStatus() != RestStatus.CONFLICT) {
                 log.warn("Failure in bulk indexing: " + item.getFailureMessage());
                 inError.setTrue();
             } else if (log.isDebugEnabled()) {
                 log.debug("Skipping version conflict: " + item.getFailureMessage());
             }
         });
+        controller.onBulk(TimeUnit.NANOSECONDS.toMillis(latencyNs), rejected.isTrue());
         if (inError.isTrue()) {
             log.error(String.format("Elasticsearch bulk %s returns with failures: %s", executionId,
                     response.buildFailureMessage()));
@@ -201,10 +277,63 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
 
     @Override
     public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+        bulkStartTimes.remove(executionId);
+        if (ExceptionsHelper.status(failure) == RestStatus.TOO_MANY_REQUESTS) {
+            log.warn(String.format("Elasticsearch bulk %s rejected, %d actions will be retried", executionId,
+                    request.numberOfActions()));
+            controller.onRejection();
+            rejectedRequests.addAll(request.requests());
+            countByIndex(request).forEach(
+                    (index, count) -> registry.counter(getMetricName(index, "rejected")).inc(count));
+            return;
+        }
         log.error(String.format("Elasticsearch bulk %s fails, contains %d actions", executionId,
                 request.numberOfActions()), failure);
         if (!continueOnFailure) {
             abort = true;
         }
     }
+
+    /**
+     * Gets the request of a bulk item response.
+     */
+    protected DocWriteRequest<?> getRequest(BulkRequest request, BulkItemResponse item) {
+        List<DocWriteRequest<?>> requests = request.requests();
+        int i = item.getItemId();
+        if (i < requests.size() && matches(requests.get(i), item)) {
+            return requests.get(i);
+        }
+        // the item ids of the responses to retried requests are relative to the retried bulk
+        return requests.stream()
+                       .filter(r -> matches(r, item))
+                       .findFirst()
+                       .orElseThrow(() -> new NuxeoException("No request for bulk item: " + item.getId()));
+    }
+
+    protected boolean matches(DocWriteRequest<?> request, BulkItemResponse item) {
+        // the response index is the concrete index, the request may use an alias
+        return request.opType() == item.getOpType() && Objects.equals(request.id(), item.getId());
+    }
+
+    protected long getLatency(long executionId) {
+        Long start = bulkStartTimes.remove(executionId);
+        return start == null ? 0 : System.nanoTime() - start.longValue();
+    }
+
+    protected void updateMetrics(BulkRequest request, long latencyNs) {
+        countByIndex(request).forEach((index, count) -> {
+            registry.meter(getMetricName(index, "indexed")).mark(count);
+            registry.timer(getMetricName(index, "latency")).update(latencyNs, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    protected Map<String, Long> countByIndex(BulkRequest request) {
+        return request.requests()
+                      .stream()
+                      .collect(Collectors.groupingBy(DocWriteRequest::index, Collectors.counting()));
+    }
+
+    protected String getMetricName(String index, String name) {
+        return MetricRegistry.name("nuxeo", "elasticsearch", "bulk", index, name);
+    }
 }
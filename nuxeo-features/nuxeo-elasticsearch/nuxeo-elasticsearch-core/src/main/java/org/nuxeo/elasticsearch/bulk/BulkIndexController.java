@@ -0,0 +1,167 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.elasticsearch.bulk;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.NuxeoException;
+
+/**
+ * Adapts the number of actions of the elasticsearch bulk requests to the latency measured and the rejections returned
+ * by the cluster.
+ * <p>
+ * The number of actions grows additively while the bulk latency stays below the target, it shrinks when the latency
+ * exceeds the target and it is halved when the cluster rejects requests. In this last case a pause, doubling on
+ * consecutive rejections, is requested to the computations sharing the controller so that the upstream stream
+ * processing slows down until the cluster recovers.
+ * <p>
+ * A controller is shared by all the threads of the indexing computations of a node, it is thread safe.
+ *
+ * @since 11.1
+ */
+public class BulkIndexController {
+
+    private static final Logger log = LogManager.getLogger(BulkIndexController.class);
+
+    protected static final long MIN_PAUSE_MS = 100;
+
+    protected final boolean adaptive;
+
+    protected final int minActions;
+
+    protected final int maxActions;
+
+    protected final int step;
+
+    protected final long targetLatencyMs;
+
+    protected final long maxPauseMs;
+
+    protected volatile int bulkActions;
+
+    protected volatile long pauseUntil;
+
+    protected long pauseMs;
+
+    /**
+     * @param adaptive {@code false} to always use {@code maxActions}, rejections still trigger pauses
+     * @param minActions the lower bound of the number of actions in a bulk
+     * @param maxActions the upper bound and initial number of actions in a bulk
+     * @param targetLatencyMs the bulk latency above which the number of actions is reduced
+     * @param maxPauseMs the maximum pause requested after consecutive rejections
+     */
+    public BulkIndexController(boolean adaptive, int minActions, int maxActions, long targetLatencyMs,
+            long maxPauseMs) {
+        this.adaptive = adaptive;
+        this.maxActions = Math.max(1, maxActions);
+        this.minActions = Math.max(1, Math.min(minActions, this.maxActions));
+        this.step = Math.max(1, this.maxActions / 10);
+        this.targetLatencyMs = targetLatencyMs;
+        this.maxPauseMs = maxPauseMs;
+        bulkActions = this.maxActions;
+    }
+
+    /**
+     * Returns {@code true} if the number of actions adapts to the cluster.
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Returns the current number of actions after which a bulk request should be sent.
+     */
+    public int getBulkActions() {
+        return bulkActions;
+    }
+
+    /**
+     * Returns {@code true} if the pending actions should be flushed.
+     */
+    public boolean shouldFlush(int pendingActions) {
+        return pendingActions >= bulkActions;
+    }
+
+    /**
+     * Records a bulk request executed by the cluster.
+     *
+     * @param latencyMs the duration of the bulk request, including the retries
+     * @param rejected {@code true} if some actions were rejected because the cluster is overloaded
+     */
+    public synchronized void onBulk(long latencyMs, boolean rejected) {
+        if (rejected) {
+            onRejection();
+            return;
+        }
+        pauseMs = 0;
+        if (!adaptive) {
+            return;
+        }
+        int previous = bulkActions;
+        if (latencyMs > targetLatencyMs) {
+            bulkActions = Math.max(minActions, previous * 3 / 4);
+        } else {
+            bulkActions = Math.min(maxActions, previous + step);
+        }
+        if (log.isTraceEnabled() && previous != bulkActions) {
+            log.trace("Bulk latency: {}ms, bulk actions: {} -> {}", latencyMs, previous, bulkActions);
+        }
+    }
+
+    /**
+     * Records a bulk request rejected because the cluster is overloaded.
+     */
+    public synchronized void onRejection() {
+        if (adaptive) {
+            bulkActions = Math.max(minActions, bulkActions / 2);
+        }
+        pauseMs = Math.min(maxPauseMs, pauseMs == 0 ? MIN_PAUSE_MS : pauseMs * 2);
+        pauseUntil = now() + pauseMs;
+        log.warn("Elasticsearch rejects bulk requests, pausing indexing for {}ms, bulk actions: {}", pauseMs,
+                bulkActions);
+    }
+
+    /**
+     * Returns the remaining pause requested because of rejections, {@code 0} if none.
+     */
+    public long getPauseMs() {
+        return Math.max(0, pauseUntil - now());
+    }
+
+    /**
+     * Blocks the current thread while a pause is requested.
+     */
+    public void awaitPause() {
+        long pause = getPauseMs();
+        if (pause <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException("Interrupted while pausing indexing", e);
+        }
+    }
+
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+}
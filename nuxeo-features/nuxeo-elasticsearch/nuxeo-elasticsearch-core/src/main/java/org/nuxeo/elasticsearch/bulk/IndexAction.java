@@ -28,8 +28,13 @@ import java.util.Collections;
 import java.util.Map;
 
 import org.nuxeo.lib.stream.computation.Topology;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.stream.StreamProcessorTopology;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
 /**
  * A Nuxeo Bulk Action to index documents. it decouples the document extraction to build the elasticsearch request and
  * the indexing.
@@ -51,6 +56,27 @@ public class IndexAction implements StreamProcessorTopology {
 
     public static final int BULK_FLUSH_INTERVAL_DEFAULT = 10;
 
+    /** @since 11.1 */
+    public static final String ES_BULK_ADAPTIVE_OPTION = "esBulkAdaptive";
+
+    /** @since 11.1 */
+    public static final String ES_BULK_MIN_ACTION_OPTION = "esBulkMinActions";
+
+    /** @since 11.1 */
+    public static final int ES_BULK_MIN_ACTION_DEFAULT = 100;
+
+    /** @since 11.1 */
+    public static final String ES_BULK_TARGET_LATENCY_OPTION = "esBulkTargetLatencyMs";
+
+    /** @since 11.1 */
+    public static final int ES_BULK_TARGET_LATENCY_DEFAULT = 2_000;
+
+    /** @since 11.1 */
+    public static final String ES_BULK_MAX_PAUSE_OPTION = "esBulkMaxPauseMs";
+
+    /** @since 11.1 */
+    public static final int ES_BULK_MAX_PAUSE_DEFAULT = 30_000;
+
     public static final String INDEX_UPDATE_ALIAS_PARAM = "updateAlias";
 
     public static final String REFRESH_INDEX_PARAM = "refresh";
@@ -60,10 +86,18 @@ public class IndexAction implements StreamProcessorTopology {
         int esBulkSize = getOptionAsInteger(options, ES_BULK_SIZE_OPTION, ES_BULK_SIZE_DEFAULT);
         int esBulkActions = getOptionAsInteger(options, ES_BULK_ACTION_OPTION, ES_BULK_ACTION_DEFAULT);
         int esBulkFlushInterval = getOptionAsInteger(options, BULK_FLUSH_INTERVAL_OPTION, BULK_FLUSH_INTERVAL_DEFAULT);
+        // the controller is shared by all the computation threads of the node
+        BulkIndexController controller = new BulkIndexController(
+                Boolean.parseBoolean(options.getOrDefault(ES_BULK_ADAPTIVE_OPTION, "true")),
+                getOptionAsInteger(options, ES_BULK_MIN_ACTION_OPTION, ES_BULK_MIN_ACTION_DEFAULT), esBulkActions,
+                getOptionAsInteger(options, ES_BULK_TARGET_LATENCY_OPTION, ES_BULK_TARGET_LATENCY_DEFAULT),
+                getOptionAsInteger(options, ES_BULK_MAX_PAUSE_OPTION, ES_BULK_MAX_PAUSE_DEFAULT));
+        registerMetrics(controller);
         return Topology.builder()
-                       .addComputation(IndexRequestComputation::new, Arrays.asList(INPUT_1 + ":" + ACTION_NAME, //
-                               OUTPUT_1 + ":" + BulkIndexComputation.NAME))
-                       .addComputation(() -> new BulkIndexComputation(esBulkSize, esBulkActions, esBulkFlushInterval),
+                       .addComputation(() -> new IndexRequestComputation(controller),
+                               Arrays.asList(INPUT_1 + ":" + ACTION_NAME, //
+                                       OUTPUT_1 + ":" + BulkIndexComputation.NAME))
+                       .addComputation(() -> new BulkIndexComputation(esBulkSize, esBulkFlushInterval, controller),
                                Arrays.asList(INPUT_1 + ":" + BulkIndexComputation.NAME, //
                                        OUTPUT_1 + ":" + STATUS_STREAM))
                        .addComputation(() -> new IndexCompletionComputation(),
@@ -72,6 +106,13 @@ public class IndexAction implements StreamProcessorTopology {
 
     }
 
+    protected void registerMetrics(BulkIndexController controller) {
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        String name = MetricRegistry.name("nuxeo", "elasticsearch", "bulk", "actions");
+        registry.remove(name);
+        registry.register(name, (Gauge<Integer>) controller::getBulkActions);
+    }
+
     public static int getOptionAsInteger(Map<String, String> options, String option, int defaultValue) {
         String value = options.get(option);
         return value == null ? defaultValue : Integer.parseInt(value);
@@ -70,8 +70,20 @@ public class IndexRequestComputation extends AbstractBulkComputation {
 
     protected String bucketKey;
 
+    protected final BulkIndexController controller;
+
     public IndexRequestComputation() {
+        this(null);
+    }
+
+    /**
+     * @param controller the controller of the downstream indexing, used to slow down the production of requests when
+     *            elasticsearch pushes back, can be {@code null}
+     * @since 11.1
+     */
+    public IndexRequestComputation(BulkIndexController controller) {
         super(ACTION_NAME, 1);
+        this.controller = controller;
     }
 
     @Override
@@ -118,6 +130,10 @@ public class IndexRequestComputation extends AbstractBulkComputation {
         long bucketSize = delta.getProcessed();
         bulkRequests.add(bulkRequest);
         String commandId = getCurrentCommand().getId();
+        if (controller != null) {
+            // don't feed the indexing stream while the cluster is overloaded
+            controller.awaitPause();
+        }
         int i = 0;
         int count = 0;
         for (BulkRequest request : bulkRequests) {
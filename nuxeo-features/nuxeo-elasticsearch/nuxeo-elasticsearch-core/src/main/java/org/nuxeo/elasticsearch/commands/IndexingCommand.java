@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.avro.reflect.Nullable;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.CoreSession;
@@ -68,12 +69,16 @@ public class IndexingCommand implements Serializable {
 
     protected boolean recurse;
 
+    @Nullable
     protected String targetDocumentId;
 
+    @Nullable
     protected String path;
 
+    @Nullable
     protected String repositoryName;
 
+    @Nullable
     protected List<String> schemas;
 
     protected long order;
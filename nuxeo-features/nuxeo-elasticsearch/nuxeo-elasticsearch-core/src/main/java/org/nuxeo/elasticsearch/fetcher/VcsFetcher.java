@@ -20,10 +20,12 @@ package org.nuxeo.elasticsearch.fetcher;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.common.text.Text;
@@ -33,17 +35,31 @@ import org.nuxeo.ecm.core.api.CloseableCoreSession;
 import org.nuxeo.ecm.core.api.CoreInstance;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.ecm.core.api.NuxeoPrincipal;
 import org.nuxeo.ecm.core.api.impl.DocumentModelListImpl;
-import org.nuxeo.ecm.core.query.sql.NXQL;
 import org.nuxeo.ecm.platform.query.api.PageProvider;
+import org.nuxeo.elasticsearch.ElasticSearchComponent;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.transaction.TransactionHelper;
 
 /**
+ * Fetches the documents matching the Elasticsearch hits from the repositories.
+ * <p>
+ * Documents are fetched by id with {@link CoreSession#getDocuments(java.util.Collection, String...)}. When hits span
+ * several repositories, the repositories other than the one of the current session are fetched in parallel, each in
+ * its own transaction, using the bounded executor of the {@link ElasticSearchComponent}. Documents are returned in the
+ * order of the hits.
+ *
  * @since 6.0
  */
 public class VcsFetcher extends Fetcher {
 
     private static final int CHUNK_SIZE = 100;
 
+    protected static final String COMPONENT_NAME = "org.nuxeo.elasticsearch.ElasticSearchComponent";
+
     public VcsFetcher(CoreSession session, SearchResponse response, Map<String, String> repoNames) {
         super(session, response, repoNames);
     }
@@ -51,41 +67,88 @@ public class VcsFetcher extends Fetcher {
     @Override
     public DocumentModelListImpl fetchDocuments() {
         Map<String, List<String>> repoHits = getHitsPerRepository();
-        List<DocumentModel> docs = fetchFromVcs(repoHits);
-        sortResults(docs);
-        addHighlights(docs);
+        Map<String, DocumentModel> docs = fetchFromVcs(repoHits);
         DocumentModelListImpl ret = new DocumentModelListImpl(docs.size());
-        if (!docs.isEmpty()) {
-            ret.addAll(docs);
+        // keep the hit order, skipping documents not found or not accessible
+        for (SearchHit hit : getResponse().getHits()) {
+            DocumentModel doc = docs.remove(getRepoForIndex(hit.getIndex()) + hit.getId());
+            if (doc != null) {
+                addHighlights(doc, hit);
+                ret.add(doc);
+            }
         }
         return ret;
     }
 
-    @SuppressWarnings("resource") // session closed only if we opened it
-    protected List<DocumentModel> fetchFromVcs(Map<String, List<String>> repoHits) {
-        List<DocumentModel> docs = new ArrayList<>();
-        String openSessionRepository = getSession().getRepositoryName();
-        for (String repo : repoHits.keySet()) {
-            boolean closeSession;
-            CoreSession session;
+    /**
+     * Fetches the documents, returning them by repository name and id.
+     */
+    protected Map<String, DocumentModel> fetchFromVcs(Map<String, List<String>> repoHits) {
+        Map<String, DocumentModel> docs = new HashMap<>();
+        CoreSession currentSession = getSession();
+        String openSessionRepository = currentSession.getRepositoryName();
+        if (repoHits.size() == 1) {
+            String repo = repoHits.keySet().iterator().next();
+            List<String> ids = repoHits.get(repo);
             if (openSessionRepository.equals(repo)) {
-                session = getSession();
-                closeSession = false;
+                addDocuments(docs, repo, fetchFromVcs(ids, currentSession));
             } else {
-                session = CoreInstance.openCoreSession(repo);
-                closeSession = true;
+                addDocuments(docs, repo, fetchFromRepository(repo, ids, currentSession.getPrincipal()));
             }
+            return docs;
+        }
+        // fetch the other repositories in parallel while fetching from the current session
+        Map<String, CompletableFuture<List<DocumentModel>>> futures = new HashMap<>();
+        NuxeoPrincipal principal = currentSession.getPrincipal();
+        for (Map.Entry<String, List<String>> es : repoHits.entrySet()) {
+            String repo = es.getKey();
+            List<String> ids = es.getValue();
+            if (!openSessionRepository.equals(repo)) {
+                futures.put(repo, CompletableFuture.supplyAsync(() -> TransactionHelper.runInTransaction(
+                        () -> fetchFromRepository(repo, ids, principal)), getExecutor()));
+            }
+        }
+        List<String> ids = repoHits.get(openSessionRepository);
+        if (ids != null) {
+            addDocuments(docs, openSessionRepository, fetchFromVcs(ids, currentSession));
+        }
+        for (Map.Entry<String, CompletableFuture<List<DocumentModel>>> es : futures.entrySet()) {
             try {
-                docs.addAll(fetchFromVcs(repoHits.get(repo), session));
-            } finally {
-                if (closeSession) {
-                    ((CloseableCoreSession) session).close();
+                addDocuments(docs, es.getKey(), es.getValue().join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
                 }
+                throw e;
             }
         }
         return docs;
     }
 
+    protected List<DocumentModel> fetchFromRepository(String repo, List<String> ids, NuxeoPrincipal principal) {
+        try (CloseableCoreSession session = CoreInstance.openCoreSession(repo, principal)) {
+            return fetchFromVcs(ids, session);
+        }
+    }
+
+    protected void addDocuments(Map<String, DocumentModel> docs, String repo, List<DocumentModel> fetched) {
+        for (DocumentModel doc : fetched) {
+            docs.put(repo + doc.getId(), doc);
+        }
+    }
+
+    /**
+     * Gets the executor used to fetch the other repositories, falling back to the calling thread if the Elasticsearch
+     * component is not started.
+     *
+     * @since 11.1
+     */
+    protected Executor getExecutor() {
+        ElasticSearchComponent component = (ElasticSearchComponent) Framework.getRuntime().getComponent(COMPONENT_NAME);
+        Executor executor = component == null ? null : component.getFetcherExecutor();
+        return executor == null ? Runnable::run : executor;
+    }
+
     private Map<String, List<String>> getHitsPerRepository() {
         Map<String, List<String>> ret = new HashMap<>();
         for (SearchHit hit : getResponse().getHits()) {
@@ -97,80 +160,33 @@ public class VcsFetcher extends Fetcher {
     }
 
     private List<DocumentModel> fetchFromVcs(List<String> ids, CoreSession session) {
-        List<DocumentModel> ret = null;
-        int size = ids.size();
-        int start = 0;
-        int end = Math.min(CHUNK_SIZE, size);
-        boolean done = false;
-        while (!done) {
-            List<DocumentModel> docs = fetchFromVcsChunk(ids.subList(start, end), session);
-            if (ret == null) {
-                ret = docs;
-            } else {
-                ret.addAll(docs);
-            }
-            if (end >= ids.size()) {
-                done = true;
-            } else {
-                start = end;
-                end = Math.min(start + CHUNK_SIZE, size);
+        List<DocumentModel> ret = new ArrayList<>(ids.size());
+        for (int start = 0; start < ids.size(); start += CHUNK_SIZE) {
+            List<String> chunk = ids.subList(start, Math.min(start + CHUNK_SIZE, ids.size()));
+            List<DocumentRef> refs = new ArrayList<>(chunk.size());
+            for (String id : chunk) {
+                refs.add(new IdRef(id));
             }
+            ret.addAll(session.getDocuments(refs));
         }
         return ret;
     }
 
-    private List<DocumentModel> fetchFromVcsChunk(final List<String> ids, CoreSession session) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("SELECT * FROM Document, Relation WHERE ecm:uuid IN (");
-        for (int i = 0; i < ids.size(); i++) {
-            sb.append(NXQL.escapeString(ids.get(i)));
-            if (i < ids.size() - 1) {
-                sb.append(", ");
-            }
-        }
-        sb.append(")");
-        return session.query(sb.toString());
-    }
-
-    private void addHighlights(List<DocumentModel> docs) {
-        for (SearchHit hit : getResponse().getHits()) {
-            for (DocumentModel doc : docs) {
-                String docId = doc.getRepositoryName() + doc.getId();
-                String hitId = getRepoForIndex(hit.getIndex()) + hit.getId();
-                if (docId.equals(hitId)) {
-                    // Add highlight if it exists
-                    Map<String, HighlightField> esHighlights = hit.getHighlightFields();
-                    if (!esHighlights.isEmpty()) {
-                        Map<String, List<String>> fields = new HashMap<>();
-                        for (Map.Entry<String, HighlightField> entry : esHighlights.entrySet()) {
-                            String field = entry.getKey();
-                            List<String> list = new ArrayList<>();
-                            for (Text fragment : entry.getValue().getFragments()) {
-                                list.add(fragment.toString());
-                            }
-                            fields.put(field, list);
-                        }
-                        doc.putContextData(PageProvider.HIGHLIGHT_CTX_DATA, (Serializable) fields);
-                    }
-                    break;
+    private void addHighlights(DocumentModel doc, SearchHit hit) {
+        // Add highlight if it exists
+        Map<String, HighlightField> esHighlights = hit.getHighlightFields();
+        if (!esHighlights.isEmpty()) {
+            Map<String, List<String>> fields = new HashMap<>();
+            for (Map.Entry<String, HighlightField> entry : esHighlights.entrySet()) {
+                String field = entry.getKey();
+                List<String> list = new ArrayList<>();
+                for (Text fragment : entry.getValue().getFragments()) {
+                    list.add(fragment.toString());
                 }
+                fields.put(field, list);
             }
+            doc.putContextData(PageProvider.HIGHLIGHT_CTX_DATA, (Serializable) fields);
         }
     }
 
-    private void sortResults(List<DocumentModel> docs) {
-        final List<String> ids = new ArrayList<>();
-        for (SearchHit hit : getResponse().getHits()) {
-            ids.add(getRepoForIndex(hit.getIndex()) + hit.getId());
-        }
-
-        docs.sort(new Comparator<DocumentModel>() {
-            @Override
-            public int compare(DocumentModel a, DocumentModel b) {
-                return ids.indexOf(a.getRepositoryName() + a.getId()) - ids.indexOf(b.getRepositoryName() + b.getId());
-            }
-        });
-
-    }
-
 }
@@ -37,6 +37,11 @@ public abstract class AbstractIndexingWorker extends BaseIndexingWorker {
 
     protected final List<IndexingCommand> cmds;
 
+    // for Avro
+    protected AbstractIndexingWorker() {
+        cmds = Collections.emptyList();
+    }
+
     public AbstractIndexingWorker(IndexingCommand cmd) {
         this.cmds = Collections.singletonList(cmd);
         this.repositoryName = cmd.getRepositoryName();
@@ -39,6 +39,11 @@ public class IndexingWorker extends AbstractIndexingWorker implements Work {
 
     private static final long serialVersionUID = -5141471452954319812L;
 
+    // for Avro
+    private IndexingWorker() {
+        super();
+    }
+
     public IndexingWorker(String repositoryName, List<IndexingCommand> cmds) {
         super(repositoryName, cmds);
     }
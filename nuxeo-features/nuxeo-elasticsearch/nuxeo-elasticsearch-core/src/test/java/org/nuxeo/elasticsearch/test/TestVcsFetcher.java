@@ -0,0 +1,184 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.elasticsearch.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.inject.Inject;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.ecm.core.api.NuxeoPrincipal;
+import org.nuxeo.ecm.platform.query.api.PageProvider;
+import org.nuxeo.elasticsearch.fetcher.VcsFetcher;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * @since 11.1
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ RepositoryElasticSearchFeature.class })
+@Deploy("org.nuxeo.elasticsearch.core:elasticsearch-test-contrib.xml")
+public class TestVcsFetcher {
+
+    protected static final String INDEX = "nxutest";
+
+    protected static final String OTHER_INDEX = "nxutest-other";
+
+    protected static final String OTHER_REPOSITORY = "other";
+
+    @Inject
+    protected CoreSession session;
+
+    protected List<String> createDocuments(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "doc" + i, "File");
+            doc.setPropertyValue("dc:title", "Doc" + i);
+            ids.add(session.createDocument(doc).getId());
+        }
+        session.save();
+        // make the documents visible to the sessions opened by the fetcher
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        return ids;
+    }
+
+    protected SearchHit hit(String index, String id) {
+        SearchHit hit = new SearchHit(0, id, new Text("doc"), Collections.emptyMap());
+        hit.shard(new SearchShardTarget("node", new Index(index, "uuid"), 0, null));
+        return hit;
+    }
+
+    protected SearchResponse response(SearchHit... hits) {
+        SearchHits searchHits = new SearchHits(hits, hits.length, 1);
+        InternalSearchResponse internal = new InternalSearchResponse(searchHits, null, null, null, false, null, 1);
+        return new SearchResponse(internal, null, 1, 1, 0, 1, ShardSearchFailure.EMPTY_ARRAY,
+                SearchResponse.Clusters.EMPTY);
+    }
+
+    protected Map<String, String> getRepoNames() {
+        Map<String, String> repoNames = new HashMap<>();
+        repoNames.put(INDEX, session.getRepositoryName());
+        repoNames.put(OTHER_INDEX, OTHER_REPOSITORY);
+        return repoNames;
+    }
+
+    protected List<String> getIds(List<DocumentModel> docs) {
+        List<String> ids = new ArrayList<>();
+        for (DocumentModel doc : docs) {
+            ids.add(doc.getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testHitOrder() {
+        List<String> ids = createDocuments(3);
+        SearchResponse response = response(hit(INDEX, ids.get(2)), hit(INDEX, ids.get(0)), hit(INDEX, ids.get(1)));
+        List<DocumentModel> docs = new VcsFetcher(session, response, getRepoNames()).fetchDocuments();
+        assertEquals(Arrays.asList(ids.get(2), ids.get(0), ids.get(1)), getIds(docs));
+    }
+
+    @Test
+    public void testHighlights() {
+        List<String> ids = createDocuments(2);
+        SearchHit highlighted = hit(INDEX, ids.get(0));
+        Map<String, HighlightField> highlights = new HashMap<>();
+        highlights.put("dc:title",
+                new HighlightField("dc:title", new Text[] { new Text("<em>Doc0</em>"), new Text("foo") }));
+        highlighted.highlightFields(highlights);
+        SearchResponse response = response(highlighted, hit(INDEX, ids.get(1)));
+        List<DocumentModel> docs = new VcsFetcher(session, response, getRepoNames()).fetchDocuments();
+        assertEquals(ids, getIds(docs));
+
+        Map<String, List<String>> expected = Collections.singletonMap("dc:title",
+                Arrays.asList("<em>Doc0</em>", "foo"));
+        assertEquals(expected, docs.get(0).getContextData(PageProvider.HIGHLIGHT_CTX_DATA));
+        assertNull(docs.get(1).getContextData(PageProvider.HIGHLIGHT_CTX_DATA));
+    }
+
+    @Test
+    public void testMissingDocuments() {
+        List<String> ids = createDocuments(3);
+        session.removeDocument(new IdRef(ids.get(1)));
+        session.save();
+        SearchResponse response = response(hit(INDEX, ids.get(2)), hit(INDEX, "nosuchid"), hit(INDEX, ids.get(1)),
+                hit(INDEX, ids.get(0)));
+        List<DocumentModel> docs = new VcsFetcher(session, response, getRepoNames()).fetchDocuments();
+        assertEquals(Arrays.asList(ids.get(2), ids.get(0)), getIds(docs));
+    }
+
+    @Test
+    public void testSeveralRepositories() {
+        List<String> ids = createDocuments(4);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        List<Boolean> transactions = new CopyOnWriteArrayList<>();
+        String currentThread = Thread.currentThread().getName();
+        // the other repository is served by the repository of the test, in another session
+        VcsFetcher fetcher = new VcsFetcher(session,
+                response(hit(OTHER_INDEX, ids.get(3)), hit(INDEX, ids.get(0)), hit(OTHER_INDEX, ids.get(1)),
+                        hit(INDEX, ids.get(2))),
+                getRepoNames()) {
+            @Override
+            protected List<DocumentModel> fetchFromRepository(String repo, List<String> ids,
+                    NuxeoPrincipal principal) {
+                assertEquals(OTHER_REPOSITORY, repo);
+                threads.add(Thread.currentThread().getName());
+                transactions.add(Boolean.valueOf(TransactionHelper.isTransactionActive()));
+                return super.fetchFromRepository(session.getRepositoryName(), ids, principal);
+            }
+        };
+        List<DocumentModel> docs = fetcher.fetchDocuments();
+        assertEquals(Arrays.asList(ids.get(3), ids.get(0), ids.get(1), ids.get(2)), getIds(docs));
+
+        // the other repository was fetched in a transaction by the executor of the component
+        assertEquals(1, threads.size());
+        assertFalse(threads.get(0).equals(currentThread));
+        assertTrue(threads.get(0), threads.get(0).startsWith("Nuxeo-VcsFetcher-"));
+        assertEquals(Collections.singletonList(Boolean.TRUE), transactions);
+    }
+
+}
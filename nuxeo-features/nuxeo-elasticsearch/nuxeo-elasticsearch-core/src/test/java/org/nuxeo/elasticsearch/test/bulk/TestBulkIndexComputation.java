@@ -0,0 +1,116 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.elasticsearch.test.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.DocWriteRequest.OpType;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse.Failure;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.elasticsearch.bulk.BulkIndexComputation;
+import org.nuxeo.elasticsearch.bulk.BulkIndexController;
+
+public class TestBulkIndexComputation {
+
+    protected static class TestComputation extends BulkIndexComputation {
+
+        protected TestComputation(BulkIndexController controller) {
+            super(1024 * 1024, 1, controller);
+        }
+
+        protected List<DocWriteRequest<?>> getRejectedRequests() {
+            return new ArrayList<>(rejectedRequests);
+        }
+
+        protected boolean isAborted() {
+            return abort;
+        }
+    }
+
+    protected BulkRequest newBulkRequest(int count) {
+        BulkRequest request = new BulkRequest();
+        for (int i = 0; i < count; i++) {
+            request.add(new IndexRequest("nuxeo", "doc", "doc" + i));
+        }
+        return request;
+    }
+
+    protected BulkItemResponse newFailure(int itemId, String id, Exception cause) {
+        return new BulkItemResponse(itemId, OpType.INDEX, new Failure("nuxeo-0001", "doc", id, cause));
+    }
+
+    @Test
+    public void testRejectedItemsAreRequeued() {
+        BulkIndexController controller = new BulkIndexController(true, 10, 100, 1000, 1000);
+        TestComputation computation = new TestComputation(controller);
+        BulkRequest request = newBulkRequest(3);
+        // the item id of the second failure is relative to a retried bulk
+        BulkItemResponse[] items = { newFailure(0, "doc0", new EsRejectedExecutionException("rejected")),
+                newFailure(0, "doc2", new EsRejectedExecutionException("rejected")) };
+        computation.afterBulk(1, request, new BulkResponse(items, 10));
+
+        List<DocWriteRequest<?>> rejected = computation.getRejectedRequests();
+        assertEquals(2, rejected.size());
+        assertSame(request.requests().get(0), rejected.get(0));
+        assertSame(request.requests().get(2), rejected.get(1));
+        // a rejection pauses the indexing but is not an error
+        assertFalse(computation.isAborted());
+        assertEquals(50, controller.getBulkActions());
+        assertTrue(controller.getPauseMs() > 0);
+    }
+
+    @Test
+    public void testRejectedBulkIsRequeued() {
+        BulkIndexController controller = new BulkIndexController(true, 10, 100, 1000, 1000);
+        TestComputation computation = new TestComputation(controller);
+        BulkRequest request = newBulkRequest(2);
+        computation.afterBulk(1, request, new EsRejectedExecutionException("rejected"));
+
+        assertEquals(request.requests(), computation.getRejectedRequests());
+        assertFalse(computation.isAborted());
+        assertTrue(controller.getPauseMs() > 0);
+    }
+
+    @Test
+    public void testFailureAborts() {
+        BulkIndexController controller = new BulkIndexController(true, 10, 100, 1000, 1000);
+        TestComputation computation = new TestComputation(controller);
+        BulkRequest request = newBulkRequest(2);
+        BulkItemResponse[] items = { newFailure(1, "doc1", new NuxeoException("mapping error")) };
+        computation.afterBulk(1, request, new BulkResponse(items, 10));
+
+        assertTrue(computation.getRejectedRequests().isEmpty());
+        assertTrue(computation.isAborted());
+        assertEquals(0, controller.getPauseMs());
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.elasticsearch.test.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.nuxeo.elasticsearch.bulk.BulkIndexController;
+
+public class TestBulkIndexController {
+
+    protected static class TestController extends BulkIndexController {
+
+        protected long time;
+
+        protected TestController(boolean adaptive) {
+            super(adaptive, 100, 1000, 1000, 1000);
+        }
+
+        @Override
+        protected long now() {
+            return time;
+        }
+    }
+
+    @Test
+    public void testAdaptToLatency() {
+        TestController controller = new TestController(true);
+        assertEquals(1000, controller.getBulkActions());
+        assertFalse(controller.shouldFlush(999));
+        assertTrue(controller.shouldFlush(1000));
+
+        controller.onBulk(2000, false);
+        assertEquals(750, controller.getBulkActions());
+        for (int i = 0; i < 20; i++) {
+            controller.onBulk(2000, false);
+        }
+        assertEquals(100, controller.getBulkActions());
+
+        controller.onBulk(500, false);
+        assertEquals(200, controller.getBulkActions());
+        for (int i = 0; i < 20; i++) {
+            controller.onBulk(500, false);
+        }
+        assertEquals(1000, controller.getBulkActions());
+        assertEquals(0, controller.getPauseMs());
+    }
+
+    @Test
+    public void testBackoffOnRejection() {
+        TestController controller = new TestController(true);
+        controller.onBulk(500, true);
+        assertEquals(500, controller.getBulkActions());
+        assertEquals(100, controller.getPauseMs());
+
+        controller.onRejection();
+        assertEquals(250, controller.getBulkActions());
+        assertEquals(200, controller.getPauseMs());
+        for (int i = 0; i < 10; i++) {
+            controller.onRejection();
+        }
+        assertEquals(100, controller.getBulkActions());
+        assertEquals(1000, controller.getPauseMs());
+
+        controller.time += 400;
+        assertEquals(600, controller.getPauseMs());
+        controller.time += 1000;
+        assertEquals(0, controller.getPauseMs());
+
+        // the backoff restarts after a successful bulk
+        controller.onBulk(500, false);
+        controller.onRejection();
+        assertEquals(100, controller.getPauseMs());
+    }
+
+    @Test
+    public void testNotAdaptive() {
+        TestController controller = new TestController(false);
+        controller.onBulk(5000, false);
+        assertEquals(1000, controller.getBulkActions());
+        controller.onRejection();
+        assertEquals(1000, controller.getBulkActions());
+        assertEquals(100, controller.getPauseMs());
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.elasticsearch.work;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.ecm.core.work.WorkCodecs;
+import org.nuxeo.elasticsearch.commands.IndexingCommand;
+import org.nuxeo.elasticsearch.commands.IndexingCommand.Type;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * Checks that the {@link IndexingWorker} registered with the Avro codec survives an encode/decode round trip.
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreFeature.class)
+@Deploy("org.nuxeo.elasticsearch.core:OSGI-INF/workmanager-contrib.xml")
+public class TestIndexingWorkerCodec {
+
+    @Inject
+    protected CoreSession session;
+
+    @Test
+    public void testEncodeDecode() throws Exception {
+        DocumentModel doc = session.createDocumentModel("/", "folder", "Folder");
+        doc = session.createDocument(doc);
+        IndexingCommand insert = new IndexingCommand(doc, Type.INSERT, false, false);
+        insert.addSchemas("dublincore");
+        IndexingCommand update = new IndexingCommand(doc, Type.UPDATE_SECURITY, false, true);
+        update.setOrder(2);
+        IndexingWorker work = new IndexingWorker(session.getRepositoryName(), Arrays.asList(insert, update));
+
+        byte[] data = WorkCodecs.encode(work);
+        assertNotNull("IndexingWorker cannot be encoded", data);
+        assertTrue(WorkCodecs.isEncoded(data));
+
+        IndexingWorker decoded = (IndexingWorker) WorkCodecs.decode(data);
+        assertEquals(work.getId(), decoded.getId());
+        assertEquals(work.getDocument(), decoded.getDocument());
+        assertEquals(work.getCmdsDigest(), decoded.getCmdsDigest());
+        List<IndexingCommand> cmds = decoded.cmds;
+        assertEquals(2, cmds.size());
+        assertEquals(insert.toJSON(), cmds.get(0).toJSON());
+        assertArrayEquals(new String[] { "dublincore" }, cmds.get(0).getSchemas());
+        assertEquals(update.toJSON(), cmds.get(1).toJSON());
+        assertEquals(Type.UPDATE_SECURITY, cmds.get(1).getType());
+        assertTrue(cmds.get(1).isRecurse());
+        assertNull(cmds.get(1).getSchemas());
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.platform.audit.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+
+/**
+ * Coalesces the log entries written concurrently by the audit writer computations into a single write to the audit
+ * backend.
+ * <p>
+ * The first writer to submit entries leads a group: it waits for the other registered writers to join, until the group
+ * reaches a maximum number of entries or a maximum delay expires, then it writes all the entries at once. The other
+ * writers of the group wait for this write to complete so that they only checkpoint their input once their entries
+ * are persisted, a failure of the group write is reported to every writer of the group.
+ *
+ * @since 11.1
+ */
+public class AuditGroupCommitter {
+
+    private static final Logger log = LogManager.getLogger(AuditGroupCommitter.class);
+
+    protected final int maxEntries;
+
+    protected final long maxDelayNanos;
+
+    protected final Consumer<List<LogEntry>> backendWriter;
+
+    protected final Set<Object> writers = new HashSet<>();
+
+    protected final ReentrantLock lock = new ReentrantLock();
+
+    protected final Condition changed = lock.newCondition();
+
+    protected Group current;
+
+    protected static class Group {
+
+        protected final List<LogEntry> entries = new ArrayList<>();
+
+        protected final Set<Object> writers = new HashSet<>();
+
+        protected final CompletableFuture<Void> written = new CompletableFuture<>();
+
+    }
+
+    /**
+     * @param maxEntries a group is written as soon as it contains this number of entries
+     * @param maxDelayMs maximum time the leader of a group waits for the other writers
+     * @param backendWriter writes the entries of a group
+     */
+    public AuditGroupCommitter(int maxEntries, long maxDelayMs, Consumer<List<LogEntry>> backendWriter) {
+        this.maxEntries = maxEntries;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.backendWriter = backendWriter;
+    }
+
+    /**
+     * Registers an active writer, a group is written without waiting for the delay once all registered writers joined.
+     */
+    public void register(Object writer) {
+        lock.lock();
+        try {
+            writers.add(writer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void unregister(Object writer) {
+        lock.lock();
+        try {
+            writers.remove(writer);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the entries as part of a group, returns once the group containing the entries is written.
+     *
+     * @throws NuxeoException if the group write failed
+     */
+    public void write(Object writer, List<LogEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Group group;
+        boolean leader;
+        lock.lock();
+        try {
+            leader = current == null;
+            if (leader) {
+                current = new Group();
+            }
+            group = current;
+            group.entries.addAll(entries);
+            group.writers.add(writer);
+            if (leader) {
+                waitForGroup(group);
+                current = null;
+            } else {
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (leader) {
+            writeGroup(group);
+        } else {
+            waitForWrite(group);
+        }
+    }
+
+    protected void waitForGroup(Group group) {
+        long remaining = maxDelayNanos;
+        while (remaining > 0 && !isComplete(group)) {
+            try {
+                remaining = changed.awaitNanos(remaining);
+            } catch (InterruptedException e) {
+                // the group must be written anyway, the followers are waiting for it
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    protected boolean isComplete(Group group) {
+        return group.entries.size() >= maxEntries || group.writers.containsAll(writers);
+    }
+
+    protected void writeGroup(Group group) {
+        log.debug("Writing a group of {} log entries from {} writers", group.entries::size, group.writers::size);
+        try {
+            backendWriter.accept(group.entries);
+        } catch (RuntimeException | Error e) {
+            group.written.completeExceptionally(e);
+            throw e;
+        }
+        group.written.complete(null);
+    }
+
+    protected void waitForWrite(Group group) {
+        try {
+            group.written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException("Interrupted while writing log entries", e);
+        } catch (ExecutionException e) {
+            throw new NuxeoException("Failed to write a group of log entries", e.getCause());
+        }
+    }
+
+}
@@ -41,6 +41,7 @@ import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.stream.StreamProcessorTopology;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 /**
  * Computation that consumes a stream of log entries and write them to the audit backend.
@@ -52,19 +53,90 @@ public class StreamAuditWriter implements StreamProcessorTopology {
 
     public static final String COMPUTATION_NAME = "AuditLogWriter";
 
+    /**
+     * Enables the coalescing of the entries written by the concurrent computation threads into a single write.
+     *
+     * @since 11.1
+     */
+    public static final String GROUP_COMMIT_OPTION = "groupCommit";
+
+    /**
+     * A group is written as soon as it reaches this number of entries.
+     *
+     * @since 11.1
+     */
+    public static final String GROUP_COMMIT_MAX_ENTRIES_OPTION = "groupCommitMaxEntries";
+
+    /**
+     * Maximum time in milliseconds a group waits for the other computation threads before being written.
+     *
+     * @since 11.1
+     */
+    public static final String GROUP_COMMIT_MAX_DELAY_OPTION = "groupCommitMaxDelayMs";
+
+    protected static final int GROUP_COMMIT_MAX_ENTRIES_DEFAULT = 1000;
+
+    protected static final int GROUP_COMMIT_MAX_DELAY_DEFAULT = 100;
+
+    /**
+     * Thread safe reader shared by the computations to avoid creating a mapper for each record.
+     */
+    protected static final ObjectReader LOG_ENTRY_READER = new ObjectMapper().readerFor(LogEntryImpl.class);
+
     @Override
     public Topology getTopology(Map<String, String> options) {
+        AuditGroupCommitter committer = null;
+        if (Boolean.parseBoolean(options.getOrDefault(GROUP_COMMIT_OPTION, "false"))) {
+            committer = new AuditGroupCommitter(
+                    getOptionAsInteger(options, GROUP_COMMIT_MAX_ENTRIES_OPTION, GROUP_COMMIT_MAX_ENTRIES_DEFAULT),
+                    getOptionAsInteger(options, GROUP_COMMIT_MAX_DELAY_OPTION, GROUP_COMMIT_MAX_DELAY_DEFAULT),
+                    entries -> Framework.getService(AuditLogger.class).addLogEntries(entries));
+        }
+        AuditGroupCommitter groupCommitter = committer;
         return Topology.builder()
                        .addComputation(
-                               () -> new AuditLogWriterComputation(COMPUTATION_NAME),
+                               () -> new AuditLogWriterComputation(COMPUTATION_NAME, groupCommitter),
                                Collections.singletonList("i1:" + STREAM_NAME))
                        .build();
     }
 
+    protected static int getOptionAsInteger(Map<String, String> options, String option, int defaultValue) {
+        String value = options.get(option);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
     public static class AuditLogWriterComputation extends AbstractBatchComputation {
 
+        protected final AuditGroupCommitter groupCommitter;
+
         public AuditLogWriterComputation(String name) {
+            this(name, null);
+        }
+
+        /**
+         * @param groupCommitter coalesces the writes with the other computation threads, {@code null} to write the
+         *            entries of each batch directly
+         * @since 11.1
+         */
+        public AuditLogWriterComputation(String name, AuditGroupCommitter groupCommitter) {
             super(name, 1, 0);
+            this.groupCommitter = groupCommitter;
+        }
+
+        @Override
+        public void init(ComputationContext context) {
+            super.init(context);
+            if (groupCommitter != null) {
+                groupCommitter.register(this);
+            }
+        }
+
+        @Override
+        public void destroy() {
+            if (groupCommitter != null) {
+                groupCommitter.unregister(this);
+            }
+            super.destroy();
         }
 
         @Override
@@ -92,6 +164,10 @@ public class StreamAuditWriter implements StreamProcessorTopology {
             if (log.isDebugEnabled()) {
                 log.debug(String.format("Writing %d log entries to audit backend.", logEntries.size()));
             }
+            if (groupCommitter != null) {
+                groupCommitter.write(this, logEntries);
+                return;
+            }
             AuditLogger logger = Framework.getService(AuditLogger.class);
             logger.addLogEntries(logEntries);
         }
@@ -100,8 +176,7 @@ public class StreamAuditWriter implements StreamProcessorTopology {
             String json = "";
             try {
                 json = new String(data, UTF_8);
-                ObjectMapper mapper = new ObjectMapper();
-                return mapper.readValue(json, LogEntryImpl.class);
+                return LOG_ENTRY_READER.readValue(json);
             } catch (IOException e) {
                 throw new NuxeoException("Invalid json logEntry" + json, e);
             }
@@ -53,6 +53,14 @@ public class LogEntryProvider implements BaseLogEntryProvider {
 
     public static final String LIKE = "LIKE";
 
+    /**
+     * Number of persisted entries after which the persistence context is flushed, matches the hibernate.jdbc.batch_size
+     * of the audit persistence unit.
+     *
+     * @since 11.1
+     */
+    protected static final int FLUSH_SIZE = 50;
+
     protected final EntityManager em;
 
     private LogEntryProvider(EntityManager em) {
@@ -119,7 +127,14 @@ public class LogEntryProvider implements BaseLogEntryProvider {
     }
 
     public void addLogEntries(List<LogEntry> entries) {
-        entries.forEach(this::doPersist);
+        for (int i = 0; i < entries.size(); i++) {
+            doPersist(entries.get(i));
+            if ((i + 1) % FLUSH_SIZE == 0) {
+                // send the pending inserts as a JDBC batch and keep the persistence context small
+                em.flush();
+                em.clear();
+            }
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -0,0 +1,140 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.platform.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.impl.AuditGroupCommitter;
+import org.nuxeo.ecm.platform.audit.impl.LogEntryImpl;
+
+public class TestAuditGroupCommitter {
+
+    protected final List<Integer> groupSizes = new CopyOnWriteArrayList<>();
+
+    protected static List<LogEntry> entries(int count) {
+        List<LogEntry> ret = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ret.add(new LogEntryImpl());
+        }
+        return ret;
+    }
+
+    @Test
+    public void testWritersAreCoalesced() throws Exception {
+        final int NB_WRITERS = 4;
+        // a long delay, the group is complete once all writers joined
+        AuditGroupCommitter committer = new AuditGroupCommitter(1000, 60_000, list -> groupSizes.add(list.size()));
+        for (int i = 0; i < NB_WRITERS; i++) {
+            committer.register(i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(NB_WRITERS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < NB_WRITERS; i++) {
+                Integer writer = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    committer.write(writer, entries(10));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Collections.singletonList(40), groupSizes);
+    }
+
+    @Test
+    public void testMaxEntriesAndDelay() {
+        AuditGroupCommitter committer = new AuditGroupCommitter(5, 60_000, list -> groupSizes.add(list.size()));
+        committer.register("writer1");
+        committer.register("idle");
+        // the group is full, no need to wait for the idle writer
+        committer.write("writer1", entries(5));
+        assertEquals(Collections.singletonList(5), groupSizes);
+
+        committer = new AuditGroupCommitter(1000, 50, list -> groupSizes.add(list.size()));
+        committer.register("writer1");
+        committer.register("idle");
+        long start = System.currentTimeMillis();
+        committer.write("writer1", entries(2));
+        assertTrue(System.currentTimeMillis() - start >= 50);
+        assertEquals(2, groupSizes.get(1).intValue());
+
+        // an unregistered writer is not waited for
+        committer.unregister("idle");
+        committer.write("writer1", entries(3));
+        assertEquals(3, groupSizes.get(2).intValue());
+    }
+
+    @Test
+    public void testFailureIsReportedToAllWriters() throws Exception {
+        CountDownLatch joined = new CountDownLatch(1);
+        AuditGroupCommitter committer = new AuditGroupCommitter(2, 60_000, list -> {
+            throw new NuxeoException("backend failure");
+        });
+        committer.register("leader");
+        committer.register("follower");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> leader = executor.submit(() -> {
+                joined.countDown();
+                committer.write("leader", entries(1));
+                return null;
+            });
+            joined.await();
+            try {
+                committer.write("follower", entries(1));
+                fail("follower should fail");
+            } catch (NuxeoException e) {
+                // expected, either as the leader or the follower of the group
+            }
+            try {
+                leader.get(10, TimeUnit.SECONDS);
+                fail("leader should fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof NuxeoException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -83,6 +83,7 @@ import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertManyOptions;
 import com.mongodb.client.model.Sorts;
 import com.mongodb.util.JSON;
 
@@ -348,7 +349,8 @@ public class MongoDBAuditBackend extends AbstractAuditBackend implements AuditBa
             }
             documents.add(MongoDBAuditEntryWriter.asDocument(entry));
         }
-        collection.insertMany(documents);
+        // entries are independent, let the server apply the whole batch without stopping on the first error
+        collection.insertMany(documents, new InsertManyOptions().ordered(false));
     }
 
     @Override
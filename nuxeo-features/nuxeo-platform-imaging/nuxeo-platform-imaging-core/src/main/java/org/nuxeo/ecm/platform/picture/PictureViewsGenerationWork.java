@@ -54,6 +54,11 @@ public class PictureViewsGenerationWork extends AbstractWork {
 
     protected final String xpath;
 
+    // for Avro
+    private PictureViewsGenerationWork() {
+        xpath = null;
+    }
+
     public PictureViewsGenerationWork(String repositoryName, String docId, String xpath) {
         super(repositoryName + ':' + docId + ':' + xpath + ":pictureView");
         setDocument(repositoryName, docId);
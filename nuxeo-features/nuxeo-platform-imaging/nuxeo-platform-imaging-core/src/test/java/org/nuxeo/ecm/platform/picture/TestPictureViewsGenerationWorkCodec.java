@@ -0,0 +1,58 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.platform.picture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.ecm.core.work.WorkCodecs;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * Checks that the {@link PictureViewsGenerationWork} registered with the Avro codec survives an encode/decode round
+ * trip.
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreFeature.class)
+@Deploy("org.nuxeo.ecm.platform.picture.core:OSGI-INF/picture-workmanager-contrib.xml")
+public class TestPictureViewsGenerationWorkCodec {
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testEncodeDecode() {
+        PictureViewsGenerationWork work = new PictureViewsGenerationWork("test", "docid", "file:content");
+
+        byte[] data = WorkCodecs.encode(work);
+        assertNotNull("PictureViewsGenerationWork cannot be encoded", data);
+        assertTrue(WorkCodecs.isEncoded(data));
+
+        PictureViewsGenerationWork decoded = (PictureViewsGenerationWork) WorkCodecs.decode(data);
+        assertEquals("test:docid:file:content:pictureView", decoded.getId());
+        assertEquals(work.getDocument(), decoded.getDocument());
+        assertEquals("docid", decoded.getPartitionKey());
+        assertEquals("file:content", decoded.xpath);
+    }
+
+}
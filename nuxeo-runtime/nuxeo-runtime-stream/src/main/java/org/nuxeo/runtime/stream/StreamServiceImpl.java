@@ -31,6 +31,7 @@ import org.nuxeo.common.Environment;
 import org.nuxeo.lib.stream.StreamRuntimeException;
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.RecordTracer;
 import org.nuxeo.lib.stream.computation.Settings;
 import org.nuxeo.lib.stream.computation.StreamManager;
 import org.nuxeo.lib.stream.computation.StreamProcessor;
@@ -60,6 +61,9 @@ public class StreamServiceImpl extends DefaultComponent implements StreamService
 
     public static final String DEFAULT_CODEC = "avro";
 
+    /** @since 11.1 */
+    public static final String NUXEO_STREAM_TRACING_SAMPLING_PROP = "nuxeo.stream.tracing.sampling";
+
     protected static final String XP_LOG_CONFIG = "logConfig";
 
     protected static final String XP_STREAM_PROCESSOR = "streamProcessor";
@@ -95,7 +99,15 @@ public class StreamServiceImpl extends DefaultComponent implements StreamService
 
     @Override
     public StreamManager getStreamManager(String name) {
-        return streamManagers.computeIfAbsent(name, app -> new LogStreamManager(getLogManager(name)));
+        return streamManagers.computeIfAbsent(name, app -> new LogStreamManager(getLogManager(name), getTracer()));
+    }
+
+    /**
+     * @since 11.1
+     */
+    protected RecordTracer getTracer() {
+        int sampling = Integer.parseInt(Framework.getProperty(NUXEO_STREAM_TRACING_SAMPLING_PROP, "0"));
+        return sampling > 0 ? new RecordTracer(sampling) : RecordTracer.DISABLED;
     }
 
     protected LogManager createKafkaLogManager(LogConfigDescriptor config) {
@@ -110,7 +122,8 @@ public class StreamServiceImpl extends DefaultComponent implements StreamService
         String directory = config.options.getOrDefault("directory", config.getId());
         Path path = getChroniclePath(basePath, directory);
         String retention = getChronicleRetention(config.options.getOrDefault("retention", null));
-        return new ChronicleLogManager(path, retention);
+        String compression = config.options.getOrDefault("compression", null);
+        return new ChronicleLogManager(path, retention, compression);
     }
 
     protected String getChronicleRetention(String retention) {
@@ -28,10 +28,12 @@ import org.apache.commons.logging.LogFactory;
  * An abstract {@link Computation} that processes records by batch.
  * <p>
  * The batch capacity and threshold are defined in the computation policy.
+ * <p>
+ * Since 11.1 the runner polls the records by batch, see {@link BatchComputation}.
  *
  * @since 10.3
  */
-public abstract class AbstractBatchComputation extends AbstractComputation {
+public abstract class AbstractBatchComputation extends AbstractComputation implements BatchComputation {
 
     private static final Log log = LogFactory.getLog(AbstractBatchComputation.class);
 
@@ -47,6 +49,14 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
 
     protected boolean removeLastRecordOnRetry;
 
+    // the polled batch being processed and the position of its first record not yet added to the batch
+    protected RecordBatch polledBatch;
+
+    protected int polledPosition;
+
+    // a batch was processed while polled records were pending, the checkpoint is asked once they are processed
+    protected boolean checkpointDeferred;
+
     /**
      * Constructor
      *
@@ -111,13 +121,58 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
         }
     }
 
+    /**
+     * Adds the polled records to the batch. On retry the records already added are not added again and a batch that
+     * failed on capacity is processed first.
+     * <p>
+     * The runner commits the offset of the whole polled batch on checkpoint, so a checkpoint is asked only when no
+     * polled record is left pending in the batch.
+     *
+     * @since 11.1
+     */
+    @Override
+    public void processBatch(ComputationContext context, RecordBatch batch) {
+        int capacity = context.getPolicy().getBatchCapacity();
+        if (batch != polledBatch) {
+            polledBatch = batch;
+            polledPosition = 0;
+        } else if (batchRecords.size() >= capacity) {
+            batchProcess(context);
+        }
+        while (polledPosition < batch.size()) {
+            String inputStreamName = batch.getInputStreamName(polledPosition);
+            if (!inputStreamName.equals(currentInputStream) && !batchRecords.isEmpty()) {
+                batchProcess(context);
+            }
+            if (newBatch) {
+                currentInputStream = inputStreamName;
+                newBatch = false;
+            }
+            batchRecords.add(batch.getRecord(polledPosition++));
+            if (batchRecords.size() >= capacity) {
+                batchProcess(context);
+            }
+        }
+        polledBatch = null;
+        if (checkpointDeferred && batchRecords.isEmpty()) {
+            checkpointDeferred = false;
+            context.askForCheckpoint();
+        }
+    }
+
     private void batchProcess(ComputationContext context) {
         batchProcess(context, currentInputStream, batchRecords);
         checkpointBatch(context);
     }
 
     protected void checkpointBatch(ComputationContext context) {
-        context.askForCheckpoint();
+        if (polledBatch == null) {
+            checkpointDeferred = false;
+            context.askForCheckpoint();
+        } else {
+            // the remaining polled records would be committed with the processed ones
+            checkpointDeferred = true;
+        }
         batchRecords.clear();
         newBatch = true;
     }
@@ -139,6 +194,13 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
         log.error(String.format(
                 "Computation: %s fails to process batch of %d records after retries, last record: %s, policy: %s",
                 metadata.name(), batchRecords.size(), context.getLastOffset(), context.getPolicy()), failure);
+        if (polledBatch != null) {
+            // the remaining polled records are skipped with the failed batch
+            while (polledPosition < polledBatch.size()) {
+                batchRecords.add(polledBatch.getRecord(polledPosition++));
+            }
+            polledBatch = null;
+        }
         batchFailure(context, currentInputStream, batchRecords);
         batchRecords.clear();
         newBatch = true;
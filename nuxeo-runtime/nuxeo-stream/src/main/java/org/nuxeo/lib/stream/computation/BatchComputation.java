@@ -0,0 +1,42 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.computation;
+
+/**
+ * A computation that receives the records polled from its input streams by batch instead of one at a time.
+ * <p>
+ * The runner reads up to the policy batch capacity of records without waiting once a first record is available, it
+ * ends the batch early on a record flagged to commit or to stop. The retry policy applies to the whole batch and the
+ * checkpoint is evaluated once the batch is processed, {@link #processRecord} is not called by the runner.
+ *
+ * @since 11.1
+ */
+public interface BatchComputation extends Computation {
+
+    /**
+     * Process a batch of records read from the computation's input streams.
+     * <p>
+     * On retry the same batch instance is passed again.
+     *
+     * @param context The computation context object provided by the system.
+     * @param batch The records with their input stream and offset.
+     */
+    void processBatch(ComputationContext context, RecordBatch batch);
+
+}
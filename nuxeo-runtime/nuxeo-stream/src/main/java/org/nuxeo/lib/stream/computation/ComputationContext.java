@@ -19,6 +19,8 @@
  */
 package org.nuxeo.lib.stream.computation;
 
+import java.util.List;
+
 import org.nuxeo.lib.stream.log.LogOffset;
 
 /**
@@ -47,6 +49,15 @@ public interface ComputationContext {
 
     void produceRecord(String streamName, Record record);
 
+    /**
+     * Emit records downstream. Records are send effectively on checkpoint using {@link #askForCheckpoint()}.
+     *
+     * @since 11.1
+     */
+    default void produceRecords(String streamName, List<Record> records) {
+        records.forEach(record -> produceRecord(streamName, record));
+    }
+
     /**
      * Set the low watermark for a source computation.
      */
@@ -0,0 +1,95 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.computation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.nuxeo.lib.stream.log.LogOffset;
+
+/**
+ * The records polled from the input streams of a computation in a single read loop, with the offset and the input
+ * stream of each record.
+ *
+ * @since 11.1
+ */
+public class RecordBatch {
+
+    protected final List<Record> records;
+
+    protected final List<LogOffset> offsets;
+
+    protected final List<String> inputStreams;
+
+    public RecordBatch(int capacity) {
+        records = new ArrayList<>(capacity);
+        offsets = new ArrayList<>(capacity);
+        inputStreams = new ArrayList<>(capacity);
+    }
+
+    public void add(String inputStreamName, Record record, LogOffset offset) {
+        inputStreams.add(inputStreamName);
+        records.add(record);
+        offsets.add(offset);
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    public boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    /**
+     * Returns the records in the order they have been read.
+     */
+    public List<Record> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+
+    public Record getRecord(int index) {
+        return records.get(index);
+    }
+
+    /**
+     * Returns the offset of the record at the given index, its partition name is the name of the underlying Log.
+     */
+    public LogOffset getOffset(int index) {
+        return offsets.get(index);
+    }
+
+    /**
+     * Returns the computation input stream name of the record at the given index.
+     */
+    public String getInputStreamName(int index) {
+        return inputStreams.get(index);
+    }
+
+    public LogOffset getLastOffset() {
+        return offsets.isEmpty() ? null : offsets.get(offsets.size() - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "RecordBatch{" + "size=" + records.size() + ", lastOffset=" + getLastOffset() + '}';
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.computation;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sampling based tracing of records across the streams of a topology.
+ * <p>
+ * A sampled record is stamped when it is appended to a stream with the time its trace started and the time it is
+ * enqueued. The stamp is a trailer added to the record data, after the record filters, and flagged with
+ * {@link #TRACE_FLAG}, so it does not depend on the codec. The computation runner removes the trailer before the record
+ * filters and the computation see the record, it measures the time spent in the stream and the latency since the start
+ * of the trace, the records produced while processing a traced record continue its trace.
+ * <p>
+ * Readers that are not computations see the trailer as part of the data of a traced record, they can remove it with
+ * {@link #untraced(Record)} as the stream tool commands do.
+ *
+ * @since 11.1
+ */
+public class RecordTracer {
+
+    /** The flag of a record that contains a trace trailer, it uses the flag reserved for internal use. */
+    public static final Record.Flag TRACE_FLAG = Record.Flag.INTERNAL1;
+
+    /** Tracer that only continues the traces, no new trace is started. */
+    public static final RecordTracer DISABLED = new RecordTracer(0);
+
+    protected static final int TRAILER_SIZE = 2 * Long.BYTES;
+
+    protected final int sampling;
+
+    protected final AtomicLong count = new AtomicLong();
+
+    /**
+     * @param sampling starts a trace on one record out of {@code sampling} appended records, {@code 0} to disable
+     */
+    public RecordTracer(int sampling) {
+        if (sampling < 0) {
+            throw new IllegalArgumentException("Invalid sampling: " + sampling);
+        }
+        this.sampling = sampling;
+    }
+
+    public boolean isEnabled() {
+        return sampling > 0;
+    }
+
+    /**
+     * Returns the record to append: a stamped copy if the record continues a trace or is sampled to start a new one,
+     * the record itself otherwise.
+     *
+     * @param origin the start time of the trace to continue, {@code 0} if the record is not part of a trace
+     */
+    public Record stamp(Record record, long origin) {
+        if (isTraced(record)) {
+            // already stamped, for instance a copy of a traced record
+            return record;
+        }
+        long now = System.currentTimeMillis();
+        if (origin <= 0) {
+            if (!sample()) {
+                return record;
+            }
+            origin = now;
+        }
+        byte[] data = record.getData();
+        byte[] traced = ByteBuffer.allocate(data.length + TRAILER_SIZE).put(data).putLong(origin).putLong(now).array();
+        EnumSet<Record.Flag> flags = EnumSet.copyOf(record.getFlags());
+        flags.add(TRACE_FLAG);
+        return new Record(record.getKey(), traced, record.getWatermark(), flags);
+    }
+
+    protected boolean sample() {
+        return isEnabled() && count.getAndIncrement() % sampling == 0;
+    }
+
+    public static boolean isTraced(Record record) {
+        return record.getFlags().contains(TRACE_FLAG) && record.getData().length >= TRAILER_SIZE;
+    }
+
+    /**
+     * Removes the trace of a record read from a stream.
+     *
+     * @return the trace, or {@code null} if the record is not traced
+     */
+    public static Trace read(Record record) {
+        if (!isTraced(record)) {
+            return null;
+        }
+        byte[] traced = record.getData();
+        int length = traced.length - TRAILER_SIZE;
+        ByteBuffer trailer = ByteBuffer.wrap(traced, length, TRAILER_SIZE);
+        long origin = trailer.getLong();
+        long enqueued = trailer.getLong();
+        EnumSet<Record.Flag> flags = EnumSet.copyOf(record.getFlags());
+        flags.remove(TRACE_FLAG);
+        Record untraced = new Record(record.getKey(), Arrays.copyOf(traced, length), record.getWatermark(), flags);
+        return new Trace(untraced, origin, enqueued);
+    }
+
+    /**
+     * Returns the record without its trace, or the record itself if it is not traced.
+     */
+    public static Record untraced(Record record) {
+        Trace trace = read(record);
+        return trace == null ? record : trace.getRecord();
+    }
+
+    /**
+     * The timestamps carried by a traced record.
+     */
+    public static class Trace {
+
+        protected final Record record;
+
+        protected final long origin;
+
+        protected final long enqueued;
+
+        protected Trace(Record record, long origin, long enqueued) {
+            this.record = record;
+            this.origin = origin;
+            this.enqueued = enqueued;
+        }
+
+        /**
+         * Returns the record without its trace.
+         */
+        public Record getRecord() {
+            return record;
+        }
+
+        /**
+         * Returns the time in milliseconds when the trace started.
+         */
+        public long getOrigin() {
+            return origin;
+        }
+
+        /**
+         * Returns the time in milliseconds when the record has been appended to the stream.
+         */
+        public long getEnqueued() {
+            return enqueued;
+        }
+
+        @Override
+        public String toString() {
+            return "Trace{" + "origin=" + origin + ", enqueued=" + enqueued + '}';
+        }
+    }
+
+}
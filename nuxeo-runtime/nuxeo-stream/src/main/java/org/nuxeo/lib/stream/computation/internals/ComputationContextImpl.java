@@ -99,6 +99,15 @@ public class ComputationContextImpl implements ComputationContext {
         streamRecords.computeIfAbsent(targetStream, key -> new ArrayList<>()).add(record);
     }
 
+    @Override
+    public void produceRecords(String streamName, List<Record> records) {
+        String targetStream = metadata.map(streamName);
+        if (!metadata.outputStreams().contains(targetStream)) {
+            throw new IllegalArgumentException("Stream not registered as output: " + targetStream + ":" + streamName);
+        }
+        streamRecords.computeIfAbsent(targetStream, key -> new ArrayList<>(records.size())).addAll(records);
+    }
+
     /**
      * Writes to an output stream immediately. This will creates systematically duplicates on errors, always use
      * {@link #produceRecord(String, Record)} when possible.
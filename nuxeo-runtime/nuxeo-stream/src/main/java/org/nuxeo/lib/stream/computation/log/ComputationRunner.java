@@ -20,6 +20,8 @@ package org.nuxeo.lib.stream.computation.log;
 
 import java.time.Duration;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,10 +33,13 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.nuxeo.lib.stream.computation.BatchComputation;
 import org.nuxeo.lib.stream.computation.Computation;
 import org.nuxeo.lib.stream.computation.ComputationMetadataMapping;
 import org.nuxeo.lib.stream.computation.ComputationPolicy;
 import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.RecordBatch;
+import org.nuxeo.lib.stream.computation.RecordTracer;
 import org.nuxeo.lib.stream.computation.Watermark;
 import org.nuxeo.lib.stream.computation.internals.ComputationContextImpl;
 import org.nuxeo.lib.stream.computation.internals.WatermarkMonotonicInterval;
@@ -124,12 +129,32 @@ public class ComputationRunner implements Runnable, RebalanceListener {
 
     protected Timer processTimerTimer;
 
+    // @since 11.1
+    protected Timer processBatchTimer;
+
     // @since 11.1
     protected static AtomicInteger skipFailures = new AtomicInteger(0);
 
     // @since 11.1
     protected boolean recordActivity;
 
+    // @since 11.1
+    protected Timer traceQueueTimer;
+
+    // @since 11.1
+    protected Timer traceLatencyTimer;
+
+    // @since 11.1
+    protected Timer traceProcessTimer;
+
+    // @since 11.1
+    // start time of the trace continued by the records produced while processing traced records
+    protected final Map<Record, Long> traceOrigins = new IdentityHashMap<>();
+
+    // @since 11.1
+    // start time of the oldest trace of the last polled batch, 0 when no record is traced
+    protected long batchTraceOrigin;
+
     @SuppressWarnings("unchecked")
     public ComputationRunner(Supplier<Computation> supplier, ComputationMetadataMapping metadata,
             List<LogPartition> defaultAssignment, LogStreamManager streamManager, ComputationPolicy policy) {
@@ -233,6 +258,14 @@ public class ComputationRunner implements Runnable, RebalanceListener {
                 MetricRegistry.name("nuxeo", "stream", "computation", metadata.name(), "processRecord"));
         processTimerTimer = registry.timer(
                 MetricRegistry.name("nuxeo", "stream", "computation", metadata.name(), "processTimer"));
+        processBatchTimer = registry.timer(
+                MetricRegistry.name("nuxeo", "stream", "computation", metadata.name(), "processBatch"));
+        traceQueueTimer = registry.timer(
+                MetricRegistry.name("nuxeo", "stream", "computation", metadata.name(), "trace", "queue"));
+        traceLatencyTimer = registry.timer(
+                MetricRegistry.name("nuxeo", "stream", "computation", metadata.name(), "trace", "latency"));
+        traceProcessTimer = registry.timer(
+                MetricRegistry.name("nuxeo", "stream", "computation", metadata.name(), "trace", "process"));
     }
 
     protected void closeTailer() {
@@ -329,6 +362,9 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         if (tailer == null) {
             return false;
         }
+        if (computation instanceof BatchComputation) {
+            return processBatch();
+        }
         Duration timeoutRead = getTimeoutDuration();
         LogRecord<Record> logRecord = null;
         try {
@@ -339,6 +375,11 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         Record record;
         if (logRecord != null) {
             record = logRecord.message();
+            RecordTracer.Trace trace = RecordTracer.read(record);
+            if (trace != null) {
+                record = trace.getRecord();
+                traceDequeue(trace);
+            }
             String stream = logRecord.offset().partition().name();
             Record filteredRecord = streamManager.getFilter(stream).afterRead(record, logRecord.offset());
             if (filteredRecord == null) {
@@ -355,7 +396,12 @@ public class ComputationRunner implements Runnable, RebalanceListener {
             lowWatermark.mark(record.getWatermark());
             context.setLastOffset(logRecord.offset());
             String from = metadata.reverseMap(stream);
-            processRecordWithRetry(from, record);
+            if (trace == null) {
+                processRecordWithRetry(from, record);
+            } else {
+                Record tracedRecord = record;
+                processTraced(trace.getOrigin(), () -> processRecordWithRetry(from, tracedRecord));
+            }
             checkRecordFlags(record);
             checkSourceLowWatermark();
             setThreadName("record");
@@ -378,6 +424,121 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         }
     }
 
+    /**
+     * Reads and processes a batch of records for a {@link BatchComputation}.
+     *
+     * @since 11.1
+     */
+    protected boolean processBatch() throws InterruptedException {
+        RecordBatch batch = pollBatch();
+        if (batch == null) {
+            return false;
+        }
+        lastReadTime = System.currentTimeMillis();
+        context.setLastOffset(batch.getLastOffset());
+        if (batchTraceOrigin == 0) {
+            processBatchWithRetry(batch);
+        } else {
+            processTraced(batchTraceOrigin, () -> processBatchWithRetry(batch));
+        }
+        batch.getRecords().forEach(this::checkRecordFlags);
+        checkSourceLowWatermark();
+        setThreadName("batch");
+        checkpointIfNecessary();
+        return true;
+    }
+
+    /**
+     * Reads up to the batch capacity of records, waiting only for the first one.
+     *
+     * @return the batch or {@code null} if there is no record to process
+     * @since 11.1
+     */
+    protected RecordBatch pollBatch() throws InterruptedException {
+        int capacity = Math.max(1, policy.getBatchCapacity());
+        RecordBatch batch = new RecordBatch(capacity);
+        batchTraceOrigin = 0;
+        Duration timeoutRead = getTimeoutDuration();
+        while (batch.size() < capacity) {
+            LogRecord<Record> logRecord;
+            try {
+                logRecord = tailer.read(batch.isEmpty() ? timeoutRead : Duration.ZERO);
+            } catch (RebalanceException e) {
+                // the records read belong to the previous assignment, they are not committed and will be read again
+                return null;
+            }
+            if (logRecord == null) {
+                break;
+            }
+            String stream = logRecord.offset().partition().name();
+            Record record = logRecord.message();
+            RecordTracer.Trace trace = RecordTracer.read(record);
+            if (trace != null) {
+                record = trace.getRecord();
+                traceDequeue(trace);
+                batchTraceOrigin = batchTraceOrigin == 0 ? trace.getOrigin()
+                        : Math.min(batchTraceOrigin, trace.getOrigin());
+            }
+            record = streamManager.getFilter(stream).afterRead(record, logRecord.offset());
+            if (record == null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Filtering skip record: " + logRecord.message());
+                }
+                continue;
+            }
+            inRecords++;
+            lowWatermark.mark(record.getWatermark());
+            batch.add(metadata.reverseMap(stream), record, logRecord.offset());
+            if (record.getFlags().contains(Record.Flag.POISON_PILL) || record.getFlags().contains(Record.Flag.COMMIT)) {
+                break;
+            }
+        }
+        return batch.isEmpty() ? null : batch;
+    }
+
+    /**
+     * Measures the processing of traced records, the records it produces continue the trace.
+     *
+     * @since 11.1
+     */
+    protected void processTraced(long traceOrigin, Runnable processing) {
+        Map<String, Integer> produced = new HashMap<>();
+        metadata.outputStreams().forEach(stream -> produced.put(stream, context.getRecords(stream).size()));
+        try (Timer.Context ignored = traceProcessTimer.time()) {
+            processing.run();
+        }
+        produced.forEach((stream, count) -> {
+            List<Record> records = context.getRecords(stream);
+            for (int i = count; i < records.size(); i++) {
+                traceOrigins.put(records.get(i), traceOrigin);
+            }
+        });
+    }
+
+    /**
+     * Updates the trace metrics of a record read from a stream.
+     *
+     * @since 11.1
+     */
+    protected void traceDequeue(RecordTracer.Trace trace) {
+        long now = System.currentTimeMillis();
+        traceQueueTimer.update(Math.max(0, now - trace.getEnqueued()), TimeUnit.MILLISECONDS);
+        traceLatencyTimer.update(Math.max(0, now - trace.getOrigin()), TimeUnit.MILLISECONDS);
+    }
+
+    protected void processBatchWithRetry(RecordBatch batch) {
+        runningCount.inc();
+        try (Timer.Context ignored = processBatchTimer.time()) {
+            Failsafe.with(policy.getRetryPolicy())
+                    .onRetry(failure -> computation.processRetry(context, failure))
+                    .onFailure(failure -> computation.processFailure(context, failure))
+                    .withFallback(() -> processFallback(context))
+                    .run(() -> ((BatchComputation) computation).processBatch(context, batch));
+        } finally {
+            runningCount.dec();
+        }
+    }
+
     protected void processFallback(ComputationContextImpl context) {
         if (policy.continueOnFailure()) {
             log.error(String.format("Skip record after failure: %s", context.getLastOffset()));
@@ -480,11 +641,13 @@ public class ComputationRunner implements Runnable, RebalanceListener {
                     // use low watermark when not set
                     record.setWatermark(lowWatermark.getLow().getValue());
                 }
-                streamManager.append(stream, record);
+                Long traceOrigin = traceOrigins.get(record);
+                streamManager.append(stream, record, traceOrigin == null ? 0 : traceOrigin.longValue());
                 outRecords++;
             }
             context.getRecords(stream).clear();
         }
+        traceOrigins.clear();
     }
 
     public Watermark getLowWatermark() {
@@ -29,6 +29,7 @@ import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.lib.stream.computation.RecordFilter;
 import org.nuxeo.lib.stream.computation.RecordFilterChain;
+import org.nuxeo.lib.stream.computation.RecordTracer;
 import org.nuxeo.lib.stream.computation.Settings;
 import org.nuxeo.lib.stream.computation.StreamManager;
 import org.nuxeo.lib.stream.computation.StreamProcessor;
@@ -50,8 +51,19 @@ public class LogStreamManager implements StreamManager {
 
     protected final LogManager logManager;
 
+    protected final RecordTracer tracer;
+
     public LogStreamManager(LogManager logManager) {
+        this(logManager, RecordTracer.DISABLED);
+    }
+
+    /**
+     * @param tracer stamps the sampled records on append
+     * @since 11.1
+     */
+    public LogStreamManager(LogManager logManager, RecordTracer tracer) {
         this.logManager = logManager;
+        this.tracer = tracer;
     }
 
     protected final Map<String, Topology> topologies = new HashMap<>();
@@ -86,6 +98,16 @@ public class LogStreamManager implements StreamManager {
 
     @Override
     public LogOffset append(String stream, Record record) {
+        return append(stream, record, 0);
+    }
+
+    /**
+     * Appends a record that continues a trace.
+     *
+     * @param traceOrigin the start time of the trace, {@code 0} if the record is not part of a trace
+     * @since 11.1
+     */
+    public LogOffset append(String stream, Record record, long traceOrigin) {
         RecordFilterChain filter = filters.get(stream);
         if (filter == null) {
             throw new IllegalArgumentException("Unknown stream: " + stream);
@@ -94,7 +116,7 @@ public class LogStreamManager implements StreamManager {
         if (record == null) {
             return new LogOffsetImpl(stream, 0, 0);
         }
-        LogOffset offset = logManager.getAppender(stream).append(record.getKey(), record);
+        LogOffset offset = logManager.getAppender(stream).append(record.getKey(), tracer.stamp(record, traceOrigin));
         filter.afterAppend(record, offset);
         return offset;
     }
@@ -116,6 +138,13 @@ public class LogStreamManager implements StreamManager {
         return logManager.createTailer(computationName, streamPartitions, codec);
     }
 
+    /**
+     * @since 11.1
+     */
+    public RecordTracer getTracer() {
+        return tracer;
+    }
+
     public RecordFilter getFilter(String stream) {
         return filters.get(stream);
     }
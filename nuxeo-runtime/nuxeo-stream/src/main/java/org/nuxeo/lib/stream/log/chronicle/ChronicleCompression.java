@@ -0,0 +1,136 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.log.chronicle;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression of the records stored in a Chronicle Log.
+ * <p>
+ * Each record is stored in a frame made of a flag byte, the length of the uncompressed data and the data. Small
+ * records, or records that do not compress, are stored raw so that the cost of compression is only paid when it saves
+ * space.
+ *
+ * @since 11.1
+ */
+public class ChronicleCompression {
+
+    /** No compression, the record is stored as before. */
+    public static final String NONE = "none";
+
+    /** Deflate compression of each record. */
+    public static final String DEFLATE = "deflate";
+
+    /** Records smaller than this are not compressed. */
+    public static final int MIN_COMPRESS_SIZE = 256;
+
+    protected static final byte RAW = 0;
+
+    protected static final byte DEFLATED = 1;
+
+    protected static final int HEADER_SIZE = 5;
+
+    protected static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(
+            () -> new Deflater(Deflater.BEST_SPEED));
+
+    protected static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+    private ChronicleCompression() {
+        // utility class
+    }
+
+    /**
+     * Returns {@code true} if the compression name denotes an enabled compression.
+     *
+     * @throws IllegalArgumentException if the compression is unknown
+     */
+    public static boolean isEnabled(String compression) {
+        if (compression == null || NONE.equalsIgnoreCase(compression)) {
+            return false;
+        }
+        if (DEFLATE.equalsIgnoreCase(compression)) {
+            return true;
+        }
+        throw new IllegalArgumentException("Unknown Chronicle Log compression: " + compression);
+    }
+
+    /**
+     * Encodes data into a frame.
+     */
+    public static byte[] compress(byte[] data) {
+        if (data.length >= MIN_COMPRESS_SIZE) {
+            Deflater deflater = DEFLATERS.get();
+            deflater.reset();
+            deflater.setInput(data);
+            deflater.finish();
+            // only keep the compressed form when it is smaller
+            byte[] buffer = new byte[HEADER_SIZE + data.length];
+            int size = HEADER_SIZE;
+            while (!deflater.finished() && size < buffer.length) {
+                size += deflater.deflate(buffer, size, buffer.length - size);
+            }
+            if (deflater.finished() && size < buffer.length) {
+                ByteBuffer.wrap(buffer).put(DEFLATED).putInt(data.length);
+                return Arrays.copyOf(buffer, size);
+            }
+        }
+        return ByteBuffer.allocate(HEADER_SIZE + data.length).put(RAW).putInt(data.length).put(data).array();
+    }
+
+    /**
+     * Decodes a frame returned by {@link #compress}.
+     */
+    public static byte[] decompress(byte[] frame) {
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        byte flag = buffer.get();
+        int length = buffer.getInt();
+        if (flag == RAW) {
+            return Arrays.copyOfRange(frame, HEADER_SIZE, HEADER_SIZE + length);
+        }
+        if (flag != DEFLATED) {
+            throw new IllegalArgumentException("Invalid Chronicle Log frame flag: " + flag);
+        }
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(frame, HEADER_SIZE, frame.length - HEADER_SIZE);
+        byte[] data = new byte[length];
+        try {
+            int size = 0;
+            while (size < length && !inflater.finished()) {
+                int n = inflater.inflate(data, size, length - size);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                size += n;
+            }
+            if (size != length) {
+                throw new IllegalArgumentException(
+                        "Truncated Chronicle Log frame, expecting: " + length + " got: " + size);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid Chronicle Log frame", e);
+        }
+        return data;
+    }
+
+}
@@ -41,6 +41,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.lib.stream.StreamRuntimeException;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.SerializableCodec;
 import org.nuxeo.lib.stream.log.LogOffset;
 import org.nuxeo.lib.stream.log.LogPartition;
 import org.nuxeo.lib.stream.log.LogTailer;
@@ -81,6 +82,12 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
 
     public static final String BLOCK_SIZE_KEY = "blockSize";
 
+    /** @since 11.1 */
+    public static final String COMPRESSION_KEY = "compression";
+
+    /** @since 11.1 */
+    public static final String FRAME_KEY = "frame";
+
     protected final List<ChronicleQueue> partitions;
 
     protected final int nbPartitions;
@@ -98,6 +105,10 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
 
     protected final Codec<M> codec;
 
+    protected final String compression;
+
+    protected final boolean compressed;
+
     protected volatile boolean closed;
 
     /**
@@ -136,6 +147,9 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
         }
         this.nbPartitions = Integer.parseInt(metadata.getProperty(PARTITIONS_KEY));
         this.blockSize = Integer.parseInt(metadata.getProperty(BLOCK_SIZE_KEY));
+        // logs created before compression support are not compressed
+        this.compression = metadata.getProperty(COMPRESSION_KEY, ChronicleCompression.NONE);
+        this.compressed = ChronicleCompression.isEnabled(compression);
         this.partitions = new ArrayList<>(nbPartitions);
         initPartitions(false);
     }
@@ -144,6 +158,16 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
      * Create a new Log
      */
     protected ChronicleLogAppender(Codec<M> codec, File basePath, int size, ChronicleRetentionDuration retention) {
+        this(codec, basePath, size, retention, ChronicleCompression.NONE);
+    }
+
+    /**
+     * Create a new Log, the records are compressed depending on the {@link ChronicleCompression} name.
+     *
+     * @since 11.1
+     */
+    protected ChronicleLogAppender(Codec<M> codec, File basePath, int size, ChronicleRetentionDuration retention,
+            String compression) {
         if (size <= 0) {
             throw new IllegalArgumentException("Number of partitions must be > 0");
         }
@@ -166,6 +190,8 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
         this.retention = retention;
         this.partitions = new ArrayList<>(nbPartitions);
         this.blockSize = CQ_BLOCK_SIZE;
+        this.compressed = ChronicleCompression.isEnabled(compression);
+        this.compression = compressed ? compression.toLowerCase() : ChronicleCompression.NONE;
         if (log.isDebugEnabled()) {
             log.debug("Creating: " + toString());
         }
@@ -208,6 +234,7 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
         builder.append(String.format("%s=%d%n", PARTITIONS_KEY, nbPartitions));
         builder.append(String.format("%s=%s%n", RETENTION_KEY, retention));
         builder.append(String.format("%s=%d%n", BLOCK_SIZE_KEY, blockSize));
+        builder.append(String.format("%s=%s%n", COMPRESSION_KEY, compression));
         try {
             Files.write(metadata, builder.toString().getBytes(), StandardOpenOption.CREATE_NEW);
         } catch (IOException e) {
@@ -253,6 +280,16 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
         return new ChronicleLogAppender<>(codec, basePath, size, retention);
     }
 
+    /**
+     * Create a new log with compressed records.
+     *
+     * @since 11.1
+     */
+    public static <M extends Externalizable> ChronicleLogAppender<M> create(Codec<M> codec, File basePath, int size,
+            ChronicleRetentionDuration retention, String compression) {
+        return new ChronicleLogAppender<>(codec, basePath, size, retention, compression);
+    }
+
     /**
      * Create a new log.
      */
@@ -293,7 +330,9 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
     public LogOffset append(int partition, M message) {
         ExcerptAppender appender = partitions.get(partition).acquireAppender();
         try {
-            if (NO_CODEC.equals(codec)) {
+            if (compressed) {
+                appender.writeDocument(w -> w.write(FRAME_KEY).bytes(ChronicleCompression.compress(encode(message))));
+            } else if (NO_CODEC.equals(codec)) {
                 // default format for backward compatibility
                 appender.writeDocument(w -> w.write(MSG_KEY).object(message));
             } else {
@@ -310,9 +349,29 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
         return ret;
     }
 
+    /**
+     * Encodes a message before compression, the default codec uses the Java serialization.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected byte[] encode(M message) {
+        if (NO_CODEC.equals(codec)) {
+            return new SerializableCodec().encode(message);
+        }
+        return codec.encode(message);
+    }
+
     public LogTailer<M> createTailer(LogPartition partition, String group, Codec<M> codec) {
         return addTailer(new ChronicleLogTailer<>(codec, basePath.toString(),
-                partitions.get(partition.partition()).createTailer(), partition, group, retention));
+                partitions.get(partition.partition()).createTailer(), partition, group, retention, compressed));
+    }
+
+    /**
+     * Returns {@code true} if the records of this log are compressed.
+     *
+     * @since 11.1
+     */
+    public boolean isCompressed() {
+        return compressed;
     }
 
     public long endOffset(int partition) {
@@ -421,7 +480,8 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
     @Override
     public String toString() {
         return "ChronicleLogAppender{" + "nbPartitions=" + nbPartitions + ", basePath=" + basePath + ", name='" + name
-                + '\'' + ", retention=" + retention + ", closed=" + closed + ", codec=" + codec + '}';
+                + '\'' + ", retention=" + retention + ", compression=" + compression + ", closed=" + closed + ", codec="
+                + codec + '}';
     }
 
     public ChronicleRetentionDuration getRetention() {
@@ -52,6 +52,8 @@ public class ChronicleLogManager extends AbstractLogManager {
 
     protected final ChronicleRetentionDuration retention;
 
+    protected final String compression;
+
     public ChronicleLogManager(Path basePath) {
         this(basePath, null);
     }
@@ -66,8 +68,24 @@ public class ChronicleLogManager extends AbstractLogManager {
      *            in hours and 'd' in days)
      */
     public ChronicleLogManager(Path basePath, String retentionDuration) {
+        this(basePath, retentionDuration, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param basePath the base path.
+     * @param retentionDuration the retention duration, see {@link #ChronicleLogManager(Path, String)}
+     * @param compression the {@link ChronicleCompression} of the records of the created logs, {@code null} or
+     *            {@value ChronicleCompression#NONE} to disable, existing logs keep the compression they were created
+     *            with
+     * @since 11.1
+     */
+    public ChronicleLogManager(Path basePath, String retentionDuration, String compression) {
+        ChronicleCompression.isEnabled(compression); // validate
         this.basePath = basePath;
         this.retention = new ChronicleRetentionDuration(retentionDuration);
+        this.compression = compression;
     }
 
     protected static void deleteQueueBasePath(Path basePath) {
@@ -112,7 +130,7 @@ public class ChronicleLogManager extends AbstractLogManager {
     @SuppressWarnings("unchecked")
     @Override
     public void create(String name, int size) {
-        ChronicleLogAppender.create(NO_CODEC, basePath.resolve(name).toFile(), size, retention).close();
+        ChronicleLogAppender.create(NO_CODEC, basePath.resolve(name).toFile(), size, retention, compression).close();
     }
 
     @Override
@@ -168,7 +186,8 @@ public class ChronicleLogManager extends AbstractLogManager {
 
     @Override
     public String toString() {
-        return "ChronicleLogManager{" + "basePath=" + basePath + ", retention='" + retention + '\'' + '}';
+        return "ChronicleLogManager{" + "basePath=" + basePath + ", retention='" + retention + '\''
+                + ", compression='" + compression + '\'' + '}';
     }
 
     @Override
@@ -19,6 +19,7 @@
 package org.nuxeo.lib.stream.log.chronicle;
 
 import static org.nuxeo.lib.stream.codec.NoCodec.NO_CODEC;
+import static org.nuxeo.lib.stream.log.chronicle.ChronicleLogAppender.FRAME_KEY;
 import static org.nuxeo.lib.stream.log.chronicle.ChronicleLogAppender.MSG_KEY;
 
 import java.io.Externalizable;
@@ -35,6 +36,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.SerializableCodec;
 import org.nuxeo.lib.stream.log.LogOffset;
 import org.nuxeo.lib.stream.log.LogPartition;
 import org.nuxeo.lib.stream.log.LogRecord;
@@ -68,12 +70,24 @@ public class ChronicleLogTailer<M extends Externalizable> implements LogTailer<M
 
     protected final Codec<M> codec;
 
+    protected final boolean compressed;
+
     protected volatile boolean closed = false;
 
     public ChronicleLogTailer(Codec<M> codec, String basePath, ExcerptTailer cqTailer, LogPartition partition,
             String group, ChronicleRetentionDuration retention) {
+        this(codec, basePath, cqTailer, partition, group, retention, false);
+    }
+
+    /**
+     * @param compressed {@code true} if the records are stored in {@link ChronicleCompression} frames
+     * @since 11.1
+     */
+    public ChronicleLogTailer(Codec<M> codec, String basePath, ExcerptTailer cqTailer, LogPartition partition,
+            String group, ChronicleRetentionDuration retention, boolean compressed) {
         Objects.requireNonNull(group);
         this.codec = codec;
+        this.compressed = compressed;
         this.basePath = basePath;
         this.cqTailer = cqTailer;
         this.partition = partition;
@@ -116,7 +130,14 @@ public class ChronicleLogTailer<M extends Externalizable> implements LogTailer<M
         }
         List<M> value = new ArrayList<>(1);
         AtomicLong offset = new AtomicLong();
-        if (NO_CODEC.equals(codec)) {
+        if (compressed) {
+            if (!cqTailer.readDocument(w -> {
+                offset.set(cqTailer.index());
+                value.add(decode(ChronicleCompression.decompress(w.read(FRAME_KEY).bytes())));
+            })) {
+                return null;
+            }
+        } else if (NO_CODEC.equals(codec)) {
             // default format to keep backward compatibility
             try {
                 if (!cqTailer.readDocument(w -> {
@@ -139,6 +160,18 @@ public class ChronicleLogTailer<M extends Externalizable> implements LogTailer<M
         return new LogRecord<>(value.get(0), new LogOffsetImpl(partition, offset.get()));
     }
 
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected M decode(byte[] data) {
+        if (NO_CODEC.equals(codec)) {
+            try {
+                return (M) new SerializableCodec().decode(data);
+            } catch (ClassCastException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+        return codec.decode(data);
+    }
+
     @Override
     public LogOffset commit(LogPartition partition) {
         if (!this.partition.equals(partition)) {
@@ -262,8 +295,8 @@ public class ChronicleLogTailer<M extends Externalizable> implements LogTailer<M
 
     @Override
     public String toString() {
-        return "ChronicleLogTailer{" + "basePath='" + basePath + '\'' + ", id=" + id + ", closed=" + closed + ", codec="
-                + codec + '}';
+        return "ChronicleLogTailer{" + "basePath='" + basePath + '\'' + ", id=" + id + ", compressed=" + compressed
+                + ", closed=" + closed + ", codec=" + codec + '}';
     }
 
 }
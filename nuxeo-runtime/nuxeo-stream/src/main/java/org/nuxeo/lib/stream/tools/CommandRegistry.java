@@ -34,6 +34,7 @@ import org.nuxeo.lib.stream.tools.command.PositionCommand;
 import org.nuxeo.lib.stream.tools.command.RestoreCommand;
 import org.nuxeo.lib.stream.tools.command.TailCommand;
 import org.nuxeo.lib.stream.tools.command.TestCommand;
+import org.nuxeo.lib.stream.tools.command.TraceCommand;
 import org.nuxeo.lib.stream.tools.command.TrackerCommand;
 
 /**
@@ -48,6 +49,7 @@ public class CommandRegistry {
         ret.add(new TailCommand());
         ret.add(new LagCommand());
         ret.add(new LatencyCommand());
+        ret.add(new TraceCommand());
         ret.add(new CopyCommand());
         ret.add(new PositionCommand());
         ret.add(new TrackerCommand());
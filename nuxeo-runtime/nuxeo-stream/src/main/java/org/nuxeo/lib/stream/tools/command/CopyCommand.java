@@ -26,6 +26,7 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.RecordTracer;
 import org.nuxeo.lib.stream.log.LogAppender;
 import org.nuxeo.lib.stream.log.LogManager;
 import org.nuxeo.lib.stream.log.LogRecord;
@@ -111,7 +112,8 @@ public class CopyCommand extends Command {
                 if (record == null) {
                     break;
                 }
-                appender.append(record.message().getKey(), record.message());
+                Record message = RecordTracer.untraced(record.message());
+                appender.append(message.getKey(), message);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -36,6 +36,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.lib.stream.StreamRuntimeException;
 import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.RecordTracer;
 import org.nuxeo.lib.stream.log.LogManager;
 import org.nuxeo.lib.stream.log.LogPartition;
 import org.nuxeo.lib.stream.log.LogRecord;
@@ -121,7 +122,7 @@ public class DumpCommand extends Command {
                     if (record == null) {
                         break;
                     }
-                    dataFileWriter.append(record.message());
+                    dataFileWriter.append(RecordTracer.untraced(record.message()));
                     count++;
                 } while (limit < 0 || (count < limit));
             }
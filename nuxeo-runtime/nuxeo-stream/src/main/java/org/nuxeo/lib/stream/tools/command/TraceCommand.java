@@ -0,0 +1,132 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     bdelbosc
+ */
+package org.nuxeo.lib.stream.tools.command;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.RecordTracer;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.LogRecord;
+import org.nuxeo.lib.stream.log.LogTailer;
+
+/**
+ * Display the upstream latency of the traced records of each stream: the time from the start of their trace up to
+ * their append to the stream, which covers the queue and process times of all the computations before this stream.
+ * <p>
+ * This is all the records carry, the time a record waits in a stream and the time a computation takes to process it
+ * are measured by the computation runners and reported by their {@code nuxeo.stream.computation.<name>.trace.*}
+ * timers.
+ *
+ * @since 11.1
+ */
+public class TraceCommand extends Command {
+    private static final Log log = LogFactory.getLog(TraceCommand.class);
+
+    protected static final String NAME = "trace";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void updateOptions(Options options) {
+        options.addOption(Option.builder("l")
+                                .longOpt("log-name")
+                                .desc("Log name of a stream containing computation.Record")
+                                .hasArg()
+                                .argName("LOG_NAME")
+                                .build());
+        options.addOption(Option.builder("n")
+                                .longOpt("lines")
+                                .desc("Read the first N records of each log")
+                                .hasArg()
+                                .argName("N")
+                                .build());
+        options.addOption(Option.builder()
+                                .longOpt("codec")
+                                .desc("Codec used to read record, can be: java, avro, avroBinary, avroJson")
+                                .hasArg()
+                                .argName("CODEC")
+                                .build());
+    }
+
+    @Override
+    public boolean run(LogManager manager, CommandLine cmd) throws InterruptedException {
+        String name = cmd.getOptionValue("log-name");
+        int limit = Integer.parseInt(cmd.getOptionValue("lines", "-1"));
+        Codec<Record> codec = getRecordCodec(cmd.getOptionValue("codec"));
+        log.info("# " + manager);
+        log.info("Upstream latency of the traced records, from the start of their trace to their append to the log");
+        log.info("| log | records | traced | upstreamP50Ms | upstreamP99Ms | upstreamMaxMs |\n"
+                + "| --- | ---: | ---: | ---: | ---: | ---: |");
+        if (name != null) {
+            trace(manager, name, limit, codec);
+        } else {
+            for (String logName : manager.listAll()) {
+                trace(manager, logName, limit, codec);
+            }
+        }
+        return true;
+    }
+
+    protected void trace(LogManager manager, String name, int limit, Codec<Record> codec)
+            throws InterruptedException {
+        List<Long> latencies = new ArrayList<>();
+        int count = 0;
+        try (LogTailer<Record> tailer = manager.createTailer("tools", name, codec)) {
+            do {
+                LogRecord<Record> logRecord = tailer.read(Duration.ofMillis(1000));
+                if (logRecord == null) {
+                    break;
+                }
+                count++;
+                RecordTracer.Trace trace = RecordTracer.read(logRecord.message());
+                if (trace != null) {
+                    latencies.add(Math.max(0, trace.getEnqueued() - trace.getOrigin()));
+                }
+            } while (limit < 0 || count < limit);
+        } catch (IllegalStateException e) {
+            // happen when this is not a stream of Record
+            log.error(name + ": " + e.getMessage());
+            return;
+        }
+        Collections.sort(latencies);
+        log.info(String.format("|%s|%d|%d|%s|%s|%s|", name, count, latencies.size(), percentile(latencies, 50),
+                percentile(latencies, 99), percentile(latencies, 100)));
+    }
+
+    protected static String percentile(List<Long> sortedLatencies, int percent) {
+        if (sortedLatencies.isEmpty()) {
+            return "NA";
+        }
+        int index = (int) Math.ceil(percent / 100.0 * sortedLatencies.size()) - 1;
+        return String.valueOf(sortedLatencies.get(Math.max(0, index)));
+    }
+}
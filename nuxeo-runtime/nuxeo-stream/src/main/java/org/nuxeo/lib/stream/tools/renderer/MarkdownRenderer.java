@@ -24,6 +24,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.lib.stream.codec.FileAvroSchemaStore;
 import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.RecordTracer;
 import org.nuxeo.lib.stream.log.LogRecord;
 
 /**
@@ -47,7 +48,7 @@ public class MarkdownRenderer extends Renderer {
 
     @Override
     public void accept(LogRecord<Record> record) {
-        Record rec = record.message();
+        Record rec = RecordTracer.untraced(record.message());
         log.info(String.format("### %s: key: %s, wm: %s, len: %d, flag: %s", record.offset(), rec.getKey(),
                 watermarkString(rec.getWatermark()), rec.getData().length, rec.getFlags()));
         log.info(MD_DATA + tryToRenderAvroData(schemaStore, rec) + MD_DATA);
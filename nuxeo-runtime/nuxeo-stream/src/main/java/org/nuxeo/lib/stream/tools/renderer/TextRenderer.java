@@ -24,6 +24,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.lib.stream.codec.FileAvroSchemaStore;
 import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.RecordTracer;
 import org.nuxeo.lib.stream.log.LogRecord;
 
 /**
@@ -46,7 +47,7 @@ public class TextRenderer extends Renderer {
     @Override
     public void accept(LogRecord<Record> record) {
         try {
-            Record rec = record.message();
+            Record rec = RecordTracer.untraced(record.message());
             log.info(String.format("|%s|%s|%s|%s|%d|%s|", record.offset(), watermarkString(rec.getWatermark()),
                     rec.getFlags(), rec.getKey(), rec.getData().length, tryToRenderAvroData(schemaStore, rec)));
         } catch (ClassCastException e) {
@@ -19,18 +19,25 @@
 package org.nuxeo.lib.stream.tests.computation;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.Test;
 import org.nuxeo.lib.stream.computation.AbstractBatchComputation;
+import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.ComputationMetadataMapping;
 import org.nuxeo.lib.stream.computation.ComputationPolicy;
 import org.nuxeo.lib.stream.computation.ComputationPolicyBuilder;
 import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.RecordBatch;
 import org.nuxeo.lib.stream.computation.internals.ComputationContextImpl;
+import org.nuxeo.lib.stream.log.internals.LogOffsetImpl;
 
 /**
  * @since 9.3
@@ -100,4 +107,123 @@ public class TestBatchComputation {
         comp.destroy();
     }
 
+    @Test
+    public void testComputationProcessBatch() {
+        int batchCapacity = 5;
+        ComputationPolicy policy = new ComputationPolicyBuilder().batchPolicy(batchCapacity, Duration.ofMillis(500))
+                                                                 .build();
+        ComputationBatchForward comp = new ComputationBatchForward("foo", 2);
+        ComputationContextImpl context = new ComputationContextImpl(null,
+                new ComputationMetadataMapping(comp.metadata(), Collections.emptyMap()), policy);
+        comp.init(context);
+
+        // a polled batch larger than the capacity
+        RecordBatch batch = new RecordBatch(7);
+        addRecords(batch, "i1", 7);
+        comp.processBatch(context, batch);
+        assertEquals(batchCapacity, context.getRecords("o1").size());
+        assertEquals(1, comp.processCounter);
+
+        // the pending records are processed when the input stream changes inside a polled batch
+        batch = new RecordBatch(3);
+        addRecords(batch, "i1", 1);
+        addRecords(batch, "i2", 2);
+        comp.processBatch(context, batch);
+        assertEquals(batchCapacity + 3, context.getRecords("o1").size());
+        assertEquals(2, comp.processCounter);
+
+        comp.processTimer(context, AbstractBatchComputation.TIMER_BATCH, 0);
+        assertEquals(10, context.getRecords("o1").size());
+        assertEquals(3, comp.processCounter);
+        assertEquals(0, comp.failureCounter);
+        comp.destroy();
+    }
+
+    @Test
+    public void testComputationProcessBatchCheckpoint() {
+        int batchCapacity = 5;
+        ComputationPolicy policy = new ComputationPolicyBuilder().batchPolicy(batchCapacity, Duration.ofMillis(500))
+                                                                 .build();
+        ComputationBatchForward comp = new ComputationBatchForward("foo", 2);
+        ComputationContextImpl context = new ComputationContextImpl(null,
+                new ComputationMetadataMapping(comp.metadata(), Collections.emptyMap()), policy);
+        comp.init(context);
+
+        // a batch is processed on capacity but polled records are still pending: no checkpoint
+        RecordBatch batch = new RecordBatch(7);
+        addRecords(batch, "i1", 7);
+        comp.processBatch(context, batch);
+        assertEquals(batchCapacity, context.getRecords("o1").size());
+        assertFalse(context.requireCheckpoint());
+
+        // a batch is processed on input stream change, the record of the other stream is pending: no checkpoint
+        batch = new RecordBatch(2);
+        addRecords(batch, "i1", 1);
+        addRecords(batch, "i2", 1);
+        comp.processBatch(context, batch);
+        assertEquals(batchCapacity + 3, context.getRecords("o1").size());
+        assertFalse(context.requireCheckpoint());
+
+        // once the pending records are processed the checkpoint is asked
+        comp.processTimer(context, AbstractBatchComputation.TIMER_BATCH, 0);
+        assertEquals(batchCapacity + 4, context.getRecords("o1").size());
+        assertTrue(context.requireCheckpoint());
+        context.removeCheckpointFlag();
+
+        // a polled batch fully processed is checkpointed
+        batch = new RecordBatch(batchCapacity);
+        addRecords(batch, "i1", batchCapacity);
+        comp.processBatch(context, batch);
+        assertEquals(2 * batchCapacity + 4, context.getRecords("o1").size());
+        assertTrue(context.requireCheckpoint());
+        comp.destroy();
+    }
+
+    @Test
+    public void testComputationProcessBatchRetry() {
+        int batchCapacity = 5;
+        ComputationPolicy policy = new ComputationPolicyBuilder().batchPolicy(batchCapacity, Duration.ofMillis(500))
+                                                                 .build();
+        ComputationBatchForward comp = new ComputationBatchForward("foo", 1) {
+            protected boolean failed;
+
+            @Override
+            public void batchProcess(ComputationContext context, String inputStreamName, List<Record> records) {
+                if (!failed) {
+                    failed = true;
+                    throw new IllegalStateException("Simulated error for test purpose");
+                }
+                super.batchProcess(context, inputStreamName, records);
+            }
+        };
+        ComputationContextImpl context = new ComputationContextImpl(null,
+                new ComputationMetadataMapping(comp.metadata(), Collections.emptyMap()), policy);
+        comp.init(context);
+
+        RecordBatch batch = new RecordBatch(7);
+        addRecords(batch, "i1", 7);
+        try {
+            comp.processBatch(context, batch);
+            fail();
+        } catch (IllegalStateException e) {
+            comp.processRetry(context, e);
+        }
+        assertEquals(0, context.getRecords("o1").size());
+
+        // the runner retries with the same batch, records are not added twice
+        comp.processBatch(context, batch);
+        assertEquals(batchCapacity, context.getRecords("o1").size());
+        comp.processTimer(context, AbstractBatchComputation.TIMER_BATCH, 0);
+        assertEquals(7, context.getRecords("o1").size());
+        assertEquals(2, comp.processCounter);
+        comp.destroy();
+    }
+
+    protected void addRecords(RecordBatch batch, String inputStreamName, int count) {
+        for (int i = 0; i < count; i++) {
+            Record record = Record.of("key" + i, "bar".getBytes(StandardCharsets.UTF_8));
+            batch.add(inputStreamName, record, new LogOffsetImpl(inputStreamName, 0, batch.size()));
+        }
+    }
+
 }
@@ -0,0 +1,99 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.tests.computation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumSet;
+
+import org.junit.Test;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.RecordTracer;
+
+/**
+ * @since 11.1
+ */
+public class TestRecordTracer {
+
+    protected static final byte[] DATA = "some data".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testStampAndRead() {
+        RecordTracer tracer = new RecordTracer(1);
+        assertTrue(tracer.isEnabled());
+        Record record = new Record("key", DATA, 42, EnumSet.of(Record.Flag.COMMIT));
+        long start = System.currentTimeMillis();
+        Record traced = tracer.stamp(record, 0);
+        assertNotSame(record, traced);
+        assertTrue(RecordTracer.isTraced(traced));
+        assertFalse(RecordTracer.isTraced(record));
+        assertEquals(record.getKey(), traced.getKey());
+        assertEquals(record.getWatermark(), traced.getWatermark());
+        assertTrue(traced.getFlags().contains(Record.Flag.COMMIT));
+
+        RecordTracer.Trace trace = RecordTracer.read(traced);
+        assertEquals(record, trace.getRecord());
+        assertArrayEquals(DATA, trace.getRecord().getData());
+        assertEquals(EnumSet.of(Record.Flag.COMMIT), trace.getRecord().getFlags());
+        assertTrue(trace.getOrigin() >= start);
+        assertEquals(trace.getOrigin(), trace.getEnqueued());
+
+        assertNull(RecordTracer.read(record));
+        assertSame(record, RecordTracer.untraced(record));
+        assertArrayEquals(DATA, RecordTracer.untraced(traced).getData());
+    }
+
+    @Test
+    public void testSampling() {
+        RecordTracer tracer = new RecordTracer(3);
+        int traced = 0;
+        for (int i = 0; i < 9; i++) {
+            if (RecordTracer.isTraced(tracer.stamp(Record.of("key" + i, DATA), 0))) {
+                traced++;
+            }
+        }
+        assertEquals(3, traced);
+    }
+
+    @Test
+    public void testContinueTrace() {
+        // a disabled tracer does not start traces but continues the existing ones
+        RecordTracer tracer = RecordTracer.DISABLED;
+        assertFalse(tracer.isEnabled());
+        Record record = Record.of("key", DATA);
+        assertSame(record, tracer.stamp(record, 0));
+
+        long origin = System.currentTimeMillis() - 1000;
+        Record traced = tracer.stamp(record, origin);
+        RecordTracer.Trace trace = RecordTracer.read(traced);
+        assertEquals(origin, trace.getOrigin());
+        assertTrue(trace.getEnqueued() >= origin + 1000);
+
+        // a record already stamped is not stamped twice
+        assertSame(traced, tracer.stamp(traced, System.currentTimeMillis()));
+    }
+
+}
@@ -28,6 +28,8 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -41,11 +43,13 @@ import org.nuxeo.lib.stream.codec.SerializableCodec;
 import org.nuxeo.lib.stream.computation.ComputationPolicy;
 import org.nuxeo.lib.stream.computation.ComputationPolicyBuilder;
 import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.RecordTracer;
 import org.nuxeo.lib.stream.computation.Settings;
 import org.nuxeo.lib.stream.computation.StreamManager;
 import org.nuxeo.lib.stream.computation.StreamProcessor;
 import org.nuxeo.lib.stream.computation.Topology;
 import org.nuxeo.lib.stream.computation.Watermark;
+import org.nuxeo.lib.stream.computation.log.ComputationRunner;
 import org.nuxeo.lib.stream.computation.log.LogStreamManager;
 import org.nuxeo.lib.stream.log.Latency;
 import org.nuxeo.lib.stream.log.LogAppender;
@@ -55,6 +59,10 @@ import org.nuxeo.lib.stream.log.LogPartition;
 import org.nuxeo.lib.stream.log.LogRecord;
 import org.nuxeo.lib.stream.log.LogTailer;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+
 import net.jodah.failsafe.RetryPolicy;
 
 /**
@@ -713,6 +721,71 @@ public abstract class TestStreamProcessor {
         return result;
     }
 
+    @Test
+    public void testTracing() throws Exception {
+        final int nbRecords = 10;
+        Topology topology = Topology.builder()
+                                    .addComputation(() -> new ComputationForward("TRACED", 1, 1),
+                                            Arrays.asList("i1:s1", "o1:s2"))
+                                    .build();
+        Settings settings = new Settings(1, 1, codec);
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(ComputationRunner.NUXEO_METRICS_REGISTRY_NAME);
+        Timer latencyTimer = registry.timer(
+                MetricRegistry.name("nuxeo", "stream", "computation", "TRACED", "trace", "latency"));
+        Timer queueTimer = registry.timer(
+                MetricRegistry.name("nuxeo", "stream", "computation", "TRACED", "trace", "queue"));
+        Timer processTimer = registry.timer(
+                MetricRegistry.name("nuxeo", "stream", "computation", "TRACED", "trace", "process"));
+        long latencyCount = latencyTimer.getCount();
+        long queueCount = queueTimer.getCount();
+        long processCount = processTimer.getCount();
+        try (LogManager manager = getLogManager()) {
+            // every appended record starts a trace
+            StreamManager streamManager = new LogStreamManager(manager, new RecordTracer(1));
+            StreamProcessor processor = streamManager.registerAndCreateProcessor("processor", topology, settings);
+            processor.start();
+            assertTrue(processor.waitForAssignments(Duration.ofSeconds(10)));
+            for (int i = 0; i < nbRecords; i++) {
+                streamManager.append("s1", Record.of("key" + i, ("data" + i).getBytes(StandardCharsets.UTF_8)));
+            }
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (countRecordIn(manager, "s2") < nbRecords && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            processor.shutdown();
+
+            // the records produced by the computation continue the trace of their input record
+            Map<String, RecordTracer.Trace> inputs = readTraces(manager, "s1");
+            Map<String, RecordTracer.Trace> outputs = readTraces(manager, "s2");
+            assertEquals(nbRecords, inputs.size());
+            assertEquals(inputs.keySet(), outputs.keySet());
+            for (int i = 0; i < nbRecords; i++) {
+                RecordTracer.Trace input = inputs.get("key" + i);
+                RecordTracer.Trace output = outputs.get("key" + i);
+                assertEquals(input.getOrigin(), output.getOrigin());
+                assertTrue(output.getEnqueued() >= input.getEnqueued());
+                assertEquals("data" + i, new String(output.getRecord().getData(), StandardCharsets.UTF_8));
+            }
+        }
+        assertEquals(nbRecords, latencyTimer.getCount() - latencyCount);
+        assertEquals(nbRecords, queueTimer.getCount() - queueCount);
+        assertEquals(nbRecords, processTimer.getCount() - processCount);
+    }
+
+    protected Map<String, RecordTracer.Trace> readTraces(LogManager manager, String stream) throws Exception {
+        Map<String, RecordTracer.Trace> traces = new HashMap<>();
+        try (LogTailer<Record> tailer = manager.createTailer("results", LogPartition.of(stream, 0), codec)) {
+            tailer.toStart();
+            for (LogRecord<Record> logRecord = tailer.read(
+                    Duration.ofMillis(1000)); logRecord != null; logRecord = tailer.read(Duration.ofMillis(500))) {
+                RecordTracer.Trace trace = RecordTracer.read(logRecord.message());
+                assertNotNull(trace);
+                traces.put(logRecord.message().getKey(), trace);
+            }
+        }
+        return traces;
+    }
+
     protected int countRecordIn(LogManager manager, String stream) throws Exception {
         int ret = 0;
         for (int i = 0; i < manager.size(stream); i++) {
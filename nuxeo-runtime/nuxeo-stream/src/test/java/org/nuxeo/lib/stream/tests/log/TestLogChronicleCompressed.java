@@ -0,0 +1,165 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.tests.log;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.nuxeo.lib.stream.codec.SerializableCodec;
+import org.nuxeo.lib.stream.log.LogAppender;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.LogRecord;
+import org.nuxeo.lib.stream.log.LogTailer;
+import org.nuxeo.lib.stream.log.chronicle.ChronicleCompression;
+import org.nuxeo.lib.stream.log.chronicle.ChronicleLogAppender;
+import org.nuxeo.lib.stream.log.chronicle.ChronicleLogManager;
+import org.nuxeo.lib.stream.tests.KeyValueMessage;
+
+/**
+ * Runs the Chronicle Log tests on compressed records.
+ *
+ * @since 11.1
+ */
+public class TestLogChronicleCompressed extends TestLogChronicle {
+
+    @Override
+    public LogManager createManager() throws Exception {
+        if (basePath == null) {
+            basePath = folder.newFolder().toPath();
+        }
+        return new ChronicleLogManager(basePath, "3s", ChronicleCompression.DEFLATE);
+    }
+
+    @Test
+    public void testCompressionFrames() {
+        byte[] small = "small".getBytes(UTF_8);
+        assertArrayEquals(small, ChronicleCompression.decompress(ChronicleCompression.compress(small)));
+
+        byte[] repetitive = new byte[10_000];
+        for (int i = 0; i < repetitive.length; i++) {
+            repetitive[i] = (byte) ('a' + i % 10);
+        }
+        byte[] frame = ChronicleCompression.compress(repetitive);
+        assertTrue(frame.length < repetitive.length / 10);
+        assertArrayEquals(repetitive, ChronicleCompression.decompress(frame));
+
+        // random data is stored raw
+        byte[] random = new byte[10_000];
+        new Random(0).nextBytes(random);
+        frame = ChronicleCompression.compress(random);
+        assertEquals(random.length + 5, frame.length);
+        assertArrayEquals(random, ChronicleCompression.decompress(frame));
+    }
+
+    @Test
+    public void testReopenCompressedLog() throws Exception {
+        KeyValueMessage msg = KeyValueMessage.of("key", getRecordValue(0));
+        manager.createIfNotExists(logName, 1);
+        manager.getAppender(logName).append(0, msg);
+        resetManager();
+        // the compression is read from the log metadata
+        try (ChronicleLogAppender<KeyValueMessage> appender = ChronicleLogAppender.open(new SerializableCodec<>(),
+                basePath.resolve(logName).toFile())) {
+            assertTrue(appender.isCompressed());
+        }
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer("group", logName)) {
+            assertEquals(msg, tailer.read(Duration.ofSeconds(1)).message());
+        }
+    }
+
+    @Test
+    public void testUncompressedLogIsReadable() throws Exception {
+        // a log created without compression keeps its format
+        try (LogManager plain = new ChronicleLogManager(basePath, "3s")) {
+            plain.createIfNotExists(logName, 1);
+            plain.getAppender(logName).append(0, KeyValueMessage.of("key", getRecordValue(0)));
+        }
+        try (ChronicleLogAppender<KeyValueMessage> appender = ChronicleLogAppender.open(new SerializableCodec<>(),
+                basePath.resolve(logName).toFile())) {
+            assertFalse(appender.isCompressed());
+        }
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer("group", logName)) {
+            assertEquals("key", tailer.read(Duration.ofSeconds(1)).message().key());
+        }
+    }
+
+    @Test
+    @Ignore("Benchmark, run manually to compare record sizes and throughput")
+    public void testCompressionBenchmark() throws Exception {
+        final int NB_RECORDS = 20_000;
+        SerializableCodec<KeyValueMessage> codec = new SerializableCodec<>();
+        long rawBytes = 0;
+        long compressedBytes = 0;
+        for (int i = 0; i < 100; i++) {
+            byte[] data = codec.encode(KeyValueMessage.of("key" + i, getRecordValue(i)));
+            rawBytes += data.length;
+            compressedBytes += ChronicleCompression.compress(data).length;
+        }
+        assertTrue(compressedBytes < rawBytes / 2);
+        log.info(String.format("Record size, raw: %d bytes, compressed: %d bytes, ratio: %.2f", rawBytes / 100,
+                compressedBytes / 100, (double) rawBytes / compressedBytes));
+
+        try (LogManager plain = new ChronicleLogManager(folder.newFolder().toPath(), "3s")) {
+            double throughput = appendAndRead(plain, NB_RECORDS);
+            log.info(String.format("Uncompressed tailer throughput: %.2f records/s", throughput));
+        }
+        double throughput = appendAndRead(manager, NB_RECORDS);
+        log.info(String.format("Compressed tailer throughput: %.2f records/s", throughput));
+    }
+
+    protected double appendAndRead(LogManager manager, int count) throws InterruptedException {
+        manager.createIfNotExists(logName, 1);
+        LogAppender<KeyValueMessage> appender = manager.getAppender(logName);
+        for (int i = 0; i < count; i++) {
+            appender.append(0, KeyValueMessage.of("key" + i, getRecordValue(i)));
+        }
+        long start = System.nanoTime();
+        int read = 0;
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer("group", logName)) {
+            LogRecord<KeyValueMessage> record;
+            while ((record = tailer.read(Duration.ofMillis(100))) != null) {
+                assertEquals("key" + read, record.message().key());
+                read++;
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        assertEquals(count, read);
+        return count / elapsed;
+    }
+
+    /**
+     * A value looking like the documents ids of a bulk bucket.
+     */
+    protected byte[] getRecordValue(int seed) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            sb.append(String.format("\"0b0d4ac3-%04x-4f52-a1a6-%012d\",", seed % 0xffff, seed * 50 + i));
+        }
+        return sb.toString().getBytes(UTF_8);
+    }
+
+}
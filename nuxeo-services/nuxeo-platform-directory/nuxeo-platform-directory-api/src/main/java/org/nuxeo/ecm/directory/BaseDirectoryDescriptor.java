@@ -149,6 +149,14 @@ public class BaseDirectoryDescriptor implements Cloneable {
     @XNode("cacheEntryWithoutReferencesName")
     public String cacheEntryWithoutReferencesName;
 
+    /**
+     * Name of the cache holding query results, query results are not cached if unset.
+     *
+     * @since 11.1
+     */
+    @XNode("cacheQueryName")
+    public String cacheQueryName;
+
     @XNode("negativeCaching")
     public Boolean negativeCaching;
 
@@ -326,6 +334,9 @@ public class BaseDirectoryDescriptor implements Cloneable {
         if (other.cacheEntryWithoutReferencesName != null) {
             cacheEntryWithoutReferencesName = other.cacheEntryWithoutReferencesName;
         }
+        if (other.cacheQueryName != null) {
+            cacheQueryName = other.cacheQueryName;
+        }
         if (other.negativeCaching != null) {
             negativeCaching = other.negativeCaching;
         }
@@ -354,8 +354,9 @@ public abstract class BaseSession implements Session, EntrySource {
     @Override
     public DocumentModel getEntryFromSource(String id, boolean fetchReferences) {
         String idFieldName = directory.getSchemaFieldMap().get(getIdField()).getName().getPrefixedName();
+        // entries are cached by id, don't cache them as query results too
         DocumentModelList result = query(Collections.singletonMap(idFieldName, id), Collections.emptySet(),
-                Collections.emptyMap(), true);
+                Collections.emptyMap(), true, -1, 0);
         return result.isEmpty() ? null : result.get(0);
     }
 
@@ -558,9 +559,39 @@ public abstract class BaseSession implements Session, EntrySource {
     @Override
     public DocumentModelList query(Map<String, Serializable> filter, Set<String> fulltext, Map<String, String> orderBy,
             boolean fetchReferences) {
-        return query(filter, fulltext, orderBy, fetchReferences, -1, 0);
+        DirectoryCache cache = directory.getCache();
+        // results depend on the current tenant for multi-tenant directories
+        if (readAllColumns || isMultiTenant() || cache == null || !cache.isQueryCacheEnabled()) {
+            return query(filter, fulltext, orderBy, fetchReferences, -1, 0);
+        }
+        if (!hasPermission(SecurityConstants.READ)) {
+            return new DocumentModelListImpl();
+        }
+        return cache.query(filter, fulltext, orderBy, fetchReferences,
+                () -> query(filter, fulltext, orderBy, fetchReferences, -1, 0));
     }
 
+    @Override
+    public DocumentModelList query(QueryBuilder queryBuilder, boolean fetchReferences) {
+        DirectoryCache cache = directory.getCache();
+        // results depend on the current tenant for multi-tenant directories
+        if (readAllColumns || isMultiTenant() || cache == null || !cache.isQueryCacheEnabled()) {
+            return doQuery(queryBuilder, fetchReferences);
+        }
+        if (!hasPermission(SecurityConstants.READ)) {
+            return new DocumentModelListImpl();
+        }
+        return cache.query(queryBuilder, fetchReferences, () -> doQuery(queryBuilder, fetchReferences));
+    }
+
+    /**
+     * Executes the query against the directory backend, the results may then be cached by
+     * {@link #query(QueryBuilder, boolean)}.
+     *
+     * @since 11.1
+     */
+    protected abstract DocumentModelList doQuery(QueryBuilder queryBuilder, boolean fetchReferences);
+
     @Override
     public List<String> getProjection(Map<String, Serializable> filter, String columnName) {
         return getProjection(filter, Collections.emptySet(), columnName);
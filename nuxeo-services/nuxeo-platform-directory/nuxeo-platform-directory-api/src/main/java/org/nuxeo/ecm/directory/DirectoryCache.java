@@ -21,15 +21,29 @@ package org.nuxeo.ecm.directory;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
 import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.impl.DocumentModelListImpl;
 import org.nuxeo.ecm.core.cache.Cache;
 import org.nuxeo.ecm.core.cache.CacheManagement;
 import org.nuxeo.ecm.core.cache.CacheService;
+import org.nuxeo.ecm.core.query.sql.model.Expression;
+import org.nuxeo.ecm.core.query.sql.model.Function;
+import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
+import org.nuxeo.ecm.core.query.sql.model.Operand;
+import org.nuxeo.ecm.core.query.sql.model.QueryBuilder;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.metrics.MetricsService;
 
@@ -38,7 +52,11 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
 
 /**
- * Very simple cache system to cache directory entry lookups (not search queries) on top of nuxeo cache
+ * Very simple cache system to cache directory entry lookups on top of nuxeo cache
+ * <p>
+ * If a query cache is configured, the results of the queries done through
+ * {@link Session#query(Map, Set, Map, boolean)} and {@link Session#query(QueryBuilder, boolean)} are cached too, keyed
+ * by directory and query. As any write may change the result of any query, the whole query cache is invalidated on writes.
  * <p>
  * Beware that this cache is not transaction aware (which is not a problem for LDAP directories anyway).
  */
@@ -56,6 +74,12 @@ public class DirectoryCache {
 
     protected String entryCacheWithoutReferencesName = null;
 
+    /** @since 11.1 */
+    protected Cache queryCache;
+
+    /** @since 11.1 */
+    protected String queryCacheName = null;
+
     protected boolean negativeCaching;
 
     protected final MetricRegistry metrics = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
@@ -70,6 +94,12 @@ public class DirectoryCache {
 
     protected final Counter sizeCounter;
 
+    /** @since 11.1 */
+    protected final Counter queryHitsCounter;
+
+    /** @since 11.1 */
+    protected final Counter queryMissesCounter;
+
     private final static Log log = LogFactory.getLog(DirectoryCache.class);
 
     protected DirectoryCache(String name) {
@@ -80,12 +110,24 @@ public class DirectoryCache {
         invalidationsCounter = metrics.counter(
                 MetricRegistry.name("nuxeo", "directories", name, "cache", "invalidations"));
         sizeCounter = metrics.counter(MetricRegistry.name("nuxeo", "directories", name, "cache", "size"));
+        queryHitsCounter = metrics.counter(MetricRegistry.name("nuxeo", "directories", name, "cache", "query-hits"));
+        queryMissesCounter = metrics.counter(
+                MetricRegistry.name("nuxeo", "directories", name, "cache", "query-misses"));
     }
 
     protected boolean isCacheEnabled() {
         return (entryCacheName != null && entryCacheWithoutReferencesName != null);
     }
 
+    /**
+     * Checks whether query results are cached.
+     *
+     * @since 11.1
+     */
+    public boolean isQueryCacheEnabled() {
+        return queryCacheName != null && getQueryCache() != null;
+    }
+
     public DocumentModel getEntry(String entryId, EntrySource source) {
         return getEntry(entryId, source, true);
     }
@@ -140,11 +182,15 @@ public class DirectoryCache {
         } else {
             hitsCounter.inc();
         }
+        if (dm == null) {
+            return null;
+        }
+        // this is the clone() that needs to be careful (see above) when there's concurrency
+        return cloneEntry(dm);
+    }
+
+    protected DocumentModel cloneEntry(DocumentModel dm) {
         try {
-            if (dm == null) {
-                return null;
-            }
-            // this is the clone() that needs to be careful (see above) when there's concurrency
             DocumentModel clone = dm.clone();
             // DocumentModelImpl#clone does not copy context data, hence
             // propagate the read-only flag manually
@@ -158,6 +204,164 @@ public class DirectoryCache {
         }
     }
 
+    /**
+     * Gets the results of a query from the query cache, or from the source if they're not cached yet.
+     * <p>
+     * The returned entries are copies of the cached ones, so they can be modified by the caller.
+     *
+     * @param source the supplier of the results for a cache miss
+     * @since 11.1
+     */
+    public DocumentModelList query(Map<String, Serializable> filter, Set<String> fulltext,
+            Map<String, String> orderBy, boolean fetchReferences, Supplier<DocumentModelList> source) {
+        if (!isQueryCacheEnabled()) {
+            return source.get();
+        }
+        return query(getQueryKey(filter, fulltext, orderBy, fetchReferences), source);
+    }
+
+    /**
+     * Gets the results of a query from the query cache, or from the source if they're not cached yet.
+     * <p>
+     * The returned entries are copies of the cached ones, so they can be modified by the caller.
+     *
+     * @param source the supplier of the results for a cache miss
+     * @since 11.1
+     */
+    public DocumentModelList query(QueryBuilder queryBuilder, boolean fetchReferences,
+            Supplier<DocumentModelList> source) {
+        if (!isQueryCacheEnabled()) {
+            return source.get();
+        }
+        return query(getQueryKey(queryBuilder, fetchReferences), source);
+    }
+
+    protected DocumentModelList query(String key, Supplier<DocumentModelList> source) {
+        Cache cache = getQueryCache();
+        DocumentModelList entries = (DocumentModelList) cache.get(key);
+        if (entries == null) {
+            entries = source.get();
+            // exercise the clone code paths once before sharing the entries, see getEntry
+            ((CacheManagement) cache).putLocal(key, (Serializable) cloneEntries(entries));
+            queryMissesCounter.inc();
+            return entries;
+        }
+        queryHitsCounter.inc();
+        return cloneEntries(entries);
+    }
+
+    protected DocumentModelList cloneEntries(DocumentModelList entries) {
+        DocumentModelListImpl result = new DocumentModelListImpl(entries.size());
+        for (DocumentModel entry : entries) {
+            result.add(cloneEntry(entry));
+        }
+        // keep the total size computed by queries with countTotal
+        result.setTotalSize(entries.totalSize());
+        return result;
+    }
+
+    /**
+     * Computes a key for the query that doesn't depend on the iteration order of the filter and fulltext fields.
+     *
+     * @since 11.1
+     */
+    protected String getQueryKey(Map<String, Serializable> filter, Set<String> fulltext,
+            Map<String, String> orderBy, boolean fetchReferences) {
+        StringBuilder sb = new StringBuilder(name);
+        sb.append(fetchReferences ? "|refs|" : "|norefs|");
+        if (filter != null) {
+            for (Map.Entry<String, Serializable> es : new TreeMap<>(filter).entrySet()) {
+                sb.append(es.getKey()).append('=');
+                appendValue(sb, es.getValue());
+                sb.append(',');
+            }
+        }
+        sb.append('|');
+        if (fulltext != null) {
+            sb.append(new TreeSet<>(fulltext));
+        }
+        sb.append('|');
+        if (orderBy != null) {
+            // ordering matters
+            sb.append(orderBy);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Computes a key for the query, literals are written with their type and length so that values containing
+     * separators can't collide.
+     *
+     * @since 11.1
+     */
+    protected String getQueryKey(QueryBuilder queryBuilder, boolean fetchReferences) {
+        StringBuilder sb = new StringBuilder(name);
+        sb.append(fetchReferences ? "|refs|qb|" : "|norefs|qb|");
+        appendOperand(sb, queryBuilder.predicate());
+        sb.append('|');
+        appendValue(sb, queryBuilder.orders());
+        sb.append('|');
+        sb.append(queryBuilder.limit()).append(',').append(queryBuilder.offset());
+        sb.append(queryBuilder.countTotal() ? ",count" : "");
+        return sb.toString();
+    }
+
+    protected void appendOperand(StringBuilder sb, Operand operand) {
+        if (operand instanceof MultiExpression) {
+            MultiExpression multiExpression = (MultiExpression) operand;
+            sb.append(multiExpression.operator).append('(');
+            multiExpression.predicates.forEach(predicate -> {
+                appendOperand(sb, predicate);
+                sb.append(',');
+            });
+            sb.append(')');
+        } else if (operand instanceof Expression) {
+            Expression expression = (Expression) operand;
+            sb.append('(');
+            appendOperand(sb, expression.lvalue);
+            sb.append(' ').append(expression.operator).append(' ');
+            appendOperand(sb, expression.rvalue);
+            sb.append(')');
+        } else if (operand instanceof Function) {
+            Function function = (Function) operand;
+            sb.append(function.name);
+            appendOperand(sb, function.args);
+        } else if (operand instanceof Collection) {
+            // OperandList, LiteralList
+            sb.append('[');
+            for (Object o : (Collection<?>) operand) {
+                appendOperand(sb, (Operand) o);
+                sb.append(',');
+            }
+            sb.append(']');
+        } else {
+            // Reference and Literal
+            appendValue(sb, operand);
+        }
+    }
+
+    protected void appendValue(StringBuilder sb, Object value) {
+        if (value instanceof Object[]) {
+            value = Arrays.asList((Object[]) value);
+        }
+        if (value instanceof Collection) {
+            sb.append('[');
+            for (Object v : (Collection<?>) value) {
+                appendValue(sb, v);
+                sb.append(',');
+            }
+            sb.append(']');
+        } else if (value instanceof Calendar) {
+            sb.append("Calendar:").append(((Calendar) value).getTimeInMillis());
+        } else if (value == null) {
+            sb.append("null");
+        } else {
+            // keep the type and length so that values containing separators can't collide
+            String string = value.toString();
+            sb.append(value.getClass().getSimpleName()).append(string.length()).append(':').append(string);
+        }
+    }
+
     public void invalidate(List<String> entryIds) {
         if (isCacheEnabled()) {
             synchronized (this) {
@@ -176,6 +380,7 @@ public class DirectoryCache {
                 }
             }
         }
+        invalidateQueries();
     }
 
     public void invalidate(String... entryIds) {
@@ -199,6 +404,19 @@ public class DirectoryCache {
                 }
             }
         }
+        invalidateQueries();
+    }
+
+    /**
+     * Invalidates all the cached query results.
+     *
+     * @since 11.1
+     */
+    public void invalidateQueries() {
+        // cache may be null if we're called for invalidation during a hot-reload
+        if (queryCacheName != null && getQueryCache() != null) {
+            queryCache.invalidateAll();
+        }
     }
 
     public void setEntryCacheName(String entryCacheName) {
@@ -209,6 +427,12 @@ public class DirectoryCache {
         this.entryCacheWithoutReferencesName = entryCacheWithoutReferencesName;
     }
 
+    /** @since 11.1 */
+    public void setQueryCacheName(String queryCacheName) {
+        this.queryCacheName = queryCacheName;
+        queryCache = null;
+    }
+
     public void setNegativeCaching(Boolean negativeCaching) {
         this.negativeCaching = Boolean.TRUE.equals(negativeCaching);
     }
@@ -228,6 +452,14 @@ public class DirectoryCache {
         return entryCacheWithoutReferences;
     }
 
+    /** @since 11.1 */
+    public Cache getQueryCache() {
+        if (queryCache == null && queryCacheName != null) {
+            queryCache = getCacheService().getCache(queryCacheName);
+        }
+        return queryCache;
+    }
+
     protected CacheService getCacheService() {
         CacheService cacheService = Framework.getService(CacheService.class);
         if (cacheService == null) {
@@ -99,6 +99,7 @@ public abstract class AbstractDirectory implements Directory {
         cache = new DirectoryCache(getName());
         cache.setEntryCacheName(descriptor.cacheEntryName);
         cache.setEntryCacheWithoutReferencesName(descriptor.cacheEntryWithoutReferencesName);
+        cache.setQueryCacheName(descriptor.cacheQueryName);
         cache.setNegativeCaching(descriptor.negativeCaching);
 
     }
@@ -364,7 +364,7 @@ public class CoreDirectorySession extends BaseSession {
     }
 
     @Override
-    public DocumentModelList query(QueryBuilder queryBuilder, boolean fetchReferences) {
+    protected DocumentModelList doQuery(QueryBuilder queryBuilder, boolean fetchReferences) {
         throw new UnsupportedOperationException();
     }
 
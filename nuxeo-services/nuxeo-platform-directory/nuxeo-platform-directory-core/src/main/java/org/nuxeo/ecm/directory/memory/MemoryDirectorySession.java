@@ -283,7 +283,7 @@ public class MemoryDirectorySession extends BaseSession {
     }
 
     @Override
-    public DocumentModelList query(QueryBuilder queryBuilder, boolean fetchReferences) {
+    protected DocumentModelList doQuery(QueryBuilder queryBuilder, boolean fetchReferences) {
         checkClose();
         if (!hasPermission(SecurityConstants.READ)) {
             return new DocumentModelListImpl();
@@ -540,7 +540,7 @@ public class LDAPSession extends BaseSession {
     }
 
     @Override
-    public DocumentModelList query(QueryBuilder queryBuilder, boolean fetchReferences) {
+    protected DocumentModelList doQuery(QueryBuilder queryBuilder, boolean fetchReferences) {
         if (!hasPermission(SecurityConstants.READ)) {
             return new DocumentModelListImpl();
         }
@@ -419,7 +419,7 @@ public class MongoDBSession extends BaseSession {
     }
 
     @Override
-    public DocumentModelList query(QueryBuilder queryBuilder, boolean fetchReferences) {
+    protected DocumentModelList doQuery(QueryBuilder queryBuilder, boolean fetchReferences) {
         if (!hasPermission(SecurityConstants.READ)) {
             return new DocumentModelListImpl();
         }
@@ -753,7 +753,7 @@ public class MultiDirectorySession extends BaseSession {
     }
 
     @Override
-    public DocumentModelList query(QueryBuilder queryBuilder, boolean fetchReferences) {
+    protected DocumentModelList doQuery(QueryBuilder queryBuilder, boolean fetchReferences) {
         if (!hasPermission(SecurityConstants.READ)) {
             return new DocumentModelListImpl();
         }
@@ -672,7 +672,7 @@ public class SQLSession extends BaseSession {
     }
 
     @Override
-    public DocumentModelList query(QueryBuilder queryBuilder, boolean fetchReferences) {
+    protected DocumentModelList doQuery(QueryBuilder queryBuilder, boolean fetchReferences) {
         if (!hasPermission(SecurityConstants.READ)) {
             return new DocumentModelListImpl();
         }
@@ -24,12 +24,22 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
 import javax.inject.Inject;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.query.sql.model.OrderByExprs;
+import org.nuxeo.ecm.core.query.sql.model.Predicates;
+import org.nuxeo.ecm.core.query.sql.model.QueryBuilder;
 import org.nuxeo.ecm.core.redis.RedisFeature;
 import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.ecm.directory.Directory;
@@ -59,6 +69,8 @@ public class TestCachedDirectory extends AbstractDirectoryTest {
 
     protected final static String ENTRY_CACHE_WITHOUT_REFERENCES_NAME = "entry-cache-without-references";
 
+    protected final static String QUERY_CACHE_NAME = "query-cache";
+
     @Inject
     protected RuntimeHarness harness;
 
@@ -163,4 +175,130 @@ public class TestCachedDirectory extends AbstractDirectoryTest {
             assertEquals(baseMissesCount + 1, missesCounter.getCount());
         }
     }
+
+    @Test
+    public void testQueryFromCache() throws Exception {
+        DirectoryCache cache = getDirectory().getCache();
+        cache.setQueryCacheName(QUERY_CACHE_NAME);
+        try {
+            doTestQueryFromCache();
+        } finally {
+            cache.setQueryCacheName(null);
+        }
+    }
+
+    protected void doTestQueryFromCache() throws Exception {
+        try (Session session = getDirectory().getSession()) {
+            MetricRegistry metrics = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+            Counter hitsCounter = metrics.counter(
+                    MetricRegistry.name("nuxeo", "directories", "userDirectory", "cache", "query-hits"));
+            Counter missesCounter = metrics.counter(
+                    MetricRegistry.name("nuxeo", "directories", "userDirectory", "cache", "query-misses"));
+            long baseHitsCount = hitsCounter.getCount();
+            long baseMissesCount = missesCounter.getCount();
+
+            Map<String, Serializable> filter = new HashMap<>();
+            filter.put("username", "user_1");
+            filter.put("lastName", "l");
+            Set<String> fulltext = Collections.emptySet();
+
+            // First call will update cache
+            DocumentModelList entries = session.query(filter, fulltext);
+            assertEquals(1, entries.size());
+            assertEquals(baseHitsCount, hitsCounter.getCount());
+            assertEquals(baseMissesCount + 1, missesCounter.getCount());
+
+            // Second call will use the cache, even with another filter iteration order
+            Map<String, Serializable> filter2 = new HashMap<>();
+            filter2.put("lastName", "l");
+            filter2.put("username", "user_1");
+            entries = session.query(filter2, fulltext);
+            assertEquals(1, entries.size());
+            assertEquals("user_1", entries.get(0).getId());
+            assertEquals(baseHitsCount + 1, hitsCounter.getCount());
+            assertEquals(baseMissesCount + 1, missesCounter.getCount());
+
+            // returned entries are copies
+            entries.get(0).setProperty(SCHEMA, "firstName", "modified");
+            entries = session.query(filter, fulltext);
+            assertEquals("f", entries.get(0).getProperty(SCHEMA, "firstName"));
+            assertEquals(baseHitsCount + 2, hitsCounter.getCount());
+
+            // another query is a miss
+            filter.put("username", "user_3");
+            session.query(filter, fulltext);
+            assertEquals(baseMissesCount + 2, missesCounter.getCount());
+
+            // writes invalidate the query results
+            DocumentModel entry = session.getEntry("user_1");
+            entry.setProperty(SCHEMA, "firstName", "f2");
+            session.updateEntry(entry);
+            entries = session.query(filter2, fulltext);
+            assertEquals("f2", entries.get(0).getProperty(SCHEMA, "firstName"));
+            assertEquals(baseMissesCount + 3, missesCounter.getCount());
+        }
+    }
+
+    @Test
+    public void testQueryBuilderFromCache() throws Exception {
+        DirectoryCache cache = getDirectory().getCache();
+        cache.setQueryCacheName(QUERY_CACHE_NAME);
+        try {
+            doTestQueryBuilderFromCache();
+        } finally {
+            cache.setQueryCacheName(null);
+        }
+    }
+
+    protected void doTestQueryBuilderFromCache() throws Exception {
+        try (Session session = getDirectory().getSession()) {
+            MetricRegistry metrics = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+            Counter hitsCounter = metrics.counter(
+                    MetricRegistry.name("nuxeo", "directories", "userDirectory", "cache", "query-hits"));
+            Counter missesCounter = metrics.counter(
+                    MetricRegistry.name("nuxeo", "directories", "userDirectory", "cache", "query-misses"));
+            long baseHitsCount = hitsCounter.getCount();
+            long baseMissesCount = missesCounter.getCount();
+
+            // First call will update cache
+            QueryBuilder queryBuilder = new QueryBuilder().predicate(Predicates.eq("username", "user_1"));
+            DocumentModelList entries = session.query(queryBuilder, false);
+            assertEquals(1, entries.size());
+            assertEquals(baseHitsCount, hitsCounter.getCount());
+            assertEquals(baseMissesCount + 1, missesCounter.getCount());
+
+            // Second call with an equivalent query will use the cache
+            queryBuilder = new QueryBuilder().predicate(Predicates.eq("username", "user_1"));
+            entries = session.query(queryBuilder, false);
+            assertEquals(1, entries.size());
+            assertEquals("user_1", entries.get(0).getId());
+            assertEquals(baseHitsCount + 1, hitsCounter.getCount());
+            assertEquals(baseMissesCount + 1, missesCounter.getCount());
+
+            // another value is a miss
+            session.query(new QueryBuilder().predicate(Predicates.eq("username", "user_3")), false);
+            assertEquals(baseMissesCount + 2, missesCounter.getCount());
+
+            // paging is part of the key and the total size is kept
+            queryBuilder = new QueryBuilder().order(OrderByExprs.desc("username")).limit(1).countTotal(true);
+            session.query(queryBuilder, false);
+            entries = session.query(queryBuilder, false);
+            assertEquals(baseHitsCount + 2, hitsCounter.getCount());
+            assertEquals(baseMissesCount + 3, missesCounter.getCount());
+            assertEquals(1, entries.size());
+            assertEquals("user_3", entries.get(0).getId());
+            assertEquals(3, entries.totalSize());
+            entries = session.query(queryBuilder.offset(1), false);
+            assertEquals("user_1", entries.get(0).getId());
+            assertEquals(baseMissesCount + 4, missesCounter.getCount());
+
+            // writes invalidate the query results
+            DocumentModel entry = session.getEntry("user_1");
+            entry.setProperty(SCHEMA, "firstName", "f2");
+            session.updateEntry(entry);
+            entries = session.query(new QueryBuilder().predicate(Predicates.eq("username", "user_1")), false);
+            assertEquals("f2", entries.get(0).getProperty(SCHEMA, "firstName"));
+            assertEquals(baseMissesCount + 5, missesCounter.getCount());
+        }
+    }
 }
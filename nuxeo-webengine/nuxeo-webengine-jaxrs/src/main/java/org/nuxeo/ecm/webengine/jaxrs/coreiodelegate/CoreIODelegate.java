@@ -32,6 +32,7 @@ import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
 
 import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.io.marshallers.json.AbstractJsonWriter;
 import org.nuxeo.ecm.core.io.registry.Reader;
 import org.nuxeo.ecm.core.io.registry.Writer;
 import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
@@ -45,11 +46,14 @@ import com.sun.jersey.spi.inject.InjectableProvider;
 /**
  * A JAX-RS {@link MessageBodyWriter} that try to delegate the marshalling to all nuxeo-core-io {@link Writer} and
  * {@link Reader}. This singleton is also registering an injection of {@link RenderingContext}
+ * <p>
+ * Json entities are also produced as Smile for clients accepting
+ * {@value AbstractJsonWriter#APPLICATION_SMILE}.
  *
  * @since 11.1
  */
 @Provider
-@Produces({ APPLICATION_JSON, "text/csv" })
+@Produces({ APPLICATION_JSON, AbstractJsonWriter.APPLICATION_SMILE, "text/csv" })
 public class CoreIODelegate extends PartialCoreIODelegate
         implements InjectableProvider<Context, Type>, Injectable<RenderingContext> {
 